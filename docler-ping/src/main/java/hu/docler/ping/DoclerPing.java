@@ -5,14 +5,15 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Properties;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import hu.docler.ping.schedule.TimingWheelScheduler;
 import hu.docler.ping.task.PingRunner;
 import hu.docler.ping.util.CliArgsHandler;
+import hu.docler.ping.util.PropertyUtil;
 
 /**
  * Entry point of the DoclerPing application.
@@ -22,11 +23,6 @@ public final class DoclerPing {
      * {@link Logger} instance.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(DoclerPing.class);
-    /**
-     * {@link ScheduledExecutorService} instance to run repeatedly all Ping and Traceroute tasks.
-     */
-    private static final ScheduledExecutorService EXECUTOR_SERVICE =
-            Executors.newScheduledThreadPool(4);
 
     /**
      * Ctor.
@@ -54,9 +50,12 @@ public final class DoclerPing {
             System.exit(1);
         }
 
-        new PingRunner(properties, EXECUTOR_SERVICE);
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(
+                PropertyUtil.getLong(properties, "ping.scheduler.tick", 100), TimeUnit.MILLISECONDS,
+                PropertyUtil.getInt(properties, "ping.scheduler.wheel.size", 512));
+        final PingRunner pingRunner = new PingRunner(properties, scheduler);
 
-        DoclerPing.keepAppAlive();
+        DoclerPing.keepAppAlive(scheduler, pingRunner);
     }
 
     /**
@@ -83,8 +82,15 @@ public final class DoclerPing {
 
     /**
      * Keeps the application alive and running till the user press Q button to exit.
+     *
+     * @param scheduler
+     *            {@link TimingWheelScheduler} to be stopped on exit
+     * @param pingRunner
+     *            {@link PingRunner} whose executors are stopped on exit
      */
-    private static void keepAppAlive() {
+    private static void keepAppAlive(
+            final TimingWheelScheduler scheduler,
+            final PingRunner pingRunner) {
         System.out.println("Press Q then Enter to exit");
         final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
         String msg = null;
@@ -97,7 +103,8 @@ public final class DoclerPing {
 
             if ("Q".equals(msg)) {
                 LOGGER.warn("Received Q character on system input, quit now...");
-                EXECUTOR_SERVICE.shutdownNow();
+                scheduler.shutdown();
+                pingRunner.shutdown();
                 break;
             }
         }
@@ -0,0 +1,288 @@
+package hu.docler.ping.dns;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * Host name resolution cache shared by all the check types. Successful resolutions are kept for
+ * <code>ping.dns.ttl</code> seconds, failed ones for <code>ping.dns.negative.ttl</code> seconds.
+ * An entry used within <code>ping.dns.refresh.ahead</code> seconds before its expiry is resolved
+ * again in the background, so a host checked regularly never waits for the resolver. If the
+ * background resolution fails the entry is kept until it expires.
+ * <p>
+ * The JDK resolver doesn't expose the TTL of the DNS records, so the TTLs are configured values;
+ * the resolver below the cache still applies its own caching policy
+ * (<code>networkaddress.cache.ttl</code>).
+ */
+public class DnsCache implements Closeable {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(DnsCache.class);
+    /** Entries of the cache, by host name. */
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    /** {@link ExecutorService} refreshing the entries in the background. */
+    private final ExecutorService refreshExecutor;
+    /** Time to live of the successful resolutions, in nanoseconds. */
+    private final long ttlNanos;
+    /** Time to live of the failed resolutions, in nanoseconds. */
+    private final long negativeTtlNanos;
+    /** Time before the expiry of an entry when it is refreshed, in nanoseconds. */
+    private final long refreshAheadNanos;
+    /** Number of lookups answered from the cache. */
+    private final AtomicLong hitCount = new AtomicLong();
+    /** Number of lookups answered by a failed resolution from the cache. */
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    /** Number of lookups resolved by the resolver. */
+    private final AtomicLong missCount = new AtomicLong();
+    /** Number of background refreshes. */
+    private final AtomicLong refreshCount = new AtomicLong();
+    /** Number of resolutions executed by the resolver. */
+    private final AtomicLong resolveCount = new AtomicLong();
+    /** Sum of the durations of the resolutions executed by the resolver. */
+    private final AtomicLong resolveNanosSum = new AtomicLong();
+    /** Maximal duration of the resolutions executed by the resolver. */
+    private final AtomicLong maxResolveNanos = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     */
+    public DnsCache(final Properties properties) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        this.ttlNanos =
+                TimeUnit.SECONDS.toNanos(PropertyUtil.getLong(properties, "ping.dns.ttl", 60));
+        this.negativeTtlNanos = TimeUnit.SECONDS
+                .toNanos(PropertyUtil.getLong(properties, "ping.dns.negative.ttl", 10));
+        this.refreshAheadNanos = TimeUnit.SECONDS
+                .toNanos(PropertyUtil.getLong(properties, "ping.dns.refresh.ahead", 10));
+        if (ttlNanos < 0 || negativeTtlNanos < 0 || refreshAheadNanos < 0) {
+            throw new IllegalArgumentException("DNS cache TTL values can't be negative");
+        }
+        this.refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "ping-dns-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Resolves a host name to its addresses, answering from the cache if possible.
+     *
+     * @param host
+     *            host name
+     * @return addresses of the host
+     * @throws UnknownHostException
+     *             if the host can't be resolved, or a failed resolution of the host is cached
+     */
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        if (host == null) {
+            throw new IllegalArgumentException("Host value is mandatory, can't be null");
+        }
+        Entry entry = entries.get(host);
+        final long now = System.nanoTime();
+        if (entry != null && entry.expiresAt - now > 0) {
+            if (entry.addresses == null) {
+                negativeHitCount.incrementAndGet();
+            } else {
+                hitCount.incrementAndGet();
+                if (entry.expiresAt - now <= refreshAheadNanos
+                        && entry.refreshing.compareAndSet(false, true)) {
+                    scheduleRefresh(host);
+                }
+            }
+        } else {
+            missCount.incrementAndGet();
+            entry = load(host);
+            entries.put(host, entry);
+        }
+        if (entry.addresses == null) {
+            throw new UnknownHostException(host);
+        }
+        return entry.addresses.clone();
+    }
+
+    /**
+     * Resolves a host name to its first address, answering from the cache if possible.
+     *
+     * @param host
+     *            host name
+     * @return first address of the host
+     * @throws UnknownHostException
+     *             if the host can't be resolved, or a failed resolution of the host is cached
+     */
+    public InetAddress resolveFirst(final String host) throws UnknownHostException {
+        return resolve(host)[0];
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of lookups answered by a failed resolution from the cache
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount.get();
+    }
+
+    /**
+     * @return number of lookups resolved by the resolver
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of entries refreshed in the background
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * @return average duration of the resolutions executed by the resolver, in nanoseconds
+     */
+    public long getAverageResolveNanos() {
+        final long count = resolveCount.get();
+        return count == 0 ? 0 : resolveNanosSum.get() / count;
+    }
+
+    /**
+     * @return maximal duration of the resolutions executed by the resolver, in nanoseconds
+     */
+    public long getMaxResolveNanos() {
+        return maxResolveNanos.get();
+    }
+
+    /**
+     * Stops the background refresh of the entries.
+     *
+     * @see Closeable#close()
+     */
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Resolves a host name with the underlying resolver.
+     *
+     * @param host
+     *            host name
+     * @return addresses of the host
+     * @throws UnknownHostException
+     *             if the host can't be resolved
+     */
+    protected InetAddress[] lookup(final String host) throws UnknownHostException {
+        return InetAddress.getAllByName(host);
+    }
+
+    /**
+     * Resolves a host name and creates its cache entry.
+     *
+     * @param host
+     *            host name
+     * @return the entry of the host, holding no addresses if the resolution failed
+     */
+    private Entry load(final String host) {
+        final long startTime = System.nanoTime();
+        InetAddress[] addresses;
+        try {
+            addresses = lookup(host);
+        } catch (final UnknownHostException e) {
+            logger.warn("Failed to resolve host: {}", host);
+            addresses = null;
+        }
+        final long endTime = System.nanoTime();
+        recordResolve(endTime - startTime);
+        logger.debug("Resolving host ({}) took {} microseconds", host,
+                TimeUnit.NANOSECONDS.toMicros(endTime - startTime));
+        return new Entry(addresses, endTime + (addresses == null ? negativeTtlNanos : ttlNanos));
+    }
+
+    /**
+     * Schedules the background refresh of a host.
+     *
+     * @param host
+     *            host name
+     */
+    private void scheduleRefresh(final String host) {
+        try {
+            refreshExecutor.execute(new Runnable() {
+                public void run() {
+                    refreshCount.incrementAndGet();
+                    final Entry entry = load(host);
+                    if (entry.addresses != null) {
+                        entries.put(host, entry);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            logger.debug("DNS cache is closed, not refreshing host: {}", host);
+        }
+    }
+
+    /**
+     * Records the duration of a resolution executed by the resolver.
+     *
+     * @param resolveNanos
+     *            duration of the resolution
+     */
+    private void recordResolve(final long resolveNanos) {
+        resolveCount.incrementAndGet();
+        resolveNanosSum.addAndGet(resolveNanos);
+        long currentMax = maxResolveNanos.get();
+        while (resolveNanos > currentMax
+                && !maxResolveNanos.compareAndSet(currentMax, resolveNanos)) {
+            currentMax = maxResolveNanos.get();
+        }
+    }
+
+    /**
+     * Cache entry of a host.
+     */
+    private static final class Entry {
+        /** Addresses of the host, <code>null</code> if the resolution failed. */
+        private final InetAddress[] addresses;
+        /** Expiry time of the entry. */
+        private final long expiresAt;
+        /** Flag signalling that the background refresh of the entry is scheduled. */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * Ctor.
+         *
+         * @param addresses
+         *            addresses of the host, <code>null</code> if the resolution failed
+         * @param expiresAt
+         *            expiry time of the entry
+         */
+        private Entry(final InetAddress[] addresses, final long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
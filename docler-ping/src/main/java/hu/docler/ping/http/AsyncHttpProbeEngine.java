@@ -0,0 +1,497 @@
+package hu.docler.ping.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * Non-blocking HTTP probe engine. A handful of I/O reactor threads multiplex all the probes in
+ * flight, no thread is parked while a probe waits for the remote host. Response bodies are read
+ * into a per I/O thread buffer and discarded, at most <code>ping.tcpip.body.max.bytes</code> bytes
+ * of a body are read, then the connection is shut down and the probe completes with the bytes
+ * read. Completed probes are handed over to their callbacks
+ * on a small callback pool, so storing results and sending failure reports never blocks the I/O
+ * threads. The I/O reactor gives no hook into DNS resolution, connecting and TLS handshake, so the
+ * time spent before the request is sent (leasing a connection, and resolving, connecting and
+ * handshaking if a new connection is opened) is recorded as a single {@link HttpPhase#CONNECT}
+ * phase.
+ * <p>
+ * The engine can't tell whether a probe was sent on a reused connection, so it doesn't keep the
+ * connections alive: every probe opens a new connection, and is reported as sent on a cold one.
+ * Keep-alive (<code>ping.tcpip.keepalive</code>) is supported by the blocking engine only.
+ */
+public class AsyncHttpProbeEngine implements Closeable {
+    /** Buffer the response bodies are read into and discarded, one for each I/O thread. */
+    private static final ThreadLocal<ByteBuffer> DISCARD_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(8192);
+        }
+    };
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(AsyncHttpProbeEngine.class);
+    /** The underlying asynchronous HTTP client. */
+    private final CloseableHttpAsyncClient httpClient;
+    /** {@link ExecutorService} running the callbacks of the completed probes. */
+    private final ExecutorService callbackExecutor;
+    /** Maximal number of probes in flight. */
+    private final int maxInFlight;
+    /** Maximal number of response body bytes read by a probe. */
+    private final long maxBodyBytes;
+    /** Number of probes in flight. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Ctor. Creates and starts the I/O reactor of the engine, host names are resolved by the
+     * system resolver on every new connection.
+     *
+     * @param properties
+     *            application properties
+     */
+    public AsyncHttpProbeEngine(final Properties properties) {
+        this(properties, null);
+    }
+
+    /**
+     * Ctor. Creates and starts the I/O reactor of the engine.
+     *
+     * @param properties
+     *            application properties
+     * @param dnsCache
+     *            {@link DnsCache} resolving the host names, <code>null</code> to use the system
+     *            resolver
+     * @throws IllegalArgumentException
+     *             If keep-alive is configured, or the maximal body size is invalid.
+     * @throws IllegalStateException
+     *             If the I/O reactor can't be created.
+     */
+    public AsyncHttpProbeEngine(final Properties properties, final DnsCache dnsCache) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        if (PropertyUtil.getBoolean(properties, "ping.tcpip.keepalive", false)) {
+            logger.error("HTTP keep-alive is not supported by the async HTTP probe engine");
+            throw new IllegalArgumentException(
+                    "HTTP keep-alive is not supported by the async HTTP probe engine");
+        }
+        final int timeout = PropertyUtil.getInt(properties, "ping.tcpip.http.timeout",
+                (int) TimeUnit.SECONDS.toMillis(60));
+        final int ioThreads = PropertyUtil.getInt(properties, "ping.tcpip.async.io.threads", 2);
+        this.maxInFlight =
+                PropertyUtil.getInt(properties, "ping.tcpip.async.max.inflight", 10000);
+        this.maxBodyBytes =
+                PropertyUtil.getLong(properties, "ping.tcpip.body.max.bytes", 64 * 1024);
+        if (maxBodyBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid value of ping.tcpip.body.max.bytes property: " + maxBodyBytes);
+        }
+
+        final RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(timeout).setSocketTimeout(timeout).build();
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads).setConnectTimeout(timeout).setSoTimeout(timeout)
+                .build();
+        final PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(ioReactorConfig),
+                    ManagedNHttpClientConnectionFactory.INSTANCE,
+                    dnsCache != null ? new CachingDnsResolver(dnsCache)
+                            : SystemDefaultDnsResolver.INSTANCE);
+        } catch (final IOReactorException e) {
+            throw new IllegalStateException("Failed to create I/O reactor", e);
+        }
+        connectionManager.setMaxTotal(maxInFlight);
+        connectionManager.setDefaultMaxPerRoute(
+                PropertyUtil.getInt(properties, "ping.tcpip.pool.max.per.route", 2));
+        httpClient = HttpAsyncClients.custom().setConnectionManager(connectionManager)
+                .setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE)
+                .setDefaultRequestConfig(requestConfig).build();
+        callbackExecutor = Executors.newFixedThreadPool(
+                PropertyUtil.getInt(properties, "ping.tcpip.async.callback.threads", 2),
+                new CallbackThreadFactory());
+        httpClient.start();
+        logger.info("Started async HTTP probe engine with {} I/O threads", ioThreads);
+    }
+
+    /**
+     * Sends an HTTP GET probe to the given URL. The callback is called on the callback pool of the
+     * engine when the probe completes or fails. If the engine already has the maximal number of
+     * probes in flight the probe fails immediately with a {@link RejectedExecutionException}.
+     *
+     * @param url
+     *            URL to be probed
+     * @param callback
+     *            callback receiving the result of the probe
+     */
+    public void probe(final String url, final FutureCallback<HttpProbeResult> callback) {
+        probe(new HttpGet(url), callback);
+    }
+
+    /**
+     * Sends an HTTP probe request. The callback is called on the callback pool of the engine when
+     * the probe completes or fails. If the engine already has the maximal number of probes in
+     * flight the probe fails immediately with a {@link RejectedExecutionException}. The response
+     * body is read (and discarded) up to the maximal body size, a HEAD or range request keeps it
+     * short.
+     *
+     * @param request
+     *            the probe request
+     * @param callback
+     *            callback receiving the result of the probe
+     */
+    public void probe(
+            final HttpUriRequest request,
+            final FutureCallback<HttpProbeResult> callback) {
+        final String url = request.getURI().toString();
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            logger.warn("Async HTTP probe engine reached its limit of {} probes in flight",
+                    maxInFlight);
+            deliverFailure(callback, new RejectedExecutionException(
+                    "Too many probes in flight, rejected probe of: " + url));
+            return;
+        }
+        final HttpPhaseTimings timings = new HttpPhaseTimings();
+        final long startTime = System.nanoTime();
+        final DiscardingResponseConsumer responseConsumer =
+                new DiscardingResponseConsumer(timings, startTime, maxBodyBytes);
+        httpClient.execute(
+                new TimingRequestProducer(HttpAsyncMethods.create(request), timings, startTime),
+                responseConsumer,
+                new FutureCallback<HttpProbeResult>() {
+                    public void completed(final HttpProbeResult result) {
+                        inFlight.decrementAndGet();
+                        deliverResult(callback, result);
+                    }
+
+                    public void failed(final Exception e) {
+                        inFlight.decrementAndGet();
+                        final HttpProbeResult truncatedResult = responseConsumer.getResult();
+                        if (truncatedResult != null) {
+                            deliverResult(callback, truncatedResult);
+                        } else {
+                            deliverFailure(callback, e);
+                        }
+                    }
+
+                    public void cancelled() {
+                        inFlight.decrementAndGet();
+                        final HttpProbeResult truncatedResult = responseConsumer.getResult();
+                        if (truncatedResult != null) {
+                            deliverResult(callback, truncatedResult);
+                            return;
+                        }
+                        deliver(new Runnable() {
+                            public void run() {
+                                callback.cancelled();
+                            }
+                        });
+                    }
+                });
+    }
+
+    /**
+     * @return number of probes in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Stops the I/O reactor and the callback pool of the engine.
+     *
+     * @see Closeable#close()
+     */
+    public void close() throws IOException {
+        try {
+            httpClient.close();
+        } finally {
+            callbackExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Hands over the result of a probe to its callback.
+     *
+     * @param callback
+     *            callback of the probe
+     * @param result
+     *            result of the probe
+     */
+    private void deliverResult(
+            final FutureCallback<HttpProbeResult> callback,
+            final HttpProbeResult result) {
+        deliver(new Runnable() {
+            public void run() {
+                callback.completed(result);
+            }
+        });
+    }
+
+    /**
+     * Hands over the failure of a probe to its callback.
+     *
+     * @param callback
+     *            callback of the probe
+     * @param e
+     *            cause of the failure
+     */
+    private void deliverFailure(final FutureCallback<HttpProbeResult> callback, final Exception e) {
+        deliver(new Runnable() {
+            public void run() {
+                callback.failed(e);
+            }
+        });
+    }
+
+    /**
+     * Runs a callback on the callback pool.
+     *
+     * @param callbackRunner
+     *            runner of the callback
+     */
+    private void deliver(final Runnable callbackRunner) {
+        try {
+            callbackExecutor.execute(callbackRunner);
+        } catch (final RejectedExecutionException e) {
+            logger.warn("Callback pool is shut down, dropping probe callback");
+        }
+    }
+
+    /**
+     * {@link HttpAsyncRequestProducer} delegate recording the time spent before the request is
+     * sent.
+     */
+    private static final class TimingRequestProducer implements HttpAsyncRequestProducer {
+        /** The producer of the request. */
+        private final HttpAsyncRequestProducer delegate;
+        /** Recorder of the phase durations of the probe. */
+        private final HttpPhaseTimings timings;
+        /** Start time of the probe. */
+        private final long startTime;
+
+        /**
+         * Ctor.
+         *
+         * @param delegate
+         *            the producer of the request
+         * @param timings
+         *            recorder of the phase durations of the probe
+         * @param startTime
+         *            start time of the probe
+         */
+        private TimingRequestProducer(
+                final HttpAsyncRequestProducer delegate,
+                final HttpPhaseTimings timings,
+                final long startTime) {
+            this.delegate = delegate;
+            this.timings = timings;
+            this.startTime = startTime;
+        }
+
+        /**
+         * @see HttpAsyncRequestProducer#getTarget()
+         */
+        public HttpHost getTarget() {
+            return delegate.getTarget();
+        }
+
+        /**
+         * Called when the connection is ready and the request is about to be sent.
+         *
+         * @see HttpAsyncRequestProducer#generateRequest()
+         */
+        public HttpRequest generateRequest() throws IOException, HttpException {
+            timings.setConnectNanos(System.nanoTime() - startTime);
+            timings.markRequestStart();
+            return delegate.generateRequest();
+        }
+
+        /**
+         * @see HttpAsyncRequestProducer#produceContent(ContentEncoder, IOControl)
+         */
+        public void produceContent(final ContentEncoder encoder, final IOControl ioctrl)
+                throws IOException {
+            delegate.produceContent(encoder, ioctrl);
+        }
+
+        /**
+         * @see HttpAsyncRequestProducer#requestCompleted(HttpContext)
+         */
+        public void requestCompleted(final HttpContext context) {
+            delegate.requestCompleted(context);
+        }
+
+        /**
+         * @see HttpAsyncRequestProducer#failed(Exception)
+         */
+        public void failed(final Exception ex) {
+            delegate.failed(ex);
+        }
+
+        /**
+         * @see HttpAsyncRequestProducer#isRepeatable()
+         */
+        public boolean isRepeatable() {
+            return delegate.isRepeatable();
+        }
+
+        /**
+         * @see HttpAsyncRequestProducer#resetRequest()
+         */
+        public void resetRequest() throws IOException {
+            delegate.resetRequest();
+        }
+
+        /**
+         * @see java.io.Closeable#close()
+         */
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Response consumer keeping only the status code of the response and discarding its body,
+     * recording the time to first byte, the duration of reading the body and the number of bytes
+     * read. Once the maximal number of body bytes is read, the consumer completes its result and
+     * shuts the connection down; the exchange then fails or is cancelled with the connection
+     * closed, and the result of the consumer is delivered instead.
+     */
+    private static final class DiscardingResponseConsumer
+            extends AbstractAsyncResponseConsumer<HttpProbeResult> {
+        /** Recorder of the phase durations of the probe. */
+        private final HttpPhaseTimings timings;
+        /** Start time of the probe. */
+        private final long startTime;
+        /** Arrival time of the response headers. */
+        private long headersTime;
+        /** Status code of the response. */
+        private int statusCode = -1;
+        /** Maximal number of body bytes read. */
+        private final long maxBodyBytes;
+        /** Number of body bytes read. */
+        private long bytesRead;
+
+        /**
+         * Ctor.
+         *
+         * @param timings
+         *            recorder of the phase durations of the probe
+         * @param startTime
+         *            start time of the probe
+         * @param maxBodyBytes
+         *            maximal number of body bytes read
+         */
+        private DiscardingResponseConsumer(
+                final HttpPhaseTimings timings,
+                final long startTime,
+                final long maxBodyBytes) {
+            this.timings = timings;
+            this.startTime = startTime;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        @Override
+        protected void onResponseReceived(final HttpResponse response) {
+            headersTime = System.nanoTime();
+            timings.markResponseHeaders();
+            statusCode = response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        protected void onContentReceived(final ContentDecoder decoder, final IOControl ioctrl)
+                throws IOException {
+            final ByteBuffer buffer = DISCARD_BUFFER.get();
+            int read;
+            do {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), maxBodyBytes - bytesRead));
+                read = decoder.read(buffer);
+                if (read > 0) {
+                    bytesRead += read;
+                }
+            } while (read > 0 && bytesRead < maxBodyBytes);
+            if (bytesRead >= maxBodyBytes && !decoder.isCompleted()) {
+                responseCompleted(null);
+                ioctrl.shutdown();
+            }
+        }
+
+        @Override
+        protected void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) {
+            // the body is discarded, nothing to prepare
+        }
+
+        @Override
+        protected HttpProbeResult buildResult(final HttpContext context) {
+            final long endTime = System.nanoTime();
+            timings.setBodyNanos(endTime - headersTime);
+            timings.setTotalNanos(endTime - startTime);
+            return new HttpProbeResult(statusCode, timings, bytesRead);
+        }
+
+        @Override
+        protected void releaseResources() {
+            // no resources held
+        }
+    }
+
+    /**
+     * {@link ThreadFactory} naming the threads of the callback pool.
+     */
+    private static final class CallbackThreadFactory implements ThreadFactory {
+        /** Counter of the threads created. */
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         */
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread =
+                    new Thread(runnable, "ping-async-callback-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
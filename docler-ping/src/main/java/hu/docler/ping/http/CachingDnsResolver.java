@@ -0,0 +1,33 @@
+package hu.docler.ping.http;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.apache.http.conn.DnsResolver;
+
+import hu.docler.ping.dns.DnsCache;
+
+/**
+ * {@link DnsResolver} answering from the shared {@link DnsCache}.
+ */
+class CachingDnsResolver implements DnsResolver {
+    /** {@link DnsCache} resolving the host names. */
+    private final DnsCache dnsCache;
+
+    /**
+     * Ctor.
+     *
+     * @param dnsCache
+     *            {@link DnsCache} resolving the host names
+     */
+    CachingDnsResolver(final DnsCache dnsCache) {
+        this.dnsCache = dnsCache;
+    }
+
+    /**
+     * @see DnsResolver#resolve(String)
+     */
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        return dnsCache.resolve(host);
+    }
+}
@@ -0,0 +1,19 @@
+package hu.docler.ping.http;
+
+/**
+ * Phases of an HTTP probe measured separately.
+ */
+public enum HttpPhase {
+    /** Resolving the host name. */
+    DNS,
+    /** Establishing the TCP connection. */
+    CONNECT,
+    /** TLS handshake. */
+    TLS,
+    /** From starting to send the request until the response headers arrive. */
+    TTFB,
+    /** From the arrival of the response headers until the body is completely read. */
+    BODY,
+    /** The whole probe, from its start until the body is completely read. */
+    TOTAL
+}
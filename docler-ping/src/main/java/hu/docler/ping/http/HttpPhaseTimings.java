@@ -0,0 +1,91 @@
+package hu.docler.ping.http;
+
+/**
+ * Recorder of the durations of the {@link HttpPhase phases} of an HTTP probe, all measured with
+ * the monotonic {@link System#nanoTime()} clock. A phase not taking place during the probe (for
+ * example DNS resolution and connecting on a reused connection, or TLS handshake on a plain HTTP
+ * connection) keeps the {@link #NOT_MEASURED} value. An instance belongs to a single probe and is
+ * filled by the thread executing it.
+ */
+public final class HttpPhaseTimings {
+    /** Value of a phase not measured. */
+    public static final long NOT_MEASURED = -1;
+    /** Duration of the DNS resolution. */
+    private long dnsNanos = NOT_MEASURED;
+    /** Duration of establishing the TCP connection. */
+    private long connectNanos = NOT_MEASURED;
+    /** Duration of the TLS handshake. */
+    private long tlsNanos = NOT_MEASURED;
+    /** Time between starting to send the request and the arrival of the response headers. */
+    private long ttfbNanos = NOT_MEASURED;
+    /** Time between the arrival of the response headers and reading the whole body. */
+    private long bodyNanos = NOT_MEASURED;
+    /** Duration of the whole probe. */
+    private long totalNanos = NOT_MEASURED;
+    /** Time when sending the request started, used for calculating {@link #ttfbNanos}. */
+    private long requestStartTime;
+
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+
+    public void setDnsNanos(final long dnsNanos) {
+        this.dnsNanos = dnsNanos;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public void setConnectNanos(final long connectNanos) {
+        this.connectNanos = connectNanos;
+    }
+
+    public long getTlsNanos() {
+        return tlsNanos;
+    }
+
+    public void setTlsNanos(final long tlsNanos) {
+        this.tlsNanos = tlsNanos;
+    }
+
+    public long getTtfbNanos() {
+        return ttfbNanos;
+    }
+
+    public void setTtfbNanos(final long ttfbNanos) {
+        this.ttfbNanos = ttfbNanos;
+    }
+
+    public long getBodyNanos() {
+        return bodyNanos;
+    }
+
+    public void setBodyNanos(final long bodyNanos) {
+        this.bodyNanos = bodyNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public void setTotalNanos(final long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Marks the start of sending the request.
+     */
+    void markRequestStart() {
+        requestStartTime = System.nanoTime();
+    }
+
+    /**
+     * Marks the arrival of the response headers, calculating the time to first byte.
+     */
+    void markResponseHeaders() {
+        if (requestStartTime != 0) {
+            ttfbNanos = System.nanoTime() - requestStartTime;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package hu.docler.ping.http;
+
+/**
+ * Request methods of the HTTP probes.
+ */
+public enum HttpProbeMethod {
+    /** GET request, the body is read up to the configured byte cap. */
+    GET,
+    /** HEAD request, the response has no body. */
+    HEAD,
+    /** GET request with a range header asking for the first bytes of the body only. */
+    RANGE
+}
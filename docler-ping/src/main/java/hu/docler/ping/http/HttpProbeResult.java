@@ -0,0 +1,52 @@
+package hu.docler.ping.http;
+
+/**
+ * Result of an HTTP probe executed by the {@link AsyncHttpProbeEngine}.
+ */
+public class HttpProbeResult {
+    /** Status code of the response. */
+    private final int statusCode;
+    /** Durations of the phases of the probe. */
+    private final HttpPhaseTimings timings;
+    /** Number of response body bytes read. */
+    private final long bytesRead;
+
+    /**
+     * Ctor.
+     *
+     * @param statusCode
+     *            status code of the response
+     * @param timings
+     *            durations of the phases of the probe
+     * @param bytesRead
+     *            number of response body bytes read
+     */
+    public HttpProbeResult(
+            final int statusCode,
+            final HttpPhaseTimings timings,
+            final long bytesRead) {
+        super();
+        this.statusCode = statusCode;
+        this.timings = timings;
+        this.bytesRead = bytesRead;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return time between starting the probe and receiving the whole response, in nanoseconds
+     */
+    public long getResponseTimeNanos() {
+        return timings.getTotalNanos();
+    }
+
+    public HttpPhaseTimings getTimings() {
+        return timings;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+}
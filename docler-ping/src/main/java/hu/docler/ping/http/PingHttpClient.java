@@ -0,0 +1,432 @@
+package hu.docler.ping.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.ssl.SSLContexts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * HTTP client shared by all the TCP/IP ping checks. Holds a single, bounded connection pool with
+ * per-route limits and idle connection eviction, so a check doesn't have to build a client and a
+ * pool of its own. In keep-alive mode connections are reused between the checks of the same host
+ * and every probe is marked as warm (sent on a reused connection) or cold (sent on a new
+ * connection), so the two latencies can be measured separately. Requests executed with
+ * {@link #execute(HttpUriRequest, HttpClientContext, HttpPhaseTimings)} get the durations of their
+ * DNS resolution, TCP connect, TLS handshake and time to first byte phases recorded.
+ */
+public class PingHttpClient implements Closeable {
+    /** Name of the context attribute set if the request was sent on a reused connection. */
+    private static final String CONNECTION_REUSED_ATTRIBUTE = "ping.connection.reused";
+    /** Size of the buffer the response bodies are read through. */
+    private static final int BODY_BUFFER_SIZE = 8192;
+    /** Buffer the response bodies are read into and discarded, one for each thread. */
+    private static final ThreadLocal<byte[]> BODY_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BODY_BUFFER_SIZE];
+        }
+    };
+    /**
+     * Phase timings of the request executed by the current thread. The DNS resolver of the
+     * connection manager gets no execution context, so the timings are bound to the thread
+     * executing the request, the blocking client runs all the phases on that thread.
+     */
+    private static final ThreadLocal<HttpPhaseTimings> CURRENT_TIMINGS =
+            new ThreadLocal<HttpPhaseTimings>();
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(PingHttpClient.class);
+    /** Connection pool of the client. */
+    private final PoolingHttpClientConnectionManager connectionManager;
+    /** The underlying HTTP client. */
+    private final CloseableHttpClient httpClient;
+    /** Flag signalling whether connections are kept alive between the checks. */
+    private final boolean keepAlive;
+    /** Number of probes sent on reused connections. */
+    private final AtomicLong warmProbeCount = new AtomicLong();
+    /** Sum of the response times of the probes sent on reused connections. */
+    private final AtomicLong warmResponseTimeSum = new AtomicLong();
+    /** Number of probes sent on new connections. */
+    private final AtomicLong coldProbeCount = new AtomicLong();
+    /** Sum of the response times of the probes sent on new connections. */
+    private final AtomicLong coldResponseTimeSum = new AtomicLong();
+
+    /**
+     * Ctor. Host names are resolved by the system resolver on every new connection.
+     *
+     * @param properties
+     *            application properties
+     */
+    public PingHttpClient(final Properties properties) {
+        this(properties, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param dnsCache
+     *            {@link DnsCache} resolving the host names, <code>null</code> to use the system
+     *            resolver
+     */
+    public PingHttpClient(final Properties properties, final DnsCache dnsCache) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        final int timeout = PropertyUtil.getInt(properties, "ping.tcpip.http.timeout",
+                (int) TimeUnit.SECONDS.toMillis(60));
+        this.keepAlive = PropertyUtil.getBoolean(properties, "ping.tcpip.keepalive", false);
+
+        final Registry<ConnectionSocketFactory> socketFactoryRegistry =
+                RegistryBuilder.<ConnectionSocketFactory> create()
+                        .register("http", new TimingPlainSocketFactory())
+                        .register("https", new TimingSslSocketFactory()).build();
+        connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry,
+                new TimingDnsResolver(dnsCache != null ? new CachingDnsResolver(dnsCache)
+                        : SystemDefaultDnsResolver.INSTANCE));
+        connectionManager
+                .setMaxTotal(PropertyUtil.getInt(properties, "ping.tcpip.pool.max.total", 200));
+        connectionManager.setDefaultMaxPerRoute(
+                PropertyUtil.getInt(properties, "ping.tcpip.pool.max.per.route", 2));
+
+        final RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(timeout).setSocketTimeout(timeout).build();
+        final HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager).setDefaultRequestConfig(requestConfig)
+                .setRequestExecutor(new TimingRequestExecutor()).evictExpiredConnections()
+                .evictIdleConnections(
+                        PropertyUtil.getLong(properties, "ping.tcpip.pool.idle.timeout", 60),
+                        TimeUnit.SECONDS);
+        if (!keepAlive) {
+            builder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+        httpClient = builder.build();
+        logger.debug("Created shared HTTP client (keep-alive: {}, max connections: {}, "
+                + "max connections per route: {})", keepAlive, connectionManager.getMaxTotal(),
+                connectionManager.getDefaultMaxPerRoute());
+    }
+
+    /**
+     * @return the underlying HTTP client
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Executes a request recording the durations of its phases. The DNS resolution, TCP connect
+     * and TLS handshake phases are recorded only if a new connection is opened for the request.
+     * The phases of reading the response body are left to the caller.
+     *
+     * @param request
+     *            request to be executed
+     * @param context
+     *            context of the request execution
+     * @param timings
+     *            recorder of the phase durations
+     * @return response of the request
+     * @throws IOException
+     *             if the request fails
+     */
+    public CloseableHttpResponse execute(
+            final HttpUriRequest request,
+            final HttpClientContext context,
+            final HttpPhaseTimings timings) throws IOException {
+        CURRENT_TIMINGS.set(timings);
+        try {
+            return httpClient.execute(request, context);
+        } finally {
+            CURRENT_TIMINGS.remove();
+        }
+    }
+
+    /**
+     * Reads the body of a response through a reusable buffer and discards it, reading at most the
+     * given number of bytes, so the memory used doesn't depend on the size of the body. If the
+     * body is longer the rest is left unread; closing the response then closes its connection
+     * instead of returning it to the pool, the response must be closed in either case.
+     *
+     * @param response
+     *            the response
+     * @param maxBytes
+     *            maximal number of bytes to be read
+     * @return number of bytes read
+     * @throws IOException
+     *             if reading the body fails
+     */
+    public long readBody(final HttpResponse response, final long maxBytes) throws IOException {
+        final HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return 0;
+        }
+        final InputStream content = entity.getContent();
+        if (content == null) {
+            return 0;
+        }
+        final byte[] buffer = BODY_BUFFER.get();
+        long bytesRead = 0;
+        while (bytesRead < maxBytes) {
+            final int read =
+                    content.read(buffer, 0, (int) Math.min(buffer.length, maxBytes - bytesRead));
+            if (read == -1) {
+                break;
+            }
+            bytesRead += read;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * @return <code>true</code> if connections are kept alive between the checks
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Checks whether the request executed with the given context was sent on a reused (warm)
+     * connection.
+     *
+     * @param context
+     *            context of the request execution
+     * @return <code>true</code> if the request was sent on a reused connection
+     */
+    public boolean isConnectionReused(final HttpClientContext context) {
+        return Boolean.TRUE.equals(context.getAttribute(CONNECTION_REUSED_ATTRIBUTE));
+    }
+
+    /**
+     * Records the response time of a probe in the warm or cold connection statistics.
+     *
+     * @param connectionReused
+     *            <code>true</code> if the probe was sent on a reused connection
+     * @param responseTime
+     *            response time of the probe in milliseconds
+     */
+    public void recordProbe(final boolean connectionReused, final long responseTime) {
+        if (responseTime < 0) {
+            return;
+        }
+        if (connectionReused) {
+            warmProbeCount.incrementAndGet();
+            warmResponseTimeSum.addAndGet(responseTime);
+        } else {
+            coldProbeCount.incrementAndGet();
+            coldResponseTimeSum.addAndGet(responseTime);
+        }
+    }
+
+    /**
+     * @return average response time (in milliseconds) of the probes sent on reused connections
+     */
+    public long getAverageWarmResponseTime() {
+        final long count = warmProbeCount.get();
+        return count == 0 ? 0 : warmResponseTimeSum.get() / count;
+    }
+
+    /**
+     * @return average response time (in milliseconds) of the probes sent on new connections
+     */
+    public long getAverageColdResponseTime() {
+        final long count = coldProbeCount.get();
+        return count == 0 ? 0 : coldResponseTimeSum.get() / count;
+    }
+
+    /**
+     * @return statistics of the connection pool
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Closes the client and all the connections of its pool.
+     *
+     * @see Closeable#close()
+     */
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * {@link HttpRequestExecutor} marking in the context whether the connection the request is
+     * sent on has already served requests, and recording the time to first byte of the request.
+     */
+    private static final class TimingRequestExecutor extends HttpRequestExecutor {
+        @Override
+        public HttpResponse execute(
+                final HttpRequest request,
+                final HttpClientConnection conn,
+                final HttpContext context) throws IOException, HttpException {
+            context.setAttribute(CONNECTION_REUSED_ATTRIBUTE,
+                    Boolean.valueOf(conn.getMetrics().getRequestCount() > 0));
+            return super.execute(request, conn, context);
+        }
+
+        @Override
+        protected HttpResponse doSendRequest(
+                final HttpRequest request,
+                final HttpClientConnection conn,
+                final HttpContext context) throws IOException, HttpException {
+            final HttpPhaseTimings timings = CURRENT_TIMINGS.get();
+            if (timings != null) {
+                timings.markRequestStart();
+            }
+            return super.doSendRequest(request, conn, context);
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(
+                final HttpRequest request,
+                final HttpClientConnection conn,
+                final HttpContext context) throws HttpException, IOException {
+            final HttpResponse response = super.doReceiveResponse(request, conn, context);
+            final HttpPhaseTimings timings = CURRENT_TIMINGS.get();
+            if (timings != null) {
+                timings.markResponseHeaders();
+            }
+            return response;
+        }
+    }
+
+    /**
+     * {@link DnsResolver} recording the duration of the host name resolution.
+     */
+    private static final class TimingDnsResolver implements DnsResolver {
+        /** The resolver of the host names. */
+        private final DnsResolver delegate;
+
+        /**
+         * Ctor.
+         *
+         * @param delegate
+         *            the resolver of the host names
+         */
+        private TimingDnsResolver(final DnsResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * @see DnsResolver#resolve(String)
+         */
+        public InetAddress[] resolve(final String host) throws UnknownHostException {
+            final long startTime = System.nanoTime();
+            try {
+                return delegate.resolve(host);
+            } finally {
+                final HttpPhaseTimings timings = CURRENT_TIMINGS.get();
+                if (timings != null) {
+                    timings.setDnsNanos(System.nanoTime() - startTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link PlainConnectionSocketFactory} recording the duration of the TCP connect.
+     */
+    private static final class TimingPlainSocketFactory extends PlainConnectionSocketFactory {
+        @Override
+        public Socket connectSocket(
+                final int connectTimeout,
+                final Socket socket,
+                final HttpHost host,
+                final InetSocketAddress remoteAddress,
+                final InetSocketAddress localAddress,
+                final HttpContext context) throws IOException {
+            final long startTime = System.nanoTime();
+            final Socket connectedSocket = super.connectSocket(connectTimeout, socket, host,
+                    remoteAddress, localAddress, context);
+            final HttpPhaseTimings timings = CURRENT_TIMINGS.get();
+            if (timings != null) {
+                timings.setConnectNanos(System.nanoTime() - startTime);
+            }
+            return connectedSocket;
+        }
+    }
+
+    /**
+     * {@link SSLConnectionSocketFactory} recording the durations of the TCP connect and the TLS
+     * handshake separately. The handshake runs while the connected socket is layered, so its
+     * duration is subtracted from the duration of the whole connect.
+     */
+    private static final class TimingSslSocketFactory extends SSLConnectionSocketFactory {
+        /**
+         * Ctor.
+         */
+        private TimingSslSocketFactory() {
+            super(SSLContexts.createDefault(), getDefaultHostnameVerifier());
+        }
+
+        @Override
+        public Socket connectSocket(
+                final int connectTimeout,
+                final Socket socket,
+                final HttpHost host,
+                final InetSocketAddress remoteAddress,
+                final InetSocketAddress localAddress,
+                final HttpContext context) throws IOException {
+            final long startTime = System.nanoTime();
+            final Socket connectedSocket = super.connectSocket(connectTimeout, socket, host,
+                    remoteAddress, localAddress, context);
+            final HttpPhaseTimings timings = CURRENT_TIMINGS.get();
+            if (timings != null) {
+                final long tlsNanos = Math.max(timings.getTlsNanos(), 0);
+                timings.setConnectNanos(System.nanoTime() - startTime - tlsNanos);
+            }
+            return connectedSocket;
+        }
+
+        @Override
+        public Socket createLayeredSocket(
+                final Socket socket,
+                final String target,
+                final int port,
+                final HttpContext context) throws IOException {
+            final long startTime = System.nanoTime();
+            final Socket layeredSocket = super.createLayeredSocket(socket, target, port, context);
+            final HttpPhaseTimings timings = CURRENT_TIMINGS.get();
+            if (timings != null) {
+                timings.setTlsNanos(System.nanoTime() - startTime);
+            }
+            return layeredSocket;
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package hu.docler.ping.icmp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.tracert.TracertHop;
+import hu.docler.ping.tracert.TracertPath;
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * In-process ICMP echo engine, replacing the <code>ping</code> process forked by every ICMP check.
+ * A ping of a host sends <code>ping.icmp.count</code> echo requests,
+ * <code>ping.icmp.interval</code> milliseconds apart, each waiting at most
+ * <code>ping.icmp.timeout</code> milliseconds for its reply; the echo requests of all the hosts
+ * are executed by a small, bounded pool of threads. An echo request holds its thread until the
+ * reply or the timeout, so the engine completes at most
+ * <code>ping.icmp.engine.threads * 1000 / ping.icmp.timeout</code> echo requests of unreachable
+ * hosts per second. At most <code>ping.icmp.queue.size</code> echo requests wait or run in the
+ * engine, a ping not fitting is rejected instead of falling behind its schedule. Completed pings
+ * and traces are handed over to their callbacks on a small callback pool, so storing results and
+ * sending failure reports never blocks the echo threads.
+ * <p>
+ * The Java runtime has no API for ICMP sockets, the echo requests are sent by
+ * {@link InetAddress#isReachable(int)}. It sends a real ICMP echo request if the process may open
+ * a raw socket (<code>CAP_NET_RAW</code> on Linux), otherwise it silently falls back to a TCP
+ * connect to the echo port (7) of the host, which most hosts filter, so they would be reported
+ * lost. The engine refuses to start without the raw socket permission, unless the fallback is
+ * accepted explicitly by <code>ping.icmp.tcp.fallback</code>.
+ * <p>
+ * The engine also traces routes, on a separate bounded pool of
+ * <code>ping.tracert.engine.threads</code> threads, so the traces never hold the echo threads. The
+ * smallest time to live the destination answers is its hop distance; a trace probes
+ * <code>ping.tracert.max.hops</code> first, then halves the range of the distance with every
+ * probe, one probe at a time with the timeout of the echo requests. An unreachable destination
+ * takes a single probe, a reachable one at most <code>log2(ping.tracert.max.hops) + 1</code>
+ * probes, and no time to live above one the destination answered is probed.
+ * {@link InetAddress#isReachable(java.net.NetworkInterface, int, int)} doesn't tell which router
+ * dropped an expired probe, so the hops before the destination are reported without address. At
+ * most <code>ping.tracert.queue.size</code> traces wait for a thread, a trace not fitting is
+ * rejected.
+ */
+public class IcmpEchoEngine implements Closeable {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(IcmpEchoEngine.class);
+    /** Position of the <code>CAP_NET_RAW</code> capability in the capability sets of Linux. */
+    private static final int CAP_NET_RAW = 13;
+    /** Executor sending the echo requests. */
+    private final ScheduledThreadPoolExecutor echoExecutor;
+    /** {@link ThreadPoolExecutor} probing the hops of the trace routes. */
+    private final ThreadPoolExecutor traceExecutor;
+    /** {@link ExecutorService} running the callbacks of the completed pings and traces. */
+    private final ExecutorService callbackExecutor;
+    /** Number of echo requests of a ping. */
+    private final int count;
+    /** Delay between the echo requests of a ping, in milliseconds. */
+    private final long intervalMillis;
+    /** Reply timeout of an echo request, in milliseconds. */
+    private final int timeoutMillis;
+    /** Maximal time to live of the probes of a trace route. */
+    private final int maxHops;
+    /** Maximal number of pings in flight. */
+    private final int maxInFlight;
+    /** Number of pings in flight. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** Maximal number of echo requests waiting or running. */
+    private final int maxQueued;
+    /** Number of echo requests waiting or running. */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @throws IllegalStateException
+     *             If the process may not open raw sockets, and the TCP fallback is not accepted.
+     */
+    public IcmpEchoEngine(final Properties properties) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        this.count = PropertyUtil.getInt(properties, "ping.icmp.count", 5);
+        this.intervalMillis = PropertyUtil.getLong(properties, "ping.icmp.interval", 200);
+        this.timeoutMillis = PropertyUtil.getInt(properties, "ping.icmp.timeout", 1000);
+        this.maxInFlight = PropertyUtil.getInt(properties, "ping.icmp.max.inflight", 10000);
+        this.maxQueued = PropertyUtil.getInt(properties, "ping.icmp.queue.size", 500);
+        this.maxHops = PropertyUtil.getInt(properties, "ping.tracert.max.hops", 30);
+        if (count <= 0) {
+            throw new IllegalArgumentException("Number of echo requests must be greater than zero");
+        }
+        if (maxHops <= 0) {
+            throw new IllegalArgumentException("Maximal number of hops must be greater than zero");
+        }
+        checkRawSocketPermission(properties);
+        final int threads = PropertyUtil.getInt(properties, "ping.icmp.engine.threads", 16);
+        echoExecutor =
+                new ScheduledThreadPoolExecutor(threads, new EchoThreadFactory("ping-icmp-echo-"));
+        echoExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        callbackExecutor = Executors.newFixedThreadPool(
+                PropertyUtil.getInt(properties, "ping.icmp.callback.threads", 2),
+                new EchoThreadFactory("ping-icmp-callback-"));
+        final int traceThreads = PropertyUtil.getInt(properties, "ping.tracert.engine.threads", 4);
+        traceExecutor = new ThreadPoolExecutor(traceThreads, traceThreads, 0,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                        PropertyUtil.getInt(properties, "ping.tracert.queue.size", 100)),
+                new EchoThreadFactory("ping-icmp-trace-"));
+        logger.info("Started ICMP echo engine with {} echo and {} trace threads", threads,
+                traceThreads);
+    }
+
+    /**
+     * Checks that the process may open raw sockets, so the echo requests are real ICMP echo
+     * requests. The permission is read from the effective capabilities of the process on Linux,
+     * elsewhere it's not checked.
+     *
+     * @param properties
+     *            application properties
+     * @throws IllegalStateException
+     *             If the process may not open raw sockets, and the TCP fallback is not accepted.
+     */
+    private void checkRawSocketPermission(final Properties properties) {
+        final File status = new File("/proc/self/status");
+        if (!status.isFile()) {
+            logger.warn("Can't tell whether raw ICMP sockets are permitted, echo requests may fall"
+                    + " back to TCP connects to port 7 of the hosts");
+            return;
+        }
+        long capabilities = -1;
+        try {
+            for (final String line : Files.readAllLines(status.toPath(),
+                    StandardCharsets.US_ASCII)) {
+                if (line.startsWith("CapEff:")) {
+                    capabilities = Long.parseLong(line.substring("CapEff:".length()).trim(), 16);
+                }
+            }
+        } catch (final IOException e) {
+            logger.warn("Failed to read the capabilities of the process", e);
+        }
+        if (capabilities == -1 || (capabilities & 1L << CAP_NET_RAW) != 0) {
+            return;
+        }
+        if (!PropertyUtil.getBoolean(properties, "ping.icmp.tcp.fallback", false)) {
+            logger.error("Raw ICMP sockets are not permitted (CAP_NET_RAW), refusing to start the "
+                    + "ICMP echo engine");
+            throw new IllegalStateException("Raw ICMP sockets are not permitted, grant CAP_NET_RAW"
+                    + " or accept the TCP fallback with ping.icmp.tcp.fallback");
+        }
+        logger.error("Raw ICMP sockets are not permitted (CAP_NET_RAW), echo requests fall back to"
+                + " TCP connects to port 7 of the hosts, hosts filtering the port are reported"
+                + " lost");
+    }
+
+    /**
+     * Pings an address. The callback is called on the callback pool of the engine when all the
+     * echo requests are answered or timed out. If the engine already has the maximal number of
+     * pings in flight, or its echo requests don't fit into the queue, the ping fails immediately,
+     * on the calling thread, with a {@link RejectedExecutionException}.
+     *
+     * @param address
+     *            address to be pinged
+     * @param callback
+     *            callback receiving the statistics of the ping
+     */
+    public void ping(final InetAddress address, final PingCallback callback) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            logger.warn("ICMP echo engine reached its limit of {} pings in flight", maxInFlight);
+            callback.failed(new RejectedExecutionException(
+                    "Too many pings in flight, rejected ping of: " + address));
+            return;
+        }
+        if (!reserveQueue(count)) {
+            inFlight.decrementAndGet();
+            logger.warn("ICMP echo engine reached its limit of {} queued echo requests",
+                    maxQueued);
+            callback.failed(new RejectedExecutionException(
+                    "Too many echo requests queued, rejected ping of: " + address));
+            return;
+        }
+        final Ping ping = new Ping(address, callback);
+        int scheduled = 0;
+        try {
+            for (; scheduled < count; scheduled++) {
+                echoExecutor.schedule(new EchoRequest(ping, scheduled),
+                        scheduled * intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (final RejectedExecutionException e) {
+            queued.addAndGet(scheduled - count);
+            inFlight.decrementAndGet();
+            callback.failed(e);
+        }
+    }
+
+    /**
+     * Reserves places in the queue of the echo requests.
+     *
+     * @param requests
+     *            number of echo requests
+     * @return <code>true</code> if the requests fit into the queue
+     */
+    private boolean reserveQueue(final int requests) {
+        if (queued.addAndGet(requests) > maxQueued) {
+            queued.addAndGet(-requests);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs a callback on the callback pool.
+     *
+     * @param callbackRunner
+     *            runner of the callback
+     */
+    private void deliver(final Runnable callbackRunner) {
+        try {
+            callbackExecutor.execute(callbackRunner);
+        } catch (final RejectedExecutionException e) {
+            logger.warn("Callback pool is shut down, dropping ICMP callback");
+        }
+    }
+
+    /**
+     * Traces the route to an address, searching the hop distance of the address on the trace
+     * pool. The callback is called on the callback pool of the engine when the trace completes. A
+     * trace counts as a ping in flight, if the engine already has the maximal number of pings in
+     * flight, or the trace pool is saturated, the trace fails immediately, on the calling thread,
+     * with a {@link RejectedExecutionException}.
+     *
+     * @param address
+     *            address to be traced
+     * @param callback
+     *            callback receiving the path traced
+     */
+    public void trace(final InetAddress address, final TraceCallback callback) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            logger.warn("ICMP echo engine reached its limit of {} pings in flight", maxInFlight);
+            callback.failed(new RejectedExecutionException(
+                    "Too many pings in flight, rejected trace route of: " + address));
+            return;
+        }
+        try {
+            traceExecutor.execute(new Trace(address, callback));
+        } catch (final RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            logger.warn("ICMP echo engine reached its limit of queued trace routes, rejected trace"
+                    + " route of: {}", address);
+            callback.failed(e);
+        }
+    }
+
+    /**
+     * @return number of pings in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Stops the engine, the pings in flight are dropped.
+     *
+     * @see Closeable#close()
+     */
+    public void close() throws IOException {
+        echoExecutor.shutdownNow();
+        traceExecutor.shutdownNow();
+        callbackExecutor.shutdownNow();
+    }
+
+    /**
+     * @return number of echo requests waiting or running
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * State of a ping in flight.
+     */
+    private final class Ping {
+        /** Address pinged. */
+        private final InetAddress address;
+        /** Callback receiving the statistics of the ping. */
+        private final PingCallback callback;
+        /** Round trip times of the echo requests in nanoseconds, -1 for a request lost. */
+        private final long[] rttNanos = new long[count];
+        /** Number of echo requests not completed yet. */
+        private final AtomicInteger remaining = new AtomicInteger(count);
+
+        /**
+         * Ctor.
+         *
+         * @param address
+         *            address pinged
+         * @param callback
+         *            callback receiving the statistics of the ping
+         */
+        private Ping(final InetAddress address, final PingCallback callback) {
+            this.address = address;
+            this.callback = callback;
+        }
+
+        /**
+         * Records the outcome of an echo request, completing the ping after the last one. The
+         * atomic counter publishes the round trip times written by the other threads.
+         *
+         * @param index
+         *            index of the echo request
+         * @param nanos
+         *            round trip time in nanoseconds, -1 if the request is lost
+         */
+        private void echoCompleted(final int index, final long nanos) {
+            rttNanos[index] = nanos;
+            if (remaining.decrementAndGet() == 0) {
+                inFlight.decrementAndGet();
+                final PingStatistics statistics = summarize();
+                deliver(new Runnable() {
+                    public void run() {
+                        callback.completed(statistics);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Summarizes the echo requests like the <code>ping</code> command of iputils, the mean
+         * deviation being the standard deviation of the round trip times.
+         *
+         * @return statistics of the echo requests
+         */
+        private PingStatistics summarize() {
+            int received = 0;
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            double sum = 0;
+            double squareSum = 0;
+            for (final long nanos : rttNanos) {
+                if (nanos >= 0) {
+                    received++;
+                    min = Math.min(min, nanos);
+                    max = Math.max(max, nanos);
+                    sum += nanos;
+                    squareSum += (double) nanos * nanos;
+                }
+            }
+            final PingStatistics statistics = new PingStatistics();
+            statistics.setCounts(count, received, count - received);
+            if (received > 0) {
+                final double avg = sum / received;
+                statistics.setRtt(toMillis(min), toMillis(avg), toMillis(max),
+                        toMillis(Math.sqrt(Math.max(0, squareSum / received - avg * avg))));
+            }
+            return statistics;
+        }
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds, rounded to microseconds.
+     *
+     * @param nanos
+     *            the nanoseconds
+     * @return the milliseconds
+     */
+    private static double toMillis(final double nanos) {
+        return Math.round(nanos / 1000) / 1000.0;
+    }
+
+    /**
+     * A trace route in flight, searching the hop distance of the address.
+     */
+    private final class Trace implements Runnable {
+        /** Address traced. */
+        private final InetAddress address;
+        /** Callback receiving the path traced. */
+        private final TraceCallback callback;
+
+        /**
+         * Ctor.
+         *
+         * @param address
+         *            address traced
+         * @param callback
+         *            callback receiving the path traced
+         */
+        private Trace(final InetAddress address, final TraceCallback callback) {
+            this.address = address;
+            this.callback = callback;
+        }
+
+        /**
+         * Searches the smallest time to live the address answers, keeping it between the largest
+         * one known not answered and the smallest one known answered.
+         *
+         * @see Runnable#run()
+         */
+        public void run() {
+            final TracertPath path;
+            try {
+                long destinationRttNanos = probe(maxHops);
+                if (destinationRttNanos < 0) {
+                    path = summarize(maxHops + 1, -1);
+                } else {
+                    int unanswered = 0;
+                    int destinationTtl = maxHops;
+                    while (destinationTtl - unanswered > 1) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        final int ttl = (unanswered + destinationTtl) >>> 1;
+                        final long rttNanos = probe(ttl);
+                        if (rttNanos < 0) {
+                            unanswered = ttl;
+                        } else {
+                            destinationTtl = ttl;
+                            destinationRttNanos = rttNanos;
+                        }
+                    }
+                    path = summarize(destinationTtl, destinationRttNanos);
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            deliver(new Runnable() {
+                public void run() {
+                    callback.completed(path);
+                }
+            });
+        }
+
+        /**
+         * Probes the address with a time to live.
+         *
+         * @param ttl
+         *            time to live of the probe
+         * @return round trip time in nanoseconds, -1 if the address didn't answer
+         */
+        private long probe(final int ttl) {
+            try {
+                final long startTime = System.nanoTime();
+                if (address.isReachable(null, ttl, timeoutMillis)) {
+                    return System.nanoTime() - startTime;
+                }
+            } catch (final IOException e) {
+                logger.debug("Trace probe to {} with TTL {} failed: {}", address, ttl,
+                        e.getMessage());
+            }
+            return -1;
+        }
+
+        /**
+         * @param destinationTtl
+         *            smallest time to live the address answered, above the maximum if none
+         * @param destinationRttNanos
+         *            round trip time of the address in nanoseconds
+         * @return path traced, the hops before the destination without address
+         */
+        private TracertPath summarize(final int destinationTtl, final long destinationRttNanos) {
+            final int hopCount = Math.min(destinationTtl, maxHops);
+            final List<TracertHop> hops = new ArrayList<TracertHop>(hopCount);
+            for (int ttl = 1; ttl <= hopCount; ttl++) {
+                if (ttl == destinationTtl) {
+                    hops.add(new TracertHop(ttl, address.getHostAddress(),
+                            new double[] {toMillis(destinationRttNanos)}));
+                } else {
+                    hops.add(new TracertHop(ttl, null, new double[] {Double.NaN}));
+                }
+            }
+            return new TracertPath(hops);
+        }
+    }
+
+    /**
+     * A single echo request of a ping.
+     */
+    private final class EchoRequest implements Runnable {
+        /** The ping the request belongs to. */
+        private final Ping ping;
+        /** Index of the request within the ping. */
+        private final int index;
+
+        /**
+         * Ctor.
+         *
+         * @param ping
+         *            the ping the request belongs to
+         * @param index
+         *            index of the request within the ping
+         */
+        private EchoRequest(final Ping ping, final int index) {
+            this.ping = ping;
+            this.index = index;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            long rttNanos = -1;
+            try {
+                final long startTime = System.nanoTime();
+                if (ping.address.isReachable(timeoutMillis)) {
+                    rttNanos = System.nanoTime() - startTime;
+                }
+            } catch (final IOException e) {
+                logger.debug("Echo request to {} failed: {}", ping.address, e.getMessage());
+            } finally {
+                queued.decrementAndGet();
+            }
+            try {
+                ping.echoCompleted(index, rttNanos);
+            } catch (final RuntimeException e) {
+                logger.error("Processing ping result of {} failed", ping.address, e);
+            }
+        }
+    }
+
+    /**
+     * {@link ThreadFactory} naming the threads of the engine.
+     */
+    private static final class EchoThreadFactory implements ThreadFactory {
+        /** Prefix of the names of the threads. */
+        private final String namePrefix;
+        /** Counter of the threads created. */
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        /**
+         * Ctor.
+         *
+         * @param namePrefix
+         *            prefix of the names of the threads
+         */
+        private EchoThreadFactory(final String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         */
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread =
+                    new Thread(runnable, namePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
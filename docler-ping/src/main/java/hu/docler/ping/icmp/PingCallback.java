@@ -0,0 +1,22 @@
+package hu.docler.ping.icmp;
+
+/**
+ * Callback receiving the outcome of a ping executed by the {@link IcmpEchoEngine}.
+ */
+public interface PingCallback {
+    /**
+     * Called when all the echo requests of the ping are answered or timed out.
+     *
+     * @param statistics
+     *            statistics of the ping
+     */
+    void completed(PingStatistics statistics);
+
+    /**
+     * Called when the ping couldn't be executed.
+     *
+     * @param cause
+     *            cause of the failure
+     */
+    void failed(Exception cause);
+}
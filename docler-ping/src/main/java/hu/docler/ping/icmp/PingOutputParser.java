@@ -0,0 +1,391 @@
+package hu.docler.ping.icmp;
+
+/**
+ * Parser of the output of the <code>ping</code> command, filling a {@link PingStatistics} record.
+ * The parser understands the summary of the Windows <code>ping</code> command
+ * (<code>Sent = 5, Received = 5, Lost = 0</code> and
+ * <code>Minimum = 1ms, Maximum = 3ms, Average = 2ms</code>), of the Linux (iputils)
+ * <code>ping</code> command (<code>5 packets transmitted, 5 received, 0% packet loss</code> and
+ * <code>rtt min/avg/max/mdev = 0.031/0.040/0.049/0.006 ms</code>) and of
+ * <code>fping -c N -q</code> (<code>xmt/rcv/%loss = 5/5/0%, min/avg/max = 0.03/0.04/0.05</code>).
+ * Destination unreachable and timed out replies are counted as errors.
+ * <p>
+ * The output is read in a single pass, dispatching on the current character to the keywords
+ * starting with it and parsing the numbers in place, so no intermediate strings are created. The
+ * parser keeps its state in fields, so an instance is reusable but not thread-safe.
+ */
+public final class PingOutputParser {
+    /** Value returned by {@link #parseReplyLine(CharSequence)} for a lost echo request. */
+    public static final double REPLY_LOST = -1;
+    /** Value returned by {@link #parseReplyLine(CharSequence)} for a line not about a reply. */
+    public static final double NOT_A_REPLY = -2;
+    /** Value of a number not found in the output. */
+    private static final double NOT_FOUND = -1;
+    /** Flags of the characters starting a number or a keyword, indexed by the character. */
+    private static final boolean[] KEYWORD_STARTS = new boolean[128];
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            KEYWORD_STARTS[c] = true;
+        }
+        for (final char c : "SRLMAtrexmuU".toCharArray()) {
+            KEYWORD_STARTS[c] = true;
+        }
+    }
+
+    /** Output being parsed. */
+    private CharSequence output;
+    /** Length of the output being parsed. */
+    private int length;
+    /** Current position in the output. */
+    private int position;
+    /** Last number read from the output. */
+    private double lastNumber;
+    /** Number of echo requests sent. */
+    private double sent;
+    /** Number of echo replies received. */
+    private double received;
+    /** Number of echo requests lost. */
+    private double lost;
+    /** Number of errors reported by the summary of the output. */
+    private double summaryErrors;
+    /** Number of error replies found in the output. */
+    private int errorReplies;
+    /** Minimal round trip time, in milliseconds. */
+    private double minRtt;
+    /** Average round trip time, in milliseconds. */
+    private double avgRtt;
+    /** Maximal round trip time, in milliseconds. */
+    private double maxRtt;
+    /** Mean deviation of the round trip times, in milliseconds. */
+    private double mdevRtt;
+
+    /**
+     * Parses the output of a <code>ping</code> command.
+     *
+     * @param pingOutput
+     *            the output
+     * @param statistics
+     *            record reset and filled with the statistics found in the output
+     * @return <code>true</code> if the output contained the packet counts, <code>false</code>
+     *         otherwise
+     */
+    public boolean parse(final CharSequence pingOutput, final PingStatistics statistics) {
+        reset(pingOutput);
+        final CharSequence text = output;
+        final int textLength = length;
+        int i = 0;
+        while (i < textLength) {
+            final char c = text.charAt(i);
+            if (c < KEYWORD_STARTS.length && KEYWORD_STARTS[c]) {
+                position = i;
+                if (isDigit(c)) {
+                    lastNumber = readNumber();
+                    i = position;
+                } else if (readKeyword(c)) {
+                    i = position;
+                } else {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+        output = null;
+        statistics.reset();
+        if (sent == NOT_FOUND || received == NOT_FOUND) {
+            statistics.setErrors(errorReplies);
+            return false;
+        }
+        if (lost == NOT_FOUND) {
+            lost = Math.max(0, sent - received);
+        }
+        statistics.setCounts((int) sent, (int) received, (int) lost);
+        statistics.setErrors(Math.max(errorReplies, (int) summaryErrors));
+        if (avgRtt != NOT_FOUND) {
+            statistics.setRtt(minRtt, avgRtt, maxRtt, mdevRtt);
+        }
+        return true;
+    }
+
+    /**
+     * Parses a single line of the output of a continuously running <code>ping</code> command,
+     * like <code>64 bytes from 127.0.0.1: icmp_seq=1 ttl=64 time=0.031 ms</code> or
+     * <code>Reply from 127.0.0.1: bytes=32 time&lt;1ms TTL=128</code>. Destination unreachable,
+     * timed out and <code>no answer yet</code> (iputils <code>-O</code>) lines are lost requests.
+     *
+     * @param line
+     *            the line
+     * @return round trip time of the reply in milliseconds (the bound for <code>time&lt;</code>),
+     *         {@link #REPLY_LOST} for a lost request, {@link #NOT_A_REPLY} for other lines
+     */
+    public double parseReplyLine(final CharSequence line) {
+        reset(line);
+        double rtt = NOT_A_REPLY;
+        while (position < length) {
+            final char c = output.charAt(position);
+            if ((c == 'u' || c == 'U') && countError("unreachable")
+                    || c == 't' && (countError("timed out") || countError("timeout"))
+                    || c == 'n' && skip("no answer yet")) {
+                rtt = REPLY_LOST;
+                break;
+            } else if (c == 't' && (skip("time=") || skip("time<"))) {
+                if (position < length && isDigit(output.charAt(position))) {
+                    rtt = readNumber();
+                }
+            } else {
+                position++;
+            }
+        }
+        output = null;
+        return rtt;
+    }
+
+    /**
+     * Clears the state of the parser.
+     *
+     * @param pingOutput
+     *            output to be parsed
+     */
+    private void reset(final CharSequence pingOutput) {
+        output = pingOutput == null ? "" : pingOutput;
+        length = output.length();
+        position = 0;
+        lastNumber = NOT_FOUND;
+        sent = NOT_FOUND;
+        received = NOT_FOUND;
+        lost = NOT_FOUND;
+        summaryErrors = 0;
+        errorReplies = 0;
+        minRtt = NOT_FOUND;
+        avgRtt = NOT_FOUND;
+        maxRtt = NOT_FOUND;
+        mdevRtt = NOT_FOUND;
+    }
+
+    /**
+     * Reads the keyword starting at the current position, if any, moving the position after the
+     * keyword and the values following it.
+     *
+     * @param c
+     *            character at the current position
+     * @return <code>true</code> if a keyword was read, <code>false</code> otherwise
+     */
+    private boolean readKeyword(final char c) {
+        switch (c) {
+        case 'S':
+            if (readValue("Sent = ")) {
+                sent = lastNumber;
+                return true;
+            }
+            return false;
+        case 'R':
+            if (readValue("Received = ")) {
+                received = lastNumber;
+                return true;
+            }
+            return false;
+        case 'L':
+            if (readValue("Lost = ")) {
+                lost = lastNumber;
+                return true;
+            }
+            return false;
+        case 'M':
+            if (readValue("Minimum = ")) {
+                minRtt = lastNumber;
+                return true;
+            } else if (readValue("Maximum = ")) {
+                maxRtt = lastNumber;
+                return true;
+            }
+            return false;
+        case 'A':
+            if (readValue("Average = ")) {
+                avgRtt = lastNumber;
+                return true;
+            }
+            return false;
+        case 't':
+            if (skip("transmitted")) {
+                sent = lastNumber;
+                return true;
+            }
+            return countError("timed out") || countError("timeout");
+        case 'r':
+            if (skip("received")) {
+                received = lastNumber;
+                return true;
+            }
+            return false;
+        case 'e':
+            if (skip("errors")) {
+                summaryErrors = lastNumber;
+                return true;
+            }
+            return false;
+        case 'x':
+            return readFping();
+        case 'm':
+            return readRtt();
+        case 'u':
+        case 'U':
+            return countError("unreachable");
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Reads the packet counts of the <code>fping</code> summary,
+     * <code>xmt/rcv/%loss = 5/5/0%</code>.
+     *
+     * @return <code>true</code> if the counts were read, <code>false</code> otherwise
+     */
+    private boolean readFping() {
+        if (!readValue("xmt/rcv/%loss = ")) {
+            return false;
+        }
+        sent = lastNumber;
+        if (skip("/") && position < length && isDigit(output.charAt(position))) {
+            received = readNumber();
+        }
+        return true;
+    }
+
+    /**
+     * Reads the round trip times of the Linux and <code>fping</code> summaries,
+     * <code>min/avg/max/mdev = 0.031/0.040/0.049/0.006</code> or
+     * <code>min/avg/max = 0.03/0.04/0.05</code>.
+     *
+     * @return <code>true</code> if the round trip times were read, <code>false</code> otherwise
+     */
+    private boolean readRtt() {
+        if (!skip("min/avg/max")) {
+            return false;
+        }
+        while (position < length && output.charAt(position) != '='
+                && output.charAt(position) != '\n') {
+            position++;
+        }
+        if (!skip("= ")) {
+            return true;
+        }
+        minRtt = readRttValue();
+        avgRtt = readRttValue();
+        maxRtt = readRttValue();
+        mdevRtt = readRttValue();
+        return true;
+    }
+
+    /**
+     * Reads a round trip time of a <code>/</code> separated list.
+     *
+     * @return the round trip time, or {@link #NOT_FOUND} if the list has no more values
+     */
+    private double readRttValue() {
+        if (position >= length || !isDigit(output.charAt(position))) {
+            return NOT_FOUND;
+        }
+        final double value = readNumber();
+        skip("/");
+        return value;
+    }
+
+    /**
+     * Reads a keyword followed by a number, storing the number as the last number read.
+     *
+     * @param keyword
+     *            the keyword
+     * @return <code>true</code> if the keyword was followed by a number, <code>false</code>
+     *         otherwise
+     */
+    private boolean readValue(final String keyword) {
+        if (!skip(keyword)) {
+            return false;
+        }
+        if (position < length && isDigit(output.charAt(position))) {
+            lastNumber = readNumber();
+        } else {
+            lastNumber = NOT_FOUND;
+        }
+        return true;
+    }
+
+    /**
+     * Skips an error keyword, counting an error reply if it was found. The keyword is matched
+     * ignoring the case of its first character.
+     *
+     * @param keyword
+     *            the keyword, in lower case
+     * @return <code>true</code> if the keyword was found, <code>false</code> otherwise
+     */
+    private boolean countError(final String keyword) {
+        if (position + keyword.length() > length
+                || Character.toLowerCase(output.charAt(position)) != keyword.charAt(0)) {
+            return false;
+        }
+        for (int i = 1; i < keyword.length(); i++) {
+            if (output.charAt(position + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        position += keyword.length();
+        errorReplies++;
+        return true;
+    }
+
+    /**
+     * Skips the text at the current position if it matches the one given.
+     *
+     * @param text
+     *            the text
+     * @return <code>true</code> if the text was found and skipped, <code>false</code> otherwise
+     */
+    private boolean skip(final String text) {
+        if (position + text.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (output.charAt(position + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        position += text.length();
+        return true;
+    }
+
+    /**
+     * Reads the decimal number at the current position, moving the position after it.
+     *
+     * @return the number
+     */
+    private double readNumber() {
+        long integerPart = 0;
+        while (position < length && isDigit(output.charAt(position))) {
+            integerPart = integerPart * 10 + output.charAt(position) - '0';
+            position++;
+        }
+        if (position + 1 >= length || output.charAt(position) != '.'
+                || !isDigit(output.charAt(position + 1))) {
+            return integerPart;
+        }
+        position++;
+        long fractionPart = 0;
+        long divisor = 1;
+        while (position < length && isDigit(output.charAt(position))) {
+            fractionPart = fractionPart * 10 + output.charAt(position) - '0';
+            divisor *= 10;
+            position++;
+        }
+        return integerPart + (double) fractionPart / divisor;
+    }
+
+    /**
+     * @param c
+     *            a character
+     * @return <code>true</code> if the character is a decimal digit, <code>false</code> otherwise
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
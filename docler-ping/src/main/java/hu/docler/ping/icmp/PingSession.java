@@ -0,0 +1,247 @@
+package hu.docler.ping.icmp;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.process.ProcessRunner;
+
+/**
+ * Long-lived ping session of a host. A continuously running <code>ping</code> command is kept for
+ * the host and each of its output lines is parsed as soon as it arrives, so no command is started
+ * per check. The outcomes of the last echo requests are kept in a rolling window, which the checks
+ * read as {@link PingStatistics}. The command is restarted if it exits, and the window is reported
+ * empty if no line arrived for a while, so a dead session never looks healthy.
+ */
+public class PingSession implements Closeable {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(PingSession.class);
+    /** Host pinged. */
+    private final String host;
+    /** Provider of the command of the session, asked again on every restart. */
+    private final CommandProvider commandProvider;
+    /** Round trip times of the last echo requests, in milliseconds, NaN for lost requests. */
+    private final double[] window;
+    /** Age after which the window is considered stale, in nanoseconds. */
+    private final long staleNanos;
+    /** Delay before restarting the command once it exited, in milliseconds. */
+    private final long restartDelayMillis;
+    /** {@link PingOutputParser} parsing the reply lines, used by the reader thread only. */
+    private final PingOutputParser parser = new PingOutputParser();
+    /** Thread running the command and reading its output. */
+    private final Thread readerThread;
+    /** Position of the next outcome in the window. */
+    private int windowPosition;
+    /** Number of outcomes in the window. */
+    private int windowSize;
+    /** Time of the last outcome recorded. */
+    private long lastOutcomeNanos;
+    /** Number of times the command was started. */
+    private volatile int startCount;
+    /** Command currently running. */
+    private volatile Process process;
+    /** Flag signalling that the session has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Ctor, starts the session.
+     *
+     * @param host
+     *            host pinged
+     * @param commandProvider
+     *            provider of the command of the session
+     * @param windowLength
+     *            number of echo requests kept in the rolling window
+     * @param staleMillis
+     *            age after which the window is considered stale, in milliseconds
+     * @param restartDelayMillis
+     *            delay before restarting the command once it exited, in milliseconds
+     */
+    public PingSession(
+            final String host,
+            final CommandProvider commandProvider,
+            final int windowLength,
+            final long staleMillis,
+            final long restartDelayMillis) {
+        if (host == null) {
+            throw new IllegalArgumentException("Host is mandatory, can't be null");
+        }
+        if (windowLength <= 0) {
+            throw new IllegalArgumentException("Window length must be greater than zero");
+        }
+        this.host = host;
+        this.commandProvider = commandProvider;
+        this.window = new double[windowLength];
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+        this.restartDelayMillis = restartDelayMillis;
+        this.readerThread = new Thread(new Runnable() {
+            public void run() {
+                runSession();
+            }
+        }, "ping-session-" + host);
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Fills the statistics of the echo requests in the rolling window. A stale window is reported
+     * as empty.
+     *
+     * @param statistics
+     *            record reset and filled with the statistics
+     */
+    public synchronized void fillStatistics(final PingStatistics statistics) {
+        statistics.reset();
+        if (windowSize == 0 || System.nanoTime() - lastOutcomeNanos > staleNanos) {
+            return;
+        }
+        int received = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        double sum = 0;
+        double squareSum = 0;
+        for (int i = 0; i < windowSize; i++) {
+            final double rtt = window[i];
+            if (!Double.isNaN(rtt)) {
+                received++;
+                min = Math.min(min, rtt);
+                max = Math.max(max, rtt);
+                sum += rtt;
+                squareSum += rtt * rtt;
+            }
+        }
+        statistics.setCounts(windowSize, received, windowSize - received);
+        if (received > 0) {
+            final double avg = sum / received;
+            statistics.setRtt(min, avg, max,
+                    Math.sqrt(Math.max(0, squareSum / received - avg * avg)));
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return number of times the command was started, more than one if it had to be restarted
+     */
+    public int getStartCount() {
+        return startCount;
+    }
+
+    /**
+     * Stops the session, killing its command.
+     *
+     * @see Closeable#close()
+     */
+    public void close() {
+        closed = true;
+        final Process currentProcess = process;
+        if (currentProcess != null) {
+            ProcessRunner.destroyTree(currentProcess);
+        }
+        readerThread.interrupt();
+    }
+
+    /**
+     * Records the outcome of an echo request in the rolling window.
+     *
+     * @param rtt
+     *            round trip time of the reply in milliseconds, NaN for a lost request
+     */
+    private synchronized void recordOutcome(final double rtt) {
+        window[windowPosition] = rtt;
+        windowPosition = (windowPosition + 1) % window.length;
+        if (windowSize < window.length) {
+            windowSize++;
+        }
+        lastOutcomeNanos = System.nanoTime();
+    }
+
+    /**
+     * Runs the command of the session and restarts it whenever it exits, until the session is
+     * closed.
+     */
+    private void runSession() {
+        final StringBuilder line = new StringBuilder();
+        while (!closed) {
+            final String[] command = commandProvider.getCommand(host).trim().split("\\s+");
+            try {
+                process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                startCount++;
+                logger.info("Started ping session of host ({}): {}", host,
+                        String.join(" ", command));
+                if (!closed) {
+                    readLines(process.getInputStream(), line);
+                }
+            } catch (final IOException e) {
+                if (!closed) {
+                    logger.error("Ping session of host ({}) failed", host, e);
+                }
+            } finally {
+                if (process != null) {
+                    ProcessRunner.destroyTree(process);
+                }
+            }
+            if (!closed) {
+                logger.warn("Ping session of host ({}) ended, restarting in {} milliseconds",
+                        host, restartDelayMillis);
+                try {
+                    Thread.sleep(restartDelayMillis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the output of the command line by line, recording the outcome of every reply line.
+     *
+     * @param input
+     *            output of the command
+     * @param line
+     *            buffer of the current line, reused between the lines
+     * @throws IOException
+     *             If reading the output fails.
+     */
+    private void readLines(final InputStream input, final StringBuilder line) throws IOException {
+        final InputStream bufferedInput = new BufferedInputStream(input);
+        line.setLength(0);
+        int b;
+        while ((b = bufferedInput.read()) != -1) {
+            if (b == '\n') {
+                final double rtt = parser.parseReplyLine(line);
+                if (rtt >= 0) {
+                    recordOutcome(rtt);
+                } else if (rtt == PingOutputParser.REPLY_LOST) {
+                    recordOutcome(Double.NaN);
+                }
+                line.setLength(0);
+            } else {
+                line.append((char) b);
+            }
+        }
+    }
+
+    /**
+     * Provider of the command of a session, asked on every (re)start so the command can follow the
+     * changes of the address of the host.
+     */
+    public interface CommandProvider {
+        /**
+         * Returns the command pinging a host continuously.
+         *
+         * @param host
+         *            the host
+         * @return the command
+         */
+        String getCommand(String host);
+    }
+}
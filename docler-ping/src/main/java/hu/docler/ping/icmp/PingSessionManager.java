@@ -0,0 +1,193 @@
+package hu.docler.ping.icmp;
+
+import java.io.Closeable;
+import java.net.UnknownHostException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.process.ProcessRunner;
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * Keeps a {@link PingSession} for every host checked, started on the first check of the host.
+ * The command of the sessions is configured by the <code>ping.icmp.session.command</code>
+ * property, the <code>$HOST</code> placeholder of the command is replaced by the host, the
+ * <code>$ADDRESS</code> placeholder by its address resolved through the {@link DnsCache} on every
+ * (re)start of the session.
+ * <p>
+ * The command of a session runs as long as the application, so every session holds a slot of the
+ * concurrent processes of the {@link ProcessRunner} (<code>ping.process.max.concurrent</code>)
+ * until the manager is closed: a host costs a process, a reader thread and its stack for the whole
+ * run. A host getting no slot has no session, its checks fail until the manager is restarted.
+ */
+public class PingSessionManager implements Closeable {
+    /** Placeholder of the command replaced by the host. */
+    private static final String HOST_PLACEHOLDER = "$HOST";
+    /** Placeholder of the command replaced by the resolved address of the host. */
+    private static final String ADDRESS_PLACEHOLDER = "$ADDRESS";
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(PingSessionManager.class);
+    /** Sessions, by host. */
+    private final ConcurrentMap<String, PingSession> sessions =
+            new ConcurrentHashMap<String, PingSession>();
+    /** Command template of the sessions. */
+    private final String commandTemplate;
+    /** {@link ProcessRunner} whose concurrent process slots the sessions hold. */
+    private final ProcessRunner processRunner;
+    /** {@link DnsCache} resolving the hosts, may be <code>null</code>. */
+    private final DnsCache dnsCache;
+    /** Number of echo requests kept in the rolling window of a session. */
+    private final int windowLength;
+    /** Age after which the window of a session is considered stale, in milliseconds. */
+    private final long staleMillis;
+    /** Delay before restarting the command of a session once it exited, in milliseconds. */
+    private final long restartDelayMillis;
+    /** Provider of the commands of the sessions. */
+    private final PingSession.CommandProvider commandProvider =
+            new PingSession.CommandProvider() {
+                public String getCommand(final String host) {
+                    return createCommand(host);
+                }
+            };
+    /** Flag signalling that the manager has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param dnsCache
+     *            {@link DnsCache} resolving the <code>$ADDRESS</code> placeholder of the command,
+     *            <code>null</code> to use the host itself
+     */
+    public PingSessionManager(final Properties properties, final DnsCache dnsCache) {
+        this(properties, dnsCache, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param dnsCache
+     *            {@link DnsCache} resolving the <code>$ADDRESS</code> placeholder of the command,
+     *            <code>null</code> to use the host itself
+     * @param processRunner
+     *            {@link ProcessRunner} shared between the tasks running external commands,
+     *            <code>null</code> to use a runner of the manager's own
+     */
+    public PingSessionManager(
+            final Properties properties,
+            final DnsCache dnsCache,
+            final ProcessRunner processRunner) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        this.processRunner =
+                processRunner != null ? processRunner : new ProcessRunner(properties);
+        this.commandTemplate =
+                PropertyUtil.getString(properties, "ping.icmp.session.command", "ping -t $ADDRESS");
+        this.dnsCache = dnsCache;
+        this.windowLength = PropertyUtil.getInt(properties, "ping.icmp.session.window", 30);
+        this.staleMillis = PropertyUtil.getLong(properties, "ping.icmp.session.stale", 5000);
+        this.restartDelayMillis =
+                PropertyUtil.getLong(properties, "ping.icmp.session.restart.delay", 1000);
+    }
+
+    /**
+     * Returns the session of a host, starting it if the host has no session yet and a slot of the
+     * concurrent processes is free.
+     *
+     * @param host
+     *            the host
+     * @return the session, or <code>null</code> if the host has no session and the limit of the
+     *         concurrent processes is reached
+     * @throws IllegalStateException
+     *             If the manager is closed.
+     */
+    public PingSession getSession(final String host) {
+        PingSession session = sessions.get(host);
+        if (session == null) {
+            if (closed) {
+                throw new IllegalStateException("Ping session manager is closed");
+            }
+            synchronized (sessions) {
+                session = sessions.get(host);
+                if (session == null) {
+                    if (!processRunner.tryReserveSlot()) {
+                        logger.warn("Reached the limit of concurrent processes, no ping session "
+                                + "for host: {}", host);
+                        return null;
+                    }
+                    session = new PingSession(host, commandProvider, windowLength, staleMillis,
+                            restartDelayMillis);
+                    sessions.put(host, session);
+                }
+            }
+        }
+        return session;
+    }
+
+    /**
+     * @return number of sessions running
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return total number of restarts of the sessions
+     */
+    public int getRestartCount() {
+        int restarts = 0;
+        for (final PingSession session : sessions.values()) {
+            restarts += Math.max(0, session.getStartCount() - 1);
+        }
+        return restarts;
+    }
+
+    /**
+     * Stops all the sessions.
+     *
+     * @see Closeable#close()
+     */
+    public void close() {
+        closed = true;
+        synchronized (sessions) {
+            for (final PingSession session : sessions.values()) {
+                session.close();
+                processRunner.releaseSlot();
+            }
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Creates the command of the session of a host.
+     *
+     * @param host
+     *            the host
+     * @return the command
+     */
+    private String createCommand(final String host) {
+        String command = commandTemplate;
+        if (command.contains(ADDRESS_PLACEHOLDER)) {
+            String address = host;
+            if (dnsCache != null) {
+                try {
+                    address = dnsCache.resolveFirst(host).getHostAddress();
+                } catch (final UnknownHostException e) {
+                    logger.warn("Failed to resolve host: {}", host);
+                }
+            }
+            command = command.replace(ADDRESS_PLACEHOLDER, address);
+        }
+        return command.replace(HOST_PLACEHOLDER, host);
+    }
+}
@@ -0,0 +1,170 @@
+package hu.docler.ping.icmp;
+
+/**
+ * Summary of an ICMP ping check: the number of echo requests sent, replies received and requests
+ * lost, and the round trip time statistics of the replies. The record is mutable so a single
+ * instance can be reused for filling in the statistics of consecutive checks.
+ */
+public final class PingStatistics {
+    /** Value of a round trip time statistic not available, e.g. when no reply was received. */
+    public static final double NOT_AVAILABLE = -1;
+    /** Number of echo requests sent. */
+    private int sent;
+    /** Number of echo replies received. */
+    private int received;
+    /** Number of echo requests lost. */
+    private int lost;
+    /** Number of error replies, like destination unreachable messages or requests timed out. */
+    private int errors;
+    /** Minimal round trip time, in milliseconds. */
+    private double minRtt = NOT_AVAILABLE;
+    /** Average round trip time, in milliseconds. */
+    private double avgRtt = NOT_AVAILABLE;
+    /** Maximal round trip time, in milliseconds. */
+    private double maxRtt = NOT_AVAILABLE;
+    /** Mean deviation of the round trip times, in milliseconds. */
+    private double mdevRtt = NOT_AVAILABLE;
+
+    /**
+     * Clears the statistics, so the record can be reused.
+     */
+    public void reset() {
+        sent = 0;
+        received = 0;
+        lost = 0;
+        errors = 0;
+        minRtt = NOT_AVAILABLE;
+        avgRtt = NOT_AVAILABLE;
+        maxRtt = NOT_AVAILABLE;
+        mdevRtt = NOT_AVAILABLE;
+    }
+
+    /**
+     * Sets the packet counts.
+     *
+     * @param sent
+     *            number of echo requests sent
+     * @param received
+     *            number of echo replies received
+     * @param lost
+     *            number of echo requests lost
+     */
+    public void setCounts(final int sent, final int received, final int lost) {
+        this.sent = sent;
+        this.received = received;
+        this.lost = lost;
+    }
+
+    /**
+     * Sets the number of error replies.
+     *
+     * @param errors
+     *            number of error replies, like destination unreachable messages or requests timed
+     *            out
+     */
+    public void setErrors(final int errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Sets the round trip time statistics.
+     *
+     * @param minRtt
+     *            minimal round trip time, in milliseconds
+     * @param avgRtt
+     *            average round trip time, in milliseconds
+     * @param maxRtt
+     *            maximal round trip time, in milliseconds
+     * @param mdevRtt
+     *            mean deviation of the round trip times, in milliseconds
+     */
+    public void setRtt(
+            final double minRtt,
+            final double avgRtt,
+            final double maxRtt,
+            final double mdevRtt) {
+        this.minRtt = minRtt;
+        this.avgRtt = avgRtt;
+        this.maxRtt = maxRtt;
+        this.mdevRtt = mdevRtt;
+    }
+
+    public int getSent() {
+        return sent;
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public int getLost() {
+        return lost;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return percentage of the echo requests lost
+     */
+    public int getLossPercent() {
+        return sent == 0 ? 0 : lost * 100 / sent;
+    }
+
+    public double getMinRtt() {
+        return minRtt;
+    }
+
+    public double getAvgRtt() {
+        return avgRtt;
+    }
+
+    public double getMaxRtt() {
+        return maxRtt;
+    }
+
+    public double getMdevRtt() {
+        return mdevRtt;
+    }
+
+    /**
+     * Appends the statistics to a {@link StringBuilder}, in a format close to the summary printed
+     * by the Windows <code>ping</code> command.
+     *
+     * @param sb
+     *            the {@link StringBuilder}
+     * @return the {@link StringBuilder}
+     */
+    public StringBuilder appendTo(final StringBuilder sb) {
+        sb.append("Packets: Sent = ");
+        sb.append(sent);
+        sb.append(", Received = ");
+        sb.append(received);
+        sb.append(", Lost = ");
+        sb.append(lost);
+        sb.append(" (");
+        sb.append(getLossPercent());
+        sb.append("% loss)");
+        if (errors > 0) {
+            sb.append(", Errors = ");
+            sb.append(errors);
+        }
+        if (avgRtt != NOT_AVAILABLE) {
+            sb.append("; RTT (ms) min/avg/max/mdev = ");
+            sb.append(minRtt);
+            sb.append('/');
+            sb.append(avgRtt);
+            sb.append('/');
+            sb.append(maxRtt);
+            sb.append('/');
+            sb.append(mdevRtt);
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
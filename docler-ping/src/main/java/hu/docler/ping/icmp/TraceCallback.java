@@ -0,0 +1,25 @@
+package hu.docler.ping.icmp;
+
+import hu.docler.ping.tracert.TracertPath;
+
+/**
+ * Callback receiving the outcome of a trace route executed by the {@link IcmpEchoEngine}.
+ */
+public interface TraceCallback {
+    /**
+     * Called when the destination answered and all the probes of the hops before it completed, or
+     * when all the probes completed without an answer of the destination.
+     *
+     * @param path
+     *            path traced
+     */
+    void completed(TracertPath path);
+
+    /**
+     * Called when the trace route couldn't be executed.
+     *
+     * @param cause
+     *            cause of the failure
+     */
+    void failed(Exception cause);
+}
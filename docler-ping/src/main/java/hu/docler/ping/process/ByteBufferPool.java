@@ -0,0 +1,86 @@
+package hu.docler.ping.process;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of equally sized heap {@link ByteBuffer}s. A buffer is allocated only when the pool is
+ * empty, and a buffer released is kept for reuse unless the pool already holds the maximal
+ * number of idle buffers, so in steady state capturing the output of a command allocates nothing.
+ */
+public class ByteBufferPool {
+    /** Size of the buffers, in bytes. */
+    private final int bufferSize;
+    /** Maximal number of idle buffers kept in the pool. */
+    private final int maxIdle;
+    /** Idle buffers. */
+    private final Queue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    /** Number of idle buffers. */
+    private final AtomicInteger idleCount = new AtomicInteger();
+    /** Number of buffers allocated. */
+    private final AtomicLong allocatedCount = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param bufferSize
+     *            size of the buffers, in bytes
+     * @param maxIdle
+     *            maximal number of idle buffers kept in the pool
+     */
+    public ByteBufferPool(final int bufferSize, final int maxIdle) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be greater than zero");
+        }
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating a new one if the pool is empty.
+     *
+     * @return the buffer
+     */
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = idleBuffers.poll();
+        if (buffer == null) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocate(bufferSize);
+        }
+        idleCount.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * @param buffer
+     *            the buffer, taken from this pool
+     */
+    public void release(final ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize) {
+            throw new IllegalArgumentException("Buffer wasn't taken from this pool");
+        }
+        buffer.clear();
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idleBuffers.offer(buffer);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+}
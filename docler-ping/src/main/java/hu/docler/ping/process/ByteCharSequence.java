@@ -0,0 +1,68 @@
+package hu.docler.ping.process;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link CharSequence} view of a region of a {@link ByteBuffer}, mapping every byte to the
+ * character of the same code.
+ */
+final class ByteCharSequence implements CharSequence {
+    /** The buffer. */
+    private final ByteBuffer buffer;
+    /** Start of the region. */
+    private final int start;
+    /** End of the region, exclusive. */
+    private final int end;
+
+    /**
+     * Ctor.
+     *
+     * @param buffer
+     *            the buffer
+     * @param start
+     *            start of the region
+     * @param end
+     *            end of the region, exclusive
+     */
+    ByteCharSequence(final ByteBuffer buffer, final int start, final int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @see CharSequence#length()
+     */
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * @see CharSequence#charAt(int)
+     */
+    public char charAt(final int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length());
+        }
+        return (char) (buffer.get(start + index) & 0xff);
+    }
+
+    /**
+     * @see CharSequence#subSequence(int, int)
+     */
+    public CharSequence subSequence(final int from, final int to) {
+        if (from < 0 || to > end - start || from > to) {
+            throw new IndexOutOfBoundsException("Range: " + from + "-" + to);
+        }
+        return new ByteCharSequence(buffer, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        final char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = charAt(i);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,117 @@
+package hu.docler.ping.process;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Output of an external command detached from its {@link ProcessResult}, with the outcome of the
+ * command. The output is kept as raw bytes, scanned through {@link #getChars()} without decoding,
+ * and decoded to text only when {@link #toString()} is called, like when the output is reported.
+ * <p>
+ * An output is immutable.
+ */
+public final class ProcessOutput {
+    /** Output of the command, <code>null</code> if the output was created from text. */
+    private final byte[] bytes;
+    /** Character view of the output. */
+    private final CharSequence chars;
+    /** Flag signalling that the command was started. */
+    private final boolean started;
+    /** Flag signalling that the command was killed at its deadline. */
+    private final boolean timedOut;
+    /** Line appended to the output when it's rendered to text, may be <code>null</code>. */
+    private final String note;
+    /**
+     * Output rendered to text, <code>null</code> until first requested. Rendering it again yields
+     * an equal text, so the field needs no synchronization.
+     */
+    private String text;
+
+    /**
+     * Ctor.
+     *
+     * @param bytes
+     *            output of the command
+     * @param started
+     *            <code>true</code> if the command was started
+     * @param timedOut
+     *            <code>true</code> if the command was killed at its deadline
+     * @param note
+     *            line appended to the output when it's rendered to text, <code>null</code> if
+     *            there is none
+     */
+    ProcessOutput(
+            final byte[] bytes,
+            final boolean started,
+            final boolean timedOut,
+            final String note) {
+        this.bytes = bytes;
+        this.chars = new ByteCharSequence(ByteBuffer.wrap(bytes), 0, bytes.length);
+        this.started = started;
+        this.timedOut = timedOut;
+        this.note = note;
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param text
+     *            output of the command, already decoded
+     * @param started
+     *            <code>true</code> if the command was started
+     * @param timedOut
+     *            <code>true</code> if the command was killed at its deadline
+     */
+    public ProcessOutput(final String text, final boolean started, final boolean timedOut) {
+        if (text == null) {
+            throw new IllegalArgumentException("Text is mandatory, can't be null");
+        }
+        this.bytes = null;
+        this.chars = text;
+        this.started = started;
+        this.timedOut = timedOut;
+        this.note = null;
+        this.text = text;
+    }
+
+    /**
+     * Returns a view of the output mapping every byte to the character of the same code
+     * (ISO-8859-1), without decoding it. Suitable for scanning ASCII output.
+     *
+     * @return view of the output
+     */
+    public CharSequence getChars() {
+        return chars;
+    }
+
+    /**
+     * @return <code>true</code> if the command was started, <code>false</code> if starting it
+     *         failed or was rejected
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the output decoded with the default charset of the platform, followed by the note,
+     * if any. The output is decoded on the first call only.
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        String rendered = text;
+        if (rendered == null) {
+            rendered = new String(bytes, Charset.defaultCharset());
+            if (note != null) {
+                rendered = rendered + System.lineSeparator() + note + System.lineSeparator();
+            }
+            text = rendered;
+        }
+        return rendered;
+    }
+}
@@ -0,0 +1,173 @@
+package hu.docler.ping.process;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Result of an external command run by the {@link ProcessRunner}: its output (the standard output
+ * and the standard error merged), its exit code and whether it was killed at its deadline.
+ * <p>
+ * The output is kept as raw bytes in a pooled buffer and decoded only when text is requested by
+ * {@link #getOutput()}. Consumers of ASCII output (like the summaries of <code>ping</code>) can
+ * scan it without decoding through {@link #getOutputChars()}, and {@link #copyOutput(String)}
+ * detaches it as a {@link ProcessOutput} without decoding it. The result has to be closed to
+ * return the buffer to its pool, the output is no longer available once the result is closed.
+ */
+public final class ProcessResult implements Closeable {
+    /** Exit code of a command which wasn't started or whose exit code isn't known. */
+    public static final int NO_EXIT_CODE = Integer.MIN_VALUE;
+    /** Output of a command which wasn't started. */
+    private static final ByteBuffer EMPTY_OUTPUT = ByteBuffer.allocate(0);
+    /** Output of the command, between position zero and the limit of the buffer. */
+    private ByteBuffer output;
+    /** {@link ByteBufferPool} the output buffer is returned to, may be <code>null</code>. */
+    private final ByteBufferPool bufferPool;
+    /** Flag signalling that the output exceeded the buffer and was cut. */
+    private final boolean outputTruncated;
+    /** Exit code of the command, or {@link #NO_EXIT_CODE}. */
+    private final int exitCode;
+    /** Flag signalling that the command was killed at its deadline. */
+    private final boolean timedOut;
+    /** Running time of the command, in nanoseconds. */
+    private final long durationNanos;
+    /** Decoded output, <code>null</code> until first requested. */
+    private String decodedOutput;
+
+    /**
+     * Ctor.
+     *
+     * @param output
+     *            output of the command, between position zero and the limit of the buffer
+     * @param bufferPool
+     *            {@link ByteBufferPool} the output buffer is returned to when the result is
+     *            closed, <code>null</code> if the buffer is not pooled
+     * @param outputTruncated
+     *            <code>true</code> if the output exceeded the buffer and was cut
+     * @param exitCode
+     *            exit code of the command, or {@link #NO_EXIT_CODE}
+     * @param timedOut
+     *            <code>true</code> if the command was killed at its deadline
+     * @param durationNanos
+     *            running time of the command, in nanoseconds
+     */
+    ProcessResult(
+            final ByteBuffer output,
+            final ByteBufferPool bufferPool,
+            final boolean outputTruncated,
+            final int exitCode,
+            final boolean timedOut,
+            final long durationNanos) {
+        this.output = output;
+        this.bufferPool = bufferPool;
+        this.outputTruncated = outputTruncated;
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Creates the result of a command which couldn't be started.
+     *
+     * @return the result, without output and exit code
+     */
+    static ProcessResult notStarted() {
+        return new ProcessResult(EMPTY_OUTPUT, null, false, NO_EXIT_CODE, false, 0);
+    }
+
+    /**
+     * Returns the output decoded with the default charset of the platform, the charset commands
+     * write their output in. The output is decoded on the first call only.
+     *
+     * @return the output
+     */
+    public String getOutput() {
+        if (decodedOutput == null) {
+            final ByteBuffer buffer = getOutputBuffer();
+            decodedOutput = new String(buffer.array(), buffer.arrayOffset(), buffer.limit(),
+                    Charset.defaultCharset());
+        }
+        return decodedOutput;
+    }
+
+    /**
+     * Returns a view of the output mapping every byte to the character of the same code
+     * (ISO-8859-1), without decoding or copying it. Suitable for scanning ASCII output.
+     *
+     * @return view of the output, valid until the result is closed
+     */
+    public CharSequence getOutputChars() {
+        return new ByteCharSequence(getOutputBuffer(), 0, getOutputBuffer().limit());
+    }
+
+    /**
+     * @return length of the output, in bytes
+     */
+    public int getOutputLength() {
+        return getOutputBuffer().limit();
+    }
+
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return <code>true</code> if the command was started, <code>false</code> if starting it
+     *         failed or was rejected
+     */
+    public boolean isStarted() {
+        return exitCode != NO_EXIT_CODE || timedOut;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Copies the output out of the pooled buffer, so it stays available once the result is
+     * closed. The copy is not decoded either.
+     *
+     * @param note
+     *            line appended to the output when it's rendered to text, <code>null</code> if
+     *            there is none
+     * @return the copy of the output, with the outcome of the command
+     */
+    public ProcessOutput copyOutput(final String note) {
+        final ByteBuffer buffer = getOutputBuffer();
+        final byte[] bytes = new byte[buffer.limit()];
+        System.arraycopy(buffer.array(), buffer.arrayOffset(), bytes, 0, bytes.length);
+        return new ProcessOutput(bytes, isStarted(), timedOut, note);
+    }
+
+    /**
+     * Returns the output buffer to its pool.
+     *
+     * @see Closeable#close()
+     */
+    public void close() {
+        if (output != null && bufferPool != null) {
+            bufferPool.release(output);
+        }
+        output = null;
+    }
+
+    /**
+     * @return buffer of the output
+     * @throws IllegalStateException
+     *             If the result is closed.
+     */
+    private ByteBuffer getOutputBuffer() {
+        if (output == null) {
+            throw new IllegalStateException("Process result is closed, output is not available");
+        }
+        return output;
+    }
+}
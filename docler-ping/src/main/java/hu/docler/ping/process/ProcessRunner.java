@@ -0,0 +1,478 @@
+package hu.docler.ping.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * Runs external commands with a deadline. The standard error of a command is merged into its
+ * standard output, so a command can't block on a full, undrained error pipe. A watchdog kills the
+ * process and all of its descendants when the deadline passes, which also closes the output pipe
+ * the calling thread is reading, so a hung command never pins a thread. A descendant keeps the
+ * pipe open even after the process exited, and can't be found from the process any more, so the
+ * descendants of all the running processes are recorded every
+ * {@link #DESCENDANT_SNAPSHOT_MILLIS} milliseconds by a single snapshot of the process tree of the
+ * application, on a thread of its own, and the watchdog kills the descendants seen at the
+ * deadline too, whether the process is still alive or not. The process is always reaped and its
+ * exit code recorded. The number of child processes running concurrently is capped by a
+ * {@link Semaphore}, a command not getting a permit before its deadline is rejected.
+ * <p>
+ * The output is read directly into a buffer taken from a {@link ByteBufferPool}, at most one
+ * buffer per running command. The output exceeding the buffer is drained and dropped, so the
+ * memory used per command is capped. The buffer is handed over to the {@link ProcessResult} and
+ * returned to the pool when the result is closed.
+ */
+public class ProcessRunner {
+    /** Size of the buffer the output exceeding the cap is drained through, in bytes. */
+    private static final int DISCARD_BUFFER_SIZE = 4096;
+    /** Buffer the output exceeding the cap is drained through, content is never used. */
+    private static final ThreadLocal<byte[]> DISCARD_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[DISCARD_BUFFER_SIZE];
+        }
+    };
+    /** Delay between the snapshots of the descendants of the running processes, in milliseconds. */
+    private static final long DESCENDANT_SNAPSHOT_MILLIS = 200;
+    /** Descendants seen of the running processes of all the runners, by process id. */
+    private static final ConcurrentHashMap<Long, Set<ProcessHandle>> RUNNING_DESCENDANTS =
+            new ConcurrentHashMap<Long, Set<ProcessHandle>>();
+    /** Watchdog killing the commands at their deadline, shared between all the runners. */
+    private static final ScheduledThreadPoolExecutor WATCHDOG =
+            createDaemonExecutor("ping-process-watchdog");
+    /** Executor taking the snapshots of the descendants, idle while no process is running. */
+    private static final ScheduledThreadPoolExecutor SNAPSHOTTER = createSnapshotter();
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(ProcessRunner.class);
+    /** Maximal number of child processes running concurrently. */
+    private final int maxConcurrent;
+    /** {@link Semaphore} limiting the number of child processes running concurrently. */
+    private final Semaphore permits;
+    /** Default deadline of a command, in milliseconds. */
+    private final long defaultTimeoutMillis;
+    /** {@link ByteBufferPool} of the buffers capturing the output of the commands. */
+    private final ByteBufferPool outputBufferPool;
+    /** Number of commands started. */
+    private final AtomicLong startedCount = new AtomicLong();
+    /** Number of commands killed at their deadline. */
+    private final AtomicLong timedOutCount = new AtomicLong();
+    /** Number of commands exited with a non-zero exit code. */
+    private final AtomicLong failedCount = new AtomicLong();
+    /** Number of commands rejected for not getting a permit before their deadline. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     */
+    public ProcessRunner(final Properties properties) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        this.maxConcurrent = PropertyUtil.getInt(properties, "ping.process.max.concurrent", 64);
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximal number of concurrent processes must be greater than zero");
+        }
+        this.permits = new Semaphore(maxConcurrent);
+        this.defaultTimeoutMillis =
+                PropertyUtil.getLong(properties, "ping.process.timeout", 60000);
+        this.outputBufferPool = new ByteBufferPool(
+                PropertyUtil.getInt(properties, "ping.process.output.max.bytes", 65536),
+                maxConcurrent);
+    }
+
+    /**
+     * @return default deadline of a command, in milliseconds
+     */
+    public long getDefaultTimeoutMillis() {
+        return defaultTimeoutMillis;
+    }
+
+    /**
+     * Runs a command and waits for its completion or deadline. The command is split into
+     * arguments at whitespaces.
+     *
+     * @param command
+     *            the command
+     * @param timeoutMillis
+     *            deadline of the command, in milliseconds from now
+     * @return result of the command
+     */
+    public ProcessResult run(final String command, final long timeoutMillis) {
+        return run(command.trim().split("\\s+"), timeoutMillis);
+    }
+
+    /**
+     * Runs a command and waits for its completion or deadline.
+     *
+     * @param commandArgs
+     *            the command and its arguments
+     * @param timeoutMillis
+     *            deadline of the command, in milliseconds from now
+     * @return result of the command
+     */
+    public ProcessResult run(final String[] commandArgs, final long timeoutMillis) {
+        final String command = String.join(" ", commandArgs);
+        final long startTime = System.nanoTime();
+        final long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejectedCount.incrementAndGet();
+                logger.warn("Reached the limit of {} concurrent processes, rejected command: {}",
+                        maxConcurrent, command);
+                return ProcessResult.notStarted();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting to start command: {}", command);
+            return ProcessResult.notStarted();
+        }
+        try {
+            final Process process;
+            try {
+                process = new ProcessBuilder(commandArgs).redirectErrorStream(true).start();
+            } catch (final IOException e) {
+                logger.error("Starting command: {} failed", command, e);
+                return ProcessResult.notStarted();
+            }
+            startedCount.incrementAndGet();
+            return awaitProcess(command, process, startTime, deadline);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Reads the output of a process and reaps it, killing it at its deadline.
+     *
+     * @param command
+     *            command of the process
+     * @param process
+     *            the process
+     * @param startTime
+     *            start time of the command
+     * @param deadline
+     *            deadline of the command
+     * @return result of the command
+     */
+    private ProcessResult awaitProcess(
+            final String command,
+            final Process process,
+            final long startTime,
+            final long deadline) {
+        final AtomicBoolean killed = new AtomicBoolean();
+        final AtomicBoolean outputRead = new AtomicBoolean();
+        final Set<ProcessHandle> descendants =
+                Collections.newSetFromMap(new ConcurrentHashMap<ProcessHandle, Boolean>());
+        RUNNING_DESCENDANTS.put(process.pid(), descendants);
+        ScheduledFuture<?> watchdogTask = null;
+        try {
+            watchdogTask = WATCHDOG.schedule(new Runnable() {
+                public void run() {
+                    if ((process.isAlive() || !outputRead.get())
+                            && killed.compareAndSet(false, true)) {
+                        destroyTree(process, descendants);
+                        closeStreams(process);
+                    }
+                }
+            }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException e) {
+            logger.warn("Process watchdog is not available, command ({}) runs without deadline",
+                    command);
+        }
+        final ByteBuffer output = outputBufferPool.acquire();
+        boolean truncated = false;
+        int exitCode = ProcessResult.NO_EXIT_CODE;
+        try {
+            truncated = readOutput(process, output);
+            outputRead.set(true);
+            if (!process.waitFor(Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS)) {
+                killed.set(true);
+                destroyTree(process, descendants);
+                process.waitFor();
+            }
+            exitCode = process.exitValue();
+        } catch (final IOException e) {
+            if (!killed.get()) {
+                logger.error("Reading the output of command: {} failed", command, e);
+            }
+            destroyTree(process, descendants);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for command: {}", command);
+            destroyTree(process, descendants);
+        } finally {
+            RUNNING_DESCENDANTS.remove(process.pid());
+            if (watchdogTask != null) {
+                watchdogTask.cancel(false);
+            }
+            closeStreams(process);
+        }
+        final boolean timedOut = killed.get();
+        if (timedOut) {
+            timedOutCount.incrementAndGet();
+            logger.warn("Command ({}) was killed at its deadline", command);
+            exitCode = ProcessResult.NO_EXIT_CODE;
+        } else if (exitCode != 0 && exitCode != ProcessResult.NO_EXIT_CODE) {
+            failedCount.incrementAndGet();
+            logger.debug("Command ({}) exited with code {}", command, exitCode);
+        }
+        if (truncated) {
+            logger.debug("Output of command ({}) exceeded {} bytes and was truncated", command,
+                    output.capacity());
+        }
+        output.flip();
+        return new ProcessResult(output, outputBufferPool, truncated, exitCode, timedOut,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Reads the output of a process until the process and its descendants close it. The output is
+     * read straight into the array of the heap buffer, the output exceeding the buffer is drained
+     * and dropped.
+     *
+     * @param process
+     *            the process
+     * @param output
+     *            buffer the output is read into
+     * @return <code>true</code> if the output exceeded the buffer, <code>false</code> otherwise
+     * @throws IOException
+     *             If reading the output fails.
+     */
+    private boolean readOutput(final Process process, final ByteBuffer output) throws IOException {
+        final InputStream input = process.getInputStream();
+        final byte[] array = output.array();
+        int read = 0;
+        while (output.hasRemaining() && read != -1) {
+            read = input.read(array, output.arrayOffset() + output.position(), output.remaining());
+            if (read > 0) {
+                output.position(output.position() + read);
+            }
+        }
+        boolean truncated = false;
+        final byte[] discardBuffer = DISCARD_BUFFER.get();
+        while (read != -1) {
+            read = input.read(discardBuffer);
+            truncated |= read > 0;
+        }
+        return truncated;
+    }
+
+    /**
+     * Forcibly destroys a process and all of its descendants. The descendants are collected
+     * before the process is destroyed, since they can't be found once their parent is gone, and
+     * are destroyed after it, so the process can't react to the death of its children.
+     *
+     * @param process
+     *            the process
+     */
+    public static void destroyTree(final Process process) {
+        destroyTree(process, Collections.<ProcessHandle>emptySet());
+    }
+
+    /**
+     * Forcibly destroys a process, its current descendants and the descendants seen before, which
+     * may have outlived the process.
+     *
+     * @param process
+     *            the process
+     * @param knownDescendants
+     *            descendants of the process seen before
+     */
+    private static void destroyTree(
+            final Process process,
+            final Collection<ProcessHandle> knownDescendants) {
+        final List<ProcessHandle> descendants = new ArrayList<ProcessHandle>(knownDescendants);
+        collectDescendants(process, descendants);
+        process.destroyForcibly();
+        for (final ProcessHandle descendant : descendants) {
+            descendant.destroyForcibly();
+        }
+    }
+
+    /**
+     * Adds the current descendants of a process to a collection.
+     *
+     * @param process
+     *            the process
+     * @param descendants
+     *            collection the descendants are added to
+     */
+    private static void collectDescendants(
+            final Process process,
+            final Collection<ProcessHandle> descendants) {
+        final Iterator<ProcessHandle> iterator = process.descendants().iterator();
+        while (iterator.hasNext()) {
+            descendants.add(iterator.next());
+        }
+    }
+
+    /**
+     * Records the current descendants of the running processes. The process tree of the
+     * application is read once for all the running processes, and every descendant is recorded
+     * for its closest running ancestor.
+     */
+    private static void snapshotDescendants() {
+        if (RUNNING_DESCENDANTS.isEmpty()) {
+            return;
+        }
+        final Map<Long, ProcessHandle> parents = new HashMap<Long, ProcessHandle>();
+        final List<ProcessHandle> descendants = new ArrayList<ProcessHandle>();
+        final Iterator<ProcessHandle> iterator = ProcessHandle.current().descendants().iterator();
+        while (iterator.hasNext()) {
+            final ProcessHandle descendant = iterator.next();
+            final Optional<ProcessHandle> parent = descendant.parent();
+            if (parent.isPresent()) {
+                parents.put(descendant.pid(), parent.get());
+                descendants.add(descendant);
+            }
+        }
+        for (final ProcessHandle descendant : descendants) {
+            ProcessHandle ancestor = parents.get(descendant.pid());
+            while (ancestor != null) {
+                final Set<ProcessHandle> known = RUNNING_DESCENDANTS.get(ancestor.pid());
+                if (known != null) {
+                    known.add(descendant);
+                    break;
+                }
+                ancestor = parents.get(ancestor.pid());
+            }
+        }
+    }
+
+    /**
+     * Closes the streams of a process, a blocked read of the output fails once it returns.
+     *
+     * @param process
+     *            the process
+     */
+    private void closeStreams(final Process process) {
+        try {
+            process.getInputStream().close();
+            process.getOutputStream().close();
+            process.getErrorStream().close();
+        } catch (final IOException e) {
+            logger.debug("Failed to close the streams of a process", e);
+        }
+    }
+
+    /**
+     * Reserves a slot of the concurrent processes for a long-lived process not run by the runner,
+     * like the command of a ping session, without waiting. The slot is kept until it's released
+     * by {@link #releaseSlot()}, so the process counts against the cap of the commands run by the
+     * runner.
+     *
+     * @return <code>true</code> if a slot was reserved, <code>false</code> if the limit of the
+     *         concurrent processes is reached
+     */
+    public boolean tryReserveSlot() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Releases a slot reserved by {@link #tryReserveSlot()}.
+     */
+    public void releaseSlot() {
+        permits.release();
+    }
+
+    public int getRunningCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public long getStartedCount() {
+        return startedCount.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return number of output buffers allocated, stays flat once the pool is warm
+     */
+    public long getAllocatedBufferCount() {
+        return outputBufferPool.getAllocatedCount();
+    }
+
+    /**
+     * Creates the executor taking the snapshots of the descendants of the running processes.
+     *
+     * @return the executor
+     */
+    private static ScheduledThreadPoolExecutor createSnapshotter() {
+        final ScheduledThreadPoolExecutor snapshotter =
+                createDaemonExecutor("ping-process-snapshot");
+        snapshotter.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    snapshotDescendants();
+                } catch (final RuntimeException e) {
+                    LoggerFactory.getLogger(ProcessRunner.class)
+                            .warn("Taking the snapshot of the child processes failed", e);
+                }
+            }
+        }, DESCENDANT_SNAPSHOT_MILLIS, DESCENDANT_SNAPSHOT_MILLIS, TimeUnit.MILLISECONDS);
+        return snapshotter;
+    }
+
+    /**
+     * Creates a single threaded, daemon {@link ScheduledThreadPoolExecutor}.
+     *
+     * @param threadName
+     *            name of the thread
+     * @return the executor
+     */
+    private static ScheduledThreadPoolExecutor createDaemonExecutor(final String threadName) {
+        final ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
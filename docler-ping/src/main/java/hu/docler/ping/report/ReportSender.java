@@ -14,6 +14,9 @@ import org.apache.http.impl.client.HttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import hu.docler.ping.util.CheckResult;
+import hu.docler.ping.util.LatencyHistogram;
+import hu.docler.ping.util.LatencyWindow;
 import hu.docler.ping.util.ResultStore;
 
 /**
@@ -85,12 +88,59 @@ public class ReportSender {
      */
     private ReportData createReportData() {
         logger.info("Creating error report data for host: {}", host);
-        final Map<String, String> reportsForHost = resultStore.getReportsForHost(host);
-        final ReportData reportData = new ReportData(host, reportsForHost.get("ping.icmp.command"),
-                reportsForHost.get("ping.tcpip.delay"), reportsForHost.get("ping.tracert.command"));
+        final Map<String, CheckResult> resultsForHost = resultStore.getResultsForHost(host);
+        final ReportData reportData = new ReportData(host,
+                getResultText(resultsForHost, "ping.icmp.command"),
+                getResultText(resultsForHost, "ping.tcpip.check"),
+                getResultText(resultsForHost, "ping.tracert.command"),
+                getResultText(resultsForHost, "ping.tcpconnect.check"),
+                getResultText(resultsForHost, "ping.tracert.distance"),
+                getLatencyPercentiles("ping.icmp.command"),
+                getLatencyPercentiles("ping.tcpip.check"));
         return reportData;
     }
 
+    /**
+     * Renders the latency percentiles of a check of the host over all the
+     * {@link LatencyWindow}s, like <code>1m: p50=1.2 p95=3.4 p99=5.6 ms (n=12); 5m: ...</code>.
+     *
+     * @param checkType
+     *            type name of the check
+     * @return the percentiles, or <code>null</code> if the result store keeps no latency
+     *         histogram of the check
+     */
+    private String getLatencyPercentiles(final String checkType) {
+        final StringBuilder sb = new StringBuilder();
+        for (final LatencyWindow window : LatencyWindow.values()) {
+            final LatencyHistogram histogram =
+                    resultStore.getLatencyHistogram(host, checkType, window);
+            if (histogram == null) {
+                return null;
+            }
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            histogram.appendTo(sb.append(window.getLabel()).append(": "));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Renders the text of a result of the host, the results are rendered only when reported.
+     *
+     * @param resultsForHost
+     *            {@link Map} of the results of the host
+     * @param checkType
+     *            type name of the check
+     * @return text of the result, or <code>null</code> if there is no result of the check
+     */
+    private static String getResultText(
+            final Map<String, CheckResult> resultsForHost,
+            final String checkType) {
+        final CheckResult result = resultsForHost.get(checkType);
+        return result == null ? null : result.getText();
+    }
+
     /**
      * Class holding error report data. With the {@link #toString()} method converts the data set to
      * a standard JSON format.
@@ -105,6 +155,14 @@ public class ReportSender {
         private final String tcpPingResult;
         /** Traceroute results. */
         private final String traceResult;
+        /** TCP connect results, <code>null</code> if the ports are not probed. */
+        private final String tcpConnectResult;
+        /** Hop distance results, <code>null</code> if the route is not traced in-process. */
+        private final String traceDistanceResult;
+        /** ICMP round trip time percentiles, <code>null</code> if not kept. */
+        private final String icmpLatency;
+        /** TCP response time percentiles, <code>null</code> if not kept. */
+        private final String tcpLatency;
 
         /**
          * Ctor.
@@ -117,17 +175,34 @@ public class ReportSender {
          *            TCP ping result value
          * @param traceResult
          *            traceroute result value
+         * @param tcpConnectResult
+         *            TCP connect result value, <code>null</code> if the ports are not probed
+         * @param traceDistanceResult
+         *            hop distance result value, <code>null</code> if the route is not traced
+         *            in-process
+         * @param icmpLatency
+         *            ICMP round trip time percentiles, <code>null</code> if not kept
+         * @param tcpLatency
+         *            TCP response time percentiles, <code>null</code> if not kept
          */
         public ReportData(
                 final String host,
                 final String icmpPingResult,
                 final String tcpPingResult,
-                final String traceResult) {
+                final String traceResult,
+                final String tcpConnectResult,
+                final String traceDistanceResult,
+                final String icmpLatency,
+                final String tcpLatency) {
             super();
             this.host = host;
             this.icmpPingResult = icmpPingResult;
             this.tcpPingResult = tcpPingResult;
             this.traceResult = traceResult;
+            this.tcpConnectResult = tcpConnectResult;
+            this.traceDistanceResult = traceDistanceResult;
+            this.icmpLatency = icmpLatency;
+            this.tcpLatency = tcpLatency;
         }
 
         @Override
@@ -144,6 +219,26 @@ public class ReportSender {
             sb.append("\", ");
             sb.append("\"trace\":\"");
             sb.append(traceResult);
+            if (tcpConnectResult != null) {
+                sb.append("\", ");
+                sb.append("\"tcp_connect\":\"");
+                sb.append(tcpConnectResult);
+            }
+            if (traceDistanceResult != null) {
+                sb.append("\", ");
+                sb.append("\"trace_distance\":\"");
+                sb.append(traceDistanceResult);
+            }
+            if (icmpLatency != null) {
+                sb.append("\", ");
+                sb.append("\"icmp_rtt\":\"");
+                sb.append(icmpLatency);
+            }
+            if (tcpLatency != null) {
+                sb.append("\", ");
+                sb.append("\"tcp_response_time\":\"");
+                sb.append(tcpLatency);
+            }
             sb.append("\"}");
             return sb.toString();
         }
@@ -0,0 +1,196 @@
+package hu.docler.ping.schedule;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CheckExecutor} implementation backed by a fixed size thread pool and a bounded queue. A
+ * bulkhead isolates a family of checks: when its threads are busy and its queue is full new checks
+ * are rejected instead of delaying the checks of other families.
+ */
+public class BulkheadExecutor implements CheckExecutor {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(BulkheadExecutor.class);
+    /** Name of the executor. */
+    private final String name;
+    /** {@link ThreadPoolExecutor} running the checks. */
+    private final ThreadPoolExecutor threadPool;
+    /** Number of checks rejected. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+    /** Number of checks started. */
+    private final AtomicLong startedCount = new AtomicLong();
+    /** Sum of the wait times of the checks started. */
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    /** Maximal wait time of the checks started. */
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param name
+     *            name of the executor, used for naming its threads
+     * @param threads
+     *            number of threads running checks concurrently
+     * @param queueSize
+     *            maximal number of checks waiting for execution
+     */
+    public BulkheadExecutor(final String name, final int threads, final int queueSize) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Name is mandatory, can't be null");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be greater than zero");
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("Queue size must be greater than zero");
+        }
+        this.name = name;
+        this.threadPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new NamedThreadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @see CheckExecutor#execute(Runnable)
+     */
+    public void execute(final Runnable command) {
+        try {
+            threadPool.execute(new TimedCommand(command, System.nanoTime()));
+        } catch (final RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            logger.warn("Executor ({}) is saturated, rejected check: {}", name, command);
+            throw e;
+        }
+    }
+
+    /**
+     * @see CheckExecutor#getName()
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @see CheckExecutor#getQueueDepth()
+     */
+    public int getQueueDepth() {
+        return threadPool.getQueue().size();
+    }
+
+    /**
+     * @see CheckExecutor#getActiveCount()
+     */
+    public int getActiveCount() {
+        return threadPool.getActiveCount();
+    }
+
+    /**
+     * @see CheckExecutor#getRejectedCount()
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @see CheckExecutor#getAverageWaitNanos()
+     */
+    public long getAverageWaitNanos() {
+        final long started = startedCount.get();
+        return started == 0 ? 0 : totalWaitNanos.get() / started;
+    }
+
+    /**
+     * @see CheckExecutor#getMaxWaitNanos()
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * @see CheckExecutor#shutdown()
+     */
+    public void shutdown() {
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Records the wait time of a check started.
+     *
+     * @param waitNanos
+     *            time the check spent in the queue
+     */
+    private void recordWait(final long waitNanos) {
+        startedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long currentMax = maxWaitNanos.get();
+        while (waitNanos > currentMax && !maxWaitNanos.compareAndSet(currentMax, waitNanos)) {
+            currentMax = maxWaitNanos.get();
+        }
+    }
+
+    /**
+     * Wrapper of a check measuring the time it spent waiting for execution.
+     */
+    private final class TimedCommand implements Runnable {
+        /** Check to be run. */
+        private final Runnable command;
+        /** Time of the submission of the check. */
+        private final long submitTime;
+
+        /**
+         * Ctor.
+         *
+         * @param command
+         *            check to be run
+         * @param submitTime
+         *            time of the submission of the check
+         */
+        private TimedCommand(final Runnable command, final long submitTime) {
+            this.command = command;
+            this.submitTime = submitTime;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            recordWait(System.nanoTime() - submitTime);
+            command.run();
+        }
+    }
+
+    /**
+     * {@link ThreadFactory} naming the threads after the executor.
+     */
+    private static final class NamedThreadFactory implements ThreadFactory {
+        /** Prefix of the thread names. */
+        private final String prefix;
+        /** Counter of the threads created. */
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        /**
+         * Ctor.
+         *
+         * @param name
+         *            name of the executor
+         */
+        private NamedThreadFactory(final String name) {
+            this.prefix = "ping-" + name + "-";
+        }
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         */
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(runnable, prefix + threadCounter.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package hu.docler.ping.schedule;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link Executor} running checks handed over by the {@link TimingWheelScheduler}, exposing the
+ * statistics needed to see whether the checks can keep up with their schedule.
+ */
+public interface CheckExecutor extends Executor {
+
+    /**
+     * Runs a check asynchronously.
+     *
+     * @param command
+     *            check to be run
+     * @throws RejectedExecutionException
+     *             If the executor has no free capacity to accept the check.
+     */
+    void execute(Runnable command);
+
+    /**
+     * @return name of the executor
+     */
+    String getName();
+
+    /**
+     * @return number of checks waiting for execution
+     */
+    int getQueueDepth();
+
+    /**
+     * @return number of checks currently running
+     */
+    int getActiveCount();
+
+    /**
+     * @return number of checks rejected since the executor was created
+     */
+    long getRejectedCount();
+
+    /**
+     * @return average time (in nanoseconds) the checks spent waiting between their submission and
+     *         the start of their execution
+     */
+    long getAverageWaitNanos();
+
+    /**
+     * @return maximal time (in nanoseconds) a check spent waiting between its submission and the
+     *         start of its execution
+     */
+    long getMaxWaitNanos();
+
+    /**
+     * Stops the executor, interrupting the running checks.
+     */
+    void shutdown();
+}
@@ -0,0 +1,75 @@
+package hu.docler.ping.schedule;
+
+import java.util.Random;
+
+/**
+ * Calculates the initial delay (phase) of periodic checks. When spreading is enabled the checks of
+ * a type are placed evenly across their period instead of all starting at the same instant, and
+ * the check types of the same host are shifted against each other within a slot. An optional
+ * random jitter can be added to every phase to break up the remaining regularity.
+ */
+public final class PhaseSpreader {
+    /** Flag enabling the spreading of the phases. */
+    private final boolean enabled;
+    /** Maximal jitter as a fraction of the slot of a check. */
+    private final double jitter;
+    /** {@link Random} used for generating jitter. */
+    private final Random random;
+
+    /**
+     * Ctor.
+     *
+     * @param enabled
+     *            <code>true</code> to spread the phases, <code>false</code> to start all checks
+     *            immediately
+     * @param jitter
+     *            maximal random jitter as a fraction (between 0 and 1) of the slot of a check
+     * @param random
+     *            {@link Random} used for generating jitter
+     */
+    public PhaseSpreader(final boolean enabled, final double jitter, final Random random) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1");
+        }
+        if (random == null) {
+            throw new IllegalArgumentException("Random is mandatory, can't be null");
+        }
+        this.enabled = enabled;
+        this.jitter = jitter;
+        this.random = random;
+    }
+
+    /**
+     * Calculates the initial delay of a check. The period is divided into as many slots as many
+     * hosts are checked, every host gets its own slot, then the slot is divided further between the
+     * check types.
+     *
+     * @param hostIndex
+     *            index of the host checked
+     * @param hostCount
+     *            number of hosts checked
+     * @param typeIndex
+     *            index of the check type
+     * @param typeCount
+     *            number of check types
+     * @param periodMillis
+     *            period of the check in milliseconds
+     * @return initial delay of the check in milliseconds, always less than the period
+     */
+    public long getInitialDelay(
+            final int hostIndex,
+            final int hostCount,
+            final int typeIndex,
+            final int typeCount,
+            final long periodMillis) {
+        if (!enabled || periodMillis <= 0) {
+            return 0;
+        }
+        final double slot = (double) periodMillis / Math.max(1, hostCount);
+        double phase = slot * hostIndex + slot * typeIndex / Math.max(1, typeCount);
+        if (jitter > 0) {
+            phase += slot * jitter * random.nextDouble();
+        }
+        return (long) phase % periodMillis;
+    }
+}
@@ -0,0 +1,436 @@
+package hu.docler.ping.schedule;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel owning the deadlines of all the periodic checks. A single tick thread walks
+ * the wheel bucket by bucket and hands the due checks over to their executors, so scheduling and
+ * expiring a check costs O(1) regardless of the number of checks registered. The delay between the
+ * planned instant of a tick and the dispatching of its checks is measured and reported for every
+ * tick.
+ */
+public final class TimingWheelScheduler {
+    /** {@link Logger} instance. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheelScheduler.class);
+    /** Maximal number of newly scheduled tasks moved into the wheel during a single tick. */
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+    /** Duration of a tick in nanoseconds. */
+    private final long tickNanos;
+    /** Buckets of the wheel. */
+    private final WheelBucket[] wheel;
+    /** Mask used to map a tick number to a bucket index. */
+    private final int mask;
+    /** Tasks scheduled (or rescheduled) but not yet placed into a bucket. */
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<WheelTimeout>();
+    /** Thread walking the wheel. */
+    private final Thread tickThread;
+    /** Flag signalling that the scheduler has been shut down. */
+    private volatile boolean shutdown;
+    /** Flag signalling that the tick thread has been started. */
+    private boolean started;
+    /** Start time of the wheel, all the deadlines are relative to this value. */
+    private volatile long startTime;
+    /** Number of the current tick. Accessed by the tick thread only. */
+    private long tick;
+    /** Dispatch lag of the last tick in nanoseconds. */
+    private volatile long lastTickLagNanos;
+    /** Maximal dispatch lag of all the ticks in nanoseconds. */
+    private volatile long maxTickLagNanos;
+    /** Number of periodic tasks registered. */
+    private final AtomicLong scheduledCount = new AtomicLong();
+    /** Number of task executions handed over to the executors. */
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    /** Number of task executions skipped because the previous execution was still running. */
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param tickDuration
+     *            duration of a tick of the wheel
+     * @param unit
+     *            {@link TimeUnit} of the tick duration
+     * @param wheelSize
+     *            number of buckets of the wheel, rounded up to the next power of two
+     */
+    public TimingWheelScheduler(final long tickDuration, final TimeUnit unit, final int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be greater than zero");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int normalizedWheelSize = 1;
+        while (normalizedWheelSize < wheelSize) {
+            normalizedWheelSize <<= 1;
+        }
+        this.wheel = new WheelBucket[normalizedWheelSize];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new WheelBucket();
+        }
+        this.mask = wheel.length - 1;
+        this.tickThread = new Thread(new TickWorker(), "ping-timing-wheel");
+        this.tickThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the tick thread of the wheel. Calling it more than once has no effect.
+     */
+    public synchronized void start() {
+        if (shutdown) {
+            throw new IllegalStateException("Scheduler has already been shut down");
+        }
+        if (!started) {
+            startTime = System.nanoTime();
+            started = true;
+            tickThread.start();
+            LOGGER.info("Started timing wheel with {} buckets and {} ms ticks", wheel.length,
+                    TimeUnit.NANOSECONDS.toMillis(tickNanos));
+        }
+    }
+
+    /**
+     * Schedules a task to be run periodically at a fixed rate. The next deadline of the task is
+     * always calculated from its previous deadline, so the task doesn't drift. If the previous run
+     * of the task is still in progress when its next deadline expires that run is skipped.
+     *
+     * @param task
+     *            task to be run
+     * @param executor
+     *            {@link Executor} the task is handed over to when its deadline expires
+     * @param initialDelay
+     *            delay of the first run
+     * @param period
+     *            period between the runs
+     * @param unit
+     *            {@link TimeUnit} of the delay and period values
+     */
+    public void scheduleAtFixedRate(
+            final Runnable task,
+            final Executor executor,
+            final long initialDelay,
+            final long period,
+            final TimeUnit unit) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task is mandatory, can't be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is mandatory, can't be null");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be greater than zero");
+        }
+        start();
+        long periodNanos = unit.toNanos(period);
+        if (periodNanos < tickNanos) {
+            LOGGER.warn("Period of task ({}) is shorter than a tick, using the tick duration",
+                    task);
+            periodNanos = tickNanos;
+        }
+        final long deadline =
+                System.nanoTime() - startTime + unit.toNanos(Math.max(0, initialDelay));
+        pendingTimeouts.add(new WheelTimeout(task, executor, deadline, periodNanos));
+        scheduledCount.incrementAndGet();
+    }
+
+    /**
+     * Stops the tick thread. Tasks already handed over to their executors are not affected.
+     */
+    public void shutdown() {
+        shutdown = true;
+        tickThread.interrupt();
+    }
+
+    /**
+     * @return dispatch lag of the last tick in nanoseconds
+     */
+    public long getLastTickLagNanos() {
+        return lastTickLagNanos;
+    }
+
+    /**
+     * @return maximal dispatch lag of all the ticks in nanoseconds
+     */
+    public long getMaxTickLagNanos() {
+        return maxTickLagNanos;
+    }
+
+    /**
+     * @return number of periodic tasks registered
+     */
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * @return number of task executions handed over to the executors
+     */
+    public long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+
+    /**
+     * @return number of task executions skipped because the previous execution was still running
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Hands over a due task to its executor and puts it back to the wheel with its next
+     * deadline.
+     *
+     * @param timeout
+     *            due task
+     */
+    private void dispatch(final WheelTimeout timeout) {
+        if (timeout.running.compareAndSet(false, true)) {
+            try {
+                timeout.executor.execute(timeout);
+                dispatchedCount.incrementAndGet();
+            } catch (final RejectedExecutionException e) {
+                timeout.running.set(false);
+                skippedCount.incrementAndGet();
+                LOGGER.warn("Executor rejected execution of task: {}", timeout.task);
+            }
+        } else {
+            skippedCount.incrementAndGet();
+            LOGGER.warn("Skipping run of task ({}) as its previous run is still in progress",
+                    timeout.task);
+        }
+        timeout.deadline += timeout.periodNanos;
+        pendingTimeouts.add(timeout);
+    }
+
+    /**
+     * Moves the newly scheduled tasks from the pending queue into their buckets.
+     */
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            final WheelTimeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+            final long calculatedTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculatedTick - tick) / wheel.length;
+            final long targetTick = Math.max(calculatedTick, tick);
+            wheel[(int) (targetTick & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Waits until the planned instant of the next tick.
+     *
+     * @return planned instant of the tick relative to {@link #startTime}, or <code>-1</code> if the
+     *         scheduler has been shut down meanwhile
+     */
+    private long waitForNextTick() {
+        final long tickDeadline = tickNanos * (tick + 1);
+        while (!shutdown) {
+            final long currentTime = System.nanoTime() - startTime;
+            final long sleepTimeMillis =
+                    (tickDeadline - currentTime + TimeUnit.MILLISECONDS.toNanos(1) - 1)
+                            / TimeUnit.MILLISECONDS.toNanos(1);
+            if (sleepTimeMillis <= 0) {
+                return tickDeadline;
+            }
+            try {
+                Thread.sleep(sleepTimeMillis);
+            } catch (final InterruptedException e) {
+                if (shutdown) {
+                    break;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records the dispatch lag of a tick.
+     *
+     * @param tickDeadline
+     *            planned instant of the tick
+     * @param dispatched
+     *            number of tasks dispatched in the tick
+     */
+    private void recordTickLag(final long tickDeadline, final int dispatched) {
+        final long lag = System.nanoTime() - startTime - tickDeadline;
+        lastTickLagNanos = lag;
+        if (lag > maxTickLagNanos) {
+            maxTickLagNanos = lag;
+        }
+        if (lag > tickNanos) {
+            LOGGER.warn("Tick {} dispatched {} tasks with a lag of {} ms", tick, dispatched,
+                    TimeUnit.NANOSECONDS.toMillis(lag));
+        } else {
+            LOGGER.trace("Tick {} dispatched {} tasks with a lag of {} us", tick, dispatched,
+                    TimeUnit.NANOSECONDS.toMicros(lag));
+        }
+    }
+
+    /**
+     * Loop of the tick thread.
+     */
+    private final class TickWorker implements Runnable {
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            while (!shutdown) {
+                final long tickDeadline = waitForNextTick();
+                if (tickDeadline < 0) {
+                    break;
+                }
+                transferPendingTimeouts();
+                final int dispatched = wheel[(int) (tick & mask)].expireTimeouts();
+                recordTickLag(tickDeadline, dispatched);
+                tick++;
+            }
+            LOGGER.info("Timing wheel stopped after {} ticks", tick);
+        }
+    }
+
+    /**
+     * Bucket of the wheel holding a doubly linked list of tasks. Accessed by the tick thread only.
+     */
+    private final class WheelBucket {
+        /** First task of the bucket. */
+        private WheelTimeout head;
+        /** Last task of the bucket. */
+        private WheelTimeout tail;
+
+        /**
+         * Appends a task to the bucket.
+         *
+         * @param timeout
+         *            task to be added
+         */
+        private void add(final WheelTimeout timeout) {
+            if (head == null) {
+                head = timeout;
+                tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * Removes a task from the bucket.
+         *
+         * @param timeout
+         *            task to be removed
+         * @return the task following the removed one
+         */
+        private WheelTimeout remove(final WheelTimeout timeout) {
+            final WheelTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            return next;
+        }
+
+        /**
+         * Dispatches all the tasks of the bucket whose deadline has expired in the current round
+         * and counts down the rounds of the rest.
+         *
+         * @return number of tasks dispatched
+         */
+        private int expireTimeouts() {
+            int dispatched = 0;
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                if (timeout.remainingRounds <= 0) {
+                    final WheelTimeout next = remove(timeout);
+                    dispatch(timeout);
+                    dispatched++;
+                    timeout = next;
+                } else {
+                    timeout.remainingRounds--;
+                    timeout = timeout.next;
+                }
+            }
+            return dispatched;
+        }
+    }
+
+    /**
+     * A periodic task registered in the wheel.
+     */
+    private static final class WheelTimeout implements Runnable {
+        /** Task to be run. */
+        private final Runnable task;
+        /** {@link Executor} running the task. */
+        private final Executor executor;
+        /** Period of the task in nanoseconds. */
+        private final long periodNanos;
+        /** Flag set while an execution of the task is in progress. */
+        private final AtomicBoolean running = new AtomicBoolean();
+        /** Next deadline of the task relative to the start time of the wheel. */
+        private long deadline;
+        /** Number of full wheel rounds left before the deadline expires. */
+        private long remainingRounds;
+        /** Previous task in the bucket. */
+        private WheelTimeout prev;
+        /** Next task in the bucket. */
+        private WheelTimeout next;
+
+        /**
+         * Ctor.
+         *
+         * @param task
+         *            task to be run
+         * @param executor
+         *            {@link Executor} running the task
+         * @param deadline
+         *            first deadline of the task
+         * @param periodNanos
+         *            period of the task in nanoseconds
+         */
+        private WheelTimeout(
+                final Runnable task,
+                final Executor executor,
+                final long deadline,
+                final long periodNanos) {
+            this.task = task;
+            this.executor = executor;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                LOGGER.error("Execution of task ({}) failed", task, e);
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+}
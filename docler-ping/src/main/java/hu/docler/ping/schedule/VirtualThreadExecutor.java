@@ -0,0 +1,249 @@
+package hu.docler.ping.schedule;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CheckExecutor} implementation running every check on a virtual thread of its own, so a
+ * check blocked on I/O costs a small heap object instead of a platform thread. Virtual threads
+ * need a Java 21 or newer runtime; the application is built for Java 17, so the virtual thread
+ * API is looked up when the executor is created, and the executor refuses to start on an older
+ * runtime instead of silently running a platform thread per check. The number of checks in flight
+ * is capped by a {@link Semaphore}, a check arriving when all the permits are taken is rejected.
+ */
+public class VirtualThreadExecutor implements CheckExecutor {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+    /** Name of the executor. */
+    private final String name;
+    /** Maximal number of checks running concurrently. */
+    private final int maxConcurrent;
+    /** {@link Semaphore} limiting the number of checks running concurrently. */
+    private final Semaphore permits;
+    /** {@link ThreadFactory} creating the threads of the checks. */
+    private final ThreadFactory threadFactory;
+    /** Threads of the checks currently running. */
+    private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+    /** Number of checks rejected. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+    /** Number of checks started. */
+    private final AtomicLong startedCount = new AtomicLong();
+    /** Sum of the wait times of the checks started. */
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    /** Maximal wait time of the checks started. */
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    /** Flag signalling that the executor has been shut down. */
+    private volatile boolean shutdown;
+
+    /**
+     * Ctor.
+     *
+     * @param name
+     *            name of the executor, used for naming its threads
+     * @param maxConcurrent
+     *            maximal number of checks running concurrently
+     * @throws IllegalStateException
+     *             If the runtime doesn't support virtual threads.
+     */
+    public VirtualThreadExecutor(final String name, final int maxConcurrent) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Name is mandatory, can't be null");
+        }
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximal number of concurrent checks must be greater than zero");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.threadFactory = createThreadFactory("ping-" + name + "-");
+    }
+
+    /**
+     * @see CheckExecutor#execute(Runnable)
+     */
+    public void execute(final Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor (" + name + ") has been shut down");
+        }
+        if (!permits.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            logger.warn("Executor ({}) reached its limit of {} concurrent checks, "
+                    + "rejected check: {}", name, maxConcurrent, command);
+            throw new RejectedExecutionException("Executor (" + name + ") is saturated");
+        }
+        try {
+            threadFactory.newThread(new PermitReleasingCommand(command, System.nanoTime()))
+                    .start();
+        } catch (final RuntimeException e) {
+            permits.release();
+            throw new RejectedExecutionException("Failed to start thread of check", e);
+        }
+    }
+
+    /**
+     * @see CheckExecutor#getName()
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks are never queued, they either get a thread of their own or get rejected.
+     *
+     * @see CheckExecutor#getQueueDepth()
+     */
+    public int getQueueDepth() {
+        return 0;
+    }
+
+    /**
+     * @see CheckExecutor#getActiveCount()
+     */
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @see CheckExecutor#getRejectedCount()
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * The wait time is the delay between the submission of a check and the start of its thread.
+     *
+     * @see CheckExecutor#getAverageWaitNanos()
+     */
+    public long getAverageWaitNanos() {
+        final long started = startedCount.get();
+        return started == 0 ? 0 : totalWaitNanos.get() / started;
+    }
+
+    /**
+     * @see CheckExecutor#getMaxWaitNanos()
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * @see CheckExecutor#shutdown()
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (final Thread thread : runningThreads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Records the wait time of a check started.
+     *
+     * @param waitNanos
+     *            time between the submission and the start of the check
+     */
+    private void recordWait(final long waitNanos) {
+        startedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long currentMax = maxWaitNanos.get();
+        while (waitNanos > currentMax && !maxWaitNanos.compareAndSet(currentMax, waitNanos)) {
+            currentMax = maxWaitNanos.get();
+        }
+    }
+
+    /**
+     * Creates a {@link ThreadFactory} of virtual threads. The virtual thread API is looked up
+     * reflectively, so the application still builds on runtimes without it.
+     *
+     * @param prefix
+     *            prefix of the thread names
+     * @return {@link ThreadFactory} of virtual threads
+     * @throws IllegalStateException
+     *             If the runtime doesn't support virtual threads.
+     */
+    private ThreadFactory createThreadFactory(final String prefix) {
+        try {
+            final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Object builder = ofVirtual.invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object namedBuilder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, prefix, 1L);
+            final ThreadFactory factory =
+                    (ThreadFactory) builderClass.getMethod("factory").invoke(namedBuilder);
+            logger.info("Executor ({}) runs checks on virtual threads", name);
+            return factory;
+        } catch (final NoSuchMethodException e) {
+            throw unsupported(e);
+        } catch (final ClassNotFoundException e) {
+            throw unsupported(e);
+        } catch (final IllegalAccessException e) {
+            throw unsupported(e);
+        } catch (final InvocationTargetException e) {
+            throw unsupported(e.getCause());
+        }
+    }
+
+    /**
+     * Creates the exception refusing to start the executor without virtual threads.
+     *
+     * @param cause
+     *            cause of the failed look up of the virtual thread API
+     * @return the exception
+     */
+    private IllegalStateException unsupported(final Throwable cause) {
+        logger.error("Virtual threads are not supported by the runtime (Java {}), executor ({}) "
+                + "requires Java 21 or newer", System.getProperty("java.version"), name);
+        return new IllegalStateException(
+                "Virtual threads are not supported by the runtime, Java 21 or newer is required",
+                cause);
+    }
+
+    /**
+     * Wrapper of a check releasing its permit when the check finishes.
+     */
+    private final class PermitReleasingCommand implements Runnable {
+        /** Check to be run. */
+        private final Runnable command;
+        /** Time of the submission of the check. */
+        private final long submitTime;
+
+        /**
+         * Ctor.
+         *
+         * @param command
+         *            check to be run
+         * @param submitTime
+         *            time of the submission of the check
+         */
+        private PermitReleasingCommand(final Runnable command, final long submitTime) {
+            this.command = command;
+            this.submitTime = submitTime;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            recordWait(System.nanoTime() - submitTime);
+            final Thread currentThread = Thread.currentThread();
+            runningThreads.add(currentThread);
+            try {
+                command.run();
+            } finally {
+                runningThreads.remove(currentThread);
+                permits.release();
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import hu.docler.ping.report.ReportSender;
+import hu.docler.ping.util.CheckResult;
 import hu.docler.ping.util.ResultStore;
 
 /**
@@ -27,6 +28,8 @@ abstract class AbstractCommandTask<R extends Object> implements Runnable {
      * Result store used to store the output of the task's last run.
      */
     private final ResultStore resultStore;
+    /** Listener notified when the check fails, <code>null</code> if there is none. */
+    private volatile CheckFailureListener failureListener;
 
     /**
      * Ctor.
@@ -60,23 +63,61 @@ abstract class AbstractCommandTask<R extends Object> implements Runnable {
      * @see Runnable#run()
      */
     public void run() {
+        runCheck();
+    }
+
+    /**
+     * Executes the check and processes its result.
+     *
+     * @return <code>true</code> if the check failed and a report was sent, <code>false</code>
+     *         otherwise
+     */
+    boolean runCheck() {
         getLogger().info("Executing check type: {}", getCheckIdentifierName());
         final R checkResult = executeCheck();
-        getLogger().debug("Converting check ({}) result ({}) to a string", getCheckIdentifierName(),
-                checkResult);
-        final String resultString = convertResultToString(checkResult);
-        getLogger().info("Storing command ({}) result for host: {}", getCheckIdentifierName(),
-                getHost());
-        getResultStore().storeHostCheckResult(getHost(), getCheckIdentifierName(), resultString);
+        return processResult(checkResult);
+    }
+
+    /**
+     * Checks the result of a check execution, stores it as a {@link CheckResult} and sends a
+     * report if the check failed. Implementations executing their check asynchronously call it
+     * when the check completes. The {@link CheckFailureListener} of the task, if any, may take
+     * over sending the report.
+     *
+     * @param checkResult
+     *            result of the check
+     * @return <code>true</code> if the check failed and a report was sent, <code>false</code>
+     *         otherwise
+     */
+    protected final boolean processResult(final R checkResult) {
         final boolean postCheckResult = checkResult(checkResult);
         getLogger().info("Post check result was {} for check type: {}",
                 postCheckResult ? "successful" : "failed", getCheckIdentifierName());
+        if (shouldStoreResult(checkResult)) {
+            getLogger().info("Storing command ({}) result for host: {}", getCheckIdentifierName(),
+                    getHost());
+            getResultStore().storeHostCheckResult(getHost(), new CheckResult(
+                    getCheckIdentifierName(), System.currentTimeMillis(), postCheckResult,
+                    getLatencyMillis(checkResult), getLossPercent(checkResult),
+                    getResultDetail(checkResult)));
+        } else {
+            getLogger().debug("Result of check ({}) for host ({}) is unchanged, not storing it",
+                    getCheckIdentifierName(), getHost());
+        }
 
-        if (!postCheckResult) {
-            getLogger().warn("Sending report of failed check ({}) execution",
+        if (postCheckResult) {
+            return false;
+        }
+        final CheckFailureListener listener = failureListener;
+        if (listener != null && listener.checkFailed(getHost(), getCheckIdentifierName())) {
+            getLogger().info("Report of failed check ({}) execution is sent by the listener",
                     getCheckIdentifierName());
-            new ReportSender(getHost(), getProperties(), getResultStore()).sendReport();
+            return false;
         }
+        getLogger().warn("Sending report of failed check ({}) execution",
+                getCheckIdentifierName());
+        new ReportSender(getHost(), getProperties(), getResultStore()).sendReport();
+        return true;
     }
 
     /**
@@ -87,13 +128,54 @@ abstract class AbstractCommandTask<R extends Object> implements Runnable {
     protected abstract R executeCheck();
 
     /**
-     * Converts the result of a check to a plain, storeable {@link String}.
+     * Returns the typed detail of a check execution kept in its {@link CheckResult}. The detail is
+     * rendered to text through its <code>toString()</code> only when the result is logged or
+     * reported, so it must not be modified once returned. The default keeps the result of the
+     * check itself.
+     *
+     * @param checkResult
+     *            result of a check, already checked by {@link #checkResult(Object)}
+     * @return the detail
+     */
+    protected Object getResultDetail(final R checkResult) {
+        return checkResult;
+    }
+
+    /**
+     * Tells whether the result of a check execution has to be stored. Implementations storing
+     * only the changes of their results override it, the default stores every result.
      *
      * @param checkResult
      *            result of a check
-     * @return String representation of the result
+     * @return <code>true</code> if the result has to be stored, <code>false</code> otherwise
      */
-    protected abstract String convertResultToString(R checkResult);
+    protected boolean shouldStoreResult(final R checkResult) {
+        return true;
+    }
+
+    /**
+     * Returns the latency measured by a check execution, kept in its {@link CheckResult}.
+     * Implementations measuring a latency override it.
+     *
+     * @param checkResult
+     *            result of a check, already checked by {@link #checkResult(Object)}
+     * @return the latency in milliseconds, NaN if the check measures no latency
+     */
+    protected double getLatencyMillis(final R checkResult) {
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the loss percentage measured by a check execution, kept in its
+     * {@link CheckResult}. Implementations measuring a loss override it.
+     *
+     * @param checkResult
+     *            result of a check, already checked by {@link #checkResult(Object)}
+     * @return the loss percentage, NaN if the check measures no loss
+     */
+    protected double getLossPercent(final R checkResult) {
+        return Double.NaN;
+    }
 
     /**
      * Returns the property name containing the run delay for the task used when scheduling the
@@ -120,6 +202,16 @@ abstract class AbstractCommandTask<R extends Object> implements Runnable {
      */
     protected abstract boolean checkResult(R result);
 
+    /**
+     * Sets the listener notified when the check fails.
+     *
+     * @param failureListener
+     *            the listener, <code>null</code> to remove it
+     */
+    public void setFailureListener(final CheckFailureListener failureListener) {
+        this.failureListener = failureListener;
+    }
+
     protected String getHost() {
         return host;
     }
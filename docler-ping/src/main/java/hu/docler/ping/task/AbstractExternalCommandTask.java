@@ -1,18 +1,35 @@
 package hu.docler.ping.task;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.process.ProcessOutput;
+import hu.docler.ping.process.ProcessResult;
+import hu.docler.ping.process.ProcessRunner;
+import hu.docler.ping.util.PropertyUtil;
 import hu.docler.ping.util.ResultStore;
 
 /**
  * {@link AbstractCommandTask} extension containing external (operating system based) command
- * preparation and execution functionality.
- *
+ * preparation and execution functionality. The output of the command is kept as a
+ * {@link ProcessOutput}, scanned by the checks without decoding, and decoded to text only when
+ * it's reported.
  */
-abstract class AbstractExternalCommandTask extends AbstractCommandTask<String> {
+abstract class AbstractExternalCommandTask extends AbstractCommandTask<ProcessOutput> {
+    /** Placeholder of the command replaced by the host. */
+    private static final String HOST_PLACEHOLDER = "$HOST";
+    /** Placeholder of the command replaced by the resolved address of the host. */
+    private static final String ADDRESS_PLACEHOLDER = "$ADDRESS";
+    /** {@link DnsCache} resolving the {@link #ADDRESS_PLACEHOLDER}, may be <code>null</code>. */
+    private final DnsCache dnsCache;
+    /** {@link ProcessRunner} running the command. */
+    private final ProcessRunner processRunner;
+    /** {@link ExternalCommandBatcher} running the check in batch mode, may be <code>null</code>. */
+    private final ExternalCommandBatcher batcher;
+
     /**
      * Ctor.
      *
@@ -22,26 +39,51 @@ abstract class AbstractExternalCommandTask extends AbstractCommandTask<String> {
      *            host to be checked
      * @param resultStore
      *            result store to store task results
+     * @param dnsCache
+     *            {@link DnsCache} resolving the <code>$ADDRESS</code> placeholder of the command,
+     *            <code>null</code> to use the system resolver
+     * @param processRunner
+     *            {@link ProcessRunner} shared between the tasks running external commands,
+     *            <code>null</code> to use a runner of the task's own
+     * @param batcher
+     *            {@link ExternalCommandBatcher} running the check together with the checks of
+     *            other hosts, <code>null</code> to run a command for this host only
      */
     public AbstractExternalCommandTask(
             final Properties properties,
             final String host,
-            final ResultStore resultStore) {
+            final ResultStore resultStore,
+            final DnsCache dnsCache,
+            final ProcessRunner processRunner,
+            final ExternalCommandBatcher batcher) {
         super(properties, host, resultStore);
+        this.dnsCache = dnsCache;
+        this.processRunner = processRunner != null ? processRunner : new ProcessRunner(properties);
+        this.batcher = batcher;
     }
 
+    /**
+     * In batch mode hands over the check to the {@link ExternalCommandBatcher} and returns
+     * immediately, the result is processed when the batch command completes.
+     *
+     * @see Runnable#run()
+     */
     @Override
-    protected String executeCheck() {
-        getLogger().info("Running task to host: {}", getHost());
-        final String command = createCommand();
-        getLogger().info("Executing task command: {}", command);
-        final String commandResult = callCommand(command);
-        return commandResult;
+    public void run() {
+        if (batcher == null) {
+            super.run();
+        } else {
+            getLogger().info("Batching check type: {}", getCheckIdentifierName());
+            batcher.submit(this);
+        }
     }
 
     @Override
-    protected String convertResultToString(final String checkResult) {
-        return checkResult;
+    protected ProcessOutput executeCheck() {
+        getLogger().info("Running task to host: {}", getHost());
+        final String command = createCommand();
+        getLogger().info("Executing task command: {}", command);
+        return callCommand(command);
     }
 
     /**
@@ -58,41 +100,71 @@ abstract class AbstractExternalCommandTask extends AbstractCommandTask<String> {
 
     /**
      * Creates the command to be run on the underlying operating system. Loads the command property
-     * value and puts the value of the {@link #host} property into it.
+     * value and puts the value of the {@link #host} property into it. The
+     * <code>$ADDRESS</code> placeholder is replaced by the resolved address of the host, so the
+     * command doesn't have to resolve the host on every run.
      *
      * @return the final command to be run
      */
     private String createCommand() {
         final String commandPropertyName = getCheckIdentifierName();
-        final String command = getProperties().getProperty(commandPropertyName);
-        return command.replace("$HOST", getHost());
+        String command = getProperties().getProperty(commandPropertyName);
+        if (command.contains(ADDRESS_PLACEHOLDER)) {
+            command = command.replace(ADDRESS_PLACEHOLDER, resolveAddress());
+        }
+        return command.replace(HOST_PLACEHOLDER, getHost());
     }
 
     /**
-     * Calls an operating system command and returns the output it prints to the standard output.
+     * Resolves the address of the host. If the host can't be resolved the host itself is returned,
+     * leaving the failure to the command.
+     *
+     * @return the address of the host
+     */
+    String resolveAddress() {
+        final long startTime = System.nanoTime();
+        try {
+            final InetAddress address = dnsCache != null ? dnsCache.resolveFirst(getHost())
+                    : InetAddress.getByName(getHost());
+            getLogger().debug("Resolving host ({}) took {} microseconds", getHost(),
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+            return address.getHostAddress();
+        } catch (final UnknownHostException e) {
+            getLogger().warn("Failed to resolve host: {}", getHost());
+            return getHost();
+        }
+    }
+
+    /**
+     * Calls an operating system command and returns its output, the standard output and the
+     * standard error merged. The command is killed if it doesn't complete before the deadline
+     * configured by the property with the <code>.timeout</code> suffix of the command property, and
+     * a line noting the timeout is appended to the partial output when it's rendered.
      *
      * @param command
      *            command to be executed
      * @return output of the command
      */
-    private String callCommand(final String command) {
-        final StringBuilder sb = new StringBuilder();
+    private ProcessOutput callCommand(final String command) {
+        final long timeoutMillis = PropertyUtil.getLong(getProperties(),
+                getCommandPropertyName() + ".timeout", processRunner.getDefaultTimeoutMillis());
+        final ProcessResult result = processRunner.run(command, timeoutMillis);
         try {
-            final Process process = Runtime.getRuntime().exec(command);
-
-            final BufferedReader reader =
-                    new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
-                getLogger().trace("Command ({}) execution output line: {}", command, line);
-                sb.append(System.lineSeparator());
+            if (result.isTimedOut()) {
+                getLogger().warn("Command ({}) of host ({}) timed out after {} milliseconds",
+                        command, getHost(), timeoutMillis);
+                return result.copyOutput(
+                        "Command timed out after " + timeoutMillis + " milliseconds");
             }
-
-            reader.close();
-        } catch (final IOException e) {
-            getLogger().error("Execution of command: {} failed", command);
+            if (!result.isStarted()) {
+                getLogger().error("Execution of command: {} failed", command);
+            } else if (result.getExitCode() != 0) {
+                getLogger().info("Command ({}) of host ({}) exited with code {}", command,
+                        getHost(), result.getExitCode());
+            }
+            return result.copyOutput(null);
+        } finally {
+            result.close();
         }
-        return sb.toString();
     }
 }
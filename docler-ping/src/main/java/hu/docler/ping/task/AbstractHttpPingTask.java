@@ -0,0 +1,157 @@
+package hu.docler.ping.task;
+
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import hu.docler.ping.http.HttpPhase;
+import hu.docler.ping.http.HttpPhaseTimings;
+import hu.docler.ping.http.HttpProbeMethod;
+import hu.docler.ping.util.PropertyUtil;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * {@link AbstractCommandTask} extension containing the functionality shared by the HTTP based
+ * ping checks of a host: the request URL, the identifiers of the check and the evaluation of its
+ * {@link TcpPingResult}.
+ *
+ */
+abstract class AbstractHttpPingTask extends AbstractCommandTask<TcpPingResult> {
+    /** Default maximal number of response body bytes read by a check. */
+    private static final long DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application {@link Properties} object
+     * @param host
+     *            host to be checked
+     * @param resultStore
+     *            result store to store task results
+     */
+    public AbstractHttpPingTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore) {
+        super(properties, host, resultStore);
+    }
+
+    @Override
+    public String getTaskDelayPropertyName() {
+        return "ping.tcpip.delay";
+    }
+
+    @Override
+    protected String getCheckIdentifierName() {
+        return "ping.tcpip.check";
+    }
+
+    /**
+     * @return URL queried by the check
+     */
+    protected String createUrl() {
+        return "http://" + getHost();
+    }
+
+    /**
+     * Creates the request of the check with the method set by the <code>ping.tcpip.method</code>
+     * property.
+     *
+     * @return request of the check
+     */
+    protected HttpRequestBase createRequest() {
+        final String url = createUrl();
+        switch (getProbeMethod()) {
+            case HEAD:
+                return new HttpHead(url);
+            case RANGE:
+                final HttpGet rangeGet = new HttpGet(url);
+                rangeGet.setHeader(HttpHeaders.RANGE, "bytes=0-" + (getMaxBodyBytes() - 1));
+                return rangeGet;
+            default:
+                return new HttpGet(url);
+        }
+    }
+
+    /**
+     * @return maximal number of response body bytes read by the check
+     */
+    protected long getMaxBodyBytes() {
+        final long maxBodyBytes = PropertyUtil.getLong(getProperties(),
+                "ping.tcpip.body.max.bytes", DEFAULT_MAX_BODY_BYTES);
+        if (maxBodyBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid value of ping.tcpip.body.max.bytes property: " + maxBodyBytes);
+        }
+        return maxBodyBytes;
+    }
+
+    /**
+     * @return response time of the query, NaN if the query failed
+     */
+    @Override
+    protected double getLatencyMillis(final TcpPingResult checkResult) {
+        return checkResult.getResponseTime() < 0 ? Double.NaN : checkResult.getResponseTime();
+    }
+
+    /**
+     * If a maximal response time is configured the check is successful when the duration of the
+     * configured {@link HttpPhase} (the whole query by default) doesn't exceed it. A phase not
+     * taking place during the query (e.g. connecting on a reused connection) never fails the check.
+     * Without a maximal response time the check is successful on a 200 status code, or a 206
+     * status code answering a range request.
+     */
+    @Override
+    protected boolean checkResult(final TcpPingResult result) {
+        boolean isSuccessfulCheck = true;
+        final String maxResponseTimeValue =
+                getProperties().getProperty("ping.tcpip.reponsetime.max");
+        if (maxResponseTimeValue != null && !maxResponseTimeValue.isEmpty()) {
+            final long maxResponseTime = Long.parseLong(maxResponseTimeValue);
+            final long phaseNanos = result.getPhaseNanos(getThresholdPhase());
+            if (result.getStatusCode() < 0) {
+                isSuccessfulCheck = false;
+            } else if (phaseNanos != HttpPhaseTimings.NOT_MEASURED) {
+                isSuccessfulCheck = phaseNanos <= TimeUnit.MILLISECONDS.toNanos(maxResponseTime);
+            }
+        } else {
+            isSuccessfulCheck = result.getStatusCode() == 200
+                    || result.getStatusCode() == 206 && getProbeMethod() == HttpProbeMethod.RANGE;
+        }
+        return isSuccessfulCheck;
+    }
+
+    /**
+     * @return the {@link HttpProbeMethod} of the check
+     */
+    private HttpProbeMethod getProbeMethod() {
+        final String method = PropertyUtil.getString(getProperties(), "ping.tcpip.method", "get");
+        try {
+            return HttpProbeMethod.valueOf(method.toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Invalid HTTP probe method (" + method + ") in property: ping.tcpip.method",
+                    e);
+        }
+    }
+
+    /**
+     * @return the {@link HttpPhase} the maximal response time applies to
+     */
+    private HttpPhase getThresholdPhase() {
+        final String phase =
+                PropertyUtil.getString(getProperties(), "ping.tcpip.reponsetime.phase", "total");
+        try {
+            return HttpPhase.valueOf(phase.trim().toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid HTTP phase (" + phase
+                    + ") in property: ping.tcpip.reponsetime.phase", e);
+        }
+    }
+}
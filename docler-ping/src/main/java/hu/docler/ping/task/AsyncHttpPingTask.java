@@ -0,0 +1,139 @@
+package hu.docler.ping.task;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+
+import hu.docler.ping.http.AsyncHttpProbeEngine;
+import hu.docler.ping.http.HttpProbeResult;
+import hu.docler.ping.util.PropertyUtil;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * {@link AbstractHttpPingTask} implementation performing TCP/IP based ping checks of a host with
+ * non-blocking HTTP requests. Running the task only starts the probe on the
+ * {@link AsyncHttpProbeEngine}, the result is stored, checked and reported by a callback when the
+ * probe completes, so no thread waits for the remote host.
+ *
+ */
+public class AsyncHttpPingTask extends AbstractHttpPingTask {
+    /** {@link AsyncHttpProbeEngine} executing the probes. */
+    private final AsyncHttpProbeEngine probeEngine;
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param probeEngine
+     *            {@link AsyncHttpProbeEngine} shared between the TCP/IP ping tasks
+     */
+    public AsyncHttpPingTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final AsyncHttpProbeEngine probeEngine) {
+        super(properties, host, resultStore);
+        if (probeEngine == null) {
+            throw new IllegalArgumentException("Probe engine is mandatory, can't be null");
+        }
+        this.probeEngine = probeEngine;
+    }
+
+    /**
+     * Starts the probe and returns immediately, the result is processed by the callback of the
+     * probe.
+     *
+     * @see Runnable#run()
+     */
+    @Override
+    public void run() {
+        getLogger().info("Executing check type: {}", getCheckIdentifierName());
+        probe(new ResultCallback() {
+            public void resultAvailable(final TcpPingResult result) {
+                processResult(result);
+            }
+        });
+    }
+
+    /**
+     * Executes the probe and waits for its completion, at most for the HTTP timeout
+     * (<code>ping.tcpip.http.timeout</code>). A probe not completed by then fails the check.
+     */
+    @Override
+    protected TcpPingResult executeCheck() {
+        final CompletableFuture<TcpPingResult> future = new CompletableFuture<TcpPingResult>();
+        probe(new ResultCallback() {
+            public void resultAvailable(final TcpPingResult result) {
+                future.complete(result);
+            }
+        });
+        final long timeoutMillis = PropertyUtil.getLong(getProperties(), "ping.tcpip.http.timeout",
+                TimeUnit.SECONDS.toMillis(60));
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            getLogger().warn("HTTP probe of host ({}) didn't complete in {} milliseconds",
+                    getHost(), timeoutMillis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLogger().warn("Interrupted while waiting for HTTP probe of host: {}", getHost());
+        } catch (final ExecutionException e) {
+            getLogger().error("HTTP probe failed", e.getCause());
+        }
+        return TcpPingResult.failed(createUrl());
+    }
+
+    /**
+     * Starts an HTTP probe of the host.
+     *
+     * @param resultCallback
+     *            callback receiving the result of the probe
+     */
+    private void probe(final ResultCallback resultCallback) {
+        final HttpRequestBase request = createRequest();
+        final String url = request.getURI().toString();
+        getLogger().info("Executing async HTTP {} request to host: {}", request.getMethod(),
+                getHost());
+        probeEngine.probe(request, new FutureCallback<HttpProbeResult>() {
+            public void completed(final HttpProbeResult probeResult) {
+                getLogger().debug("HTTP request took {} milliseconds to complete",
+                        TimeUnit.NANOSECONDS.toMillis(probeResult.getResponseTimeNanos()));
+                resultCallback.resultAvailable(new TcpPingResult(url, probeResult.getStatusCode(),
+                        false, probeResult.getTimings(), probeResult.getBytesRead()));
+            }
+
+            public void failed(final Exception e) {
+                getLogger().error("Async HTTP call failed", e);
+                resultCallback.resultAvailable(TcpPingResult.failed(url));
+            }
+
+            public void cancelled() {
+                getLogger().warn("Async HTTP call to host ({}) was cancelled", getHost());
+                resultCallback.resultAvailable(TcpPingResult.failed(url));
+            }
+        });
+    }
+
+    /**
+     * Callback receiving the {@link TcpPingResult} of a probe.
+     */
+    private interface ResultCallback {
+        /**
+         * Called when the result of the probe is available.
+         *
+         * @param result
+         *            result of the probe
+         */
+        void resultAvailable(TcpPingResult result);
+    }
+}
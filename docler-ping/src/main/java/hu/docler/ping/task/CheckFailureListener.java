@@ -0,0 +1,18 @@
+package hu.docler.ping.task;
+
+/**
+ * Listener notified when a check of a host fails, before the failure is reported.
+ */
+public interface CheckFailureListener {
+    /**
+     * Called when a check of a host failed.
+     *
+     * @param host
+     *            host checked
+     * @param checkIdentifierName
+     *            identifier name of the check failed
+     * @return <code>true</code> if the listener takes over sending the report of the failure,
+     *         <code>false</code> if the check has to send it
+     */
+    boolean checkFailed(String host, String checkIdentifierName);
+}
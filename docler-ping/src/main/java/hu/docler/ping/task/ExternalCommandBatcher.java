@@ -0,0 +1,335 @@
+package hu.docler.ping.task;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.process.ProcessOutput;
+import hu.docler.ping.process.ProcessResult;
+import hu.docler.ping.process.ProcessRunner;
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * Runs the external command checks of many hosts with a single command invocation, in the style
+ * of <code>fping</code>. The checks falling due within a batch window are collected, a single
+ * command is run for all of their hosts, and its output is split back into per host results: a
+ * line of the output belongs to the host (or address) it starts with. The <code>$HOSTS</code>
+ * placeholder of the batch command is replaced by the hosts of the batch, the
+ * <code>$ADDRESSES</code> placeholder by their resolved addresses. The standard error of the
+ * command is read together with its standard output. The command is run by a
+ * {@link ProcessRunner}, with the deadline configured by the batch command property with the
+ * <code>.timeout</code> suffix.
+ * <p>
+ * The results of the hosts are processed (stored and reported) by the executor of the checks, so
+ * a slow report doesn't hold up the next batch. A check is batched once at a time: a check
+ * submitted again before its last result is processed is skipped.
+ */
+public class ExternalCommandBatcher implements Closeable {
+    /** Placeholder of the batch command replaced by the hosts of the batch. */
+    private static final String HOSTS_PLACEHOLDER = "$HOSTS";
+    /** Placeholder of the batch command replaced by the addresses of the hosts of the batch. */
+    private static final String ADDRESSES_PLACEHOLDER = "$ADDRESSES";
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(ExternalCommandBatcher.class);
+    /** Template of the batch command. */
+    private final String commandTemplate;
+    /** {@link ProcessRunner} running the batch command. */
+    private final ProcessRunner processRunner;
+    /** Deadline of the batch command, in milliseconds. */
+    private final long timeoutMillis;
+    /** Length of the batch window, in milliseconds. */
+    private final long windowMillis;
+    /** Checks waiting for the next batch. */
+    private final Queue<AbstractExternalCommandTask> pendingTasks =
+            new ConcurrentLinkedQueue<AbstractExternalCommandTask>();
+    /** Checks batched whose result is not processed yet. */
+    private final Set<AbstractExternalCommandTask> unprocessedTasks =
+            ConcurrentHashMap.newKeySet();
+    /** {@link Executor} processing the results of the hosts, may be <code>null</code>. */
+    private final Executor resultExecutor;
+    /** Flag signalling that the run of the next batch is scheduled. */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    /** Executor running the batches. */
+    private final ScheduledExecutorService batchExecutor;
+    /** Task running the next batch. */
+    private final Runnable flushTask = new Runnable() {
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Ctor, processing the results of the hosts on the thread running the batches.
+     *
+     * @param properties
+     *            application properties
+     * @param commandPropertyName
+     *            name of the property containing the command of the checks batched, the batch
+     *            command is read from the property with the <code>.batch</code> suffix
+     * @param processRunner
+     *            {@link ProcessRunner} shared between the tasks running external commands,
+     *            <code>null</code> to use a runner of the batcher's own
+     */
+    public ExternalCommandBatcher(
+            final Properties properties,
+            final String commandPropertyName,
+            final ProcessRunner processRunner) {
+        this(properties, commandPropertyName, processRunner, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param commandPropertyName
+     *            name of the property containing the command of the checks batched, the batch
+     *            command is read from the property with the <code>.batch</code> suffix
+     * @param processRunner
+     *            {@link ProcessRunner} shared between the tasks running external commands,
+     *            <code>null</code> to use a runner of the batcher's own
+     * @param resultExecutor
+     *            {@link Executor} processing the results of the hosts, <code>null</code> to
+     *            process them on the thread running the batches
+     */
+    public ExternalCommandBatcher(
+            final Properties properties,
+            final String commandPropertyName,
+            final ProcessRunner processRunner,
+            final Executor resultExecutor) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        this.commandTemplate =
+                PropertyUtil.getString(properties, commandPropertyName + ".batch", null);
+        if (commandTemplate == null) {
+            throw new IllegalArgumentException(
+                    "Missing configuration of " + commandPropertyName + ".batch property");
+        }
+        this.processRunner =
+                processRunner != null ? processRunner : new ProcessRunner(properties);
+        this.timeoutMillis = PropertyUtil.getLong(properties, commandPropertyName
+                + ".batch.timeout", this.processRunner.getDefaultTimeoutMillis());
+        this.resultExecutor = resultExecutor;
+        this.windowMillis = PropertyUtil.getLong(properties, "ping.batch.window",
+                PropertyUtil.getLong(properties, "ping.scheduler.tick", 100));
+        final String threadName = "ping-batch-" + commandPropertyName;
+        this.batchExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Adds a check to the next batch, scheduling the run of the batch at the end of the batch
+     * window if it isn't scheduled yet. The check is skipped if it's already batched and its
+     * result is not processed yet.
+     *
+     * @param task
+     *            the check
+     */
+    void submit(final AbstractExternalCommandTask task) {
+        if (!unprocessedTasks.add(task)) {
+            logger.warn("Check of host ({}) is still pending, skipping it", task.getHost());
+            return;
+        }
+        pendingTasks.add(task);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                batchExecutor.schedule(flushTask, windowMillis, TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException e) {
+                logger.warn("Batcher is closed, dropping check of host: {}", task.getHost());
+                pendingTasks.remove(task);
+                unprocessedTasks.remove(task);
+            }
+        }
+    }
+
+    /**
+     * Stops running batches.
+     *
+     * @see Closeable#close()
+     */
+    public void close() {
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs the batch command for the checks collected, and hands over the output lines of each
+     * host to its check on the result executor.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        final List<AbstractExternalCommandTask> tasks =
+                new ArrayList<AbstractExternalCommandTask>();
+        AbstractExternalCommandTask task = pendingTasks.poll();
+        while (task != null) {
+            tasks.add(task);
+            task = pendingTasks.poll();
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        final boolean useAddresses = commandTemplate.contains(ADDRESSES_PLACEHOLDER);
+        final String[] targets = new String[tasks.size()];
+        final Map<String, StringBuilder> outputs = new HashMap<String, StringBuilder>();
+        final StringBuilder targetList = new StringBuilder();
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = useAddresses ? tasks.get(i).resolveAddress() : tasks.get(i).getHost();
+            if (!outputs.containsKey(targets[i])) {
+                outputs.put(targets[i], new StringBuilder());
+                targetList.append(targetList.length() == 0 ? "" : " ").append(targets[i]);
+            }
+        }
+        final String command = commandTemplate
+                .replace(useAddresses ? ADDRESSES_PLACEHOLDER : HOSTS_PLACEHOLDER, targetList);
+        logger.info("Executing batch command for {} hosts: {}", outputs.size(), command);
+        final ProcessResult result = runCommand(command, outputs);
+        for (int i = 0; i < targets.length; i++) {
+            dispatchResult(tasks.get(i), new ProcessOutput(outputs.get(targets[i]).toString(),
+                    result.isStarted(), result.isTimedOut()));
+        }
+    }
+
+    /**
+     * Hands over the output of a host to its check on the result executor, or processes it on
+     * the calling thread if there is no result executor. The result is dropped if the result
+     * executor is saturated.
+     *
+     * @param task
+     *            check of the host
+     * @param output
+     *            output lines of the host
+     */
+    private void dispatchResult(
+            final AbstractExternalCommandTask task,
+            final ProcessOutput output) {
+        final Runnable resultTask = new Runnable() {
+            public void run() {
+                try {
+                    task.processResult(output);
+                } catch (final RuntimeException e) {
+                    logger.error("Processing batch result of host ({}) failed", task.getHost(),
+                            e);
+                } finally {
+                    unprocessedTasks.remove(task);
+                }
+            }
+        };
+        if (resultExecutor == null) {
+            resultTask.run();
+            return;
+        }
+        try {
+            resultExecutor.execute(resultTask);
+        } catch (final RejectedExecutionException e) {
+            logger.warn("Result executor is saturated, dropping batch result of host: {}",
+                    task.getHost());
+            unprocessedTasks.remove(task);
+        }
+    }
+
+    /**
+     * Runs the batch command, appending each line of its output to the output of the host the
+     * line starts with.
+     *
+     * @param command
+     *            the batch command
+     * @param outputs
+     *            outputs of the hosts, by host
+     * @return result of the batch command, already closed
+     */
+    private ProcessResult runCommand(
+            final String command,
+            final Map<String, StringBuilder> outputs) {
+        final ProcessResult result = processRunner.run(command, timeoutMillis);
+        try {
+            if (result.isTimedOut()) {
+                logger.warn("Batch command ({}) timed out after {} milliseconds", command,
+                        timeoutMillis);
+            } else if (!result.isStarted()) {
+                logger.error("Execution of batch command: {} failed", command);
+            }
+            splitOutput(result.getOutputChars(), outputs);
+        } finally {
+            result.close();
+        }
+        return result;
+    }
+
+    /**
+     * Appends each line of the output of the batch command to the output of the host the line
+     * starts with, copying the lines straight from the output buffer.
+     *
+     * @param output
+     *            output of the batch command
+     * @param outputs
+     *            outputs of the hosts, by host
+     */
+    private void splitOutput(final CharSequence output, final Map<String, StringBuilder> outputs) {
+        int lineStart = 0;
+        while (lineStart < output.length()) {
+            int lineEnd = lineStart;
+            while (lineEnd < output.length() && output.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            while (contentEnd > lineStart && output.charAt(contentEnd - 1) <= ' ') {
+                contentEnd--;
+            }
+            final StringBuilder hostOutput =
+                    outputs.get(getLineTarget(output, lineStart, contentEnd));
+            if (hostOutput != null) {
+                hostOutput.append(output, lineStart, contentEnd);
+                hostOutput.append(System.lineSeparator());
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Returns the host (or address) an output line starts with.
+     *
+     * @param output
+     *            output of the batch command
+     * @param lineStart
+     *            start of the line
+     * @param lineEnd
+     *            end of the line, exclusive
+     * @return the first token of the line, delimited by whitespace, without a trailing colon, so
+     *         the colons of an IPv6 address are kept
+     */
+    private static String getLineTarget(
+            final CharSequence output,
+            final int lineStart,
+            final int lineEnd) {
+        int end = lineStart;
+        while (end < lineEnd && !Character.isWhitespace(output.charAt(end))) {
+            end++;
+        }
+        if (end > lineStart && output.charAt(end - 1) == ':') {
+            end--;
+        }
+        return output.subSequence(lineStart, end).toString();
+    }
+}
@@ -0,0 +1,155 @@
+package hu.docler.ping.task;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.icmp.IcmpEchoEngine;
+import hu.docler.ping.icmp.PingCallback;
+import hu.docler.ping.icmp.PingStatistics;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * {@link AbstractCommandTask} implementation performing ICMP protocol based ping tests of a host
+ * in-process, on the {@link IcmpEchoEngine}, instead of forking a <code>ping</code> process.
+ * Running the task only starts the ping, the result is stored, checked and reported when all the
+ * echo requests complete. The result is stored under the same identifier as the result of the
+ * command based {@link IcmpPingTask}.
+ *
+ */
+public class IcmpEchoTask extends AbstractCommandTask<PingStatistics> {
+    /** {@link IcmpEchoEngine} executing the pings. */
+    private final IcmpEchoEngine echoEngine;
+    /** {@link DnsCache} resolving the host, may be <code>null</code>. */
+    private final DnsCache dnsCache;
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param echoEngine
+     *            {@link IcmpEchoEngine} shared between the ICMP ping tasks
+     * @param dnsCache
+     *            {@link DnsCache} resolving the host, <code>null</code> to use the system resolver
+     */
+    public IcmpEchoTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final IcmpEchoEngine echoEngine,
+            final DnsCache dnsCache) {
+        super(properties, host, resultStore);
+        if (echoEngine == null) {
+            throw new IllegalArgumentException("Echo engine is mandatory, can't be null");
+        }
+        this.echoEngine = echoEngine;
+        this.dnsCache = dnsCache;
+    }
+
+    /**
+     * Starts the ping and returns immediately, the result is processed when the ping completes.
+     *
+     * @see Runnable#run()
+     */
+    @Override
+    public void run() {
+        getLogger().info("Executing check type: {}", getCheckIdentifierName());
+        ping(new PingCallback() {
+            public void completed(final PingStatistics statistics) {
+                processResult(statistics);
+            }
+
+            public void failed(final Exception cause) {
+                getLogger().error("Ping of host ({}) failed", getHost(), cause);
+                processResult(new PingStatistics());
+            }
+        });
+    }
+
+    /**
+     * Executes the ping and waits for its completion.
+     */
+    @Override
+    protected PingStatistics executeCheck() {
+        final CompletableFuture<PingStatistics> future = new CompletableFuture<PingStatistics>();
+        ping(new PingCallback() {
+            public void completed(final PingStatistics statistics) {
+                future.complete(statistics);
+            }
+
+            public void failed(final Exception cause) {
+                future.completeExceptionally(cause);
+            }
+        });
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLogger().warn("Interrupted while waiting for ping of host: {}", getHost());
+        } catch (final ExecutionException e) {
+            getLogger().error("Ping of host ({}) failed", getHost(), e.getCause());
+        }
+        return new PingStatistics();
+    }
+
+    @Override
+    protected String getTaskDelayPropertyName() {
+        return "ping.icmp.delay";
+    }
+
+    @Override
+    protected String getCheckIdentifierName() {
+        return "ping.icmp.command";
+    }
+
+    /**
+     * The check is successful if echo requests were sent and all of them were answered.
+     */
+    @Override
+    protected boolean checkResult(final PingStatistics result) {
+        return result.getSent() > 0 && result.getSent() == result.getReceived()
+                && result.getLost() == 0;
+    }
+
+    /**
+     * @return average round trip time of the echo requests, NaN if none was answered
+     */
+    @Override
+    protected double getLatencyMillis(final PingStatistics checkResult) {
+        return checkResult.getReceived() == 0 ? Double.NaN : checkResult.getAvgRtt();
+    }
+
+    /**
+     * @return percentage of the echo requests lost, NaN if none was sent
+     */
+    @Override
+    protected double getLossPercent(final PingStatistics checkResult) {
+        return checkResult.getSent() == 0 ? Double.NaN : checkResult.getLossPercent();
+    }
+
+    /**
+     * Resolves the host and starts the ping.
+     *
+     * @param callback
+     *            callback receiving the statistics of the ping
+     */
+    private void ping(final PingCallback callback) {
+        final InetAddress address;
+        try {
+            address = dnsCache != null ? dnsCache.resolveFirst(getHost())
+                    : InetAddress.getByName(getHost());
+        } catch (final UnknownHostException e) {
+            callback.failed(e);
+            return;
+        }
+        echoEngine.ping(address, callback);
+    }
+}
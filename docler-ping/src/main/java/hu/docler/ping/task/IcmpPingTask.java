@@ -2,6 +2,11 @@ package hu.docler.ping.task;
 
 import java.util.Properties;
 
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.icmp.PingOutputParser;
+import hu.docler.ping.icmp.PingStatistics;
+import hu.docler.ping.process.ProcessOutput;
+import hu.docler.ping.process.ProcessRunner;
 import hu.docler.ping.util.ResultStore;
 
 /**
@@ -10,6 +15,10 @@ import hu.docler.ping.util.ResultStore;
  *
  */
 public class IcmpPingTask extends AbstractExternalCommandTask {
+    /** {@link PingOutputParser} parsing the output of the ping command. */
+    private final PingOutputParser outputParser = new PingOutputParser();
+    /** {@link PingStatistics} record reused for the statistics of consecutive checks. */
+    private final PingStatistics statistics = new PingStatistics();
 
     /**
      * Ctor.
@@ -25,7 +34,57 @@ public class IcmpPingTask extends AbstractExternalCommandTask {
             final Properties properties,
             final String host,
             final ResultStore resultStore) {
-        super(properties, host, resultStore);
+        this(properties, host, resultStore, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param dnsCache
+     *            {@link DnsCache} resolving the <code>$ADDRESS</code> placeholder of the command,
+     *            <code>null</code> to use the system resolver
+     */
+    public IcmpPingTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final DnsCache dnsCache) {
+        this(properties, host, resultStore, dnsCache, null, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param dnsCache
+     *            {@link DnsCache} resolving the <code>$ADDRESS</code> placeholder of the command,
+     *            <code>null</code> to use the system resolver
+     * @param processRunner
+     *            {@link ProcessRunner} shared between the tasks running external commands,
+     *            <code>null</code> to use a runner of the task's own
+     * @param batcher
+     *            {@link ExternalCommandBatcher} pinging the host together with other hosts,
+     *            <code>null</code> to run a ping command for this host only
+     */
+    public IcmpPingTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final DnsCache dnsCache,
+            final ProcessRunner processRunner,
+            final ExternalCommandBatcher batcher) {
+        super(properties, host, resultStore, dnsCache, processRunner, batcher);
     }
 
     @Override
@@ -38,34 +97,37 @@ public class IcmpPingTask extends AbstractExternalCommandTask {
         return "ping.icmp.delay";
     }
 
+    /**
+     * Parses the output of the ping command with a {@link PingOutputParser}, without decoding it.
+     * The check is successful if every echo request sent was answered and no error reply was
+     * received.
+     */
     @Override
-    protected boolean checkResult(final String result) {
-        boolean wasSuccessful;
-        if (result.toLowerCase().contains("unreachable") || result.toLowerCase().contains("timeout")
-                || result.toLowerCase().contains("timed out")) {
-            wasSuccessful = false;
-        } else {
-            final int sentIdx = result.indexOf("Sent = ");
-            final String sentNrSubstring = result.substring(sentIdx + 7);
-            final String sentNrString = sentNrSubstring.substring(0, sentNrSubstring.indexOf(','));
-            final long sentNr = Long.parseLong(sentNrString);
-
-            final int receivedIdx = result.indexOf("Received = ");
-            final String receivedNrSubstring = result.substring(receivedIdx + 11);
-            final String receivedNrString =
-                    receivedNrSubstring.substring(0, receivedNrSubstring.indexOf(','));
-            final long receivedNr = Long.parseLong(receivedNrString);
+    protected synchronized boolean checkResult(final ProcessOutput result) {
+        if (!outputParser.parse(result.getChars(), statistics)) {
+            getLogger().warn("No packet counts found in the ping output of host: {}", getHost());
+            return false;
+        }
+        getLogger().debug("Ping statistics of host ({}): {}", getHost(), statistics);
+        return statistics.getSent() > 0 && statistics.getSent() == statistics.getReceived()
+                && statistics.getLost() == 0 && statistics.getErrors() == 0;
+    }
 
-            final int lostIdx = result.indexOf("Lost = ");
-            final String lostNrSubstring = result.substring(lostIdx + 7);
-            final String lostNrString =
-                    lostNrSubstring.substring(0, lostNrSubstring.indexOf('(') - 1);
-            final long lostNr = Long.parseLong(lostNrString);
+    /**
+     * @return average round trip time of the echo requests parsed by the last
+     *         {@link #checkResult(ProcessOutput)}, NaN if none was answered
+     */
+    @Override
+    protected synchronized double getLatencyMillis(final ProcessOutput checkResult) {
+        return statistics.getReceived() == 0 ? Double.NaN : statistics.getAvgRtt();
+    }
 
-            final boolean sendReceivedEqual = sentNr == receivedNr;
-            final boolean lostIsZero = lostNr == 0;
-            wasSuccessful = sendReceivedEqual && lostIsZero;
-        }
-        return wasSuccessful;
+    /**
+     * @return percentage of the echo requests lost parsed by the last
+     *         {@link #checkResult(ProcessOutput)}, NaN if none was sent
+     */
+    @Override
+    protected synchronized double getLossPercent(final ProcessOutput checkResult) {
+        return statistics.getSent() == 0 ? Double.NaN : statistics.getLossPercent();
     }
 }
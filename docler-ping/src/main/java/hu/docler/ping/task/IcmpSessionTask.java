@@ -0,0 +1,99 @@
+package hu.docler.ping.task;
+
+import java.util.Properties;
+
+import hu.docler.ping.icmp.PingSession;
+import hu.docler.ping.icmp.PingSessionManager;
+import hu.docler.ping.icmp.PingStatistics;
+import hu.docler.ping.util.PropertyUtil;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * {@link AbstractCommandTask} implementation performing ICMP protocol based ping tests of a host
+ * on a long-lived {@link PingSession}, instead of starting a <code>ping</code> command for every
+ * check. Running the task only reads the rolling window of the session, so the check is cheap
+ * enough to be run as often as every second. The result is stored under the same identifier as
+ * the result of the command based {@link IcmpPingTask}.
+ *
+ */
+public class IcmpSessionTask extends AbstractCommandTask<PingStatistics> {
+    /** {@link PingSessionManager} keeping the session of the host. */
+    private final PingSessionManager sessionManager;
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param sessionManager
+     *            {@link PingSessionManager} shared between the ICMP ping tasks
+     */
+    public IcmpSessionTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final PingSessionManager sessionManager) {
+        super(properties, host, resultStore);
+        if (sessionManager == null) {
+            throw new IllegalArgumentException("Session manager is mandatory, can't be null");
+        }
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * Reads the rolling window of the session of the host, starting the session on the first
+     * check. The check fails if the host has no session, since the limit of the concurrent
+     * processes is reached.
+     */
+    @Override
+    protected PingStatistics executeCheck() {
+        final PingStatistics statistics = new PingStatistics();
+        final PingSession session = sessionManager.getSession(getHost());
+        if (session == null) {
+            getLogger().warn("Host ({}) has no ping session, failing its check", getHost());
+        } else {
+            session.fillStatistics(statistics);
+        }
+        return statistics;
+    }
+
+    @Override
+    protected String getTaskDelayPropertyName() {
+        return "ping.icmp.delay";
+    }
+
+    @Override
+    protected String getCheckIdentifierName() {
+        return "ping.icmp.command";
+    }
+
+    /**
+     * The check is successful if the window holds recent echo requests and the percentage lost
+     * doesn't exceed the <code>ping.icmp.session.loss.max</code> property.
+     */
+    @Override
+    protected boolean checkResult(final PingStatistics result) {
+        return result.getSent() > 0 && result.getLossPercent()
+                <= PropertyUtil.getInt(getProperties(), "ping.icmp.session.loss.max", 0);
+    }
+
+    /**
+     * @return average round trip time of the echo requests, NaN if none was answered
+     */
+    @Override
+    protected double getLatencyMillis(final PingStatistics checkResult) {
+        return checkResult.getReceived() == 0 ? Double.NaN : checkResult.getAvgRtt();
+    }
+
+    /**
+     * @return percentage of the echo requests lost, NaN if none was sent
+     */
+    @Override
+    protected double getLossPercent(final PingStatistics checkResult) {
+        return checkResult.getSent() == 0 ? Double.NaN : checkResult.getLossPercent();
+    }
+}
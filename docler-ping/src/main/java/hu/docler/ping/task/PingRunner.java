@@ -1,13 +1,38 @@
 package hu.docler.ping.task;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Random;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.http.AsyncHttpProbeEngine;
+import hu.docler.ping.http.PingHttpClient;
+import hu.docler.ping.icmp.IcmpEchoEngine;
+import hu.docler.ping.icmp.PingSessionManager;
+import hu.docler.ping.process.ProcessRunner;
+import hu.docler.ping.schedule.BulkheadExecutor;
+import hu.docler.ping.schedule.CheckExecutor;
+import hu.docler.ping.schedule.PhaseSpreader;
+import hu.docler.ping.schedule.TimingWheelScheduler;
+import hu.docler.ping.schedule.VirtualThreadExecutor;
+import hu.docler.ping.tcp.TcpConnectProbeEngine;
+import hu.docler.ping.util.ColumnarResultStoreImpl;
+import hu.docler.ping.util.HistogramResultStoreImpl;
+import hu.docler.ping.util.JournalResultStoreImpl;
 import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.PropertyUtil;
+import hu.docler.ping.util.RingBufferResultStoreImpl;
 import hu.docler.ping.util.ResultStore;
 
 /**
@@ -20,38 +45,517 @@ public final class PingRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(PingRunner.class);
     /** Default {@link TimeUnit} for the delay values used when scheduling checker tasks. */
     private static final TimeUnit TASK_DELAY_TIME_UNIT = TimeUnit.SECONDS;
+    /** Number of check types scheduled for each host. */
+    private static final int CHECK_TYPE_COUNT = 4;
+    /** Property name prefixes of the check families, each family may have its own executor. */
+    private static final String[] CHECK_FAMILIES =
+            new String[] {"ping.icmp", "ping.tcpip", "ping.tracert", "ping.tcpconnect"};
+    /** Identifier names of the checks, the check types stored by the result store. */
+    private static final String[] CHECK_TYPES = new String[] {"ping.icmp.command",
+        "ping.tcpip.check", "ping.tracert.command", "ping.tcpconnect.check",
+        "ping.tracert.distance"};
+    /** Default number of threads of an executor. */
+    private static final int DEFAULT_EXECUTOR_THREADS = 4;
+    /** Default queue size of an executor. */
+    private static final int DEFAULT_EXECUTOR_QUEUE_SIZE = 10000;
+    /** Default maximal number of checks running concurrently in virtual thread mode. */
+    private static final int DEFAULT_VIRTUAL_MAX_CONCURRENT = 1000;
     /**
      * {@link Properties} containing all the application properties set in an external configuration
      * file.
      */
     private final Properties properties;
+    /** {@link TimingWheelScheduler} running the checker tasks. */
+    private final TimingWheelScheduler scheduler;
+    /** {@link PhaseSpreader} calculating the initial delay of the checker tasks. */
+    private final PhaseSpreader phaseSpreader;
+    /** {@link CheckExecutor} objects running the checks, based on check family prefixes. */
+    private final Map<String, CheckExecutor> executors = new LinkedHashMap<String, CheckExecutor>();
+    /** {@link DnsCache} shared between all the tasks. */
+    private final DnsCache dnsCache;
+    /** {@link PingHttpClient} shared between the TCP/IP ping tasks. */
+    private final PingHttpClient httpClient;
+    /**
+     * {@link AsyncHttpProbeEngine} shared between the TCP/IP ping tasks, <code>null</code> unless
+     * the async engine is configured.
+     */
+    private final AsyncHttpProbeEngine asyncProbeEngine;
+    /**
+     * {@link IcmpEchoEngine} shared between the ICMP ping and trace route tasks, <code>null</code>
+     * unless the in-process ICMP or trace route engine is configured.
+     */
+    private final IcmpEchoEngine icmpEchoEngine;
+    /**
+     * {@link PingSessionManager} keeping the ping sessions of the hosts, <code>null</code> unless
+     * the session ICMP engine is configured.
+     */
+    private final PingSessionManager pingSessionManager;
+    /** {@link ProcessRunner} shared between the tasks running external commands. */
+    private final ProcessRunner processRunner;
+    /**
+     * {@link ExternalCommandBatcher} pinging the hosts with a single command,
+     * <code>null</code> unless the batch ICMP engine is configured.
+     */
+    private final ExternalCommandBatcher icmpBatcher;
+    /**
+     * {@link TcpConnectProbeEngine} shared between the TCP connect tasks, <code>null</code> unless
+     * ports to be probed are configured.
+     */
+    private final TcpConnectProbeEngine tcpConnectProbeEngine;
+    /**
+     * {@link TracertTrigger} running the trace route checks when other checks fail,
+     * <code>null</code> unless the on-demand trace route mode is configured.
+     */
+    private final TracertTrigger tracertTrigger;
+    /**
+     * {@link JournalResultStoreImpl} persisting the results, <code>null</code> unless the journal
+     * result store is configured.
+     */
+    private final JournalResultStoreImpl journal;
 
     /**
      * Ctor.
      *
      * @param properties
      *            application properties object
-     * @param executorService
-     *            {@link ScheduledExecutorService} used to run all the checker tasks with a fixed
-     *            (and configured) delay.
+     * @param scheduler
+     *            {@link TimingWheelScheduler} used to run all the checker tasks with a fixed (and
+     *            configured) delay.
      */
-    public PingRunner(final Properties properties, final ScheduledExecutorService executorService) {
+    public PingRunner(final Properties properties, final TimingWheelScheduler scheduler) {
         this.properties = properties;
-
-        final ResultStore resultStore = new MapResultStoreImpl();
+        this.scheduler = scheduler;
+        this.phaseSpreader = new PhaseSpreader(
+                PropertyUtil.getBoolean(properties, "ping.scheduler.spread", true),
+                PropertyUtil.getDouble(properties, "ping.scheduler.jitter", 0), new Random());
+        createExecutors();
+        this.dnsCache = new DnsCache(properties);
+        this.httpClient = new PingHttpClient(properties, dnsCache);
+        this.asyncProbeEngine = createAsyncProbeEngine();
+        this.tcpConnectProbeEngine = createTcpConnectProbeEngine();
+        this.icmpEchoEngine = createIcmpEchoEngine();
+        this.processRunner = new ProcessRunner(properties);
+        this.icmpBatcher = createIcmpBatcher();
+        this.pingSessionManager = createPingSessionManager();
+        this.journal = createJournal();
 
         final String[] hosts = loadHosts();
-        for (final String host : hosts) {
-            final IcmpPingTask icmpPingTask = new IcmpPingTask(properties, host, resultStore);
-            executorService.scheduleAtFixedRate(icmpPingTask, 0, loadDelayValue("ping.icmp.delay"),
-                    TASK_DELAY_TIME_UNIT);
-            final TcpipPingTask tcpipPingTask = new TcpipPingTask(properties, host, resultStore);
-            executorService.scheduleAtFixedRate(tcpipPingTask, 0,
-                    loadDelayValue("ping.tcpip.delay"), TASK_DELAY_TIME_UNIT);
-            final TracertTask tracertTask = new TracertTask(properties, host, resultStore);
-            executorService.scheduleAtFixedRate(tracertTask, 0,
-                    loadDelayValue("ping.tracert.delay"), TASK_DELAY_TIME_UNIT);
+        final ResultStore resultStore =
+                PropertyUtil.getBoolean(properties, "ping.resultstore.histograms", false)
+                        ? new HistogramResultStoreImpl(createResultStore(hosts))
+                        : createResultStore(hosts);
+        this.tracertTrigger = TracertTask.isOnDemandMode(properties)
+                ? new TracertTrigger(properties, resultStore, executors.get("ping.tracert"))
+                : null;
+
+        for (int i = 0; i < hosts.length; i++) {
+            final String host = hosts[i];
+            final AbstractCommandTask<?> tracertTask = createTracertTask(host, resultStore);
+            scheduleTask(withTracertTrigger(createIcmpPingTask(host, resultStore)),
+                    executors.get("ping.icmp"), i, hosts.length, 0);
+            scheduleTask(withTracertTrigger(createHttpPingTask(host, resultStore)),
+                    executors.get("ping.tcpip"), i, hosts.length, 1);
+            scheduleTask(tracertTask, executors.get("ping.tracert"), i, hosts.length, 2);
+            if (tcpConnectProbeEngine != null) {
+                scheduleTask(withTracertTrigger(new TcpConnectTask(properties, host, resultStore,
+                        tcpConnectProbeEngine, dnsCache)), executors.get("ping.tcpconnect"), i,
+                        hosts.length, 3);
+            }
+        }
+
+        final long statisticsDelay =
+                PropertyUtil.getLong(properties, "ping.executor.stats.delay", 60);
+        if (statisticsDelay > 0) {
+            scheduler.scheduleAtFixedRate(new StatisticsLogger(), new DirectExecutor(),
+                    statisticsDelay, statisticsDelay, TASK_DELAY_TIME_UNIT);
+        }
+    }
+
+    /**
+     * Stops all the executors running the checker tasks and releases the shared resources of the
+     * tasks.
+     */
+    public void shutdown() {
+        for (final CheckExecutor executor : getDistinctExecutors()) {
+            executor.shutdown();
+        }
+        try {
+            httpClient.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to close shared http client properly", e);
+        }
+        if (asyncProbeEngine != null) {
+            try {
+                asyncProbeEngine.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to close async HTTP probe engine properly", e);
+            }
+        }
+        if (tcpConnectProbeEngine != null) {
+            try {
+                tcpConnectProbeEngine.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to close TCP connect probe engine properly", e);
+            }
+        }
+        if (icmpEchoEngine != null) {
+            try {
+                icmpEchoEngine.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to close ICMP echo engine properly", e);
+            }
+        }
+        if (icmpBatcher != null) {
+            icmpBatcher.close();
+        }
+        if (pingSessionManager != null) {
+            pingSessionManager.close();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to close result journal properly", e);
+            }
+        }
+        dnsCache.close();
+    }
+
+    /**
+     * Creates the {@link ResultStore} selected by the <code>ping.resultstore.type</code> property:
+     * <code>map</code> keeps the last result of the checks only, <code>ringbuffer</code> also keeps
+     * the last <code>ping.resultstore.history.size</code> samples of every check of every host,
+     * <code>columnar</code> keeps the last result of the checks in primitive columns indexed by
+     * the hosts, for large host counts, <code>journal</code> also appends every result to a
+     * memory-mapped journal on the disk.
+     *
+     * @param hosts
+     *            the hosts checked
+     * @return the result store created
+     * @throws IllegalArgumentException
+     *             If the configured result store type is unknown.
+     */
+    private ResultStore createResultStore(final String[] hosts) {
+        final String type = PropertyUtil.getString(properties, "ping.resultstore.type", "map");
+        if ("map".equals(type)) {
+            return new MapResultStoreImpl();
+        } else if ("ringbuffer".equals(type)) {
+            return new RingBufferResultStoreImpl(
+                    PropertyUtil.getInt(properties, "ping.resultstore.history.size", 2880));
+        } else if ("columnar".equals(type)) {
+            return new ColumnarResultStoreImpl(hosts, CHECK_TYPES,
+                    PropertyUtil.getBoolean(properties, "ping.resultstore.columnar.details", true));
+        } else if ("journal".equals(type)) {
+            return journal;
+        }
+        LOGGER.error("Unknown result store type: {}", type);
+        throw new IllegalArgumentException("Unknown result store type: " + type);
+    }
+
+    /**
+     * Creates the {@link JournalResultStoreImpl} if the <code>ping.resultstore.type</code>
+     * property selects the journal result store.
+     *
+     * @return the journal created, or <code>null</code> if the results are not persisted
+     * @throws IllegalStateException
+     *             If the journal can't be opened.
+     */
+    private JournalResultStoreImpl createJournal() {
+        if (!"journal".equals(PropertyUtil.getString(properties, "ping.resultstore.type", "map"))) {
+            return null;
+        }
+        final File directory =
+                new File(PropertyUtil.getString(properties, "ping.resultstore.journal.dir",
+                        "journal"));
+        try {
+            return new JournalResultStoreImpl(directory,
+                    PropertyUtil.getLong(properties, "ping.resultstore.journal.segment.size",
+                            67108864L),
+                    TimeUnit.SECONDS.toMillis(PropertyUtil.getLong(properties,
+                            "ping.resultstore.journal.segment.duration", 86400L)),
+                    PropertyUtil.getInt(properties, "ping.resultstore.journal.segment.count",
+                            30));
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to open result journal: " + directory, e);
+        }
+    }
+
+    /**
+     * Creates the {@link IcmpEchoEngine} if the <code>ping.icmp.engine</code> property selects the
+     * in-process ICMP engine or the <code>ping.tracert.engine</code> property selects the
+     * in-process trace route engine.
+     *
+     * @return the engine created, or <code>null</code> if commands are used
+     * @throws IllegalArgumentException
+     *             If a configured engine is unknown.
+     */
+    private IcmpEchoEngine createIcmpEchoEngine() {
+        final String engine = PropertyUtil.getString(properties, "ping.icmp.engine", "command");
+        if (!"inprocess".equals(engine) && !"command".equals(engine) && !"batch".equals(engine)
+                && !"session".equals(engine)) {
+            LOGGER.error("Unknown ICMP ping engine: {}", engine);
+            throw new IllegalArgumentException("Unknown ICMP ping engine: " + engine);
+        }
+        final String tracertEngine =
+                PropertyUtil.getString(properties, "ping.tracert.engine", "command");
+        if (!"inprocess".equals(tracertEngine) && !"command".equals(tracertEngine)) {
+            LOGGER.error("Unknown trace route engine: {}", tracertEngine);
+            throw new IllegalArgumentException("Unknown trace route engine: " + tracertEngine);
+        }
+        if ("inprocess".equals(engine) || "inprocess".equals(tracertEngine)) {
+            return new IcmpEchoEngine(properties);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the {@link ExternalCommandBatcher} of the ICMP ping tasks if the
+     * <code>ping.icmp.engine</code> property selects the batch engine. The results of the hosts
+     * are processed by the executor of the ICMP ping checks.
+     *
+     * @return the batcher created, or <code>null</code> if the ping command is run for every host
+     *         separately
+     */
+    private ExternalCommandBatcher createIcmpBatcher() {
+        if ("batch".equals(PropertyUtil.getString(properties, "ping.icmp.engine", "command"))) {
+            return new ExternalCommandBatcher(properties, "ping.icmp.command", processRunner,
+                    executors.get("ping.icmp"));
+        }
+        return null;
+    }
+
+    /**
+     * Creates the {@link PingSessionManager} if the <code>ping.icmp.engine</code> property selects
+     * the session engine.
+     *
+     * @return the manager created, or <code>null</code> if no ping sessions are kept
+     */
+    private PingSessionManager createPingSessionManager() {
+        if ("session".equals(PropertyUtil.getString(properties, "ping.icmp.engine", "command"))) {
+            return new PingSessionManager(properties, dnsCache, processRunner);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the ICMP ping task of a host using the configured ICMP ping engine.
+     *
+     * @param host
+     *            host to be checked
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @return the task created
+     */
+    private AbstractCommandTask<?> createIcmpPingTask(
+            final String host,
+            final ResultStore resultStore) {
+        if ("inprocess".equals(PropertyUtil.getString(properties, "ping.icmp.engine", "command"))) {
+            return new IcmpEchoTask(properties, host, resultStore, icmpEchoEngine, dnsCache);
+        }
+        if (pingSessionManager != null) {
+            return new IcmpSessionTask(properties, host, resultStore, pingSessionManager);
+        }
+        return new IcmpPingTask(properties, host, resultStore, dnsCache, processRunner,
+                icmpBatcher);
+    }
+
+    /**
+     * Creates the trace route task of a host using the configured trace route engine, and
+     * registers it at the {@link TracertTrigger}, if trace routes run on demand.
+     *
+     * @param host
+     *            host to be checked
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @return the task created
+     */
+    private AbstractCommandTask<?> createTracertTask(
+            final String host,
+            final ResultStore resultStore) {
+        if ("inprocess".equals(
+                PropertyUtil.getString(properties, "ping.tracert.engine", "command"))) {
+            final TracertEchoTask task =
+                    new TracertEchoTask(properties, host, resultStore, icmpEchoEngine, dnsCache);
+            if (tracertTrigger != null) {
+                tracertTrigger.register(task);
+            }
+            return task;
+        }
+        final TracertTask task =
+                new TracertTask(properties, host, resultStore, dnsCache, processRunner);
+        if (tracertTrigger != null) {
+            tracertTrigger.register(task);
+        }
+        return task;
+    }
+
+    /**
+     * Sets the {@link TracertTrigger} as the failure listener of a task, if trace routes run on
+     * demand.
+     *
+     * @param task
+     *            the task
+     * @return the task
+     */
+    private AbstractCommandTask<?> withTracertTrigger(final AbstractCommandTask<?> task) {
+        if (tracertTrigger != null) {
+            task.setFailureListener(tracertTrigger);
+        }
+        return task;
+    }
+
+    /**
+     * Creates the {@link TcpConnectProbeEngine} if the <code>ping.tcpconnect.ports</code> property
+     * configures ports to be probed.
+     *
+     * @return the engine created, or <code>null</code> if the TCP connect check is disabled
+     */
+    private TcpConnectProbeEngine createTcpConnectProbeEngine() {
+        final String ports = PropertyUtil.getString(properties, "ping.tcpconnect.ports", "");
+        if (ports.isEmpty()) {
+            LOGGER.info("No ports configured, TCP connect check is disabled");
+            return null;
+        }
+        return new TcpConnectProbeEngine(properties);
+    }
+
+    /**
+     * Creates the {@link AsyncHttpProbeEngine} if the <code>ping.tcpip.engine</code> property
+     * selects the async engine.
+     *
+     * @return the engine created, or <code>null</code> if the blocking engine is used
+     * @throws IllegalArgumentException
+     *             If the configured engine is unknown.
+     */
+    private AsyncHttpProbeEngine createAsyncProbeEngine() {
+        final String engine = PropertyUtil.getString(properties, "ping.tcpip.engine", "blocking");
+        if ("async".equals(engine)) {
+            return new AsyncHttpProbeEngine(properties, dnsCache);
+        } else if (!"blocking".equals(engine)) {
+            LOGGER.error("Unknown HTTP probe engine: {}", engine);
+            throw new IllegalArgumentException("Unknown HTTP probe engine: " + engine);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the HTTP ping task of a host using the configured HTTP probe engine.
+     *
+     * @param host
+     *            host to be checked
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @return the task created
+     */
+    private AbstractHttpPingTask createHttpPingTask(
+            final String host,
+            final ResultStore resultStore) {
+        if (asyncProbeEngine != null) {
+            return new AsyncHttpPingTask(properties, host, resultStore, asyncProbeEngine);
+        }
+        return new TcpipPingTask(properties, host, resultStore, httpClient);
+    }
+
+    /**
+     * Creates the executors of the check families based on the configured execution mode. In
+     * <code>shared</code> mode all the checks run on the same executor, in <code>bulkhead</code>
+     * mode (the default) every check family gets its own, separately sized executor, so a latency
+     * spike in one family can't delay the checks of the others. In <code>virtual</code> mode every
+     * check runs on a virtual thread of its own, the number of checks in flight is limited by the
+     * <code>ping.executor.max.concurrent</code> property.
+     *
+     * @throws IllegalArgumentException
+     *             If the configured execution mode is unknown.
+     * @throws IllegalStateException
+     *             If the virtual mode is configured on a runtime without virtual threads.
+     */
+    private void createExecutors() {
+        final String mode = PropertyUtil.getString(properties, "ping.executor.mode", "bulkhead");
+        LOGGER.info("Using {} execution mode for the checks", mode);
+        if ("shared".equals(mode)) {
+            final CheckExecutor sharedExecutor = createBulkheadExecutor("ping", "shared");
+            for (final String family : CHECK_FAMILIES) {
+                executors.put(family, sharedExecutor);
+            }
+        } else if ("bulkhead".equals(mode)) {
+            for (final String family : CHECK_FAMILIES) {
+                executors.put(family,
+                        createBulkheadExecutor(family, family.substring("ping.".length())));
+            }
+        } else if ("virtual".equals(mode)) {
+            final CheckExecutor virtualExecutor = new VirtualThreadExecutor("virtual",
+                    PropertyUtil.getInt(properties, "ping.executor.max.concurrent",
+                            DEFAULT_VIRTUAL_MAX_CONCURRENT));
+            for (final String family : CHECK_FAMILIES) {
+                executors.put(family, virtualExecutor);
+            }
+        } else {
+            LOGGER.error("Unknown execution mode: {}", mode);
+            throw new IllegalArgumentException("Unknown execution mode: " + mode);
+        }
+    }
+
+    /**
+     * Creates a {@link BulkheadExecutor} sized by the <code>executor.threads</code> and
+     * <code>executor.queue.size</code> properties under the given prefix.
+     *
+     * @param propertyPrefix
+     *            prefix of the executor properties
+     * @param name
+     *            name of the executor
+     * @return the executor created
+     */
+    private CheckExecutor createBulkheadExecutor(final String propertyPrefix, final String name) {
+        final int threads = PropertyUtil.getInt(properties, propertyPrefix + ".executor.threads",
+                DEFAULT_EXECUTOR_THREADS);
+        final int queueSize = PropertyUtil.getInt(properties,
+                propertyPrefix + ".executor.queue.size", DEFAULT_EXECUTOR_QUEUE_SIZE);
+        LOGGER.debug("Creating executor ({}) with {} threads and queue size of {}", name, threads,
+                queueSize);
+        return new BulkheadExecutor(name, threads, queueSize);
+    }
+
+    /**
+     * @return the executors of the check families, each executor listed only once
+     */
+    private Collection<CheckExecutor> getDistinctExecutors() {
+        final Map<CheckExecutor, Boolean> distinctExecutors =
+                new IdentityHashMap<CheckExecutor, Boolean>();
+        for (final CheckExecutor executor : executors.values()) {
+            distinctExecutors.put(executor, Boolean.TRUE);
         }
+        return distinctExecutors.keySet();
+    }
+
+    /**
+     * Schedules a checker task with the configured delay. The initial delay of the task is
+     * calculated by the {@link #phaseSpreader}.
+     *
+     * @param task
+     *            task to be scheduled
+     * @param executor
+     *            {@link Executor} running the task
+     * @param hostIndex
+     *            index of the host checked by the task
+     * @param hostCount
+     *            number of hosts checked
+     * @param typeIndex
+     *            index of the check type of the task
+     */
+    private void scheduleTask(
+            final AbstractCommandTask<?> task,
+            final Executor executor,
+            final int hostIndex,
+            final int hostCount,
+            final int typeIndex) {
+        final long periodMillis =
+                TASK_DELAY_TIME_UNIT.toMillis(loadDelayValue(task.getTaskDelayPropertyName()));
+        final long initialDelayMillis = phaseSpreader.getInitialDelay(hostIndex, hostCount,
+                typeIndex, CHECK_TYPE_COUNT, periodMillis);
+        LOGGER.debug("Scheduling check ({}) of host ({}) with initial delay of {} ms",
+                task.getCheckIdentifierName(), task.getHost(), initialDelayMillis);
+        scheduler.scheduleAtFixedRate(task, executor, initialDelayMillis, periodMillis,
+                TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -91,4 +595,70 @@ public final class PingRunner {
         }
         return Long.parseLong(delayValue);
     }
+
+    /**
+     * Periodically logs the dispatch lag of the scheduler and the statistics of the executors.
+     */
+    private final class StatisticsLogger implements Runnable {
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            LOGGER.info("Scheduler dispatch lag (ms) last: {}, max: {}; skipped runs: {}",
+                    TimeUnit.NANOSECONDS.toMillis(scheduler.getLastTickLagNanos()),
+                    TimeUnit.NANOSECONDS.toMillis(scheduler.getMaxTickLagNanos()),
+                    scheduler.getSkippedCount());
+            for (final CheckExecutor executor : getDistinctExecutors()) {
+                LOGGER.info("Executor ({}) active: {}, queued: {}, rejected: {}, "
+                        + "wait (ms) avg: {}, max: {}", executor.getName(),
+                        executor.getActiveCount(), executor.getQueueDepth(),
+                        executor.getRejectedCount(),
+                        TimeUnit.NANOSECONDS.toMillis(executor.getAverageWaitNanos()),
+                        TimeUnit.NANOSECONDS.toMillis(executor.getMaxWaitNanos()));
+            }
+            final PoolStats poolStats = httpClient.getPoolStats();
+            LOGGER.info("HTTP connection pool leased: {}, available: {}, pending: {}; "
+                    + "response time (ms) warm: {}, cold: {}", poolStats.getLeased(),
+                    poolStats.getAvailable(), poolStats.getPending(),
+                    httpClient.getAverageWarmResponseTime(),
+                    httpClient.getAverageColdResponseTime());
+            LOGGER.info("DNS cache hits: {}, negative hits: {}, misses: {}, refreshes: {}; "
+                    + "resolve time (ms) avg: {}, max: {}", dnsCache.getHitCount(),
+                    dnsCache.getNegativeHitCount(), dnsCache.getMissCount(),
+                    dnsCache.getRefreshCount(),
+                    TimeUnit.NANOSECONDS.toMillis(dnsCache.getAverageResolveNanos()),
+                    TimeUnit.NANOSECONDS.toMillis(dnsCache.getMaxResolveNanos()));
+            LOGGER.info("External commands running: {}, started: {}, timed out: {}, "
+                    + "non-zero exit: {}, rejected: {}", processRunner.getRunningCount(),
+                    processRunner.getStartedCount(), processRunner.getTimedOutCount(),
+                    processRunner.getFailedCount(), processRunner.getRejectedCount());
+            if (pingSessionManager != null) {
+                LOGGER.info("Ping sessions running: {}, restarts: {}",
+                        pingSessionManager.getSessionCount(), pingSessionManager.getRestartCount());
+            }
+            if (tracertTrigger != null) {
+                LOGGER.info("Trace routes triggered: {}, triggers suppressed: {}",
+                        tracertTrigger.getTriggeredCount(), tracertTrigger.getSuppressedCount());
+            }
+            if (tcpConnectProbeEngine != null) {
+                LOGGER.info("TCP connect probes in flight: {}, connected: {}, failed: {}",
+                        tcpConnectProbeEngine.getInFlightCount(),
+                        tcpConnectProbeEngine.getConnectedCount(),
+                        tcpConnectProbeEngine.getFailedCount());
+            }
+        }
+    }
+
+    /**
+     * {@link Executor} running tasks on the calling thread, used for the short bookkeeping tasks
+     * which don't deserve a thread of their own.
+     */
+    private static final class DirectExecutor implements Executor {
+        /**
+         * @see Executor#execute(Runnable)
+         */
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package hu.docler.ping.task;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holding the result of a raw TCP connect check: the connect latency of every port probed.
+ */
+class TcpConnectResult {
+    /** Value of a duration not measured, e.g. the connect time of an unreachable port. */
+    static final long NOT_MEASURED = -1;
+    /** Host checked. */
+    private final String host;
+    /** Duration of resolving the {@link #host}, in nanoseconds. */
+    private final long resolveNanos;
+    /** Ports probed. */
+    private final int[] ports;
+    /** Connect latencies of the {@link #ports}, in nanoseconds. */
+    private final long[] connectNanos;
+
+    /**
+     * Ctor.
+     *
+     * @param host
+     *            host checked
+     * @param resolveNanos
+     *            duration of resolving the host in nanoseconds, {@link #NOT_MEASURED} if the host
+     *            couldn't be resolved
+     * @param ports
+     *            ports probed
+     * @param connectNanos
+     *            connect latencies of the ports in nanoseconds, {@link #NOT_MEASURED} for a port
+     *            the connection couldn't be established to
+     */
+    public TcpConnectResult(
+            final String host,
+            final long resolveNanos,
+            final int[] ports,
+            final long[] connectNanos) {
+        super();
+        this.host = host;
+        this.resolveNanos = resolveNanos;
+        this.ports = ports.clone();
+        this.connectNanos = connectNanos.clone();
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return duration of resolving the host in nanoseconds, or {@link #NOT_MEASURED}
+     */
+    public long getResolveNanos() {
+        return resolveNanos;
+    }
+
+    /**
+     * @return number of ports probed
+     */
+    public int getPortCount() {
+        return ports.length;
+    }
+
+    /**
+     * @param index
+     *            index of the port
+     * @return the port at the given index
+     */
+    public int getPort(final int index) {
+        return ports[index];
+    }
+
+    /**
+     * @param index
+     *            index of the port
+     * @return connect latency of the port at the given index in nanoseconds, or
+     *         {@link #NOT_MEASURED}
+     */
+    public long getConnectNanos(final int index) {
+        return connectNanos[index];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("Host: ");
+        sb.append(host);
+        if (resolveNanos != NOT_MEASURED) {
+            sb.append("; Resolve Time (us): ");
+            sb.append(TimeUnit.NANOSECONDS.toMicros(resolveNanos));
+        }
+        sb.append("; Connect Time (us):");
+        for (int i = 0; i < ports.length; i++) {
+            sb.append(' ');
+            sb.append(ports[i]);
+            sb.append('=');
+            if (connectNanos[i] == NOT_MEASURED) {
+                sb.append("failed");
+            } else {
+                sb.append(TimeUnit.NANOSECONDS.toMicros(connectNanos[i]));
+            }
+        }
+        return sb.toString();
+    }
+}
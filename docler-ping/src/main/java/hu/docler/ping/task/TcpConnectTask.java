@@ -0,0 +1,290 @@
+package hu.docler.ping.task;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.tcp.ConnectCallback;
+import hu.docler.ping.tcp.TcpConnectProbeEngine;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * {@link AbstractCommandTask} implementation performing raw TCP connect checks of the configured
+ * ports of a host. Running the task only starts the connects on the {@link TcpConnectProbeEngine},
+ * the result is stored, checked and reported when the probes of all the ports complete.
+ *
+ */
+public class TcpConnectTask extends AbstractCommandTask<TcpConnectResult> {
+    /** {@link TcpConnectProbeEngine} executing the probes. */
+    private final TcpConnectProbeEngine probeEngine;
+    /** {@link DnsCache} resolving the host, may be <code>null</code>. */
+    private final DnsCache dnsCache;
+    /** Ports to be probed. */
+    private final int[] ports;
+
+    /**
+     * Ctor. The host is resolved by the system resolver on every run.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param probeEngine
+     *            {@link TcpConnectProbeEngine} shared between the TCP connect tasks
+     */
+    public TcpConnectTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final TcpConnectProbeEngine probeEngine) {
+        this(properties, host, resultStore, probeEngine, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param probeEngine
+     *            {@link TcpConnectProbeEngine} shared between the TCP connect tasks
+     * @param dnsCache
+     *            {@link DnsCache} resolving the host, <code>null</code> to use the system resolver
+     */
+    public TcpConnectTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final TcpConnectProbeEngine probeEngine,
+            final DnsCache dnsCache) {
+        super(properties, host, resultStore);
+        if (probeEngine == null) {
+            throw new IllegalArgumentException("Probe engine is mandatory, can't be null");
+        }
+        this.probeEngine = probeEngine;
+        this.dnsCache = dnsCache;
+        this.ports = loadPorts(properties);
+    }
+
+    /**
+     * Loads the ports to be probed from the <code>ping.tcpconnect.ports</code> property.
+     *
+     * @param properties
+     *            application properties
+     * @return the ports to be probed
+     * @throws IllegalArgumentException
+     *             If no ports are configured or a port is invalid.
+     */
+    private static int[] loadPorts(final Properties properties) {
+        final String portsValue = properties.getProperty("ping.tcpconnect.ports");
+        if (portsValue == null || portsValue.trim().isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Missing configuration of ping.tcpconnect.ports property");
+        }
+        final String[] portValues = portsValue.split(",");
+        final int[] ports = new int[portValues.length];
+        for (int i = 0; i < portValues.length; i++) {
+            try {
+                ports[i] = Integer.parseInt(portValues[i].trim());
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        "Invalid port in ping.tcpconnect.ports property: " + portValues[i], e);
+            }
+            if (ports[i] <= 0 || ports[i] > 65535) {
+                throw new IllegalArgumentException(
+                        "Invalid port in ping.tcpconnect.ports property: " + portValues[i]);
+            }
+        }
+        return ports;
+    }
+
+    /**
+     * Starts the probes and returns immediately, the result is processed when all the probes
+     * complete.
+     *
+     * @see Runnable#run()
+     */
+    @Override
+    public void run() {
+        getLogger().info("Executing check type: {}", getCheckIdentifierName());
+        probe(new ResultCallback() {
+            public void resultAvailable(final TcpConnectResult result) {
+                processResult(result);
+            }
+        });
+    }
+
+    /**
+     * Executes the probes and waits for their completion.
+     */
+    @Override
+    protected TcpConnectResult executeCheck() {
+        final CompletableFuture<TcpConnectResult> future =
+                new CompletableFuture<TcpConnectResult>();
+        probe(new ResultCallback() {
+            public void resultAvailable(final TcpConnectResult result) {
+                future.complete(result);
+            }
+        });
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLogger().warn("Interrupted while waiting for TCP connect probes of host: {}",
+                    getHost());
+        } catch (final ExecutionException e) {
+            getLogger().error("TCP connect probes failed", e.getCause());
+        }
+        return createFailedResult();
+    }
+
+    @Override
+    protected String getTaskDelayPropertyName() {
+        return "ping.tcpconnect.delay";
+    }
+
+    @Override
+    protected String getCheckIdentifierName() {
+        return "ping.tcpconnect.check";
+    }
+
+    /**
+     * @return average connect time of the ports connected, NaN if none was connected
+     */
+    @Override
+    protected double getLatencyMillis(final TcpConnectResult checkResult) {
+        long sum = 0;
+        int connected = 0;
+        for (int i = 0; i < checkResult.getPortCount(); i++) {
+            if (checkResult.getConnectNanos(i) != TcpConnectResult.NOT_MEASURED) {
+                sum += checkResult.getConnectNanos(i);
+                connected++;
+            }
+        }
+        return connected == 0 ? Double.NaN : sum / 1e6 / connected;
+    }
+
+    /**
+     * @return percentage of the ports not connected, NaN if no port was probed
+     */
+    @Override
+    protected double getLossPercent(final TcpConnectResult checkResult) {
+        if (checkResult.getPortCount() == 0) {
+            return Double.NaN;
+        }
+        int failed = 0;
+        for (int i = 0; i < checkResult.getPortCount(); i++) {
+            if (checkResult.getConnectNanos(i) == TcpConnectResult.NOT_MEASURED) {
+                failed++;
+            }
+        }
+        return failed * 100.0 / checkResult.getPortCount();
+    }
+
+    /**
+     * The check is successful if the connection to all the ports could be established, and if a
+     * maximal connect time is configured none of the connects took longer.
+     */
+    @Override
+    protected boolean checkResult(final TcpConnectResult result) {
+        final String maxConnectTimeValue =
+                getProperties().getProperty("ping.tcpconnect.connect.max");
+        long maxConnectNanos = Long.MAX_VALUE;
+        if (maxConnectTimeValue != null && !maxConnectTimeValue.isEmpty()) {
+            maxConnectNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(maxConnectTimeValue));
+        }
+        for (int i = 0; i < result.getPortCount(); i++) {
+            final long connectNanos = result.getConnectNanos(i);
+            if (connectNanos == TcpConnectResult.NOT_MEASURED || connectNanos > maxConnectNanos) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves the host and starts a probe of each port.
+     *
+     * @param resultCallback
+     *            callback receiving the result when all the probes complete
+     */
+    private void probe(final ResultCallback resultCallback) {
+        final InetAddress address;
+        final long resolveStartTime = System.nanoTime();
+        try {
+            address = dnsCache != null ? dnsCache.resolveFirst(getHost())
+                    : InetAddress.getByName(getHost());
+        } catch (final UnknownHostException e) {
+            getLogger().error("Failed to resolve host: {}", getHost(), e);
+            resultCallback.resultAvailable(createFailedResult());
+            return;
+        }
+        final long resolveNanos = System.nanoTime() - resolveStartTime;
+        final long[] connectNanos = new long[ports.length];
+        final AtomicInteger remainingProbes = new AtomicInteger(ports.length);
+        for (int i = 0; i < ports.length; i++) {
+            final int portIndex = i;
+            probeEngine.probe(address, ports[i], new ConnectCallback() {
+                public void connected(final long nanos) {
+                    portCompleted(nanos);
+                }
+
+                public void failed(final Exception cause) {
+                    getLogger().debug("TCP connect to {}:{} failed: {}", getHost(),
+                            ports[portIndex], cause.getMessage());
+                    portCompleted(TcpConnectResult.NOT_MEASURED);
+                }
+
+                /**
+                 * Records the latency of the port, and hands over the result when all the ports
+                 * are completed. The atomic counter publishes the latencies written by the other
+                 * callbacks.
+                 *
+                 * @param nanos
+                 *            connect latency of the port
+                 */
+                private void portCompleted(final long nanos) {
+                    connectNanos[portIndex] = nanos;
+                    if (remainingProbes.decrementAndGet() == 0) {
+                        resultCallback.resultAvailable(
+                                new TcpConnectResult(getHost(), resolveNanos, ports, connectNanos));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return result of a check none of the ports could be connected to
+     */
+    private TcpConnectResult createFailedResult() {
+        final long[] connectNanos = new long[ports.length];
+        Arrays.fill(connectNanos, TcpConnectResult.NOT_MEASURED);
+        return new TcpConnectResult(getHost(), TcpConnectResult.NOT_MEASURED, ports,
+                connectNanos);
+    }
+
+    /**
+     * Callback receiving the {@link TcpConnectResult} of the probes.
+     */
+    private interface ResultCallback {
+        /**
+         * Called when the result of the probes is available.
+         *
+         * @param result
+         *            result of the probes
+         */
+        void resultAvailable(TcpConnectResult result);
+    }
+}
@@ -0,0 +1,164 @@
+package hu.docler.ping.task;
+
+import java.util.concurrent.TimeUnit;
+
+import hu.docler.ping.http.HttpPhase;
+import hu.docler.ping.http.HttpPhaseTimings;
+
+/**
+ * Holding mandatory data of the result of a tcp-based ping check. Besides the overall response
+ * time the durations of the {@link HttpPhase phases} of the query are held too, a phase not
+ * measured has the {@link HttpPhaseTimings#NOT_MEASURED} value.
+ */
+class TcpPingResult {
+    /** URL called by the check. */
+    private final String url;
+    /** Status code of the {@link #url} query. */
+    private final int statusCode;
+    /** Flag signalling that the query was sent on a reused (warm) connection. */
+    private final boolean connectionReused;
+    /** Duration of the DNS resolution, in nanoseconds. */
+    private final long dnsNanos;
+    /** Duration of the TCP connect, in nanoseconds. */
+    private final long connectNanos;
+    /** Duration of the TLS handshake, in nanoseconds. */
+    private final long tlsNanos;
+    /** Time to first byte of the response, in nanoseconds. */
+    private final long ttfbNanos;
+    /** Duration of reading the response body, in nanoseconds. */
+    private final long bodyNanos;
+    /** Duration of the whole query, in nanoseconds. */
+    private final long totalNanos;
+    /** Number of response body bytes read. */
+    private final long bytesRead;
+
+    /**
+     * Ctor.
+     *
+     * @param url
+     *            url called
+     * @param statusCode
+     *            query status code
+     * @param connectionReused
+     *            <code>true</code> if the query was sent on a reused connection
+     * @param timings
+     *            durations of the phases of the query
+     * @param bytesRead
+     *            number of response body bytes read
+     */
+    public TcpPingResult(
+            final String url,
+            final int statusCode,
+            final boolean connectionReused,
+            final HttpPhaseTimings timings,
+            final long bytesRead) {
+        super();
+        this.url = url;
+        this.statusCode = statusCode;
+        this.connectionReused = connectionReused;
+        this.dnsNanos = timings.getDnsNanos();
+        this.connectNanos = timings.getConnectNanos();
+        this.tlsNanos = timings.getTlsNanos();
+        this.ttfbNanos = timings.getTtfbNanos();
+        this.bodyNanos = timings.getBodyNanos();
+        this.totalNanos = timings.getTotalNanos();
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Creates the result of a failed query.
+     *
+     * @param url
+     *            url called
+     * @return result of the failed query
+     */
+    static TcpPingResult failed(final String url) {
+        return new TcpPingResult(url, -1, false, new HttpPhaseTimings(), 0);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return response time of the query in milliseconds, or -1 if the query failed
+     */
+    public long getResponseTime() {
+        return totalNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isConnectionReused() {
+        return connectionReused;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return transfer rate of reading the response body in bytes per second, or -1 if it is not
+     *         measured
+     */
+    public long getTransferRate() {
+        if (bodyNanos <= 0) {
+            return -1;
+        }
+        return (long) (bytesRead * (double) TimeUnit.SECONDS.toNanos(1) / bodyNanos);
+    }
+
+    /**
+     * Returns the duration of a phase of the query.
+     *
+     * @param phase
+     *            the phase
+     * @return duration of the phase in nanoseconds, or {@link HttpPhaseTimings#NOT_MEASURED}
+     */
+    public long getPhaseNanos(final HttpPhase phase) {
+        switch (phase) {
+            case DNS:
+                return dnsNanos;
+            case CONNECT:
+                return connectNanos;
+            case TLS:
+                return tlsNanos;
+            case TTFB:
+                return ttfbNanos;
+            case BODY:
+                return bodyNanos;
+            default:
+                return totalNanos;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("URL: ");
+        sb.append(url);
+        sb.append("; Response Time (ms): ");
+        sb.append(getResponseTime());
+        sb.append("; Status Code: ");
+        sb.append(statusCode);
+        sb.append("; Connection: ");
+        sb.append(connectionReused ? "warm" : "cold");
+        sb.append("; Bytes Read: ");
+        sb.append(bytesRead);
+        sb.append("; Transfer Rate (B/s): ");
+        sb.append(getTransferRate());
+        sb.append("; Phases (us):");
+        for (final HttpPhase phase : HttpPhase.values()) {
+            final long phaseNanos = getPhaseNanos(phase);
+            if (phase != HttpPhase.TOTAL && phaseNanos >= 0) {
+                sb.append(' ');
+                sb.append(phase.name().toLowerCase());
+                sb.append('=');
+                sb.append(TimeUnit.NANOSECONDS.toMicros(phaseNanos));
+            }
+        }
+        return sb.toString();
+    }
+}
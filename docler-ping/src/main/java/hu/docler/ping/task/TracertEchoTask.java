@@ -0,0 +1,190 @@
+package hu.docler.ping.task;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.icmp.IcmpEchoEngine;
+import hu.docler.ping.icmp.TraceCallback;
+import hu.docler.ping.tracert.TracertChange;
+import hu.docler.ping.tracert.TracertHop;
+import hu.docler.ping.tracert.TracertPath;
+import hu.docler.ping.tracert.TracertPathTracker;
+import hu.docler.ping.tracert.TracertResult;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * {@link AbstractCommandTask} implementation tracing the route to a host in-process, on the
+ * {@link IcmpEchoEngine}, instead of forking a <code>tracert</code> process. Running the task only
+ * starts the trace, the result is stored, checked and reported when the trace completes. The paths
+ * are compared with the baseline like the paths of the command based {@link TracertTask}. The
+ * engine finds the hop distance and the round trip time of the host, but not the addresses of the
+ * hops before it, so the result is stored under its own identifier,
+ * <code>ping.tracert.distance</code>, and reported apart from the hop by hop trace routes. A trace
+ * failed or rejected by the engine fails the check as {@link TracertChange#FAILED}, without
+ * touching the baseline.
+ *
+ */
+public class TracertEchoTask extends AbstractCommandTask<TracertResult> {
+    /** {@link IcmpEchoEngine} executing the trace routes. */
+    private final IcmpEchoEngine echoEngine;
+    /** {@link DnsCache} resolving the host, may be <code>null</code>. */
+    private final DnsCache dnsCache;
+    /** {@link TracertPathTracker} comparing the paths with the baseline. */
+    private final TracertPathTracker pathTracker;
+    /** Flag signalling that the task runs on demand, scheduled with the baseline delay only. */
+    private final boolean onDemand;
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param echoEngine
+     *            {@link IcmpEchoEngine} shared between the ICMP ping and trace route tasks
+     * @param dnsCache
+     *            {@link DnsCache} resolving the host, <code>null</code> to use the system resolver
+     */
+    public TracertEchoTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final IcmpEchoEngine echoEngine,
+            final DnsCache dnsCache) {
+        super(properties, host, resultStore);
+        if (echoEngine == null) {
+            throw new IllegalArgumentException("Echo engine is mandatory, can't be null");
+        }
+        this.echoEngine = echoEngine;
+        this.dnsCache = dnsCache;
+        this.pathTracker = new TracertPathTracker(properties);
+        this.onDemand = TracertTask.isOnDemandMode(properties);
+    }
+
+    /**
+     * Starts the trace route and returns immediately, the result is processed when the trace
+     * completes.
+     *
+     * @see Runnable#run()
+     */
+    @Override
+    public void run() {
+        getLogger().info("Executing check type: {}", getCheckIdentifierName());
+        trace(new TraceCallback() {
+            public void completed(final TracertPath path) {
+                processResult(track(path));
+            }
+
+            public void failed(final Exception cause) {
+                processResult(fail(cause));
+            }
+        });
+    }
+
+    /**
+     * Executes the trace route and waits for its completion.
+     */
+    @Override
+    protected TracertResult executeCheck() {
+        final CompletableFuture<TracertPath> future = new CompletableFuture<TracertPath>();
+        trace(new TraceCallback() {
+            public void completed(final TracertPath path) {
+                future.complete(path);
+            }
+
+            public void failed(final Exception cause) {
+                future.completeExceptionally(cause);
+            }
+        });
+        try {
+            return track(future.get());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLogger().warn("Interrupted while waiting for trace route of host: {}", getHost());
+            return pathTracker.failed(new TracertPath(new ArrayList<TracertHop>()));
+        } catch (final ExecutionException e) {
+            return fail(e.getCause());
+        }
+    }
+
+    /**
+     * Stores the first path, path changes and regressions only.
+     *
+     * @see AbstractCommandTask#shouldStoreResult(Object)
+     */
+    @Override
+    protected boolean shouldStoreResult(final TracertResult checkResult) {
+        return checkResult.getChange() != TracertChange.UNCHANGED;
+    }
+
+    @Override
+    protected String getTaskDelayPropertyName() {
+        return onDemand ? "ping.tracert.baseline.delay" : "ping.tracert.delay";
+    }
+
+    @Override
+    protected String getCheckIdentifierName() {
+        return "ping.tracert.distance";
+    }
+
+    @Override
+    protected boolean checkResult(final TracertResult result) {
+        return !pathTracker.isFailure(result);
+    }
+
+    /**
+     * Compares a path with the baseline.
+     *
+     * @param path
+     *            the path traced
+     * @return result of the comparison
+     */
+    private TracertResult track(final TracertPath path) {
+        final TracertResult result = pathTracker.track(path);
+        if (result.getChange() == TracertChange.PATH_CHANGED) {
+            getLogger().warn("Route to host ({}) changed to ({})", getHost(), path);
+        } else if (result.getChange() == TracertChange.RTT_REGRESSION) {
+            getLogger().warn("Round trip time of hop ({}) of the route to host ({}) regressed",
+                    result.getRegressedHop(), getHost());
+        }
+        return result;
+    }
+
+    /**
+     * Creates the result of a failed trace route, without comparing it with the baseline.
+     *
+     * @param cause
+     *            cause of the failure
+     * @return the result, with an empty path
+     */
+    private TracertResult fail(final Throwable cause) {
+        getLogger().error("Trace route of host ({}) failed, keeping its route", getHost(), cause);
+        return pathTracker.failed(new TracertPath(new ArrayList<TracertHop>()));
+    }
+
+    /**
+     * Resolves the host and starts the trace route.
+     *
+     * @param callback
+     *            callback receiving the path traced
+     */
+    private void trace(final TraceCallback callback) {
+        final InetAddress address;
+        try {
+            address = dnsCache != null ? dnsCache.resolveFirst(getHost())
+                    : InetAddress.getByName(getHost());
+        } catch (final UnknownHostException e) {
+            callback.failed(e);
+            return;
+        }
+        echoEngine.trace(address, callback);
+    }
+}
@@ -2,13 +2,42 @@ package hu.docler.ping.task;
 
 import java.util.Properties;
 
+import hu.docler.ping.dns.DnsCache;
+import hu.docler.ping.process.ProcessOutput;
+import hu.docler.ping.process.ProcessRunner;
+import hu.docler.ping.tracert.TracertChange;
+import hu.docler.ping.tracert.TracertOutputParser;
+import hu.docler.ping.tracert.TracertPath;
+import hu.docler.ping.tracert.TracertPathTracker;
+import hu.docler.ping.tracert.TracertResult;
+import hu.docler.ping.util.PropertyUtil;
 import hu.docler.ping.util.ResultStore;
 
 /**
  * {@link AbstractExternalCommandTask} implementation performing traceroute to a host.
- *
+ * <p>
+ * The output of the command is parsed into a {@link TracertPath} and compared with the last path
+ * stored, by the addresses of their hops, a hop not answered matching any address, by a
+ * {@link TracertPathTracker}. Only the first path, a path change and a round trip time regression
+ * of a hop are stored, an unchanged path is not. A path change and a regression fail the check,
+ * so they are reported, unless <code>ping.tracert.report.changes</code> is <code>false</code>. A
+ * command timed out or not started fails the check as {@link TracertChange#FAILED}, its partial
+ * path isn't compared with the baseline.
+ * <p>
+ * In <code>ondemand</code> mode (<code>ping.tracert.mode</code>) the task is scheduled with the
+ * slow <code>ping.tracert.baseline.delay</code>, and it is run by the {@link TracertTrigger} when
+ * another check of the host fails.
  */
 public class TracertTask extends AbstractExternalCommandTask {
+    /** {@link TracertOutputParser} parsing the output of the command. */
+    private final TracertOutputParser outputParser = new TracertOutputParser();
+    /** {@link TracertPathTracker} comparing the paths with the baseline. */
+    private final TracertPathTracker pathTracker;
+    /** Flag signalling that the task runs on demand, scheduled with the baseline delay only. */
+    private final boolean onDemand;
+    /** Result of the last run, <code>null</code> before the first run. */
+    private TracertResult lastResult;
+
     /**
      * Ctor.
      *
@@ -23,7 +52,130 @@ public class TracertTask extends AbstractExternalCommandTask {
             final Properties properties,
             final String host,
             final ResultStore resultStore) {
-        super(properties, host, resultStore);
+        this(properties, host, resultStore, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param dnsCache
+     *            {@link DnsCache} resolving the <code>$ADDRESS</code> placeholder of the command,
+     *            <code>null</code> to use the system resolver
+     */
+    public TracertTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final DnsCache dnsCache) {
+        this(properties, host, resultStore, dnsCache, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param host
+     *            host to be used
+     * @param resultStore
+     *            {@link ResultStore} object for storing task run results
+     * @param dnsCache
+     *            {@link DnsCache} resolving the <code>$ADDRESS</code> placeholder of the command,
+     *            <code>null</code> to use the system resolver
+     * @param processRunner
+     *            {@link ProcessRunner} shared between the tasks running external commands,
+     *            <code>null</code> to use a runner of the task's own
+     */
+    public TracertTask(
+            final Properties properties,
+            final String host,
+            final ResultStore resultStore,
+            final DnsCache dnsCache,
+            final ProcessRunner processRunner) {
+        super(properties, host, resultStore, dnsCache, processRunner, null);
+        this.pathTracker = new TracertPathTracker(properties);
+        this.onDemand = isOnDemandMode(properties);
+    }
+
+    /**
+     * Tells whether the trace route checks run on demand.
+     *
+     * @param properties
+     *            application properties
+     * @return <code>true</code> in <code>ondemand</code> mode, <code>false</code> in
+     *         <code>scheduled</code> mode
+     * @throws IllegalArgumentException
+     *             If the configured mode is unknown.
+     */
+    public static boolean isOnDemandMode(final Properties properties) {
+        final String mode = PropertyUtil.getString(properties, "ping.tracert.mode", "scheduled");
+        if (!"scheduled".equals(mode) && !"ondemand".equals(mode)) {
+            throw new IllegalArgumentException("Unknown trace route mode: " + mode);
+        }
+        return "ondemand".equals(mode);
+    }
+
+    /**
+     * Runs the check exclusively, since the scheduled and the triggered runs share the baseline.
+     *
+     * @see AbstractCommandTask#runCheck()
+     */
+    @Override
+    synchronized boolean runCheck() {
+        return super.runCheck();
+    }
+
+    /**
+     * Runs the command and compares the path found with the baseline, if the command completed.
+     *
+     * @see AbstractExternalCommandTask#executeCheck()
+     */
+    @Override
+    protected ProcessOutput executeCheck() {
+        final ProcessOutput output = super.executeCheck();
+        final TracertPath path = outputParser.parse(output.getChars());
+        if (output.isTimedOut() || !output.isStarted()) {
+            getLogger().warn("Trace route command of host ({}) didn't complete, keeping its route",
+                    getHost());
+            lastResult = pathTracker.failed(path);
+        } else {
+            lastResult = pathTracker.track(path);
+        }
+        if (lastResult.getChange() == TracertChange.PATH_CHANGED) {
+            getLogger().warn("Route to host ({}) changed to ({})", getHost(),
+                    lastResult.getPath());
+        } else if (lastResult.getChange() == TracertChange.RTT_REGRESSION) {
+            getLogger().warn("Round trip time of hop ({}) of the route to host ({}) regressed",
+                    lastResult.getRegressedHop(), getHost());
+        }
+        return output;
+    }
+
+    /**
+     * Keeps the {@link TracertResult} with the hops of the path and the outcome of the comparison
+     * instead of the output of the command.
+     *
+     * @see AbstractCommandTask#getResultDetail(Object)
+     */
+    @Override
+    protected Object getResultDetail(final ProcessOutput checkResult) {
+        return lastResult;
+    }
+
+    /**
+     * Stores the first path, path changes and regressions only.
+     *
+     * @see AbstractCommandTask#shouldStoreResult(Object)
+     */
+    @Override
+    protected boolean shouldStoreResult(final ProcessOutput checkResult) {
+        return lastResult.getChange() != TracertChange.UNCHANGED;
     }
 
     @Override
@@ -33,11 +185,18 @@ public class TracertTask extends AbstractExternalCommandTask {
 
     @Override
     public String getTaskDelayPropertyName() {
-        return "ping.tracert.delay";
+        return onDemand ? "ping.tracert.baseline.delay" : "ping.tracert.delay";
     }
 
     @Override
-    protected boolean checkResult(final String result) {
-        return true;
+    protected boolean checkResult(final ProcessOutput result) {
+        return !pathTracker.isFailure(lastResult);
+    }
+
+    /**
+     * @return outcome of the comparison of the last run, <code>null</code> before the first run
+     */
+    public TracertChange getLastChange() {
+        return lastResult == null ? null : lastResult.getChange();
     }
 }
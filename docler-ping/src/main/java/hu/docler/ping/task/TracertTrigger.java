@@ -0,0 +1,206 @@
+package hu.docler.ping.task;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.report.ReportSender;
+import hu.docler.ping.util.PropertyUtil;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * {@link CheckFailureListener} running the trace route check of a host on demand, when another
+ * check of the host fails. The report of the failure is sent once the trace route completes, so it
+ * contains a fresh route. Triggers are de-duplicated: a host has at most one triggered trace route
+ * pending or running, and a host traced on demand is not traced again on demand until the cooldown
+ * configured by <code>ping.tracert.trigger.cooldown</code> (in seconds) passes. A failure not
+ * triggering a trace route is reported by the failed check itself, with the route stored last.
+ */
+public class TracertTrigger implements CheckFailureListener {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(TracertTrigger.class);
+    /** Application properties. */
+    private final Properties properties;
+    /** {@link ResultStore} the reports are created from. */
+    private final ResultStore resultStore;
+    /** {@link Executor} running the triggered trace routes. */
+    private final Executor executor;
+    /** Minimal time between two triggered trace routes of a host, in nanoseconds. */
+    private final long cooldownNanos;
+    /** Trace route states of the hosts, by host. */
+    private final Map<String, HostState> hostStates = new ConcurrentHashMap<String, HostState>();
+    /** Number of trace routes triggered. */
+    private final AtomicLong triggeredCount = new AtomicLong();
+    /** Number of triggers dropped as duplicates or during the cooldown. */
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     * @param resultStore
+     *            {@link ResultStore} the reports are created from
+     * @param executor
+     *            {@link Executor} running the triggered trace routes
+     */
+    public TracertTrigger(
+            final Properties properties,
+            final ResultStore resultStore,
+            final Executor executor) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        if (resultStore == null) {
+            throw new IllegalArgumentException("Result store is mandatory, can't be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is mandatory, can't be null");
+        }
+        this.properties = properties;
+        this.resultStore = resultStore;
+        this.executor = executor;
+        this.cooldownNanos = TimeUnit.SECONDS.toNanos(
+                PropertyUtil.getLong(properties, "ping.tracert.trigger.cooldown", 300));
+    }
+
+    /**
+     * Registers the command based trace route task of a host.
+     *
+     * @param tracertTask
+     *            the task
+     */
+    public void register(final TracertTask tracertTask) {
+        hostStates.put(tracertTask.getHost(), new HostState(tracertTask));
+    }
+
+    /**
+     * Registers the in-process trace route task of a host.
+     *
+     * @param tracertTask
+     *            the task
+     */
+    public void register(final TracertEchoTask tracertTask) {
+        hostStates.put(tracertTask.getHost(), new HostState(tracertTask));
+    }
+
+    /**
+     * Triggers the trace route of the host unless one is already pending or the host is in its
+     * cooldown.
+     *
+     * @see CheckFailureListener#checkFailed(String, String)
+     */
+    public boolean checkFailed(final String host, final String checkIdentifierName) {
+        final HostState state = hostStates.get(host);
+        if (state == null) {
+            return false;
+        }
+        if (!state.pending.compareAndSet(false, true)) {
+            suppressedCount.incrementAndGet();
+            logger.debug("Trace route of host ({}) is already pending, dropped trigger of ({})",
+                    host, checkIdentifierName);
+            return false;
+        }
+        final long now = System.nanoTime();
+        if (state.triggered && now - state.lastTriggerNanos < cooldownNanos) {
+            state.pending.set(false);
+            suppressedCount.incrementAndGet();
+            logger.debug("Trace route of host ({}) is in cooldown, dropped trigger of ({})", host,
+                    checkIdentifierName);
+            return false;
+        }
+        try {
+            executor.execute(new TriggeredTracert(state));
+        } catch (final RejectedExecutionException e) {
+            state.pending.set(false);
+            logger.warn("Failed to trigger trace route of host ({}), executor is saturated", host);
+            return false;
+        }
+        state.triggered = true;
+        state.lastTriggerNanos = now;
+        triggeredCount.incrementAndGet();
+        logger.info("Triggered trace route of host ({}) by failed check ({})", host,
+                checkIdentifierName);
+        return true;
+    }
+
+    public long getTriggeredCount() {
+        return triggeredCount.get();
+    }
+
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    /**
+     * Trace route state of a host.
+     */
+    private static final class HostState {
+        /** Trace route task of the host. */
+        private final AbstractCommandTask<?> task;
+        /** Flag signalling that a triggered trace route is pending or running. */
+        private final AtomicBoolean pending = new AtomicBoolean();
+        /** Flag signalling that the host has been traced on demand. */
+        private volatile boolean triggered;
+        /** Time of the last trace route triggered. */
+        private volatile long lastTriggerNanos;
+
+        /**
+         * Ctor.
+         *
+         * @param task
+         *            trace route task of the host
+         */
+        private HostState(final AbstractCommandTask<?> task) {
+            this.task = task;
+        }
+    }
+
+    /**
+     * Triggered trace route of a host, sending the report of the failure once the route is
+     * stored.
+     */
+    private final class TriggeredTracert implements Runnable {
+        /** State of the host traced. */
+        private final HostState state;
+
+        /**
+         * Ctor.
+         *
+         * @param state
+         *            state of the host traced
+         */
+        private TriggeredTracert(final HostState state) {
+            this.state = state;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            final String host = state.task.getHost();
+            try {
+                if (!state.task.runCheck()) {
+                    logger.warn("Sending report of failed check of host ({}) with fresh route",
+                            host);
+                    new ReportSender(host, properties, resultStore).sendReport();
+                }
+            } finally {
+                state.pending.set(false);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Triggered trace route of host: " + state.task.getHost();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package hu.docler.ping.tcp;
+
+/**
+ * Callback receiving the outcome of a TCP connect probe executed by the
+ * {@link TcpConnectProbeEngine}.
+ */
+public interface ConnectCallback {
+    /**
+     * Called when the connection has been established.
+     *
+     * @param connectNanos
+     *            time between starting the connect and establishing the connection, in nanoseconds
+     */
+    void connected(long connectNanos);
+
+    /**
+     * Called when the connection couldn't be established.
+     *
+     * @param cause
+     *            cause of the failure
+     */
+    void failed(Exception cause);
+}
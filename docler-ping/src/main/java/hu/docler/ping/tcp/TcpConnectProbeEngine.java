@@ -0,0 +1,432 @@
+package hu.docler.ping.tcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * Engine of raw TCP connect probes. A single selector thread starts every probe as a non-blocking
+ * {@link SocketChannel#connect(java.net.SocketAddress)} and multiplexes all the connects in
+ * flight on one {@link Selector}. A connection is closed as soon as it is established, with a zero
+ * linger time so no socket is left behind in <code>TIME_WAIT</code> state, and the connect latency
+ * is handed over to the callback of the probe on a small callback pool.
+ */
+public class TcpConnectProbeEngine implements Closeable {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(TcpConnectProbeEngine.class);
+    /** {@link Selector} multiplexing the connects in flight. */
+    private final Selector selector;
+    /** Probes submitted but not yet started by the selector thread. */
+    private final Queue<ConnectProbe> pendingProbes = new ConcurrentLinkedQueue<ConnectProbe>();
+    /**
+     * Probes started, in the order of their deadlines. Only accessed by the selector thread, as
+     * every probe has the same timeout the head of the queue always expires first.
+     */
+    private final Queue<ConnectProbe> startedProbes = new ArrayDeque<ConnectProbe>();
+    /** {@link ExecutorService} running the callbacks of the completed probes. */
+    private final ExecutorService callbackExecutor;
+    /** The selector thread. */
+    private final Thread selectorThread;
+    /** Connect timeout of the probes, in nanoseconds. */
+    private final long timeoutNanos;
+    /** Maximal number of probes in flight. */
+    private final int maxInFlight;
+    /** Number of probes in flight. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** Number of probes connected. */
+    private final AtomicLong connectedCount = new AtomicLong();
+    /** Number of probes failed. */
+    private final AtomicLong failedCount = new AtomicLong();
+    /** Flag signalling that the engine is running. */
+    private volatile boolean running = true;
+
+    /**
+     * Ctor. Creates and starts the selector thread of the engine.
+     *
+     * @param properties
+     *            application properties
+     * @throws IllegalStateException
+     *             If the selector can't be opened.
+     */
+    public TcpConnectProbeEngine(final Properties properties) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties are mandatory, can't be null");
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS
+                .toNanos(PropertyUtil.getLong(properties, "ping.tcpconnect.timeout", 5000));
+        this.maxInFlight =
+                PropertyUtil.getInt(properties, "ping.tcpconnect.max.inflight", 10000);
+        try {
+            this.selector = Selector.open();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to open selector of TCP connect probes", e);
+        }
+        callbackExecutor = Executors.newFixedThreadPool(
+                PropertyUtil.getInt(properties, "ping.tcpconnect.callback.threads", 1),
+                new CallbackThreadFactory());
+        selectorThread = new Thread(new SelectorLoop(), "ping-tcp-connect");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        logger.info("Started TCP connect probe engine");
+    }
+
+    /**
+     * Starts a TCP connect probe of the given address and port. The callback is called on the
+     * callback pool of the engine when the connection is established, refused or times out. If
+     * the engine already has the maximal number of probes in flight the probe fails immediately
+     * with a {@link RejectedExecutionException}.
+     *
+     * @param address
+     *            address to be probed
+     * @param port
+     *            port to be probed
+     * @param callback
+     *            callback receiving the outcome of the probe
+     */
+    public void probe(final InetAddress address, final int port, final ConnectCallback callback) {
+        if (!running) {
+            deliverFailure(callback, new RejectedExecutionException("Engine has been closed"));
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            logger.warn("TCP connect probe engine reached its limit of {} probes in flight",
+                    maxInFlight);
+            deliverFailure(callback, new RejectedExecutionException(
+                    "Too many probes in flight, rejected probe of: " + address + ":" + port));
+            return;
+        }
+        pendingProbes.add(new ConnectProbe(new InetSocketAddress(address, port), callback));
+        selector.wakeup();
+    }
+
+    /**
+     * @return number of probes in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of probes connected since the start of the engine
+     */
+    public long getConnectedCount() {
+        return connectedCount.get();
+    }
+
+    /**
+     * @return number of probes failed since the start of the engine
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Stops the selector thread and the callback pool of the engine, failing the probes in
+     * flight.
+     *
+     * @see Closeable#close()
+     */
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            callbackExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts the connects of the pending probes. Called by the selector thread only.
+     */
+    private void startPendingProbes() {
+        ConnectProbe probe = pendingProbes.poll();
+        while (probe != null) {
+            try {
+                probe.start();
+                if (!probe.isDone()) {
+                    startedProbes.add(probe);
+                }
+            } catch (final IOException e) {
+                probe.fail(e);
+            }
+            probe = pendingProbes.poll();
+        }
+    }
+
+    /**
+     * Finishes the connects of the probes selected. Called by the selector thread only.
+     */
+    private void finishSelectedProbes() {
+        final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+            final SelectionKey key = selectedKeys.next();
+            selectedKeys.remove();
+            final ConnectProbe probe = (ConnectProbe) key.attachment();
+            try {
+                probe.finish();
+            } catch (final IOException e) {
+                probe.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Fails the probes past their deadline, and returns the time until the next deadline. Called
+     * by the selector thread only.
+     *
+     * @return milliseconds until the deadline of the oldest probe in flight, or 0 if there is no
+     *         probe in flight
+     */
+    private long expireProbes() {
+        final long now = System.nanoTime();
+        ConnectProbe probe = startedProbes.peek();
+        while (probe != null && (probe.isDone() || probe.deadline - now <= 0)) {
+            startedProbes.poll();
+            if (!probe.isDone()) {
+                probe.fail(new SocketTimeoutException("Connect timed out"));
+            }
+            probe = startedProbes.peek();
+        }
+        if (probe == null) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(probe.deadline - now) + 1);
+    }
+
+    /**
+     * Fails all the probes in flight, used when the engine is closed. Called by the selector
+     * thread only.
+     */
+    private void failAllProbes() {
+        final ConnectException closedException = new ConnectException("Engine has been closed");
+        ConnectProbe probe = pendingProbes.poll();
+        while (probe != null) {
+            probe.fail(closedException);
+            probe = pendingProbes.poll();
+        }
+        probe = startedProbes.poll();
+        while (probe != null) {
+            if (!probe.isDone()) {
+                probe.fail(closedException);
+            }
+            probe = startedProbes.poll();
+        }
+        try {
+            selector.close();
+        } catch (final IOException e) {
+            logger.warn("Failed to close selector of TCP connect probes properly", e);
+        }
+    }
+
+    /**
+     * Hands over the failure of a probe to its callback.
+     *
+     * @param callback
+     *            callback of the probe
+     * @param cause
+     *            cause of the failure
+     */
+    private void deliverFailure(final ConnectCallback callback, final Exception cause) {
+        deliver(new Runnable() {
+            public void run() {
+                callback.failed(cause);
+            }
+        });
+    }
+
+    /**
+     * Runs a callback on the callback pool.
+     *
+     * @param callbackRunner
+     *            runner of the callback
+     */
+    private void deliver(final Runnable callbackRunner) {
+        try {
+            callbackExecutor.execute(callbackRunner);
+        } catch (final RejectedExecutionException e) {
+            logger.warn("Callback pool is shut down, dropping probe callback");
+        }
+    }
+
+    /**
+     * Loop of the selector thread.
+     */
+    private final class SelectorLoop implements Runnable {
+        /**
+         * @see Runnable#run()
+         */
+        public void run() {
+            long selectTimeout = 0;
+            while (running) {
+                try {
+                    selector.select(selectTimeout);
+                    startPendingProbes();
+                    finishSelectedProbes();
+                } catch (final IOException e) {
+                    logger.error("Selector of TCP connect probes failed", e);
+                } catch (final RuntimeException e) {
+                    logger.error("Unexpected error in TCP connect probe loop", e);
+                }
+                selectTimeout = expireProbes();
+            }
+            failAllProbes();
+        }
+    }
+
+    /**
+     * A single TCP connect probe. Its state is only changed by the selector thread.
+     */
+    private final class ConnectProbe {
+        /** Address to connect to. */
+        private final InetSocketAddress address;
+        /** Callback receiving the outcome of the probe. */
+        private final ConnectCallback callback;
+        /** Start time of the connect. */
+        private long startTime;
+        /** Deadline of the connect. */
+        private long deadline;
+        /** Channel of the connect. */
+        private SocketChannel channel;
+        /** Flag signalling that the probe is completed. */
+        private boolean done;
+
+        /**
+         * Ctor.
+         *
+         * @param address
+         *            address to connect to
+         * @param callback
+         *            callback receiving the outcome of the probe
+         */
+        private ConnectProbe(final InetSocketAddress address, final ConnectCallback callback) {
+            this.address = address;
+            this.callback = callback;
+        }
+
+        /**
+         * @return <code>true</code> if the probe is completed
+         */
+        private boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Starts the non-blocking connect, registering the channel for connect readiness unless
+         * the connection is established immediately.
+         *
+         * @throws IOException
+         *             if the connect can't be started
+         */
+        private void start() throws IOException {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_LINGER, Integer.valueOf(0));
+            startTime = System.nanoTime();
+            deadline = startTime + timeoutNanos;
+            if (channel.connect(address)) {
+                complete();
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, this);
+            }
+        }
+
+        /**
+         * Finishes the connect of a channel selected for connect readiness.
+         *
+         * @throws IOException
+         *             if the connection can't be established
+         */
+        private void finish() throws IOException {
+            if (!done && channel.finishConnect()) {
+                complete();
+            }
+        }
+
+        /**
+         * Completes the probe with the connect latency, closing the connection.
+         */
+        private void complete() {
+            final long connectNanos = System.nanoTime() - startTime;
+            close();
+            connectedCount.incrementAndGet();
+            deliver(new Runnable() {
+                public void run() {
+                    callback.connected(connectNanos);
+                }
+            });
+        }
+
+        /**
+         * Completes the probe with a failure, closing the channel.
+         *
+         * @param cause
+         *            cause of the failure
+         */
+        private void fail(final Exception cause) {
+            close();
+            failedCount.incrementAndGet();
+            deliverFailure(callback, cause);
+        }
+
+        /**
+         * Marks the probe done and closes its channel, which also cancels its selection key.
+         */
+        private void close() {
+            done = true;
+            inFlight.decrementAndGet();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException e) {
+                    logger.debug("Failed to close channel of {}", address, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link ThreadFactory} naming the threads of the callback pool.
+     */
+    private static final class CallbackThreadFactory implements ThreadFactory {
+        /** Counter of the threads created. */
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         */
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable,
+                    "ping-tcp-connect-callback-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package hu.docler.ping.tracert;
+
+/**
+ * Outcome of comparing a traced route with the previous one of the same host.
+ */
+public enum TracertChange {
+    /** First route traced to the host, nothing to compare with. */
+    BASELINE,
+    /** Route goes through the same addresses, without round trip time regression. */
+    UNCHANGED,
+    /** Route goes through different addresses than the previous one. */
+    PATH_CHANGED,
+    /** Route goes through the same addresses, but the round trip time of a hop regressed. */
+    RTT_REGRESSION,
+    /** Trace route didn't complete, the route isn't compared and the baseline is kept. */
+    FAILED
+}
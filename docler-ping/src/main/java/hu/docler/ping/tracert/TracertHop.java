@@ -0,0 +1,98 @@
+package hu.docler.ping.tracert;
+
+/**
+ * Hop of a traced route: its index, the address answering the probes of the hop and the round trip
+ * times of the probes.
+ */
+public final class TracertHop {
+    /** Index of the hop, starting from one. */
+    private final int index;
+    /** Address answering the probes of the hop, <code>null</code> if no probe was answered. */
+    private final String address;
+    /** Round trip times of the probes of the hop, in milliseconds, NaN for lost probes. */
+    private final double[] rtts;
+
+    /**
+     * Ctor.
+     *
+     * @param index
+     *            index of the hop, starting from one
+     * @param address
+     *            address answering the probes of the hop, <code>null</code> if no probe was
+     *            answered
+     * @param rtts
+     *            round trip times of the probes of the hop, in milliseconds, NaN for lost probes
+     */
+    public TracertHop(final int index, final String address, final double[] rtts) {
+        this.index = index;
+        this.address = address;
+        this.rtts = rtts.clone();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return number of probes of the hop
+     */
+    public int getProbeCount() {
+        return rtts.length;
+    }
+
+    /**
+     * @param probe
+     *            index of the probe
+     * @return round trip time of the probe, in milliseconds, NaN if the probe was lost
+     */
+    public double getRtt(final int probe) {
+        return rtts[probe];
+    }
+
+    /**
+     * @return average round trip time of the probes answered, in milliseconds, NaN if no probe
+     *         was answered
+     */
+    public double getAverageRtt() {
+        double sum = 0;
+        int answered = 0;
+        for (final double rtt : rtts) {
+            if (!Double.isNaN(rtt)) {
+                sum += rtt;
+                answered++;
+            }
+        }
+        return answered == 0 ? Double.NaN : sum / answered;
+    }
+
+    /**
+     * Appends the hop to a {@link StringBuilder}, like <code>3 10.0.0.1 5.1/5.3/*</code>.
+     *
+     * @param sb
+     *            the {@link StringBuilder}
+     * @return the {@link StringBuilder}
+     */
+    public StringBuilder appendTo(final StringBuilder sb) {
+        sb.append(index);
+        sb.append(' ');
+        sb.append(address == null ? "*" : address);
+        for (int i = 0; i < rtts.length; i++) {
+            sb.append(i == 0 ? ' ' : '/');
+            if (Double.isNaN(rtts[i])) {
+                sb.append('*');
+            } else {
+                sb.append(rtts[i]);
+            }
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,172 @@
+package hu.docler.ping.tracert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parser of the output of the <code>tracert</code> (Windows) and <code>traceroute</code> (Linux)
+ * commands, building a {@link TracertPath}. Only the lines starting with a hop number are parsed,
+ * like <code>  3    10 ms     9 ms    11 ms  host.isp.net [10.0.0.1]</code> or
+ * <code> 3  host.isp.net (10.0.0.1)  9.1 ms  9.5 ms  9.7 ms</code>. A <code>*</code> is a lost
+ * probe, a number followed by <code>ms</code> is the round trip time of a probe, the address in
+ * brackets is preferred to the host name, and annotations like <code>!H</code> are skipped. A hop
+ * without any answered probe has no address, whatever text follows its probes.
+ */
+public final class TracertOutputParser {
+    /** Initial capacity of the round trip time buffer, the usual number of probes per hop. */
+    private static final int PROBES = 3;
+    /** Round trip times of the probes of the hop being parsed. */
+    private double[] rtts = new double[PROBES];
+
+    /**
+     * Parses the output of a <code>tracert</code> command.
+     *
+     * @param tracertOutput
+     *            the output
+     * @return path found in the output, without hops if no hop line was found
+     */
+    public TracertPath parse(final CharSequence tracertOutput) {
+        final List<TracertHop> hops = new ArrayList<TracertHop>();
+        if (tracertOutput != null) {
+            final String text = tracertOutput.toString();
+            int lineStart = 0;
+            while (lineStart < text.length()) {
+                int lineEnd = text.indexOf('\n', lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = text.length();
+                }
+                final TracertHop hop = parseHopLine(text.substring(lineStart, lineEnd).trim());
+                if (hop != null) {
+                    hops.add(hop);
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+        return new TracertPath(hops);
+    }
+
+    /**
+     * Parses a line of the output as a hop.
+     *
+     * @param line
+     *            the line, trimmed
+     * @return the hop, or <code>null</code> if the line is not a hop line
+     */
+    private TracertHop parseHopLine(final String line) {
+        if (line.isEmpty() || !isDigit(line.charAt(0))) {
+            return null;
+        }
+        final String[] tokens = line.split("\\s+");
+        final int index;
+        try {
+            index = Integer.parseInt(tokens[0]);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+        int probeCount = 0;
+        boolean answered = false;
+        String plainAddress = null;
+        String bracketAddress = null;
+        for (int i = 1; i < tokens.length; i++) {
+            final String token = tokens[i];
+            final boolean msFollows = i + 1 < tokens.length && "ms".equals(tokens[i + 1]);
+            final double rtt = parseRtt(token, msFollows);
+            if ("*".equals(token)) {
+                probeCount = addProbe(probeCount, Double.NaN);
+            } else if (rtt >= 0) {
+                probeCount = addProbe(probeCount, rtt);
+                answered = true;
+                if (msFollows) {
+                    i++;
+                }
+            } else if (isBracketed(token)) {
+                if (bracketAddress == null) {
+                    bracketAddress = token.substring(1, token.length() - 1);
+                }
+            } else if (token.charAt(0) != '!' && plainAddress == null) {
+                plainAddress = token;
+            }
+        }
+        if (probeCount == 0) {
+            return null;
+        }
+        final String address = !answered ? null
+                : bracketAddress != null ? bracketAddress : plainAddress;
+        return new TracertHop(index, address, Arrays.copyOf(rtts, probeCount));
+    }
+
+    /**
+     * Appends the round trip time of a probe to the buffer, growing it when needed.
+     *
+     * @param probeCount
+     *            number of probes in the buffer
+     * @param rtt
+     *            round trip time of the probe, NaN for a lost probe
+     * @return new number of probes in the buffer
+     */
+    private int addProbe(final int probeCount, final double rtt) {
+        if (probeCount == rtts.length) {
+            rtts = Arrays.copyOf(rtts, rtts.length * 2);
+        }
+        rtts[probeCount] = rtt;
+        return probeCount + 1;
+    }
+
+    /**
+     * Parses a round trip time token, like <code>9.1</code> followed by <code>ms</code>,
+     * <code>&lt;1</code> followed by <code>ms</code>, or <code>10ms</code>.
+     *
+     * @param token
+     *            the token
+     * @param msFollows
+     *            <code>true</code> if the next token is <code>ms</code>
+     * @return the round trip time in milliseconds (the bound for <code>&lt;</code>), or -1 if the
+     *         token is not a round trip time
+     */
+    private static double parseRtt(final String token, final boolean msFollows) {
+        final int start = token.charAt(0) == '<' ? 1 : 0;
+        int end = token.length();
+        if (token.endsWith("ms")) {
+            end -= 2;
+        } else if (!msFollows) {
+            return -1;
+        }
+        if (start >= end || !isDigit(token.charAt(start))) {
+            return -1;
+        }
+        boolean dot = false;
+        for (int i = start; i < end; i++) {
+            final char c = token.charAt(i);
+            if (c == '.' && !dot) {
+                dot = true;
+            } else if (!isDigit(c)) {
+                return -1;
+            }
+        }
+        return Double.parseDouble(token.substring(start, end));
+    }
+
+    /**
+     * @param token
+     *            a token
+     * @return <code>true</code> if the token is enclosed in square brackets or parentheses
+     */
+    private static boolean isBracketed(final String token) {
+        if (token.length() < 3) {
+            return false;
+        }
+        final char first = token.charAt(0);
+        final char last = token.charAt(token.length() - 1);
+        return first == '[' && last == ']' || first == '(' && last == ')';
+    }
+
+    /**
+     * @param c
+     *            a character
+     * @return <code>true</code> if the character is a decimal digit, <code>false</code> otherwise
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,146 @@
+package hu.docler.ping.tracert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Route traced to a host, as the list of its hops. The path has a 64 bit fingerprint calculated
+ * from the addresses of its hops, so two paths answered at every hop can be compared cheaply. A
+ * hop not answering the probes says nothing about the route, so paths differing in the answered
+ * hops only are compared hop by hop.
+ */
+public final class TracertPath {
+    /** Offset basis of the 64 bit FNV-1a hash. */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    /** Prime of the 64 bit FNV-1a hash. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /** Hops of the path. */
+    private final List<TracertHop> hops;
+    /** Fingerprint of the path. */
+    private final long fingerprint;
+
+    /**
+     * Ctor.
+     *
+     * @param hops
+     *            hops of the path, in the order of their index
+     */
+    public TracertPath(final List<TracertHop> hops) {
+        this.hops = Collections.unmodifiableList(new ArrayList<TracertHop>(hops));
+        this.fingerprint = calculateFingerprint(this.hops);
+    }
+
+    public List<TracertHop> getHops() {
+        return hops;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Tells whether another path goes through the same addresses as this one. A hop not answered
+     * in either path matches any address, so a hop answering some of the probes doesn't change
+     * the route.
+     *
+     * @param other
+     *            the other path
+     * @return <code>true</code> if the paths have the same hop count, and the same address at
+     *         every hop answered in both
+     */
+    public boolean isSameRoute(final TracertPath other) {
+        if (other == null || hops.size() != other.hops.size()) {
+            return false;
+        }
+        if (fingerprint == other.fingerprint) {
+            return true;
+        }
+        for (int i = 0; i < hops.size(); i++) {
+            final String address = hops.get(i).getAddress();
+            final String otherAddress = other.hops.get(i).getAddress();
+            if (address != null && otherAddress != null && !address.equals(otherAddress)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks for the first hop of this path whose average round trip time regressed compared to
+     * the same hop of a baseline path of the same route. A hop regressed if its average is more
+     * than <code>factor</code> times and more than <code>minDeltaMillis</code> milliseconds above
+     * the baseline average.
+     *
+     * @param baseline
+     *            the baseline path, of the same route
+     * @param factor
+     *            minimal ratio of the current and the baseline averages
+     * @param minDeltaMillis
+     *            minimal difference of the current and the baseline averages, in milliseconds
+     * @return the hop regressed, or <code>null</code> if no hop regressed
+     */
+    public TracertHop findRttRegression(
+            final TracertPath baseline,
+            final double factor,
+            final double minDeltaMillis) {
+        for (int i = 0; i < hops.size() && i < baseline.hops.size(); i++) {
+            final double current = hops.get(i).getAverageRtt();
+            final double previous = baseline.hops.get(i).getAverageRtt();
+            if (!Double.isNaN(current) && !Double.isNaN(previous) && current > previous * factor
+                    && current - previous > minDeltaMillis) {
+                return hops.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends the path to a {@link StringBuilder}, like
+     * <code>Fingerprint: 1a2b...; Hops: 1 192.168.1.1 0.3/0.3/0.3, 2 10.0.0.1 9.1/9.5/9.7</code>.
+     *
+     * @param sb
+     *            the {@link StringBuilder}
+     * @return the {@link StringBuilder}
+     */
+    public StringBuilder appendTo(final StringBuilder sb) {
+        sb.append("Fingerprint: ");
+        sb.append(Long.toHexString(fingerprint));
+        sb.append("; Hops: ");
+        if (hops.isEmpty()) {
+            sb.append("none");
+        }
+        for (int i = 0; i < hops.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            hops.get(i).appendTo(sb);
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Calculates the FNV-1a hash of the addresses of the hops, a lost hop counting as
+     * <code>*</code>.
+     *
+     * @param pathHops
+     *            the hops
+     * @return the fingerprint
+     */
+    private static long calculateFingerprint(final List<TracertHop> pathHops) {
+        long hash = FNV_OFFSET_BASIS;
+        for (final TracertHop hop : pathHops) {
+            final String address = hop.getAddress() == null ? "*" : hop.getAddress();
+            for (int i = 0; i < address.length(); i++) {
+                hash = (hash ^ address.charAt(i)) * FNV_PRIME;
+            }
+            hash = (hash ^ ' ') * FNV_PRIME;
+        }
+        return hash;
+    }
+}
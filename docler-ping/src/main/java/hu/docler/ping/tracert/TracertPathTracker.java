@@ -0,0 +1,92 @@
+package hu.docler.ping.tracert;
+
+import java.util.Properties;
+
+import hu.docler.ping.util.PropertyUtil;
+
+/**
+ * Tracks the route to a host, comparing every path traced with the baseline path. The first path
+ * becomes the baseline. A path of a different route, with a different hop count or a different
+ * address at a hop answered in both paths, is a {@link TracertChange#PATH_CHANGED} and becomes the
+ * new baseline. A path of the same route is a {@link TracertChange#RTT_REGRESSION} if
+ * the average round trip time of a hop is more than <code>ping.tracert.rtt.regression.factor</code>
+ * times and more than <code>ping.tracert.rtt.regression.min</code> milliseconds above the
+ * baseline; a regressed path doesn't replace the baseline, so a slowly growing round trip time is
+ * still detected.
+ */
+public class TracertPathTracker {
+    /** Minimal ratio of the current and the baseline average round trip time of a regressed hop. */
+    private final double regressionFactor;
+    /** Minimal increase of the average round trip time of a regressed hop, in milliseconds. */
+    private final double regressionMinMillis;
+    /** Flag signalling that path changes and regressions fail the check. */
+    private final boolean reportChanges;
+    /** Baseline of the comparison, <code>null</code> before the first path. */
+    private TracertPath baselinePath;
+
+    /**
+     * Ctor.
+     *
+     * @param properties
+     *            application properties
+     */
+    public TracertPathTracker(final Properties properties) {
+        this.regressionFactor =
+                PropertyUtil.getDouble(properties, "ping.tracert.rtt.regression.factor", 2.0);
+        this.regressionMinMillis =
+                PropertyUtil.getDouble(properties, "ping.tracert.rtt.regression.min", 20.0);
+        this.reportChanges =
+                PropertyUtil.getBoolean(properties, "ping.tracert.report.changes", true);
+    }
+
+    /**
+     * Compares a path with the baseline, updating the baseline.
+     *
+     * @param path
+     *            the path traced
+     * @return result of the comparison
+     */
+    public synchronized TracertResult track(final TracertPath path) {
+        if (baselinePath == null) {
+            baselinePath = path;
+            return new TracertResult(path, TracertChange.BASELINE, null);
+        }
+        if (!path.isSameRoute(baselinePath)) {
+            baselinePath = path;
+            return new TracertResult(path, TracertChange.PATH_CHANGED, null);
+        }
+        final TracertHop regressedHop =
+                path.findRttRegression(baselinePath, regressionFactor, regressionMinMillis);
+        return new TracertResult(path,
+                regressedHop == null ? TracertChange.UNCHANGED : TracertChange.RTT_REGRESSION,
+                regressedHop);
+    }
+
+    /**
+     * Creates the result of a trace route which didn't complete, like a timed out command. The
+     * partial path is kept for the report, but it isn't compared with the baseline and doesn't
+     * replace it.
+     *
+     * @param path
+     *            the partial path traced
+     * @return the result
+     */
+    public TracertResult failed(final TracertPath path) {
+        return new TracertResult(path, TracertChange.FAILED, null);
+    }
+
+    /**
+     * Tells whether a result has to be reported as a failure: a trace route not completed always
+     * is, path changes and regressions are unless <code>ping.tracert.report.changes</code> is
+     * <code>false</code>.
+     *
+     * @param result
+     *            the result
+     * @return <code>true</code> if the result is a failure, <code>false</code> otherwise
+     */
+    public boolean isFailure(final TracertResult result) {
+        return result.getChange() == TracertChange.FAILED
+                || reportChanges && (result.getChange() == TracertChange.PATH_CHANGED
+                        || result.getChange() == TracertChange.RTT_REGRESSION);
+    }
+}
@@ -0,0 +1,67 @@
+package hu.docler.ping.tracert;
+
+/**
+ * Result of a trace route check: the path traced and the outcome of its comparison with the
+ * previous path of the host.
+ */
+public final class TracertResult {
+    /** Path traced. */
+    private final TracertPath path;
+    /** Outcome of the comparison with the previous path. */
+    private final TracertChange change;
+    /** Hop regressed, <code>null</code> if no hop regressed. */
+    private final TracertHop regressedHop;
+
+    /**
+     * Ctor.
+     *
+     * @param path
+     *            path traced
+     * @param change
+     *            outcome of the comparison with the previous path
+     * @param regressedHop
+     *            hop regressed, <code>null</code> if no hop regressed
+     */
+    public TracertResult(
+            final TracertPath path,
+            final TracertChange change,
+            final TracertHop regressedHop) {
+        this.path = path;
+        this.change = change;
+        this.regressedHop = regressedHop;
+    }
+
+    public TracertPath getPath() {
+        return path;
+    }
+
+    public TracertChange getChange() {
+        return change;
+    }
+
+    public TracertHop getRegressedHop() {
+        return regressedHop;
+    }
+
+    /**
+     * Appends the result to a {@link StringBuilder}, like
+     * <code>Change: RTT_REGRESSION at hop 3; Fingerprint: ...; Hops: ...</code>.
+     *
+     * @param sb
+     *            the {@link StringBuilder}
+     * @return the {@link StringBuilder}
+     */
+    public StringBuilder appendTo(final StringBuilder sb) {
+        sb.append("Change: ").append(change);
+        if (regressedHop != null) {
+            sb.append(" at hop ").append(regressedHop.getIndex());
+        }
+        sb.append("; ");
+        return path.appendTo(sb);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,133 @@
+package hu.docler.ping.util;
+
+/**
+ * Immutable result of a check execution: the status, the latency and the loss measured, and the
+ * typed detail of the check (like the ping statistics, the HTTP response or the hops of a trace
+ * route). The detail is rendered to text through its <code>toString()</code> only when the text
+ * is requested by {@link #getText()}, for a log line or a report, so storing a result costs no
+ * string building. The detail must not be modified once the result is created.
+ */
+public final class CheckResult {
+    /** Type name of the check. */
+    private final String checkType;
+    /** Time of the check execution, in milliseconds since the epoch. */
+    private final long timestampMillis;
+    /** Status of the check execution. */
+    private final boolean success;
+    /** Latency measured by the check in milliseconds, NaN if not measured. */
+    private final double latencyMillis;
+    /** Loss percentage measured by the check, NaN if not measured. */
+    private final double lossPercent;
+    /** Typed detail of the check, may be <code>null</code>. */
+    private final Object detail;
+    /**
+     * Text of the detail, <code>null</code> until first requested. Rendering it twice concurrently
+     * yields equal texts, so the field needs no synchronization.
+     */
+    private String text;
+
+    /**
+     * Ctor.
+     *
+     * @param checkType
+     *            type name of the check
+     * @param timestampMillis
+     *            time of the check execution, in milliseconds since the epoch
+     * @param success
+     *            <code>true</code> if the check execution was successful
+     * @param latencyMillis
+     *            latency measured by the check in milliseconds, NaN if not measured
+     * @param lossPercent
+     *            loss percentage measured by the check, NaN if not measured
+     * @param detail
+     *            typed detail of the check, not modified afterwards, may be <code>null</code>
+     */
+    public CheckResult(
+            final String checkType,
+            final long timestampMillis,
+            final boolean success,
+            final double latencyMillis,
+            final double lossPercent,
+            final Object detail) {
+        if (checkType == null || checkType.isEmpty()) {
+            throw new IllegalArgumentException("CheckType is mandatory");
+        }
+        this.checkType = checkType;
+        this.timestampMillis = timestampMillis;
+        this.success = success;
+        this.latencyMillis = latencyMillis;
+        this.lossPercent = lossPercent;
+        this.detail = detail;
+    }
+
+    /**
+     * Creates the result of a check known as text only, without measurements. The result is
+     * considered successful.
+     *
+     * @param checkType
+     *            type name of the check
+     * @param text
+     *            text of the result, may be <code>null</code>
+     * @return the result, stamped with the current time
+     */
+    public static CheckResult ofText(final String checkType, final String text) {
+        return new CheckResult(checkType, System.currentTimeMillis(), true, Double.NaN,
+                Double.NaN, text);
+    }
+
+    public String getCheckType() {
+        return checkType;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public double getLossPercent() {
+        return lossPercent;
+    }
+
+    public Object getDetail() {
+        return detail;
+    }
+
+    /**
+     * Returns the detail of the result if it is of a given type.
+     *
+     * @param <T>
+     *            type of the detail
+     * @param type
+     *            the type
+     * @return the detail, or <code>null</code> if the detail is not of the type
+     */
+    public <T> T getDetail(final Class<T> type) {
+        return type.isInstance(detail) ? type.cast(detail) : null;
+    }
+
+    /**
+     * Returns the text of the result, rendering the detail on the first call only.
+     *
+     * @return the text, or <code>null</code> if the result has no detail
+     */
+    public String getText() {
+        String currentText = text;
+        if (currentText == null && detail != null) {
+            currentText = detail.toString();
+            text = currentText;
+        }
+        return currentText;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(getText());
+    }
+}
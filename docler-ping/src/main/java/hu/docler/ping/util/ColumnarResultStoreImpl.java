@@ -0,0 +1,309 @@
+package hu.docler.ping.util;
+
+import java.lang.invoke.VarHandle;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the last result of every check of every host in primitive columns, for large host
+ * counts. The hosts and the check types are interned to dense integer ids at startup, and every
+ * check type has a column of parallel arrays indexed by the host id, so storing or reading a
+ * result is array indexing and a result takes {@link #BYTES_PER_RESULT} bytes instead of the
+ * entries, keys and nested maps of the {@link MapResultStoreImpl}. The {@link CheckResult}
+ * objects are created on reading only, for the reports.
+ * <p>
+ * The details of the results (the output of a ping command, the path of a trace route) are kept
+ * by reference unless the store is created without details. A detail kept takes
+ * {@link #BYTES_PER_DETAIL_REFERENCE} more bytes in the column, and the detail object itself
+ * stays reachable until the next result of the check of the host: from a few hundred bytes for
+ * the output of a ping command to kilobytes for a trace route. Without details the reports carry
+ * the status and the measurements of the results only.
+ * <p>
+ * The hosts and the check types are fixed: storing a result of a host or a check type not given
+ * at startup is rejected. Every cell of a column has a version, odd while the cell is written,
+ * so the writers never lock, and the readers retry until they read a cell not written meanwhile.
+ * A cell is read consistently, the cells of a host are not read at a single point in time.
+ */
+public class ColumnarResultStoreImpl implements ResultStore {
+    /**
+     * Size of the result of a check of a host in the columns without its detail, in bytes: the
+     * timestamp, the latency, the loss, the status and the version.
+     */
+    public static final int BYTES_PER_RESULT = 8 + 4 + 4 + 1 + 4;
+    /** Size of the (compressed) reference of the detail of a result kept, in bytes. */
+    public static final int BYTES_PER_DETAIL_REFERENCE = 4;
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(ColumnarResultStoreImpl.class);
+    /** {@link IdIndex} of the hosts. */
+    private final IdIndex hostIds;
+    /** {@link IdIndex} of the check types. */
+    private final IdIndex checkTypeIds;
+    /** Columns of the results, indexed by the check type id. */
+    private final Column[] columns;
+
+    /**
+     * Ctor, keeping the details of the results.
+     *
+     * @param hosts
+     *            the hosts whose results are stored
+     * @param checkTypes
+     *            type names of the checks whose results are stored
+     */
+    public ColumnarResultStoreImpl(final String[] hosts, final String[] checkTypes) {
+        this(hosts, checkTypes, true);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param hosts
+     *            the hosts whose results are stored
+     * @param checkTypes
+     *            type names of the checks whose results are stored
+     * @param keepDetails
+     *            <code>true</code> to keep the details of the results, <code>false</code> to keep
+     *            their status and measurements only
+     */
+    public ColumnarResultStoreImpl(
+            final String[] hosts,
+            final String[] checkTypes,
+            final boolean keepDetails) {
+        if (hosts == null) {
+            throw new IllegalArgumentException("Hosts are mandatory, can't be null");
+        }
+        if (checkTypes == null) {
+            throw new IllegalArgumentException("Check types are mandatory, can't be null");
+        }
+        this.hostIds = new IdIndex(hosts);
+        this.checkTypeIds = new IdIndex(checkTypes);
+        this.columns = new Column[checkTypeIds.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(hostIds.size(), keepDetails);
+        }
+        final int bytesPerResult =
+                BYTES_PER_RESULT + (keepDetails ? BYTES_PER_DETAIL_REFERENCE : 0);
+        logger.info("Storing the results of {} check types of {} hosts in {} bytes{}",
+                columns.length, hostIds.size(),
+                (long) columns.length * hostIds.size() * bytesPerResult,
+                keepDetails ? ", plus the details of the results" : "");
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String,
+     *      hu.docler.ping.util.CheckResult)
+     */
+    public void storeHostCheckResult(final String host, final CheckResult result) {
+        if (host == null || host.isEmpty()) {
+            throw new IllegalArgumentException("Host is mandatory");
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("Result is mandatory, can't be null");
+        }
+        final int hostId = hostIds.getId(host);
+        if (hostId < 0) {
+            throw new IllegalArgumentException("Unknown host: " + host);
+        }
+        final int checkTypeId = checkTypeIds.getId(result.getCheckType());
+        if (checkTypeId < 0) {
+            throw new IllegalArgumentException("Unknown check type: " + result.getCheckType());
+        }
+        logger.debug("Storing {} result for check type ({}) and host ({})",
+                result.isSuccess() ? "successful" : "failed", result.getCheckType(), host);
+        columns[checkTypeId].write(hostId, result);
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String, java.lang.String,
+     *      java.lang.String)
+     */
+    public void storeHostCheckResult(
+            final String host,
+            final String checkType,
+            final String result) {
+        storeHostCheckResult(host, CheckResult.ofText(checkType, result));
+    }
+
+    /**
+     * Returns a new {@link Map} of the results of the host read from the columns.
+     *
+     * @see hu.docler.ping.util.ResultStore#getResultsForHost(java.lang.String)
+     */
+    public Map<String, CheckResult> getResultsForHost(final String host) {
+        final int hostId = hostIds.getId(host);
+        if (hostId < 0) {
+            return null;
+        }
+        Map<String, CheckResult> results = null;
+        for (int i = 0; i < columns.length; i++) {
+            final CheckResult result = getResult(hostId, i);
+            if (result != null) {
+                if (results == null) {
+                    results = new HashMap<String, CheckResult>(columns.length * 2);
+                }
+                results.put(result.getCheckType(), result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getReportsForHost(java.lang.String)
+     */
+    public Map<String, String> getReportsForHost(final String host) {
+        final Map<String, CheckResult> results = getResultsForHost(host);
+        if (results == null) {
+            return null;
+        }
+        final Map<String, String> reports = new HashMap<String, String>(results.size() * 2);
+        for (final Map.Entry<String, CheckResult> entry : results.entrySet()) {
+            reports.put(entry.getKey(), entry.getValue().getText());
+        }
+        return reports;
+    }
+
+    /**
+     * Latency histograms are not kept, returns <code>null</code>.
+     *
+     * @see hu.docler.ping.util.ResultStore#getLatencyHistogram(java.lang.String,
+     *      java.lang.String, hu.docler.ping.util.LatencyWindow)
+     */
+    public LatencyHistogram getLatencyHistogram(
+            final String host,
+            final String checkType,
+            final LatencyWindow window) {
+        return null;
+    }
+
+    /**
+     * @param host
+     *            host name value
+     * @return id of the host, or -1 if the host is not stored
+     */
+    public int getHostId(final String host) {
+        return hostIds.getId(host);
+    }
+
+    /**
+     * @param checkType
+     *            type name of the check
+     * @return id of the check type, or -1 if the check type is not stored
+     */
+    public int getCheckTypeId(final String checkType) {
+        return checkTypeIds.getId(checkType);
+    }
+
+    /**
+     * @return number of hosts stored, the host ids run from zero to this value, exclusive
+     */
+    public int getHostCount() {
+        return hostIds.size();
+    }
+
+    /**
+     * Returns the last result of a check of a host.
+     *
+     * @param hostId
+     *            id of the host
+     * @param checkTypeId
+     *            id of the check type
+     * @return the result, or <code>null</code> if no result was stored for the check of the host
+     */
+    public CheckResult getResult(final int hostId, final int checkTypeId) {
+        return columns[checkTypeId].read(hostId, checkTypeIds.getName(checkTypeId));
+    }
+
+    /**
+     * Results of a check type, in parallel arrays indexed by the host id.
+     */
+    private static final class Column {
+        /** Versions of the cells, zero if never written, odd while written. */
+        private final AtomicIntegerArray versions;
+        /** Times of the check executions, in milliseconds since the epoch. */
+        private final long[] timestamps;
+        /** Latencies measured by the checks in milliseconds, NaN if not measured. */
+        private final float[] latencies;
+        /** Loss percentages measured by the checks, NaN if not measured. */
+        private final float[] losses;
+        /** Statuses of the check executions. */
+        private final boolean[] successes;
+        /** Typed details of the checks, <code>null</code> if the details are not kept. */
+        private final Object[] details;
+
+        /**
+         * Ctor.
+         *
+         * @param hostCount
+         *            number of hosts
+         * @param keepDetails
+         *            <code>true</code> to keep the details of the results
+         */
+        private Column(final int hostCount, final boolean keepDetails) {
+            this.versions = new AtomicIntegerArray(hostCount);
+            this.timestamps = new long[hostCount];
+            this.latencies = new float[hostCount];
+            this.losses = new float[hostCount];
+            this.successes = new boolean[hostCount];
+            this.details = keepDetails ? new Object[hostCount] : null;
+        }
+
+        /**
+         * Writes the result of a host, waiting for a concurrent writer of the same host.
+         *
+         * @param hostId
+         *            id of the host
+         * @param result
+         *            the result
+         */
+        private void write(final int hostId, final CheckResult result) {
+            int version = versions.get(hostId);
+            while ((version & 1) != 0 || !versions.compareAndSet(hostId, version, version + 1)) {
+                Thread.onSpinWait();
+                version = versions.get(hostId);
+            }
+            VarHandle.storeStoreFence();
+            timestamps[hostId] = result.getTimestampMillis();
+            latencies[hostId] = (float) result.getLatencyMillis();
+            losses[hostId] = (float) result.getLossPercent();
+            successes[hostId] = result.isSuccess();
+            if (details != null) {
+                details[hostId] = result.getDetail();
+            }
+            versions.set(hostId, version + 2);
+        }
+
+        /**
+         * Reads the result of a host, retrying while the result is written.
+         *
+         * @param hostId
+         *            id of the host
+         * @param checkType
+         *            type name of the check of the column
+         * @return the result, or <code>null</code> if no result was written for the host
+         */
+        private CheckResult read(final int hostId, final String checkType) {
+            while (true) {
+                final int version = versions.get(hostId);
+                if (version == 0) {
+                    return null;
+                }
+                if ((version & 1) == 0) {
+                    final long timestamp = timestamps[hostId];
+                    final float latency = latencies[hostId];
+                    final float loss = losses[hostId];
+                    final boolean success = successes[hostId];
+                    final Object detail = details == null ? null : details[hostId];
+                    VarHandle.acquireFence();
+                    if (versions.get(hostId) == version) {
+                        return new CheckResult(checkType, timestamp, success, latency, loss,
+                                detail);
+                    }
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
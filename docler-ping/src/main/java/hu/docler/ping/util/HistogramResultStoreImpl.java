@@ -0,0 +1,109 @@
+package hu.docler.ping.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the results of the checks of the hosts in another {@link ResultStore}, and keeps the
+ * latencies measured by every check of every host in a {@link WindowedLatencyHistogram}, so the
+ * percentiles of the latencies over the {@link LatencyWindow}s are available for the reports and
+ * the failure thresholds. A histogram is allocated when the first latency of the check arrives,
+ * and takes {@link #BYTES_PER_CHECK} bytes whatever the number of checks executed.
+ */
+public class HistogramResultStoreImpl implements ResultStore {
+    /** Size of the histograms of a check of a host, in bytes. */
+    public static final long BYTES_PER_CHECK = (long) LatencyWindow.values().length
+            * LatencyWindow.SLOT_COUNT * LatencyHistogram.BUCKET_COUNT * 4;
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(HistogramResultStoreImpl.class);
+    /** {@link ResultStore} storing the results. */
+    private final ResultStore resultStore;
+    /**
+     * {@link Map} storing the latency histograms based on host names. For every host name holds a
+     * {@link Map} with the histograms of every type of checks.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, WindowedLatencyHistogram>>
+            histograms = new ConcurrentHashMap<String,
+                    ConcurrentHashMap<String, WindowedLatencyHistogram>>(4);
+
+    /**
+     * Ctor.
+     *
+     * @param resultStore
+     *            {@link ResultStore} storing the results
+     */
+    public HistogramResultStoreImpl(final ResultStore resultStore) {
+        if (resultStore == null) {
+            throw new IllegalArgumentException("Result store is mandatory, can't be null");
+        }
+        this.resultStore = resultStore;
+        logger.info("Keeping latency histograms, {} bytes per check of a host", BYTES_PER_CHECK);
+    }
+
+    /**
+     * Stores the result and records its latency, if measured, in the histogram of the check.
+     *
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String,
+     *      hu.docler.ping.util.CheckResult)
+     */
+    public void storeHostCheckResult(final String host, final CheckResult result) {
+        resultStore.storeHostCheckResult(host, result);
+        if (Double.isNaN(result.getLatencyMillis())) {
+            return;
+        }
+        ConcurrentHashMap<String, WindowedLatencyHistogram> hostHistograms = histograms.get(host);
+        if (hostHistograms == null) {
+            histograms.putIfAbsent(host,
+                    new ConcurrentHashMap<String, WindowedLatencyHistogram>(4));
+            hostHistograms = histograms.get(host);
+        }
+        WindowedLatencyHistogram histogram = hostHistograms.get(result.getCheckType());
+        if (histogram == null) {
+            hostHistograms.putIfAbsent(result.getCheckType(), new WindowedLatencyHistogram());
+            histogram = hostHistograms.get(result.getCheckType());
+        }
+        histogram.record(result.getTimestampMillis(), result.getLatencyMillis());
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String, java.lang.String,
+     *      java.lang.String)
+     */
+    public void storeHostCheckResult(
+            final String host,
+            final String checkType,
+            final String result) {
+        storeHostCheckResult(host, CheckResult.ofText(checkType, result));
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getResultsForHost(java.lang.String)
+     */
+    public Map<String, CheckResult> getResultsForHost(final String host) {
+        return resultStore.getResultsForHost(host);
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getReportsForHost(java.lang.String)
+     */
+    public Map<String, String> getReportsForHost(final String host) {
+        return resultStore.getReportsForHost(host);
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getLatencyHistogram(java.lang.String,
+     *      java.lang.String, hu.docler.ping.util.LatencyWindow)
+     */
+    public LatencyHistogram getLatencyHistogram(
+            final String host,
+            final String checkType,
+            final LatencyWindow window) {
+        final Map<String, WindowedLatencyHistogram> hostHistograms = histograms.get(host);
+        final WindowedLatencyHistogram histogram =
+                hostHistograms == null ? null : hostHistograms.get(checkType);
+        return histogram == null ? null : histogram.snapshot(window, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,86 @@
+package hu.docler.ping.util;
+
+/**
+ * Immutable index interning names to dense integer ids, the first name getting id zero. The names
+ * are kept in an open addressing hash table of parallel arrays, so the index takes a few bytes per
+ * name besides the names themselves and a lookup allocates nothing.
+ */
+final class IdIndex {
+    /** Names by their ids. */
+    private final String[] names;
+    /** Hash table of the names, <code>null</code> for a free slot. */
+    private final String[] tableNames;
+    /** Ids of the names in the hash table. */
+    private final int[] tableIds;
+
+    /**
+     * Ctor.
+     *
+     * @param names
+     *            the names, a name repeated gets the id of its first occurrence
+     */
+    IdIndex(final String[] names) {
+        if (names == null) {
+            throw new IllegalArgumentException("Names are mandatory, can't be null");
+        }
+        final int tableSize = Integer.highestOneBit(Math.max(2, names.length) * 2 - 1) << 1;
+        this.tableNames = new String[tableSize];
+        this.tableIds = new int[tableSize];
+        final String[] uniqueNames = new String[names.length];
+        int count = 0;
+        for (final String name : names) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Name is mandatory, can't be null or empty");
+            }
+            int slot = name.hashCode() & (tableSize - 1);
+            while (tableNames[slot] != null && !tableNames[slot].equals(name)) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            if (tableNames[slot] == null) {
+                tableNames[slot] = name;
+                tableIds[slot] = count;
+                uniqueNames[count++] = name;
+            }
+        }
+        this.names = new String[count];
+        System.arraycopy(uniqueNames, 0, this.names, 0, count);
+    }
+
+    /**
+     * Returns the id of a name.
+     *
+     * @param name
+     *            the name
+     * @return the id, or -1 if the name is not in the index
+     */
+    int getId(final String name) {
+        if (name == null) {
+            return -1;
+        }
+        final int mask = tableNames.length - 1;
+        int slot = name.hashCode() & mask;
+        while (tableNames[slot] != null) {
+            if (tableNames[slot].equals(name)) {
+                return tableIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param id
+     *            id of a name
+     * @return the name
+     */
+    String getName(final int id) {
+        return names[id];
+    }
+
+    /**
+     * @return number of names in the index, the ids run from zero to this value, exclusive
+     */
+    int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,462 @@
+package hu.docler.ping.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the results of the checks of the hosts like the {@link MapResultStoreImpl}, and appends
+ * every result to a journal of memory-mapped {@link JournalSegment} files, so the history of the
+ * checks survives a restart without a database. A result is a fixed size binary record copied
+ * into the mapped file, the operating system writes it to the disk, so appending costs about as
+ * much as storing the result in memory. The details of the results are not journaled.
+ * <p>
+ * A new segment is started when the current one is full or older than the segment duration. The
+ * hosts and the check types are written to a names file once, the records refer to them by
+ * their ids. On startup the segments are recovered by scanning their records up to the first
+ * invalid one, the last results are restored from the newest records, and the appending goes on
+ * in a new segment. The history of a check of a host is looked up through the sparse index of the
+ * segments.
+ * <p>
+ * At most the configured number of segments are kept, including the one appended to, so the
+ * journal takes at most that many times the segment size on the disk and in the address space.
+ * When a new segment is started, and on startup, the oldest segments over the limit are dropped
+ * and their files are deleted. The mapping of a dropped segment is released by the garbage
+ * collector, the journal keeps no reference to it.
+ */
+public class JournalResultStoreImpl implements ResultStore, Closeable {
+    /** Name of the file of the host and check type names. */
+    static final String NAMES_FILE = "names.dat";
+    /** Prefix of the names of the segment files. */
+    private static final String SEGMENT_PREFIX = "segment-";
+    /** Suffix of the names of the segment files. */
+    private static final String SEGMENT_SUFFIX = ".journal";
+    /** Kind of a host name entry of the names file. */
+    private static final byte HOST_NAME = 1;
+    /** Kind of a check type name entry of the names file. */
+    private static final byte CHECK_TYPE_NAME = 2;
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(JournalResultStoreImpl.class);
+    /** {@link MapResultStoreImpl} storing the last results. */
+    private final MapResultStoreImpl lastResults = new MapResultStoreImpl();
+    /** Directory of the journal. */
+    private final File directory;
+    /** Size of a segment file, in bytes. */
+    private final long segmentSize;
+    /** Age after which a new segment is started, in milliseconds. */
+    private final long segmentMillis;
+    /** Maximal number of segments kept. */
+    private final int maxSegments;
+    /** Ids of the hosts, based on host names. */
+    private final Map<String, Integer> hostIds = new HashMap<String, Integer>();
+    /** Ids of the check types, based on check type names. */
+    private final Map<String, Integer> checkTypeIds = new HashMap<String, Integer>();
+    /** Channel appending to the names file. */
+    private final FileChannel namesChannel;
+    /** Segments of the journal, oldest first, the last one is appended to. */
+    private final List<JournalSegment> segments = new ArrayList<JournalSegment>();
+    /** Sequence number of the next segment. */
+    private long nextSegmentNumber;
+    /** Segment appended to, <code>null</code> until the first result after startup. */
+    private JournalSegment currentSegment;
+
+    /**
+     * Ctor, recovers the journal of the directory.
+     *
+     * @param directory
+     *            directory of the journal, created if it doesn't exist
+     * @param segmentSize
+     *            size of a segment file, in bytes
+     * @param segmentMillis
+     *            age after which a new segment is started, in milliseconds
+     * @param maxSegments
+     *            maximal number of segments kept, the oldest ones are deleted
+     * @throws IOException
+     *             If the journal can't be opened or recovered.
+     */
+    public JournalResultStoreImpl(
+            final File directory,
+            final long segmentSize,
+            final long segmentMillis,
+            final int maxSegments) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory is mandatory, can't be null");
+        }
+        if (segmentSize < JournalSegment.HEADER_SIZE + JournalSegment.RECORD_SIZE
+                || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        if (segmentMillis <= 0) {
+            throw new IllegalArgumentException("Segment duration must be greater than zero");
+        }
+        if (maxSegments <= 0) {
+            throw new IllegalArgumentException("Segment count must be greater than zero");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create journal directory: " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentMillis = segmentMillis;
+        this.maxSegments = maxSegments;
+        this.namesChannel = openNames();
+        try {
+            recoverSegments();
+        } catch (final IOException e) {
+            namesChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Stores the result as the last one and appends it to the journal.
+     *
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String,
+     *      hu.docler.ping.util.CheckResult)
+     */
+    public void storeHostCheckResult(final String host, final CheckResult result) {
+        lastResults.storeHostCheckResult(host, result);
+        try {
+            append(host, result);
+        } catch (final IOException e) {
+            logger.error("Failed to journal result of check type ({}) for host ({})",
+                    result.getCheckType(), host, e);
+        }
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String, java.lang.String,
+     *      java.lang.String)
+     */
+    public void storeHostCheckResult(
+            final String host,
+            final String checkType,
+            final String result) {
+        storeHostCheckResult(host, CheckResult.ofText(checkType, result));
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getResultsForHost(java.lang.String)
+     */
+    public Map<String, CheckResult> getResultsForHost(final String host) {
+        return lastResults.getResultsForHost(host);
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getReportsForHost(java.lang.String)
+     */
+    public Map<String, String> getReportsForHost(final String host) {
+        return lastResults.getReportsForHost(host);
+    }
+
+    /**
+     * Latency histograms are not kept, returns <code>null</code>.
+     *
+     * @see hu.docler.ping.util.ResultStore#getLatencyHistogram(java.lang.String,
+     *      java.lang.String, hu.docler.ping.util.LatencyWindow)
+     */
+    public LatencyHistogram getLatencyHistogram(
+            final String host,
+            final String checkType,
+            final LatencyWindow window) {
+        return null;
+    }
+
+    /**
+     * Returns the journaled results of a check of a host in a time range, without their details.
+     *
+     * @param host
+     *            host name value
+     * @param checkType
+     *            type name of the check
+     * @param fromMillis
+     *            start of the time range, inclusive, in milliseconds since the epoch
+     * @param toMillis
+     *            end of the time range, inclusive, in milliseconds since the epoch
+     * @return the results, in the order they were stored
+     */
+    public synchronized List<CheckResult> readHistory(
+            final String host,
+            final String checkType,
+            final long fromMillis,
+            final long toMillis) {
+        final List<CheckResult> results = new ArrayList<CheckResult>();
+        final Integer hostId = hostIds.get(host);
+        final Integer checkTypeId = checkTypeIds.get(checkType);
+        if (hostId == null || checkTypeId == null) {
+            return results;
+        }
+        for (final JournalSegment segment : segments) {
+            segment.read(hostId, checkTypeId, checkType, fromMillis, toMillis, results);
+        }
+        return results;
+    }
+
+    /**
+     * @return number of segments of the journal
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return number of records in the segments of the journal
+     */
+    public synchronized long getRecordCount() {
+        long recordCount = 0;
+        for (final JournalSegment segment : segments) {
+            recordCount += segment.getRecordCount();
+        }
+        return recordCount;
+    }
+
+    /**
+     * Writes the current segment to the storage device and closes the names file.
+     *
+     * @see Closeable#close()
+     */
+    public synchronized void close() throws IOException {
+        if (currentSegment != null) {
+            currentSegment.force();
+            currentSegment = null;
+        }
+        namesChannel.close();
+    }
+
+    /**
+     * Appends a result to the current segment, starting a new segment if the current one is full
+     * or too old.
+     *
+     * @param host
+     *            host name value
+     * @param result
+     *            the result
+     * @throws IOException
+     *             If a name or a new segment can't be written.
+     */
+    private synchronized void append(final String host, final CheckResult result)
+            throws IOException {
+        final int hostId = getId(hostIds, HOST_NAME, host);
+        final int checkTypeId = getId(checkTypeIds, CHECK_TYPE_NAME, result.getCheckType());
+        final long now = System.currentTimeMillis();
+        if (currentSegment == null || now - currentSegment.getCreatedMillis() >= segmentMillis
+                || !currentSegment.append(hostId, checkTypeId, result)) {
+            rollOver(now);
+            currentSegment.append(hostId, checkTypeId, result);
+        }
+    }
+
+    /**
+     * Starts a new segment, dropping the oldest segments over the limit.
+     *
+     * @param now
+     *            current time, in milliseconds since the epoch
+     * @throws IOException
+     *             If the segment can't be created.
+     */
+    private void rollOver(final long now) throws IOException {
+        if (currentSegment != null) {
+            currentSegment.force();
+        }
+        final File file = new File(directory,
+                String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+        currentSegment = JournalSegment.create(file, segmentSize, now);
+        segments.add(currentSegment);
+        logger.info("Started journal segment: {}", file);
+        dropOldSegments();
+    }
+
+    /**
+     * Drops the oldest segments over the limit of the segments kept, deleting their files.
+     */
+    private void dropOldSegments() {
+        while (segments.size() > maxSegments) {
+            final File file = segments.remove(0).getFile();
+            if (file.delete()) {
+                logger.info("Deleted journal segment: {}", file);
+            } else {
+                logger.warn("Failed to delete journal segment: {}", file);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a name, writing the name to the names file if it's new.
+     *
+     * @param ids
+     *            ids of the names of the kind
+     * @param kind
+     *            kind of the name
+     * @param name
+     *            the name
+     * @return id of the name
+     * @throws IOException
+     *             If the name can't be written.
+     */
+    private int getId(final Map<String, Integer> ids, final byte kind, final String name)
+            throws IOException {
+        final Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer entry = ByteBuffer.allocate(1 + 2 + nameBytes.length + 4);
+        entry.put(kind).putShort((short) nameBytes.length).put(nameBytes);
+        final CRC32C checksum = new CRC32C();
+        checksum.update(entry.array(), 0, entry.position());
+        entry.putInt((int) checksum.getValue());
+        entry.flip();
+        while (entry.hasRemaining()) {
+            namesChannel.write(entry);
+        }
+        ids.put(name, ids.size());
+        return ids.size() - 1;
+    }
+
+    /**
+     * Opens the names file, reading the names written before. The entries are valid up to the
+     * first one failing its checksum, the file is cut there.
+     *
+     * @return channel appending to the names file
+     * @throws IOException
+     *             If the names file can't be opened.
+     */
+    private FileChannel openNames() throws IOException {
+        final File file = new File(directory, NAMES_FILE);
+        if (file.exists()) {
+            final byte[] content;
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                content = new byte[(int) randomAccessFile.length()];
+                randomAccessFile.readFully(content);
+                final int validLength = readNames(ByteBuffer.wrap(content));
+                if (validLength < content.length) {
+                    logger.warn("Cutting the invalid end of the journal names file at {} bytes",
+                            validLength);
+                    randomAccessFile.setLength(validLength);
+                }
+            } finally {
+                randomAccessFile.close();
+            }
+        }
+        return new FileOutputStream(file, true).getChannel();
+    }
+
+    /**
+     * Reads the entries of the names file.
+     *
+     * @param content
+     *            content of the names file
+     * @return length of the valid entries, in bytes
+     */
+    private int readNames(final ByteBuffer content) {
+        final CRC32C checksum = new CRC32C();
+        while (content.remaining() >= 1 + 2 + 4) {
+            final int start = content.position();
+            final byte kind = content.get();
+            final int length = content.getShort() & 0xffff;
+            if (content.remaining() < length + 4 || kind != HOST_NAME && kind != CHECK_TYPE_NAME) {
+                content.position(start);
+                break;
+            }
+            final String name =
+                    new String(content.array(), content.position(), length, StandardCharsets.UTF_8);
+            content.position(content.position() + length);
+            checksum.reset();
+            checksum.update(content.array(), start, content.position() - start);
+            if ((int) checksum.getValue() != content.getInt()) {
+                content.position(start);
+                break;
+            }
+            final Map<String, Integer> ids = kind == HOST_NAME ? hostIds : checkTypeIds;
+            ids.put(name, ids.size());
+        }
+        return content.position();
+    }
+
+    /**
+     * Recovers the segments of the directory, oldest first, and restores the last results of the
+     * checks of the hosts from their newest records.
+     *
+     * @throws IOException
+     *             If a segment can't be mapped.
+     */
+    private void recoverSegments() throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Failed to list journal directory: " + directory);
+        }
+        Arrays.sort(files);
+        for (final File file : files) {
+            final String fileName = file.getName();
+            if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            final JournalSegment segment =
+                    JournalSegment.recover(file, hostIds.size(), checkTypeIds.size());
+            if (segment == null) {
+                logger.warn("Skipping invalid journal segment: {}", file);
+                continue;
+            }
+            segments.add(segment);
+            nextSegmentNumber = Math.max(nextSegmentNumber, Long.parseLong(fileName.substring(
+                    SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length())) + 1);
+        }
+        dropOldSegments();
+        restoreLastResults();
+        logger.info("Recovered {} records of {} hosts from {} journal segments",
+                getRecordCount(), hostIds.size(), segments.size());
+    }
+
+    /**
+     * Restores the last results of the checks of the hosts, reading the records from the newest
+     * one backwards until every check of every host has its result.
+     */
+    private void restoreLastResults() {
+        final String[] hosts = getNames(hostIds);
+        final String[] checkTypes = getNames(checkTypeIds);
+        final BitSet restored = new BitSet();
+        final int pairCount = hosts.length * checkTypes.length;
+        for (int s = segments.size() - 1; s >= 0 && restored.cardinality() < pairCount; s--) {
+            final JournalSegment segment = segments.get(s);
+            for (int i = segment.getRecordCount() - 1; i >= 0; i--) {
+                final int hostId = segment.getHostId(i);
+                final int checkTypeId = segment.getCheckTypeId(i);
+                final int pair = hostId * checkTypes.length + checkTypeId;
+                if (!restored.get(pair)) {
+                    restored.set(pair);
+                    lastResults.storeHostCheckResult(hosts[hostId],
+                            segment.readResult(i, checkTypes[checkTypeId]));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param ids
+     *            ids based on names
+     * @return the names by their ids
+     */
+    private static String[] getNames(final Map<String, Integer> ids) {
+        final String[] names = new String[ids.size()];
+        for (final Map.Entry<String, Integer> entry : ids.entrySet()) {
+            names[entry.getValue()] = entry.getKey();
+        }
+        return names;
+    }
+}
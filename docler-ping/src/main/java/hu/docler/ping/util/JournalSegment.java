@@ -0,0 +1,347 @@
+package hu.docler.ping.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Segment file of the {@link JournalResultStoreImpl}, mapped into memory. The file starts with a
+ * header of {@link #HEADER_SIZE} bytes, followed by records of {@link #RECORD_SIZE} bytes: the
+ * host id, the check type id, the status, the timestamp, the latency, the loss and a CRC-32C of
+ * the record. The records are aligned to their size, so a record never spans two pages of the
+ * file, and the first record failing its checksum or referring to an unknown name ends the
+ * segment when it is recovered after a crash.
+ * <p>
+ * The segment keeps a sparse index: the lowest and the highest timestamp of every block of
+ * {@link #INDEX_INTERVAL} records, and the set of the hosts having a record in the segment, so a
+ * lookup skips the segments and the blocks not holding the host or the time range. A segment is
+ * not thread-safe.
+ */
+final class JournalSegment {
+    /** Size of the header of a segment, in bytes. */
+    static final int HEADER_SIZE = 32;
+    /** Size of a record, in bytes. */
+    static final int RECORD_SIZE = 32;
+    /** Number of records of an index block. */
+    static final int INDEX_INTERVAL = 256;
+    /** Magic number of the segment files, <code>DPJ1</code>. */
+    private static final int MAGIC = 0x44504A31;
+    /** Offset of the host id in a record. */
+    private static final int HOST_OFFSET = 0;
+    /** Offset of the check type id in a record. */
+    private static final int CHECK_TYPE_OFFSET = 4;
+    /** Offset of the status in a record. */
+    private static final int STATUS_OFFSET = 6;
+    /** Offset of the timestamp in a record. */
+    private static final int TIMESTAMP_OFFSET = 8;
+    /** Offset of the latency in a record. */
+    private static final int LATENCY_OFFSET = 16;
+    /** Offset of the loss in a record. */
+    private static final int LOSS_OFFSET = 24;
+    /** Offset of the checksum in a record, the checksum covers the bytes before it. */
+    private static final int CHECKSUM_OFFSET = 28;
+    /** The segment file. */
+    private final File file;
+    /** Mapped content of the file. */
+    private final MappedByteBuffer buffer;
+    /** Number of records the segment can hold. */
+    private final int capacity;
+    /** Creation time of the segment, in milliseconds since the epoch. */
+    private final long createdMillis;
+    /** Hosts having a record in the segment, by host id. */
+    private final BitSet hosts = new BitSet();
+    /** Record encoded before it's copied into the file. */
+    private final byte[] record = new byte[RECORD_SIZE];
+    /** {@link ByteBuffer} view of the record. */
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+    /** Checksum of the records. */
+    private final CRC32C checksum = new CRC32C();
+    /** Lowest timestamps of the index blocks. */
+    private long[] blockMinTimestamps = new long[4];
+    /** Highest timestamps of the index blocks. */
+    private long[] blockMaxTimestamps = new long[4];
+    /** Number of records in the segment. */
+    private int recordCount;
+
+    /**
+     * Ctor.
+     *
+     * @param file
+     *            the segment file
+     * @param buffer
+     *            mapped content of the file
+     * @param createdMillis
+     *            creation time of the segment
+     */
+    private JournalSegment(
+            final File file,
+            final MappedByteBuffer buffer,
+            final long createdMillis) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        this.createdMillis = createdMillis;
+    }
+
+    /**
+     * Creates a new, empty segment file.
+     *
+     * @param file
+     *            the segment file, not existing yet
+     * @param size
+     *            size of the file, in bytes
+     * @param createdMillis
+     *            creation time of the segment
+     * @return the segment, open for appending
+     * @throws IOException
+     *             If the file can't be created or mapped.
+     */
+    static JournalSegment create(final File file, final long size, final long createdMillis)
+            throws IOException {
+        final MappedByteBuffer buffer = map(file, FileChannel.MapMode.READ_WRITE, size);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, RECORD_SIZE);
+        buffer.putLong(8, createdMillis);
+        return new JournalSegment(file, buffer, createdMillis);
+    }
+
+    /**
+     * Opens an existing segment file read-only and recovers its records, the records are valid up
+     * to the first one failing its checksum or referring to an unknown name.
+     *
+     * @param file
+     *            the segment file
+     * @param hostCount
+     *            number of the hosts known, the valid host ids are below it
+     * @param checkTypeCount
+     *            number of the check types known, the valid check type ids are below it
+     * @return the segment, or <code>null</code> if the file isn't a segment
+     * @throws IOException
+     *             If the file can't be mapped.
+     */
+    static JournalSegment recover(
+            final File file,
+            final int hostCount,
+            final int checkTypeCount) throws IOException {
+        if (file.length() < HEADER_SIZE) {
+            return null;
+        }
+        final MappedByteBuffer buffer = map(file, FileChannel.MapMode.READ_ONLY, file.length());
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORD_SIZE) {
+            return null;
+        }
+        final JournalSegment segment = new JournalSegment(file, buffer, buffer.getLong(8));
+        while (segment.recordCount < segment.capacity) {
+            final int offset = getOffset(segment.recordCount);
+            buffer.get(offset, segment.record);
+            segment.checksum.reset();
+            segment.checksum.update(segment.record, 0, CHECKSUM_OFFSET);
+            final int hostId = segment.recordBuffer.getInt(HOST_OFFSET);
+            final int checkTypeId = segment.recordBuffer.getShort(CHECK_TYPE_OFFSET);
+            if ((int) segment.checksum.getValue() != segment.recordBuffer.getInt(CHECKSUM_OFFSET)
+                    || hostId < 0 || hostId >= hostCount
+                    || checkTypeId < 0 || checkTypeId >= checkTypeCount) {
+                break;
+            }
+            segment.index(hostId, segment.recordBuffer.getLong(TIMESTAMP_OFFSET));
+        }
+        return segment;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param hostId
+     *            id of the host
+     * @param checkTypeId
+     *            id of the check type
+     * @param result
+     *            the result
+     * @return <code>true</code> if the record was appended, <code>false</code> if the segment is
+     *         full
+     */
+    boolean append(final int hostId, final int checkTypeId, final CheckResult result) {
+        if (recordCount >= capacity) {
+            return false;
+        }
+        recordBuffer.putInt(HOST_OFFSET, hostId);
+        recordBuffer.putShort(CHECK_TYPE_OFFSET, (short) checkTypeId);
+        recordBuffer.put(STATUS_OFFSET, (byte) (result.isSuccess() ? 1 : 0));
+        recordBuffer.putLong(TIMESTAMP_OFFSET, result.getTimestampMillis());
+        recordBuffer.putDouble(LATENCY_OFFSET, result.getLatencyMillis());
+        recordBuffer.putFloat(LOSS_OFFSET, (float) result.getLossPercent());
+        checksum.reset();
+        checksum.update(record, 0, CHECKSUM_OFFSET);
+        recordBuffer.putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+        buffer.put(getOffset(recordCount), record);
+        index(hostId, result.getTimestampMillis());
+        return true;
+    }
+
+    /**
+     * Reads the records of a check of a host in a time range, oldest first.
+     *
+     * @param hostId
+     *            id of the host
+     * @param checkTypeId
+     *            id of the check type
+     * @param checkType
+     *            type name of the check
+     * @param fromMillis
+     *            start of the time range, inclusive
+     * @param toMillis
+     *            end of the time range, inclusive
+     * @param results
+     *            list the results are added to
+     */
+    void read(
+            final int hostId,
+            final int checkTypeId,
+            final String checkType,
+            final long fromMillis,
+            final long toMillis,
+            final List<CheckResult> results) {
+        if (!hosts.get(hostId)) {
+            return;
+        }
+        final int blockCount = (recordCount + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        for (int block = 0; block < blockCount; block++) {
+            if (blockMaxTimestamps[block] < fromMillis || blockMinTimestamps[block] > toMillis) {
+                continue;
+            }
+            final int end = Math.min(recordCount, (block + 1) * INDEX_INTERVAL);
+            for (int i = block * INDEX_INTERVAL; i < end; i++) {
+                final int offset = getOffset(i);
+                final long timestamp = buffer.getLong(offset + TIMESTAMP_OFFSET);
+                if (buffer.getInt(offset + HOST_OFFSET) == hostId
+                        && buffer.getShort(offset + CHECK_TYPE_OFFSET) == checkTypeId
+                        && timestamp >= fromMillis && timestamp <= toMillis) {
+                    results.add(readResult(i, checkType));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a record as a result, without detail.
+     *
+     * @param index
+     *            index of the record
+     * @param checkType
+     *            type name of the check of the record
+     * @return the result
+     */
+    CheckResult readResult(final int index, final String checkType) {
+        final int offset = getOffset(index);
+        return new CheckResult(checkType, buffer.getLong(offset + TIMESTAMP_OFFSET),
+                buffer.get(offset + STATUS_OFFSET) != 0,
+                buffer.getDouble(offset + LATENCY_OFFSET), buffer.getFloat(offset + LOSS_OFFSET),
+                null);
+    }
+
+    /**
+     * @param index
+     *            index of a record
+     * @return id of the host of the record
+     */
+    int getHostId(final int index) {
+        return buffer.getInt(getOffset(index) + HOST_OFFSET);
+    }
+
+    /**
+     * @param index
+     *            index of a record
+     * @return id of the check type of the record
+     */
+    int getCheckTypeId(final int index) {
+        return buffer.getShort(getOffset(index) + CHECK_TYPE_OFFSET);
+    }
+
+    /**
+     * Writes the records appended to the storage device.
+     */
+    void force() {
+        if (!buffer.isReadOnly()) {
+            buffer.force();
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Adds the record appended or recovered last to the index.
+     *
+     * @param hostId
+     *            id of the host of the record
+     * @param timestampMillis
+     *            timestamp of the record
+     */
+    private void index(final int hostId, final long timestampMillis) {
+        final int block = recordCount / INDEX_INTERVAL;
+        if (block == blockMinTimestamps.length) {
+            blockMinTimestamps = Arrays.copyOf(blockMinTimestamps, block * 2);
+            blockMaxTimestamps = Arrays.copyOf(blockMaxTimestamps, block * 2);
+        }
+        if (recordCount % INDEX_INTERVAL == 0) {
+            blockMinTimestamps[block] = timestampMillis;
+            blockMaxTimestamps[block] = timestampMillis;
+        } else {
+            blockMinTimestamps[block] = Math.min(blockMinTimestamps[block], timestampMillis);
+            blockMaxTimestamps[block] = Math.max(blockMaxTimestamps[block], timestampMillis);
+        }
+        hosts.set(hostId);
+        recordCount++;
+    }
+
+    /**
+     * @param index
+     *            index of a record
+     * @return offset of the record in the file
+     */
+    private static int getOffset(final int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    /**
+     * Maps a file into memory, the channel of the file is closed, the mapping stays valid.
+     *
+     * @param file
+     *            the file
+     * @param mode
+     *            mapping mode
+     * @param size
+     *            size of the mapping, the file is grown to it if needed
+     * @return the mapping
+     * @throws IOException
+     *             If the file can't be mapped.
+     */
+    private static MappedByteBuffer map(
+            final File file,
+            final FileChannel.MapMode mode,
+            final long size) throws IOException {
+        final RandomAccessFile randomAccessFile =
+                new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+        try {
+            return randomAccessFile.getChannel().map(mode, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
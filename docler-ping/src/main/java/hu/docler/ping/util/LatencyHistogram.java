@@ -0,0 +1,189 @@
+package hu.docler.ping.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed memory histogram of latencies with logarithmic buckets, in the manner of HdrHistogram.
+ * The latencies are counted in microseconds: the values below 32 microseconds have a bucket each,
+ * above that every power of two is split into 16 buckets, so the width of a bucket is at most
+ * 1/16 of its values. Latencies above
+ * {@link #MAX_LATENCY_MICROS} are counted in the last bucket. A histogram takes
+ * {@link #BUCKET_COUNT} counters whatever it records, recording is O(1) and allocates nothing,
+ * histograms are merged by adding their counters.
+ * <p>
+ * A histogram is not thread-safe.
+ */
+public final class LatencyHistogram {
+    /** Bits of the values counted in linear buckets. */
+    private static final int LINEAR_BITS = 5;
+    /** Number of linear buckets, the values below it have a bucket each. */
+    private static final int LINEAR_BUCKETS = 1 << LINEAR_BITS;
+    /** Number of buckets a power of two is split into above the linear buckets. */
+    private static final int BUCKETS_PER_POWER = LINEAR_BUCKETS / 2;
+    /** Highest latency counted in its own bucket, in microseconds (about 134 seconds). */
+    public static final long MAX_LATENCY_MICROS = (1L << 27) - 1;
+    /** Number of buckets of a histogram. */
+    public static final int BUCKET_COUNT = getBucketIndex(MAX_LATENCY_MICROS) + 1;
+    /** Counters of the buckets. */
+    private final int[] counts = new int[BUCKET_COUNT];
+    /** Number of latencies recorded. */
+    private long totalCount;
+    /** Lowest latency recorded, in microseconds. */
+    private long minMicros = Long.MAX_VALUE;
+    /** Highest latency recorded, in microseconds. */
+    private long maxMicros;
+
+    /**
+     * Records a latency.
+     *
+     * @param latencyMillis
+     *            the latency in milliseconds, ignored if it's NaN or negative
+     */
+    public void record(final double latencyMillis) {
+        if (!(latencyMillis >= 0)) {
+            return;
+        }
+        final long micros = Math.min(MAX_LATENCY_MICROS, Math.round(latencyMillis * 1000));
+        counts[getBucketIndex(micros)]++;
+        totalCount++;
+        minMicros = Math.min(minMicros, micros);
+        maxMicros = Math.max(maxMicros, micros);
+    }
+
+    /**
+     * Adds the latencies recorded by another histogram to this one.
+     *
+     * @param other
+     *            the other histogram, left unchanged
+     */
+    public void add(final LatencyHistogram other) {
+        if (other.totalCount == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        minMicros = Math.min(minMicros, other.minMicros);
+        maxMicros = Math.max(maxMicros, other.maxMicros);
+    }
+
+    /**
+     * Clears the histogram.
+     */
+    public void reset() {
+        if (totalCount > 0) {
+            Arrays.fill(counts, 0);
+        }
+        totalCount = 0;
+        minMicros = Long.MAX_VALUE;
+        maxMicros = 0;
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return highest latency recorded in milliseconds, NaN if none was recorded
+     */
+    public double getMaxMillis() {
+        return totalCount == 0 ? Double.NaN : maxMicros / 1000.0;
+    }
+
+    /**
+     * Returns the latency a given percentage of the latencies recorded doesn't exceed: the middle
+     * of the bucket holding it, bounded by the lowest and the highest latency recorded, or the
+     * lowest or the highest latency itself.
+     *
+     * @param percentile
+     *            the percentage, between 0 and 100
+     * @return the latency in milliseconds, NaN if none was recorded
+     */
+    public double getPercentileMillis(final double percentile) {
+        if (totalCount == 0) {
+            return Double.NaN;
+        }
+        final long rank = Math.max(1,
+                (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * totalCount));
+        if (rank == 1) {
+            return minMicros / 1000.0;
+        } else if (rank == totalCount) {
+            return maxMicros / 1000.0;
+        }
+        long cumulativeCount = 0;
+        int index = 0;
+        while (index < BUCKET_COUNT - 1) {
+            cumulativeCount += counts[index];
+            if (cumulativeCount >= rank) {
+                break;
+            }
+            index++;
+        }
+        final long middle = (getBucketLowerBound(index) + getBucketUpperBound(index)) / 2;
+        return Math.min(maxMicros, Math.max(minMicros, middle)) / 1000.0;
+    }
+
+    /**
+     * Appends the median, the 95th and the 99th percentile and the count of the latencies, like
+     * <code>p50=1.2 p95=3.4 p99=5.6 ms (n=12)</code>.
+     *
+     * @param sb
+     *            the builder
+     * @return the builder
+     */
+    public StringBuilder appendTo(final StringBuilder sb) {
+        sb.append("p50=").append(getPercentileMillis(50));
+        sb.append(" p95=").append(getPercentileMillis(95));
+        sb.append(" p99=").append(getPercentileMillis(99));
+        return sb.append(" ms (n=").append(totalCount).append(')');
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * @param micros
+     *            a latency in microseconds, between zero and {@link #MAX_LATENCY_MICROS}
+     * @return index of the bucket counting the latency
+     */
+    private static int getBucketIndex(final long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(micros) - LINEAR_BITS + 1;
+        return LINEAR_BUCKETS + (shift - 1) * BUCKETS_PER_POWER
+                + (int) (micros >>> shift) - BUCKETS_PER_POWER;
+    }
+
+    /**
+     * @param index
+     *            index of a bucket
+     * @return lowest latency counted by the bucket, in microseconds
+     */
+    private static long getBucketLowerBound(final int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - LINEAR_BUCKETS) / BUCKETS_PER_POWER + 1;
+        return ((long) (index - LINEAR_BUCKETS) % BUCKETS_PER_POWER + BUCKETS_PER_POWER) << shift;
+    }
+
+    /**
+     * @param index
+     *            index of a bucket
+     * @return highest latency counted by the bucket, in microseconds
+     */
+    private static long getBucketUpperBound(final int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - LINEAR_BUCKETS) / BUCKETS_PER_POWER + 1;
+        return getBucketLowerBound(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,50 @@
+package hu.docler.ping.util;
+
+/**
+ * Sliding windows the latency percentiles are kept for. A window is split into
+ * {@link #SLOT_COUNT} slots rotating as the time passes: a window covers its current, partial slot
+ * and the previous slots, so at least three quarters of its length.
+ */
+public enum LatencyWindow {
+    /** Last minute. */
+    ONE_MINUTE("1m", 60000),
+    /** Last five minutes. */
+    FIVE_MINUTES("5m", 300000),
+    /** Last hour. */
+    ONE_HOUR("1h", 3600000);
+
+    /** Number of slots a window is split into. */
+    public static final int SLOT_COUNT = 4;
+    /** Short name of the window. */
+    private final String label;
+    /** Length of the window, in milliseconds. */
+    private final long lengthMillis;
+
+    /**
+     * Ctor.
+     *
+     * @param label
+     *            short name of the window
+     * @param lengthMillis
+     *            length of the window, in milliseconds
+     */
+    LatencyWindow(final String label, final long lengthMillis) {
+        this.label = label;
+        this.lengthMillis = lengthMillis;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getLengthMillis() {
+        return lengthMillis;
+    }
+
+    /**
+     * @return length of a slot of the window, in milliseconds
+     */
+    public long getSlotMillis() {
+        return lengthMillis / SLOT_COUNT;
+    }
+}
@@ -3,6 +3,7 @@ package hu.docler.ping.util;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,16 +11,21 @@ import org.slf4j.LoggerFactory;
 /**
  * Stores the results of the checks of the hosts using {@link ConcurrentHashMap} objects. Stores the
  * last check's execution result for each check style for each host.
+ * <p>
+ * The results of a host are kept in an immutable {@link ResultSnapshot}, replaced atomically by a
+ * compare-and-set when a result arrives, so the writers never lock or corrupt each other and only
+ * the writers of the same host may retry. The readers get the current snapshot itself, a
+ * consistent point-in-time view taken without locking or copying.
  */
 public class MapResultStoreImpl implements ResultStore {
     /** {@link Logger} instance. */
     private final Logger logger = LoggerFactory.getLogger(MapResultStoreImpl.class);
     /**
-     * {@link Map} storing check results based on host names. For every host name holds a
-     * {@link Map} with the results for every type of checks.
+     * {@link Map} storing check results based on host names. For every host name holds the
+     * reference of the current {@link ResultSnapshot} of the results for every type of checks.
      */
-    private final ConcurrentHashMap<String, Map<String, String>> resultStore =
-            new ConcurrentHashMap<String, Map<String, String>>(4);
+    private final ConcurrentHashMap<String, AtomicReference<ResultSnapshot>> resultStore =
+            new ConcurrentHashMap<String, AtomicReference<ResultSnapshot>>(4);
 
     /**
      * Ctor.
@@ -28,6 +34,34 @@ public class MapResultStoreImpl implements ResultStore {
         super();
     }
 
+    /**
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String,
+     *      hu.docler.ping.util.CheckResult)
+     */
+    public void storeHostCheckResult(final String host, final CheckResult result) {
+        if (host == null || host.isEmpty()) {
+            throw new IllegalArgumentException("Host is mandatory");
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("Result is mandatory, can't be null");
+        }
+        logger.debug("Storing {} result for check type ({}) and host ({})",
+                result.isSuccess() ? "successful" : "failed", result.getCheckType(), host);
+        AtomicReference<ResultSnapshot> hostSnapshot = resultStore.get(host);
+        if (hostSnapshot == null) {
+            // the snapshot of a new host is published with its first result, never empty
+            hostSnapshot = resultStore.putIfAbsent(host,
+                    new AtomicReference<ResultSnapshot>(ResultSnapshot.of(result)));
+            if (hostSnapshot == null) {
+                return;
+            }
+        }
+        ResultSnapshot current;
+        do {
+            current = hostSnapshot.get();
+        } while (!hostSnapshot.compareAndSet(current, current.with(result)));
+    }
+
     /**
      * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String, java.lang.String,
      *      java.lang.String)
@@ -36,23 +70,55 @@ public class MapResultStoreImpl implements ResultStore {
             final String host,
             final String checkType,
             final String result) {
-        if (host == null || host.isEmpty()) {
-            throw new IllegalArgumentException("Host is mandatory");
-        }
-        if (checkType == null || checkType.isEmpty()) {
-            throw new IllegalArgumentException("CheckType is mandatory");
-        }
-        resultStore.putIfAbsent(host, new HashMap<String, String>(2));
-        final Map<String, String> hostResultMap = resultStore.get(host);
-        logger.debug("Storing result ({}) for check type ({}) and host ({})", result, checkType,
-                host);
-        hostResultMap.put(checkType, result);
+        storeHostCheckResult(host, CheckResult.ofText(checkType, result));
+    }
+
+    /**
+     * Returns the current {@link ResultSnapshot} of the host, not changed by later results.
+     *
+     * @see hu.docler.ping.util.ResultStore#getResultsForHost(java.lang.String)
+     */
+    public Map<String, CheckResult> getResultsForHost(final String host) {
+        final AtomicReference<ResultSnapshot> hostSnapshot = resultStore.get(host);
+        return hostSnapshot == null ? null : hostSnapshot.get();
     }
 
     /**
      * @see hu.docler.ping.util.ResultStore#getReportsForHost(java.lang.String)
      */
     public Map<String, String> getReportsForHost(final String host) {
-        return resultStore.get(host);
+        return renderResults(getResultsForHost(host));
+    }
+
+    /**
+     * Latency histograms are not kept, returns <code>null</code>.
+     *
+     * @see hu.docler.ping.util.ResultStore#getLatencyHistogram(java.lang.String,
+     *      java.lang.String, hu.docler.ping.util.LatencyWindow)
+     */
+    public LatencyHistogram getLatencyHistogram(
+            final String host,
+            final String checkType,
+            final LatencyWindow window) {
+        return null;
+    }
+
+    /**
+     * Renders the texts of the results of a host.
+     *
+     * @param results
+     *            {@link Map} of the results of the host, may be <code>null</code>
+     * @return {@link Map} of the texts of the results, or <code>null</code> if the results are
+     *         <code>null</code>
+     */
+    private static Map<String, String> renderResults(final Map<String, CheckResult> results) {
+        if (results == null) {
+            return null;
+        }
+        final Map<String, String> reports = new HashMap<String, String>(results.size() * 2);
+        for (final Map.Entry<String, CheckResult> entry : results.entrySet()) {
+            reports.put(entry.getKey(), entry.getValue().getText());
+        }
+        return reports;
     }
 }
@@ -0,0 +1,152 @@
+package hu.docler.ping.util;
+
+import java.util.Properties;
+
+/**
+ * Helper functions for loading typed values from the application {@link Properties}.
+ */
+public final class PropertyUtil {
+
+    /**
+     * Ctor.
+     */
+    private PropertyUtil() {
+        super();
+    }
+
+    /**
+     * Loads a {@link String} property value. If the property is missing or empty returns the given
+     * default value.
+     *
+     * @param properties
+     *            application properties
+     * @param propertyName
+     *            name of the property
+     * @param defaultValue
+     *            value used if the property is not set
+     * @return the property value, or the default value if the property is not set
+     */
+    public static String getString(
+            final Properties properties,
+            final String propertyName,
+            final String defaultValue) {
+        final String value = properties.getProperty(propertyName);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Loads an integer property value. If the property is missing or empty returns the given
+     * default value.
+     *
+     * @param properties
+     *            application properties
+     * @param propertyName
+     *            name of the property
+     * @param defaultValue
+     *            value used if the property is not set
+     * @return the property value, or the default value if the property is not set
+     * @throws IllegalArgumentException
+     *             If the property value is not a valid integer.
+     */
+    public static int getInt(
+            final Properties properties,
+            final String propertyName,
+            final int defaultValue) {
+        final String value = getString(properties, propertyName, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Invalid integer value (" + value + ") of " + propertyName + " property", e);
+        }
+    }
+
+    /**
+     * Loads a long property value. If the property is missing or empty returns the given default
+     * value.
+     *
+     * @param properties
+     *            application properties
+     * @param propertyName
+     *            name of the property
+     * @param defaultValue
+     *            value used if the property is not set
+     * @return the property value, or the default value if the property is not set
+     * @throws IllegalArgumentException
+     *             If the property value is not a valid long.
+     */
+    public static long getLong(
+            final Properties properties,
+            final String propertyName,
+            final long defaultValue) {
+        final String value = getString(properties, propertyName, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Invalid long value (" + value + ") of " + propertyName + " property", e);
+        }
+    }
+
+    /**
+     * Loads a double property value. If the property is missing or empty returns the given default
+     * value.
+     *
+     * @param properties
+     *            application properties
+     * @param propertyName
+     *            name of the property
+     * @param defaultValue
+     *            value used if the property is not set
+     * @return the property value, or the default value if the property is not set
+     * @throws IllegalArgumentException
+     *             If the property value is not a valid number.
+     */
+    public static double getDouble(
+            final Properties properties,
+            final String propertyName,
+            final double defaultValue) {
+        final String value = getString(properties, propertyName, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Invalid numeric value (" + value + ") of " + propertyName + " property", e);
+        }
+    }
+
+    /**
+     * Loads a boolean property value. If the property is missing or empty returns the given
+     * default value.
+     *
+     * @param properties
+     *            application properties
+     * @param propertyName
+     *            name of the property
+     * @param defaultValue
+     *            value used if the property is not set
+     * @return the property value, or the default value if the property is not set
+     */
+    public static boolean getBoolean(
+            final Properties properties,
+            final String propertyName,
+            final boolean defaultValue) {
+        final String value = getString(properties, propertyName, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,162 @@
+package hu.docler.ping.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable point-in-time view of the last results of the checks of a host, keyed by the check
+ * type. A new result yields a new snapshot sharing the results of the other checks, so a snapshot
+ * handed to a reader never changes. A host has a handful of check types, the results are kept in
+ * small arrays searched linearly. The snapshot can't be modified, its mutators throw
+ * {@link UnsupportedOperationException}.
+ */
+public final class ResultSnapshot extends AbstractMap<String, CheckResult> {
+    /** Check types of the results. */
+    private final String[] checkTypes;
+    /** Last results of the checks, at the index of their check type. */
+    private final CheckResult[] results;
+    /** View of the entries of the snapshot, created on first request. */
+    private Set<Map.Entry<String, CheckResult>> entrySet;
+
+    /**
+     * Ctor.
+     *
+     * @param checkTypes
+     *            check types of the results, not modified afterwards
+     * @param results
+     *            last results of the checks, not modified afterwards
+     */
+    private ResultSnapshot(final String[] checkTypes, final CheckResult[] results) {
+        this.checkTypes = checkTypes;
+        this.results = results;
+    }
+
+    /**
+     * Creates the snapshot of a host holding a single result.
+     *
+     * @param result
+     *            the result
+     * @return the snapshot
+     */
+    static ResultSnapshot of(final CheckResult result) {
+        return new ResultSnapshot(new String[] {result.getCheckType()},
+                new CheckResult[] {result});
+    }
+
+    /**
+     * Returns a new snapshot with a result replacing the last result of its check, or added if the
+     * check has no result yet. This snapshot is left unchanged.
+     *
+     * @param result
+     *            the result
+     * @return the new snapshot
+     */
+    ResultSnapshot with(final CheckResult result) {
+        final int index = indexOf(result.getCheckType());
+        if (index >= 0) {
+            final CheckResult[] newResults = results.clone();
+            newResults[index] = result;
+            return new ResultSnapshot(checkTypes, newResults);
+        }
+        final String[] newCheckTypes = new String[checkTypes.length + 1];
+        final CheckResult[] newResults = new CheckResult[results.length + 1];
+        System.arraycopy(checkTypes, 0, newCheckTypes, 0, checkTypes.length);
+        System.arraycopy(results, 0, newResults, 0, results.length);
+        newCheckTypes[checkTypes.length] = result.getCheckType();
+        newResults[results.length] = result;
+        return new ResultSnapshot(newCheckTypes, newResults);
+    }
+
+    /**
+     * @see java.util.AbstractMap#get(java.lang.Object)
+     */
+    @Override
+    public CheckResult get(final Object checkType) {
+        final int index = indexOf(checkType);
+        return index < 0 ? null : results[index];
+    }
+
+    /**
+     * @see java.util.AbstractMap#containsKey(java.lang.Object)
+     */
+    @Override
+    public boolean containsKey(final Object checkType) {
+        return indexOf(checkType) >= 0;
+    }
+
+    /**
+     * @see java.util.AbstractMap#size()
+     */
+    @Override
+    public int size() {
+        return checkTypes.length;
+    }
+
+    /**
+     * @see java.util.AbstractMap#entrySet()
+     */
+    @Override
+    public Set<Map.Entry<String, CheckResult>> entrySet() {
+        Set<Map.Entry<String, CheckResult>> entries = entrySet;
+        if (entries == null) {
+            entries = new AbstractSet<Map.Entry<String, CheckResult>>() {
+                @Override
+                public Iterator<Map.Entry<String, CheckResult>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return checkTypes.length;
+                }
+            };
+            entrySet = entries;
+        }
+        return entries;
+    }
+
+    /**
+     * @param checkType
+     *            a check type
+     * @return index of the check type, or -1 if the snapshot has no result of the check
+     */
+    private int indexOf(final Object checkType) {
+        for (int i = 0; i < checkTypes.length; i++) {
+            if (checkTypes[i].equals(checkType)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterator of the immutable entries of the snapshot.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, CheckResult>> {
+        /** Index of the next entry. */
+        private int index;
+
+        /**
+         * @see java.util.Iterator#hasNext()
+         */
+        public boolean hasNext() {
+            return index < checkTypes.length;
+        }
+
+        /**
+         * @see java.util.Iterator#next()
+         */
+        public Map.Entry<String, CheckResult> next() {
+            if (index >= checkTypes.length) {
+                throw new NoSuchElementException();
+            }
+            final int current = index++;
+            return new AbstractMap.SimpleImmutableEntry<String, CheckResult>(checkTypes[current],
+                    results[current]);
+        }
+    }
+}
@@ -9,7 +9,22 @@ import java.util.Map;
 public interface ResultStore {
 
     /**
-     * Stores a result of a check for a host.
+     * Stores a result of a check for a host. Implementations keeping the history of the checks
+     * record the status and the measurements of the result as a sample of the history.
+     *
+     * @param host
+     *            host name value
+     * @param result
+     *            {@link CheckResult} of the check
+     * @throws IllegalArgumentException
+     *             If the host value is <code>null</code> or an empty {@link String}, or the result
+     *             is <code>null</code>.
+     */
+    void storeHostCheckResult(String host, CheckResult result);
+
+    /**
+     * Stores a result of a check for a host known as text only, see
+     * {@link CheckResult#ofText(String, String)}.
      *
      * @param host
      *            host name value
@@ -24,8 +39,20 @@ public interface ResultStore {
     void storeHostCheckResult(String host, String checkType, String result);
 
     /**
-     * Returns the {@link Map} of results for a host. The result {@link Map} contains results based
-     * on check identifier keys.
+     * Returns the {@link Map} of the last results for a host, based on check identifier keys.
+     * The {@link Map} is a consistent point-in-time view of the results, it can't be modified
+     * and doesn't change when new results are stored.
+     *
+     * @param host
+     *            host name value
+     * @return {@link Map} of results, or <code>null</code> if no data is available for the host
+     */
+    Map<String, CheckResult> getResultsForHost(String host);
+
+    /**
+     * Returns the {@link Map} of the texts of the last results for a host. The result {@link Map}
+     * contains results based on check identifier keys. The texts are rendered on every call, it's
+     * meant for reporting.
      *
      * @param host
      *            host name value
@@ -33,4 +60,19 @@ public interface ResultStore {
      */
     Map<String, String> getReportsForHost(String host);
 
+    /**
+     * Returns the latencies measured by a check of a host over a window, for implementations
+     * keeping the latency histograms of the checks.
+     *
+     * @param host
+     *            host name value
+     * @param checkType
+     *            type name of the check
+     * @param window
+     *            the window
+     * @return new {@link LatencyHistogram} of the latencies, or <code>null</code> if the
+     *         histograms are not kept or no latency was measured by the check of the host
+     */
+    LatencyHistogram getLatencyHistogram(String host, String checkType, LatencyWindow window);
+
 }
@@ -0,0 +1,118 @@
+package hu.docler.ping.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the results of the checks of the hosts like the {@link MapResultStoreImpl}, and keeps the
+ * history of the samples of every check of every host in a fixed capacity {@link SampleHistory}.
+ * The memory taken by the history of a host is predictable: {@link SampleHistory#BYTES_PER_SAMPLE}
+ * bytes per sample of the capacity for each check type, allocated when the first sample of the
+ * check arrives.
+ */
+public class RingBufferResultStoreImpl implements ResultStore {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(RingBufferResultStoreImpl.class);
+    /** {@link MapResultStoreImpl} storing the last results. */
+    private final MapResultStoreImpl lastResults = new MapResultStoreImpl();
+    /**
+     * {@link Map} storing the sample histories based on host names. For every host name holds a
+     * {@link Map} with the history of every type of checks.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, SampleHistory>> histories =
+            new ConcurrentHashMap<String, ConcurrentHashMap<String, SampleHistory>>(4);
+    /** Number of samples kept for a check of a host. */
+    private final int historySize;
+
+    /**
+     * Ctor.
+     *
+     * @param historySize
+     *            number of samples kept for a check of a host
+     */
+    public RingBufferResultStoreImpl(final int historySize) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("History size must be greater than zero");
+        }
+        this.historySize = historySize;
+        logger.info("Keeping {} samples per check, {} bytes per check of a host", historySize,
+                (long) historySize * SampleHistory.BYTES_PER_SAMPLE);
+    }
+
+    /**
+     * Stores the result as the last one and appends it to the history of the check as a sample.
+     *
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String,
+     *      hu.docler.ping.util.CheckResult)
+     */
+    public void storeHostCheckResult(final String host, final CheckResult result) {
+        lastResults.storeHostCheckResult(host, result);
+        ConcurrentHashMap<String, SampleHistory> hostHistories = histories.get(host);
+        if (hostHistories == null) {
+            histories.putIfAbsent(host, new ConcurrentHashMap<String, SampleHistory>(4));
+            hostHistories = histories.get(host);
+        }
+        SampleHistory history = hostHistories.get(result.getCheckType());
+        if (history == null) {
+            hostHistories.putIfAbsent(result.getCheckType(), new SampleHistory(historySize));
+            history = hostHistories.get(result.getCheckType());
+        }
+        history.append(result.getTimestampMillis(), result.getLatencyMillis(),
+                result.isSuccess(), result.getLossPercent());
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#storeHostCheckResult(java.lang.String, java.lang.String,
+     *      java.lang.String)
+     */
+    public void storeHostCheckResult(
+            final String host,
+            final String checkType,
+            final String result) {
+        storeHostCheckResult(host, CheckResult.ofText(checkType, result));
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getResultsForHost(java.lang.String)
+     */
+    public Map<String, CheckResult> getResultsForHost(final String host) {
+        return lastResults.getResultsForHost(host);
+    }
+
+    /**
+     * @see hu.docler.ping.util.ResultStore#getReportsForHost(java.lang.String)
+     */
+    public Map<String, String> getReportsForHost(final String host) {
+        return lastResults.getReportsForHost(host);
+    }
+
+    /**
+     * Latency histograms are not kept, returns <code>null</code>.
+     *
+     * @see hu.docler.ping.util.ResultStore#getLatencyHistogram(java.lang.String,
+     *      java.lang.String, hu.docler.ping.util.LatencyWindow)
+     */
+    public LatencyHistogram getLatencyHistogram(
+            final String host,
+            final String checkType,
+            final LatencyWindow window) {
+        return null;
+    }
+
+    /**
+     * Returns the sample history of a check of a host.
+     *
+     * @param host
+     *            host name value
+     * @param checkType
+     *            type name of the check
+     * @return the history, or <code>null</code> if no sample was stored for the check of the host
+     */
+    public SampleHistory getHistory(final String host, final String checkType) {
+        final Map<String, SampleHistory> hostHistories = histories.get(host);
+        return hostHistories == null ? null : hostHistories.get(checkType);
+    }
+}
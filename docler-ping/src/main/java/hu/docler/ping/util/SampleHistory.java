@@ -0,0 +1,130 @@
+package hu.docler.ping.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed capacity history of the samples of a check of a host: the time, the latency, the status
+ * and the loss of the last check executions. The samples are kept in a ring of parallel primitive
+ * arrays, so a history takes {@link #BYTES_PER_SAMPLE} bytes per sample of its capacity, however
+ * many samples it holds, and appending a sample allocates nothing.
+ * <p>
+ * Appending is O(1) and serialized. Reading never locks: the writer claims a position before
+ * overwriting it and publishes the sample after, the reader copies the samples published and then
+ * drops the ones whose positions were claimed meanwhile.
+ */
+public final class SampleHistory {
+    /** Size of a sample in the arrays, in bytes. */
+    public static final int BYTES_PER_SAMPLE = 8 + 4 + 1 + 4;
+    /** Status of a successful check execution. */
+    private static final byte SUCCESS = 1;
+    /** Status of a failed check execution. */
+    private static final byte FAILURE = 0;
+    /** Number of samples kept. */
+    private final int capacity;
+    /** Times of the check executions, in milliseconds since the epoch. */
+    private final long[] timestamps;
+    /** Latencies measured by the check executions in milliseconds, NaN if not measured. */
+    private final float[] latencies;
+    /** Statuses of the check executions. */
+    private final byte[] statuses;
+    /** Loss percentages measured by the check executions, NaN if not measured. */
+    private final float[] losses;
+    /** Number of samples written, the next sample goes to this position modulo the capacity. */
+    private volatile long writeCount;
+    /** Number of positions claimed by the writer, ahead of {@link #writeCount} while writing. */
+    private volatile long claimCount;
+
+    /**
+     * Ctor.
+     *
+     * @param capacity
+     *            number of samples kept
+     */
+    public SampleHistory(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than zero");
+        }
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.latencies = new float[capacity];
+        this.statuses = new byte[capacity];
+        this.losses = new float[capacity];
+    }
+
+    /**
+     * Appends a sample, overwriting the oldest one if the history is full.
+     *
+     * @param timestampMillis
+     *            time of the check execution, in milliseconds since the epoch
+     * @param latencyMillis
+     *            latency measured in milliseconds, NaN if not measured
+     * @param success
+     *            <code>true</code> if the check execution was successful
+     * @param lossPercent
+     *            loss percentage measured, NaN if not measured
+     */
+    public synchronized void append(
+            final long timestampMillis,
+            final double latencyMillis,
+            final boolean success,
+            final double lossPercent) {
+        final long count = writeCount;
+        final int index = (int) (count % capacity);
+        claimCount = count + 1;
+        VarHandle.storeStoreFence();
+        timestamps[index] = timestampMillis;
+        latencies[index] = (float) latencyMillis;
+        statuses[index] = success ? SUCCESS : FAILURE;
+        losses[index] = (float) lossPercent;
+        writeCount = count + 1;
+    }
+
+    /**
+     * Reads the samples taken at or after a given time, oldest first, without locking.
+     *
+     * @param sinceMillis
+     *            time of the oldest sample to be read, in milliseconds since the epoch
+     * @param window
+     *            window cleared and filled with the samples
+     * @return number of samples read
+     */
+    public int readRecent(final long sinceMillis, final SampleWindow window) {
+        window.prepare(capacity);
+        final long end = writeCount;
+        final long start = Math.max(0, end - capacity);
+        for (long sequence = start; sequence < end; sequence++) {
+            final int index = (int) (sequence % capacity);
+            window.add(timestamps[index], latencies[index], statuses[index] == SUCCESS,
+                    losses[index]);
+        }
+        VarHandle.acquireFence();
+        final long overwritten = claimCount - capacity;
+        if (overwritten > start) {
+            window.dropOldest((int) Math.min(overwritten - start, end - start));
+        }
+        int old = 0;
+        while (old < window.getSize() && window.getTimestamp(old) < sinceMillis) {
+            old++;
+        }
+        window.dropOldest(old);
+        return window.getSize();
+    }
+
+    /**
+     * @return number of samples held, at most the capacity
+     */
+    public int getSize() {
+        return (int) Math.min(writeCount, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of samples written since the history was created
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+}
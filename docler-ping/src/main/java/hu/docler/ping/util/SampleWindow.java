@@ -0,0 +1,127 @@
+package hu.docler.ping.util;
+
+/**
+ * Reusable window of samples read from a {@link SampleHistory}, oldest first. The arrays of the
+ * window are allocated on the first read only, so a window reused for consecutive reads allocates
+ * nothing. A window is not thread-safe.
+ */
+public final class SampleWindow {
+    /** Times of the check executions, in milliseconds since the epoch. */
+    private long[] timestamps = new long[0];
+    /** Latencies measured by the check executions in milliseconds, NaN if not measured. */
+    private float[] latencies = new float[0];
+    /** Statuses of the check executions. */
+    private boolean[] successes = new boolean[0];
+    /** Loss percentages measured by the check executions, NaN if not measured. */
+    private float[] losses = new float[0];
+    /** Position of the oldest sample in the arrays. */
+    private int offset;
+    /** Position after the newest sample in the arrays. */
+    private int end;
+
+    /**
+     * Clears the window, growing its arrays to hold a given number of samples.
+     *
+     * @param capacity
+     *            number of samples the window has to hold
+     */
+    void prepare(final int capacity) {
+        if (timestamps.length < capacity) {
+            timestamps = new long[capacity];
+            latencies = new float[capacity];
+            successes = new boolean[capacity];
+            losses = new float[capacity];
+        }
+        offset = 0;
+        end = 0;
+    }
+
+    /**
+     * Adds a sample as the newest one.
+     *
+     * @param timestampMillis
+     *            time of the check execution
+     * @param latencyMillis
+     *            latency measured
+     * @param success
+     *            status of the check execution
+     * @param lossPercent
+     *            loss percentage measured
+     */
+    void add(
+            final long timestampMillis,
+            final float latencyMillis,
+            final boolean success,
+            final float lossPercent) {
+        timestamps[end] = timestampMillis;
+        latencies[end] = latencyMillis;
+        successes[end] = success;
+        losses[end] = lossPercent;
+        end++;
+    }
+
+    /**
+     * Drops the oldest samples.
+     *
+     * @param count
+     *            number of samples to be dropped
+     */
+    void dropOldest(final int count) {
+        offset = Math.min(end, offset + count);
+    }
+
+    /**
+     * @return number of samples in the window
+     */
+    public int getSize() {
+        return end - offset;
+    }
+
+    /**
+     * @param index
+     *            index of the sample, zero for the oldest
+     * @return time of the check execution, in milliseconds since the epoch
+     */
+    public long getTimestamp(final int index) {
+        return timestamps[checkIndex(index)];
+    }
+
+    /**
+     * @param index
+     *            index of the sample, zero for the oldest
+     * @return latency measured in milliseconds, NaN if not measured
+     */
+    public double getLatency(final int index) {
+        return latencies[checkIndex(index)];
+    }
+
+    /**
+     * @param index
+     *            index of the sample, zero for the oldest
+     * @return <code>true</code> if the check execution was successful
+     */
+    public boolean isSuccess(final int index) {
+        return successes[checkIndex(index)];
+    }
+
+    /**
+     * @param index
+     *            index of the sample, zero for the oldest
+     * @return loss percentage measured, NaN if not measured
+     */
+    public double getLoss(final int index) {
+        return losses[checkIndex(index)];
+    }
+
+    /**
+     * @param index
+     *            index of a sample
+     * @return position of the sample in the arrays
+     */
+    private int checkIndex(final int index) {
+        if (index < 0 || index >= end - offset) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + getSize());
+        }
+        return offset + index;
+    }
+}
@@ -0,0 +1,98 @@
+package hu.docler.ping.util;
+
+/**
+ * Latencies of a check of a host over the {@link LatencyWindow}s. Every window is a ring of
+ * {@link LatencyWindow#SLOT_COUNT} {@link LatencyHistogram}s, each counting the latencies of a
+ * slot of time, and the slot whose time has passed is cleared when it is reused. Recording a
+ * latency is O(1) and allocates nothing, and the memory taken is fixed. A snapshot of a window
+ * merges the histograms of its slots still in the window.
+ */
+public final class WindowedLatencyHistogram {
+    /** Windows kept. */
+    private static final LatencyWindow[] WINDOWS = LatencyWindow.values();
+    /** Histograms of the slots, indexed by the ordinal of the window and the slot. */
+    private final LatencyHistogram[][] slots;
+    /** Numbers of the slots of time counted by the histograms, -1 for a histogram not used. */
+    private final long[][] slotNumbers;
+
+    /**
+     * Ctor.
+     */
+    public WindowedLatencyHistogram() {
+        this.slots = new LatencyHistogram[WINDOWS.length][LatencyWindow.SLOT_COUNT];
+        this.slotNumbers = new long[WINDOWS.length][LatencyWindow.SLOT_COUNT];
+        for (int window = 0; window < WINDOWS.length; window++) {
+            for (int slot = 0; slot < LatencyWindow.SLOT_COUNT; slot++) {
+                slots[window][slot] = new LatencyHistogram();
+                slotNumbers[window][slot] = -1;
+            }
+        }
+    }
+
+    /**
+     * Records a latency in all the windows.
+     *
+     * @param timestampMillis
+     *            time of the check execution, in milliseconds since the epoch
+     * @param latencyMillis
+     *            the latency in milliseconds, ignored if it's NaN or negative
+     */
+    public synchronized void record(final long timestampMillis, final double latencyMillis) {
+        if (!(latencyMillis >= 0)) {
+            return;
+        }
+        for (int window = 0; window < WINDOWS.length; window++) {
+            final long slotNumber = timestampMillis / WINDOWS[window].getSlotMillis();
+            final int slot = (int) (slotNumber % LatencyWindow.SLOT_COUNT);
+            if (slotNumbers[window][slot] != slotNumber) {
+                if (slotNumbers[window][slot] > slotNumber) {
+                    // the slot already counts a later time, the latency is too old
+                    continue;
+                }
+                slots[window][slot].reset();
+                slotNumbers[window][slot] = slotNumber;
+            }
+            slots[window][slot].record(latencyMillis);
+        }
+    }
+
+    /**
+     * Merges the latencies of a window into a histogram.
+     *
+     * @param window
+     *            the window
+     * @param nowMillis
+     *            current time, in milliseconds since the epoch
+     * @param snapshot
+     *            histogram reset and filled with the latencies of the window
+     */
+    public synchronized void snapshot(
+            final LatencyWindow window,
+            final long nowMillis,
+            final LatencyHistogram snapshot) {
+        snapshot.reset();
+        final long currentSlotNumber = nowMillis / window.getSlotMillis();
+        for (int slot = 0; slot < LatencyWindow.SLOT_COUNT; slot++) {
+            final long slotNumber = slotNumbers[window.ordinal()][slot];
+            if (slotNumber > currentSlotNumber - LatencyWindow.SLOT_COUNT
+                    && slotNumber <= currentSlotNumber) {
+                snapshot.add(slots[window.ordinal()][slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns the latencies of a window.
+     *
+     * @param window
+     *            the window
+     * @param nowMillis
+     *            current time, in milliseconds since the epoch
+     * @return new histogram of the latencies of the window
+     */
+    public LatencyHistogram snapshot(final LatencyWindow window, final long nowMillis) {
+        final LatencyHistogram snapshot = new LatencyHistogram();
+        snapshot(window, nowMillis, snapshot);
+        return snapshot;
+    }
+}
@@ -0,0 +1,160 @@
+package hu.docler.ping.test;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.http.AsyncHttpProbeEngine;
+import hu.docler.ping.http.HttpProbeResult;
+import hu.docler.ping.task.AsyncHttpPingTask;
+import hu.docler.ping.test.util.LocalHttpServer;
+import hu.docler.ping.test.util.TestDefaults;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing async HTTP ping task functionality.
+ *
+ */
+public class TestAsyncHttpPingTask {
+
+    /**
+     * Creates a new {@link AsyncHttpPingTask} task without a valid probe engine presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAsyncHttpPingTaskCreateWithoutEngine() {
+        new AsyncHttpPingTask(createProperties(), "some.dummy.host", new MapResultStoreImpl(),
+                null);
+    }
+
+    /**
+     * Tests that running the task stores the result of the probe through the completion callback.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testAsyncHttpPingTaskRun() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(1024);
+        final AsyncHttpProbeEngine probeEngine = new AsyncHttpProbeEngine(createProperties());
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new AsyncHttpPingTask(createProperties(), server.getHost(), resultStore, probeEngine)
+                    .run();
+            final Map<String, String> reportsForHost =
+                    TestDefaults.awaitReportsForHost(resultStore, server.getHost());
+            Assert.assertNotNull(reportsForHost);
+            final String result = reportsForHost.get("ping.tcpip.check");
+            Assert.assertNotNull(result);
+            Assert.assertTrue(result.contains("Status Code: 200"));
+        } finally {
+            probeEngine.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that the engine stops reading a response body at the configured cap, and the probe
+     * completes with the bytes read.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testAsyncHttpPingTaskBodyCapped() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(1024 * 1024);
+        final Properties properties = createProperties();
+        properties.put("ping.tcpip.body.max.bytes", "16384");
+        final AsyncHttpProbeEngine probeEngine = new AsyncHttpProbeEngine(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new AsyncHttpPingTask(properties, server.getHost(), resultStore, probeEngine).run();
+            final Map<String, String> reportsForHost =
+                    TestDefaults.awaitReportsForHost(resultStore, server.getHost());
+            Assert.assertNotNull(reportsForHost);
+            final String result = reportsForHost.get("ping.tcpip.check");
+            Assert.assertNotNull(result);
+            Assert.assertTrue(result.contains("Status Code: 200"));
+            Assert.assertTrue(result.contains("Bytes Read: 16384;"));
+            Assert.assertEquals(0, probeEngine.getInFlightCount());
+        } finally {
+            probeEngine.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Creates a new {@link AsyncHttpProbeEngine} with keep-alive configured, which the engine
+     * doesn't support.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAsyncHttpProbeEngineCreateWithKeepAlive() {
+        final Properties properties = createProperties();
+        properties.put("ping.tcpip.keepalive", "true");
+        new AsyncHttpProbeEngine(properties);
+    }
+
+    /**
+     * Tests that the engine completes a large number of concurrent probes.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testManyProbesInFlight() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(1024);
+        final Properties properties = createProperties();
+        properties.put("ping.tcpip.pool.max.per.route", "50");
+        final AsyncHttpProbeEngine probeEngine = new AsyncHttpProbeEngine(properties);
+        final int probes = 500;
+        final CountDownLatch latch = new CountDownLatch(probes);
+        final AtomicInteger successfulProbes = new AtomicInteger();
+        try {
+            for (int i = 0; i < probes; i++) {
+                probeEngine.probe("http://" + server.getHost(),
+                        new FutureCallback<HttpProbeResult>() {
+                            public void completed(final HttpProbeResult result) {
+                                if (result.getStatusCode() == 200) {
+                                    successfulProbes.incrementAndGet();
+                                }
+                                latch.countDown();
+                            }
+
+                            public void failed(final Exception e) {
+                                latch.countDown();
+                            }
+
+                            public void cancelled() {
+                                latch.countDown();
+                            }
+                        });
+            }
+            Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+            Assert.assertEquals(probes, successfulProbes.get());
+            Assert.assertEquals(0, probeEngine.getInFlightCount());
+        } finally {
+            probeEngine.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Creates test {@link Properties} for test run.
+     *
+     * @return {@link Properties} for tasks
+     */
+    private Properties createProperties() {
+        final Properties properties = new Properties();
+        properties.put("ping.tcpip.delay", "5");
+        properties.put("ping.tcpip.http.timeout", "10000");
+        properties.put("ping.tcpip.engine", "async");
+        properties.put("ping.report.url", "http://127.0.0.1/ping-report");
+        return properties;
+    }
+}
@@ -0,0 +1,76 @@
+package hu.docler.ping.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.schedule.BulkheadExecutor;
+
+/**
+ * Testing bulkhead executor functionality.
+ *
+ */
+public class TestBulkheadExecutor {
+
+    /**
+     * Creates a new {@link BulkheadExecutor} without a valid name presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkheadExecutorCreateWithoutName() {
+        new BulkheadExecutor(null, 1, 1);
+    }
+
+    /**
+     * Creates a new {@link BulkheadExecutor} without a valid queue size presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkheadExecutorCreateWithInvalidQueueSize() {
+        new BulkheadExecutor("test", 1, 0);
+    }
+
+    /**
+     * Tests that a saturated executor rejects new checks and reports its queue depth and the wait
+     * time of the queued checks.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testSaturatedExecutorRejects() throws Exception {
+        final BulkheadExecutor executor = new BulkheadExecutor("test", 1, 1);
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final CountDownLatch finishedLatch = new CountDownLatch(2);
+        final Runnable blockingCheck = new Runnable() {
+            public void run() {
+                try {
+                    blockingLatch.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finishedLatch.countDown();
+            }
+        };
+        try {
+            executor.execute(blockingCheck);
+            executor.execute(blockingCheck);
+            Assert.assertEquals(1, executor.getQueueDepth());
+            try {
+                executor.execute(blockingCheck);
+                Assert.fail("Saturated executor accepted a new check");
+            } catch (final RejectedExecutionException e) {
+                Assert.assertEquals(1, executor.getRejectedCount());
+            }
+            Thread.sleep(20);
+            blockingLatch.countDown();
+            Assert.assertTrue(finishedLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, executor.getQueueDepth());
+            Assert.assertTrue(executor.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+            Assert.assertTrue(executor.getAverageWaitNanos() <= executor.getMaxWaitNanos());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package hu.docler.ping.test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.util.CheckResult;
+import hu.docler.ping.util.ColumnarResultStoreImpl;
+
+/**
+ * Testing columnar result store functionality.
+ *
+ */
+public class TestColumnarResultStoreImpl {
+    /** Hosts used by the tests, one of them repeated. */
+    private static final String[] HOSTS = new String[] {"host1", "host2", "host3", "host2"};
+    /** Check types used by the tests. */
+    private static final String[] CHECK_TYPES = new String[] {"check1", "check2"};
+
+    /**
+     * Tests storing and reading the results of hosts.
+     */
+    @Test
+    public void testStoreResults() {
+        final ColumnarResultStoreImpl resultStore =
+                new ColumnarResultStoreImpl(HOSTS, CHECK_TYPES);
+        Assert.assertEquals(3, resultStore.getHostCount());
+        Assert.assertEquals(0, resultStore.getHostId("host1"));
+        Assert.assertEquals(2, resultStore.getHostId("host3"));
+        Assert.assertEquals(-1, resultStore.getHostId("host4"));
+        Assert.assertEquals(1, resultStore.getCheckTypeId("check2"));
+        Assert.assertNull(resultStore.getResultsForHost("host2"));
+        Assert.assertNull(resultStore.getReportsForHost("host4"));
+
+        resultStore.storeHostCheckResult("host2",
+                new CheckResult("check2", 1000, false, 2.5, 25, "Detail"));
+        resultStore.storeHostCheckResult("host2", "check1", "Text result");
+        final CheckResult result = resultStore.getResult(1, 1);
+        Assert.assertEquals("check2", result.getCheckType());
+        Assert.assertEquals(1000, result.getTimestampMillis());
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertEquals(2.5, result.getLatencyMillis(), 1e-6);
+        Assert.assertEquals(25, result.getLossPercent(), 1e-6);
+        Assert.assertEquals("Detail", result.getText());
+        Assert.assertNull(resultStore.getResult(0, 1));
+
+        final Map<String, String> reports = resultStore.getReportsForHost("host2");
+        Assert.assertEquals(2, reports.size());
+        Assert.assertEquals("Text result", reports.get("check1"));
+        Assert.assertEquals("Detail", reports.get("check2"));
+        Assert.assertNull(resultStore.getResultsForHost("host1"));
+    }
+
+    /**
+     * Stores a result in a store not keeping the details.
+     */
+    @Test
+    public void testStoreWithoutDetails() {
+        final ColumnarResultStoreImpl resultStore =
+                new ColumnarResultStoreImpl(HOSTS, CHECK_TYPES, false);
+        resultStore.storeHostCheckResult("host2",
+                new CheckResult("check2", 1000, false, 2.5, 25, "Detail"));
+        final CheckResult result = resultStore.getResult(1, 1);
+        Assert.assertEquals(1000, result.getTimestampMillis());
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertEquals(2.5, result.getLatencyMillis(), 1e-6);
+        Assert.assertEquals(25, result.getLossPercent(), 1e-6);
+        Assert.assertNull(result.getDetail());
+        Assert.assertNull(result.getText());
+    }
+
+    /**
+     * Stores a result of a host not given at startup.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStoreResultOfUnknownHost() {
+        new ColumnarResultStoreImpl(HOSTS, CHECK_TYPES).storeHostCheckResult("host4", "check1",
+                "Result");
+    }
+
+    /**
+     * Stores a result of a check type not given at startup.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStoreResultOfUnknownCheckType() {
+        new ColumnarResultStoreImpl(HOSTS, CHECK_TYPES).storeHostCheckResult("host1", "check3",
+                "Result");
+    }
+
+    /**
+     * Tests that reading concurrently with the writers never returns a torn result.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final ColumnarResultStoreImpl resultStore =
+                new ColumnarResultStoreImpl(HOSTS, CHECK_TYPES);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final ExecutorService threadPool = Executors.newFixedThreadPool(2);
+        try {
+            final Runnable writer = new Runnable() {
+                public void run() {
+                    for (int i = 1; running.get(); i++) {
+                        resultStore.storeHostCheckResult("host1", new CheckResult("check1", i,
+                                i % 2 == 0, i % 1000, i % 100, Integer.valueOf(i)));
+                    }
+                }
+            };
+            final Future<?> firstWriter = threadPool.submit(writer);
+            final Future<?> secondWriter = threadPool.submit(writer);
+            for (int read = 0; read < 20000; read++) {
+                final CheckResult result = resultStore.getResult(0, 0);
+                if (result != null) {
+                    final long timestamp = result.getTimestampMillis();
+                    Assert.assertEquals(timestamp % 1000, result.getLatencyMillis(), 1e-6);
+                    Assert.assertEquals(timestamp % 100, result.getLossPercent(), 1e-6);
+                    Assert.assertEquals(timestamp % 2 == 0, result.isSuccess());
+                    Assert.assertEquals(Integer.valueOf((int) timestamp), result.getDetail());
+                }
+            }
+            running.set(false);
+            firstWriter.get();
+            secondWriter.get();
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+}
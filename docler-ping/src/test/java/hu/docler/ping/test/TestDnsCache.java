@@ -0,0 +1,142 @@
+package hu.docler.ping.test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.dns.DnsCache;
+
+/**
+ * Testing DNS cache functionality.
+ *
+ */
+public class TestDnsCache {
+
+    /**
+     * Creates a new {@link DnsCache} without valid {@link Properties} presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDnsCacheCreateWithoutProperties() {
+        new DnsCache(null);
+    }
+
+    /**
+     * Tests that a resolved host is answered from the cache until it expires.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testResolvedHostCached() throws Exception {
+        final CountingDnsCache dnsCache = new CountingDnsCache(createProperties("60", "0"));
+        try {
+            final InetAddress address = dnsCache.resolveFirst("127.0.0.1");
+            Assert.assertTrue(address.isLoopbackAddress());
+            dnsCache.resolve("127.0.0.1");
+            dnsCache.resolve("127.0.0.1");
+            Assert.assertEquals(1, dnsCache.lookups.get());
+            Assert.assertEquals(1, dnsCache.getMissCount());
+            Assert.assertEquals(2, dnsCache.getHitCount());
+        } finally {
+            dnsCache.close();
+        }
+    }
+
+    /**
+     * Tests that a failed resolution is cached too.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testFailedResolutionCached() throws Exception {
+        final CountingDnsCache dnsCache = new CountingDnsCache(createProperties("60", "0"));
+        try {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    dnsCache.resolve("unknown.invalid");
+                    Assert.fail("Unknown host resolved");
+                } catch (final UnknownHostException e) {
+                    Assert.assertEquals("unknown.invalid", e.getMessage());
+                }
+            }
+            Assert.assertEquals(1, dnsCache.lookups.get());
+            Assert.assertEquals(1, dnsCache.getNegativeHitCount());
+        } finally {
+            dnsCache.close();
+        }
+    }
+
+    /**
+     * Tests that an entry used close to its expiry is refreshed in the background.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testEntryRefreshedAhead() throws Exception {
+        final CountingDnsCache dnsCache = new CountingDnsCache(createProperties("60", "60"));
+        try {
+            dnsCache.resolve("127.0.0.1");
+            dnsCache.resolve("127.0.0.1");
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (dnsCache.lookups.get() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(2, dnsCache.lookups.get());
+            Assert.assertEquals(1, dnsCache.getRefreshCount());
+            Assert.assertEquals(1, dnsCache.getMissCount());
+        } finally {
+            dnsCache.close();
+        }
+    }
+
+    /**
+     * Creates test {@link Properties} for test run.
+     *
+     * @param ttl
+     *            time to live of the entries
+     * @param refreshAhead
+     *            time before the expiry of an entry when it is refreshed
+     * @return {@link Properties} for the cache
+     */
+    private Properties createProperties(final String ttl, final String refreshAhead) {
+        final Properties properties = new Properties();
+        properties.put("ping.dns.ttl", ttl);
+        properties.put("ping.dns.negative.ttl", "60");
+        properties.put("ping.dns.refresh.ahead", refreshAhead);
+        return properties;
+    }
+
+    /**
+     * {@link DnsCache} counting the lookups reaching the resolver, and failing the resolution of
+     * the <code>.invalid</code> domain without asking the resolver.
+     */
+    private static final class CountingDnsCache extends DnsCache {
+        /** Number of lookups reaching the resolver. */
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        /**
+         * Ctor.
+         *
+         * @param properties
+         *            properties of the cache
+         */
+        private CountingDnsCache(final Properties properties) {
+            super(properties);
+        }
+
+        @Override
+        protected InetAddress[] lookup(final String host) throws UnknownHostException {
+            lookups.incrementAndGet();
+            if (host.endsWith(".invalid")) {
+                throw new UnknownHostException(host);
+            }
+            return super.lookup(host);
+        }
+    }
+}
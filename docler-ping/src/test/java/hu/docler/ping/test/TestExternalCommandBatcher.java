@@ -0,0 +1,118 @@
+package hu.docler.ping.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.task.ExternalCommandBatcher;
+import hu.docler.ping.task.IcmpPingTask;
+import hu.docler.ping.test.util.TestDefaults;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing batched external command execution functionality.
+ *
+ */
+public class TestExternalCommandBatcher {
+
+    /**
+     * Creates a new {@link ExternalCommandBatcher} without a batch command configured.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testExternalCommandBatcherCreateWithoutCommand() {
+        new ExternalCommandBatcher(new Properties(), "ping.icmp.command", null);
+    }
+
+    /**
+     * Tests that the checks of several hosts run by a single batch command receive the output
+     * lines of their own host only, the colons of IPv6 addresses not ending the host.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testBatchOutputSplitByHost() throws Exception {
+        final File script = File.createTempFile("fping", ".sh");
+        script.deleteOnExit();
+        Files.write(script.toPath(), ("#!/bin/sh\nfor host in \"$@\"; do\n"
+                + "echo \"$host : xmt/rcv/%loss = 5/5/0%, min/avg/max = 0.01/0.02/0.03\"\n"
+                + "done\n").getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(script.setExecutable(true));
+        final Properties properties = new Properties();
+        properties.put("ping.icmp.command", "ping $HOST");
+        properties.put("ping.icmp.command.batch", script.getAbsolutePath() + " $HOSTS");
+        properties.put("ping.batch.window", "50");
+        final String[] hosts = {"first.host", "second.host", "2001:db8::1", "::1"};
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final ExternalCommandBatcher batcher =
+                new ExternalCommandBatcher(properties, "ping.icmp.command", null);
+        try {
+            for (final String host : hosts) {
+                new IcmpPingTask(properties, host, resultStore, null, null, batcher).run();
+            }
+            for (final String host : hosts) {
+                final Map<String, String> reportsForHost =
+                        TestDefaults.awaitReportsForHost(resultStore, host);
+                Assert.assertNotNull(reportsForHost);
+                final String result = reportsForHost.get("ping.icmp.command");
+                Assert.assertNotNull(result);
+                Assert.assertTrue(result.startsWith(host + " : xmt/rcv/%loss = 5/5/0%"));
+                Assert.assertEquals(1, result.trim().split("\n").length);
+            }
+        } finally {
+            batcher.close();
+        }
+    }
+
+    /**
+     * Tests that the result of a host is processed by the result executor, and that the check of
+     * the host is skipped while its last result is not processed.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testResultProcessedByExecutor() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("ping.icmp.command", "ping $HOST");
+        properties.put("ping.icmp.command.batch", "echo $HOSTS : 0% packet loss");
+        properties.put("ping.batch.window", "10");
+        final BlockingQueue<Runnable> resultTasks = new LinkedBlockingQueue<Runnable>();
+        final Executor resultExecutor = new Executor() {
+            public void execute(final Runnable command) {
+                resultTasks.add(command);
+            }
+        };
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final ExternalCommandBatcher batcher =
+                new ExternalCommandBatcher(properties, "ping.icmp.command", null, resultExecutor);
+        try {
+            final IcmpPingTask task =
+                    new IcmpPingTask(properties, "first.host", resultStore, null, null, batcher);
+            task.run();
+            final Runnable resultTask = resultTasks.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(resultTask);
+            Assert.assertNull(resultStore.getResultsForHost("first.host"));
+
+            task.run();
+            Assert.assertNull(resultTasks.poll(200, TimeUnit.MILLISECONDS));
+            resultTask.run();
+            Assert.assertNotNull(resultStore.getResultsForHost("first.host"));
+
+            task.run();
+            Assert.assertNotNull(resultTasks.poll(5, TimeUnit.SECONDS));
+        } finally {
+            batcher.close();
+        }
+    }
+}
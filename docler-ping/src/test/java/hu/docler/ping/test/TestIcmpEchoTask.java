@@ -0,0 +1,149 @@
+package hu.docler.ping.test;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.icmp.IcmpEchoEngine;
+import hu.docler.ping.icmp.PingCallback;
+import hu.docler.ping.icmp.PingStatistics;
+import hu.docler.ping.task.IcmpEchoTask;
+import hu.docler.ping.test.util.TestDefaults;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing in-process ICMP ping task functionality.
+ *
+ */
+public class TestIcmpEchoTask {
+
+    /**
+     * Creates a new {@link IcmpEchoTask} task without a valid echo engine presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testIcmpEchoTaskCreateWithoutEngine() {
+        new IcmpEchoTask(createProperties(), "some.dummy.host", new MapResultStoreImpl(), null,
+                null);
+    }
+
+    /**
+     * Tests that pinging the loopback address stores the statistics of the answered echo
+     * requests.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testIcmpEchoTaskRun() throws Exception {
+        final String result = runPing(createProperties(), "127.0.0.1");
+        Assert.assertTrue(result.contains("Sent = 3, Received = 3, Lost = 0 (0% loss)"));
+        Assert.assertTrue(result.contains("RTT (ms) min/avg/max/mdev = "));
+    }
+
+    /**
+     * Tests that a ping rejected by a saturated engine stores empty statistics.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testIcmpEchoTaskRunRejected() throws Exception {
+        final Properties properties = createProperties();
+        properties.put("ping.icmp.max.inflight", "0");
+        final String result = runPing(properties, "127.0.0.1");
+        Assert.assertTrue(result.contains("Sent = 0, Received = 0, Lost = 0"));
+        Assert.assertFalse(result.contains("RTT"));
+    }
+
+    /**
+     * Tests that a ping whose echo requests don't fit into the queue of the engine is rejected.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testIcmpEchoTaskRunQueueFull() throws Exception {
+        final Properties properties = createProperties();
+        properties.put("ping.icmp.queue.size", "2");
+        final String result = runPing(properties, "127.0.0.1");
+        Assert.assertTrue(result.contains("Sent = 0, Received = 0, Lost = 0"));
+    }
+
+    /**
+     * Tests that the callback of a ping runs on the callback pool, not on an echo thread, and the
+     * queue is empty once the ping completed.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testCallbackOnCallbackPool() throws Exception {
+        final IcmpEchoEngine echoEngine = new IcmpEchoEngine(createProperties());
+        try {
+            final CompletableFuture<String> threadName = new CompletableFuture<String>();
+            echoEngine.ping(InetAddress.getByName("127.0.0.1"), new PingCallback() {
+                public void completed(final PingStatistics statistics) {
+                    threadName.complete(Thread.currentThread().getName());
+                }
+
+                public void failed(final Exception cause) {
+                    threadName.completeExceptionally(cause);
+                }
+            });
+            Assert.assertTrue(
+                    threadName.get(5, TimeUnit.SECONDS).startsWith("ping-icmp-callback-"));
+            Assert.assertEquals(0, echoEngine.getQueuedCount());
+        } finally {
+            echoEngine.close();
+        }
+    }
+
+    /**
+     * Runs an {@link IcmpEchoTask} and waits for its stored result.
+     *
+     * @param properties
+     *            properties of the engine and the task
+     * @param host
+     *            host to be pinged
+     * @return the stored result
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    private String runPing(final Properties properties, final String host) throws Exception {
+        final IcmpEchoEngine echoEngine = new IcmpEchoEngine(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new IcmpEchoTask(properties, host, resultStore, echoEngine, null).run();
+            final Map<String, String> reportsForHost =
+                    TestDefaults.awaitReportsForHost(resultStore, host);
+            Assert.assertNotNull(reportsForHost);
+            final String result = reportsForHost.get("ping.icmp.command");
+            Assert.assertNotNull(result);
+            Assert.assertEquals(0, echoEngine.getInFlightCount());
+            return result;
+        } finally {
+            echoEngine.close();
+        }
+    }
+
+    /**
+     * Creates test {@link Properties} for test run.
+     *
+     * @return {@link Properties} for tasks
+     */
+    private Properties createProperties() {
+        final Properties properties = new Properties();
+        properties.put("ping.icmp.delay", "5");
+        properties.put("ping.icmp.count", "3");
+        properties.put("ping.icmp.interval", "10");
+        properties.put("ping.icmp.timeout", "200");
+        properties.put("ping.report.url", "http://127.0.0.1/ping-report");
+        return properties;
+    }
+}
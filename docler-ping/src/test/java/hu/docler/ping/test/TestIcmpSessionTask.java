@@ -0,0 +1,162 @@
+package hu.docler.ping.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.icmp.PingSession;
+import hu.docler.ping.icmp.PingSessionManager;
+import hu.docler.ping.icmp.PingStatistics;
+import hu.docler.ping.process.ProcessRunner;
+import hu.docler.ping.task.IcmpSessionTask;
+import hu.docler.ping.util.CheckResult;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing ping session based ICMP ping task functionality.
+ *
+ */
+public class TestIcmpSessionTask {
+
+    /**
+     * Creates a new {@link IcmpSessionTask} task without a valid session manager presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testIcmpSessionTaskCreateWithoutManager() {
+        new IcmpSessionTask(new Properties(), "some.dummy.host", new MapResultStoreImpl(), null);
+    }
+
+    /**
+     * Tests that the reply lines of the session are parsed as they arrive, and the check reads
+     * the rolling window of the session.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testIcmpSessionTaskRun() throws Exception {
+        final Properties properties = createProperties(createScript(
+                "echo '64 bytes from 127.0.0.1: icmp_seq=1 ttl=64 time=1.0 ms'\n"
+                        + "echo '64 bytes from 127.0.0.1: icmp_seq=2 ttl=64 time=2.0 ms'\n"
+                        + "echo 'no answer yet for icmp_seq=3'\n"
+                        + "echo '64 bytes from 127.0.0.1: icmp_seq=4 ttl=64 time=3.0 ms'\n"
+                        + "sleep 30\n"));
+        final PingSessionManager sessionManager = new PingSessionManager(properties, null);
+        try {
+            final PingSession session = sessionManager.getSession("127.0.0.1");
+            final PingStatistics statistics = new PingStatistics();
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (statistics.getSent() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                session.fillStatistics(statistics);
+            }
+            Assert.assertEquals(4, statistics.getSent());
+            Assert.assertEquals(3, statistics.getReceived());
+            Assert.assertEquals(2.0, statistics.getAvgRtt(), 1e-9);
+
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new IcmpSessionTask(properties, "127.0.0.1", resultStore, sessionManager).run();
+            final Map<String, String> reportsForHost = resultStore.getReportsForHost("127.0.0.1");
+            Assert.assertNotNull(reportsForHost);
+            Assert.assertTrue(reportsForHost.get("ping.icmp.command")
+                    .contains("Sent = 4, Received = 3, Lost = 1"));
+        } finally {
+            sessionManager.close();
+        }
+    }
+
+    /**
+     * Tests that the command of a session is restarted when it exits.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testSessionRestarted() throws Exception {
+        final Properties properties = createProperties(
+                createScript("echo '64 bytes from 127.0.0.1: icmp_seq=1 ttl=64 time=1.0 ms'\n"));
+        final PingSessionManager sessionManager = new PingSessionManager(properties, null);
+        try {
+            final PingSession session = sessionManager.getSession("127.0.0.1");
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (session.getStartCount() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(session.getStartCount() >= 3);
+            Assert.assertTrue(sessionManager.getRestartCount() >= 2);
+        } finally {
+            sessionManager.close();
+        }
+    }
+
+    /**
+     * Tests that every session holds a slot of the concurrent processes of the process runner,
+     * and the check of a host getting no slot fails.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testSessionsCappedByProcessRunner() throws Exception {
+        final Properties properties = createProperties(createScript("sleep 30\n"));
+        properties.put("ping.process.max.concurrent", "1");
+        final ProcessRunner processRunner = new ProcessRunner(properties);
+        final PingSessionManager sessionManager =
+                new PingSessionManager(properties, null, processRunner);
+        try {
+            Assert.assertNotNull(sessionManager.getSession("127.0.0.1"));
+            Assert.assertNull(sessionManager.getSession("127.0.0.2"));
+            Assert.assertEquals(1, sessionManager.getSessionCount());
+            Assert.assertEquals(1, processRunner.getRunningCount());
+
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new IcmpSessionTask(properties, "127.0.0.2", resultStore, sessionManager).run();
+            final CheckResult result =
+                    resultStore.getResultsForHost("127.0.0.2").get("ping.icmp.command");
+            Assert.assertFalse(result.isSuccess());
+        } finally {
+            sessionManager.close();
+        }
+        Assert.assertEquals(0, processRunner.getRunningCount());
+    }
+
+    /**
+     * Creates test {@link Properties} for test run.
+     *
+     * @param script
+     *            script used as the session command
+     * @return {@link Properties} for tasks
+     */
+    private Properties createProperties(final File script) {
+        final Properties properties = new Properties();
+        properties.put("ping.icmp.delay", "1");
+        properties.put("ping.icmp.session.command", script.getAbsolutePath() + " $ADDRESS");
+        properties.put("ping.icmp.session.restart.delay", "10");
+        properties.put("ping.report.url", "http://127.0.0.1/ping-report");
+        return properties;
+    }
+
+    /**
+     * Creates an executable shell script.
+     *
+     * @param body
+     *            body of the script
+     * @return the script
+     * @throws IOException
+     *             if creating the script fails
+     */
+    private File createScript(final String body) throws IOException {
+        final File script = File.createTempFile("ping-session", ".sh");
+        script.deleteOnExit();
+        Files.write(script.toPath(), ("#!/bin/sh\n" + body).getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(script.setExecutable(true));
+        return script;
+    }
+}
@@ -0,0 +1,186 @@
+package hu.docler.ping.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hu.docler.ping.util.CheckResult;
+import hu.docler.ping.util.JournalResultStoreImpl;
+
+/**
+ * Testing journal result store functionality.
+ *
+ */
+public class TestJournalResultStoreImpl {
+    /** Size of a segment holding four records. */
+    private static final long SEGMENT_SIZE = 32 + 4 * 32;
+    /** Segment duration long enough not to start new segments. */
+    private static final long SEGMENT_MILLIS = 3600000;
+    /** Segment count high enough not to drop segments. */
+    private static final int MAX_SEGMENTS = 10;
+    /** Directories of the journals. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests storing results and reading the history of a check of a host.
+     *
+     * @throws IOException
+     *             If the journal can't be written.
+     */
+    @Test
+    public void testReadHistory() throws IOException {
+        final JournalResultStoreImpl resultStore =
+                new JournalResultStoreImpl(folder.getRoot(), 1024 * 1024, SEGMENT_MILLIS,
+                        MAX_SEGMENTS);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                resultStore.storeHostCheckResult("host" + i % 3,
+                        new CheckResult("check" + i % 2, 1000 + i, i % 5 != 0, i, 0, "Text" + i));
+            }
+            Assert.assertEquals(1, resultStore.getSegmentCount());
+            Assert.assertEquals(1000, resultStore.getRecordCount());
+            Assert.assertEquals("Text999", resultStore.getReportsForHost("host0").get("check1"));
+
+            final List<CheckResult> history =
+                    resultStore.readHistory("host1", "check0", 1100, 1200);
+            Assert.assertEquals(17, history.size());
+            Assert.assertEquals(1100, history.get(0).getTimestampMillis());
+            Assert.assertEquals(1196, history.get(16).getTimestampMillis());
+            Assert.assertEquals(100, history.get(0).getLatencyMillis(), 1e-9);
+            Assert.assertFalse(history.get(0).isSuccess());
+            Assert.assertTrue(history.get(1).isSuccess());
+            Assert.assertNull(history.get(0).getDetail());
+            Assert.assertEquals("check0", history.get(0).getCheckType());
+
+            Assert.assertTrue(resultStore.readHistory("host3", "check0", 0, 5000).isEmpty());
+            Assert.assertTrue(resultStore.readHistory("host1", "check2", 0, 5000).isEmpty());
+            Assert.assertTrue(resultStore.readHistory("host1", "check0", 5000, 6000).isEmpty());
+        } finally {
+            resultStore.close();
+        }
+    }
+
+    /**
+     * Tests that a new segment is started when the current one is full.
+     *
+     * @throws IOException
+     *             If the journal can't be written.
+     */
+    @Test
+    public void testRollOver() throws IOException {
+        final JournalResultStoreImpl resultStore =
+                new JournalResultStoreImpl(folder.getRoot(), SEGMENT_SIZE, SEGMENT_MILLIS,
+                        MAX_SEGMENTS);
+        try {
+            for (int i = 0; i < 10; i++) {
+                resultStore.storeHostCheckResult("host",
+                        new CheckResult("check", 1000 + i, true, i, 0, null));
+            }
+            Assert.assertEquals(3, resultStore.getSegmentCount());
+            Assert.assertEquals(10, resultStore.readHistory("host", "check", 0, 5000).size());
+            Assert.assertEquals(1009,
+                    resultStore.readHistory("host", "check", 0, 5000).get(9).getTimestampMillis());
+        } finally {
+            resultStore.close();
+        }
+    }
+
+    /**
+     * Tests recovering a journal, the last record of which was torn by a crash.
+     *
+     * @throws IOException
+     *             If the journal can't be written.
+     */
+    @Test
+    public void testRecover() throws IOException {
+        final JournalResultStoreImpl resultStore =
+                new JournalResultStoreImpl(folder.getRoot(), SEGMENT_SIZE, SEGMENT_MILLIS,
+                        MAX_SEGMENTS);
+        for (int i = 0; i < 7; i++) {
+            resultStore.storeHostCheckResult("host" + i % 2,
+                    new CheckResult("check", 1000 + i, true, i, 12.5, null));
+        }
+        resultStore.storeHostCheckResult("host0", "text", "Not measured");
+        resultStore.close();
+
+        final File[] files = folder.getRoot().listFiles();
+        Arrays.sort(files);
+        final RandomAccessFile lastSegment = new RandomAccessFile(files[2], "rw");
+        try {
+            lastSegment.seek(32 + 3 * 32 + 8);
+            lastSegment.writeLong(12345);
+        } finally {
+            lastSegment.close();
+        }
+
+        final JournalResultStoreImpl recovered =
+                new JournalResultStoreImpl(folder.getRoot(), SEGMENT_SIZE, SEGMENT_MILLIS,
+                        MAX_SEGMENTS);
+        try {
+            Assert.assertEquals(2, recovered.getSegmentCount());
+            Assert.assertEquals(7, recovered.getRecordCount());
+            Assert.assertNull(recovered.getResultsForHost("host0").get("text"));
+            final CheckResult last = recovered.getResultsForHost("host0").get("check");
+            Assert.assertEquals(1006, last.getTimestampMillis());
+            Assert.assertEquals(12.5, last.getLossPercent(), 1e-9);
+            Assert.assertEquals(1005,
+                    recovered.getResultsForHost("host1").get("check").getTimestampMillis());
+
+            recovered.storeHostCheckResult("host2",
+                    new CheckResult("check", 2000, false, Double.NaN, 100, null));
+            Assert.assertEquals(3, recovered.getSegmentCount());
+            Assert.assertEquals(1,
+                    recovered.readHistory("host2", "check", 2000, 2000).size());
+            Assert.assertEquals(4, recovered.readHistory("host0", "check", 0, 5000).size());
+        } finally {
+            recovered.close();
+        }
+    }
+
+    /**
+     * Tests that the oldest segments over the limit are deleted, when a new segment is started
+     * and on startup.
+     *
+     * @throws IOException
+     *             If the journal can't be written.
+     */
+    @Test
+    public void testRetention() throws IOException {
+        final JournalResultStoreImpl resultStore =
+                new JournalResultStoreImpl(folder.getRoot(), SEGMENT_SIZE, SEGMENT_MILLIS, 2);
+        try {
+            for (int i = 0; i < 10; i++) {
+                resultStore.storeHostCheckResult("host",
+                        new CheckResult("check", 1000 + i, true, i, 0, null));
+            }
+            Assert.assertEquals(2, resultStore.getSegmentCount());
+            Assert.assertEquals(6, resultStore.getRecordCount());
+            final List<CheckResult> history = resultStore.readHistory("host", "check", 0, 5000);
+            Assert.assertEquals(6, history.size());
+            Assert.assertEquals(1004, history.get(0).getTimestampMillis());
+            Assert.assertEquals(3, folder.getRoot().listFiles().length);
+        } finally {
+            resultStore.close();
+        }
+
+        final JournalResultStoreImpl recovered =
+                new JournalResultStoreImpl(folder.getRoot(), SEGMENT_SIZE, SEGMENT_MILLIS, 1);
+        try {
+            Assert.assertEquals(1, recovered.getSegmentCount());
+            Assert.assertEquals(2, recovered.getRecordCount());
+            Assert.assertEquals(2, folder.getRoot().listFiles().length);
+            Assert.assertEquals(1009,
+                    recovered.getResultsForHost("host").get("check").getTimestampMillis());
+        } finally {
+            recovered.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package hu.docler.ping.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.util.CheckResult;
+import hu.docler.ping.util.HistogramResultStoreImpl;
+import hu.docler.ping.util.LatencyHistogram;
+import hu.docler.ping.util.LatencyWindow;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+import hu.docler.ping.util.WindowedLatencyHistogram;
+
+/**
+ * Testing latency histogram functionality.
+ *
+ */
+public class TestLatencyHistogram {
+    /** Relative error of the percentiles. */
+    private static final double RELATIVE_ERROR = 1.0 / 16;
+
+    /**
+     * Tests the percentiles of uniformly distributed latencies over a wide range.
+     */
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertTrue(Double.isNaN(histogram.getPercentileMillis(50)));
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i / 10.0);
+        }
+        histogram.record(Double.NaN);
+        histogram.record(-1);
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(500, histogram.getPercentileMillis(50), 500 * RELATIVE_ERROR);
+        Assert.assertEquals(950, histogram.getPercentileMillis(95), 950 * RELATIVE_ERROR);
+        Assert.assertEquals(990, histogram.getPercentileMillis(99), 990 * RELATIVE_ERROR);
+        Assert.assertEquals(1000, histogram.getPercentileMillis(100), 1e-9);
+        Assert.assertEquals(0.1, histogram.getPercentileMillis(0), 1e-9);
+        Assert.assertEquals(1000, histogram.getMaxMillis(), 1e-9);
+
+        final LatencyHistogram small = new LatencyHistogram();
+        small.record(0.012);
+        Assert.assertEquals(0.012, small.getPercentileMillis(99), 1e-9);
+        small.record(1e9);
+        Assert.assertEquals(LatencyHistogram.MAX_LATENCY_MICROS / 1000.0, small.getMaxMillis(),
+                1e-9);
+    }
+
+    /**
+     * Tests merging histograms.
+     */
+    @Test
+    public void testMerge() {
+        final LatencyHistogram fast = new LatencyHistogram();
+        final LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            fast.record(1);
+        }
+        for (int i = 0; i < 10; i++) {
+            slow.record(200);
+        }
+        final LatencyHistogram merged = new LatencyHistogram();
+        merged.add(fast);
+        merged.add(slow);
+        Assert.assertEquals(100, merged.getCount());
+        Assert.assertEquals(1, merged.getPercentileMillis(90), RELATIVE_ERROR);
+        Assert.assertEquals(200, merged.getPercentileMillis(91), 200 * RELATIVE_ERROR);
+        Assert.assertEquals(90, fast.getCount());
+        Assert.assertTrue(merged.toString().startsWith("p50=1.0"));
+        Assert.assertTrue(merged.toString().endsWith(" ms (n=100)"));
+
+        merged.reset();
+        Assert.assertEquals(0, merged.getCount());
+        Assert.assertTrue(Double.isNaN(merged.getMaxMillis()));
+    }
+
+    /**
+     * Tests that the windows keep the latencies of their slots of time only.
+     */
+    @Test
+    public void testWindows() {
+        final WindowedLatencyHistogram histogram = new WindowedLatencyHistogram();
+        final long start = 3600000L * 1000;
+        histogram.record(start, 10);
+        histogram.record(start + 30000, 20);
+        histogram.record(start + 120000, 30);
+
+        final long now = start + 120000;
+        Assert.assertEquals(1, histogram.snapshot(LatencyWindow.ONE_MINUTE, now).getCount());
+        Assert.assertEquals(3, histogram.snapshot(LatencyWindow.FIVE_MINUTES, now).getCount());
+        Assert.assertEquals(3, histogram.snapshot(LatencyWindow.ONE_HOUR, now).getCount());
+        Assert.assertEquals(30, histogram.snapshot(LatencyWindow.ONE_MINUTE, now)
+                .getPercentileMillis(50), 1e-9);
+
+        final long later = start + 600000;
+        Assert.assertEquals(0, histogram.snapshot(LatencyWindow.ONE_MINUTE, later).getCount());
+        Assert.assertEquals(0, histogram.snapshot(LatencyWindow.FIVE_MINUTES, later).getCount());
+        Assert.assertEquals(3, histogram.snapshot(LatencyWindow.ONE_HOUR, later).getCount());
+        histogram.record(later, 40);
+        histogram.record(start, 50);
+        Assert.assertEquals(1, histogram.snapshot(LatencyWindow.ONE_MINUTE, later).getCount());
+        Assert.assertEquals(5, histogram.snapshot(LatencyWindow.ONE_HOUR, later).getCount());
+    }
+
+    /**
+     * Tests that the result store keeps the histograms of the latencies measured.
+     */
+    @Test
+    public void testHistogramResultStore() {
+        final ResultStore resultStore = new HistogramResultStoreImpl(new MapResultStoreImpl());
+        Assert.assertNull(new MapResultStoreImpl().getLatencyHistogram("127.0.0.1",
+                "ping.icmp.command", LatencyWindow.ONE_MINUTE));
+        final long now = System.currentTimeMillis();
+        for (int i = 1; i <= 100; i++) {
+            resultStore.storeHostCheckResult("127.0.0.1",
+                    new CheckResult("ping.icmp.command", now, true, i, 0, null));
+        }
+        resultStore.storeHostCheckResult("127.0.0.1", "ping.tracert.command", "Trace");
+        Assert.assertEquals("Trace",
+                resultStore.getReportsForHost("127.0.0.1").get("ping.tracert.command"));
+        Assert.assertNull(resultStore.getLatencyHistogram("127.0.0.1", "ping.tracert.command",
+                LatencyWindow.ONE_MINUTE));
+        final LatencyHistogram histogram = resultStore.getLatencyHistogram("127.0.0.1",
+                "ping.icmp.command", LatencyWindow.ONE_MINUTE);
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(95, histogram.getPercentileMillis(95), 95 * RELATIVE_ERROR);
+    }
+}
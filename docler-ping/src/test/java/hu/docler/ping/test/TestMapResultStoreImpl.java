@@ -8,10 +8,12 @@ import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import hu.docler.ping.util.CheckResult;
 import hu.docler.ping.util.MapResultStoreImpl;
 import hu.docler.ping.util.ResultStore;
 
@@ -39,6 +41,71 @@ public class TestMapResultStoreImpl {
         Assert.assertEquals(resultValue, resultValueForId);
     }
 
+    /**
+     * Tests putting a typed result to a {@link ResultStore}, its detail is rendered to text only
+     * when the text is requested, and only once.
+     */
+    @Test
+    public void testPutTypedResult() {
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final String host = "127.0.0.1";
+        final AtomicInteger renderCount = new AtomicInteger();
+        final Object detail = new Object() {
+            @Override
+            public String toString() {
+                renderCount.incrementAndGet();
+                return "Rendered detail";
+            }
+        };
+        final CheckResult result = new CheckResult("some.id.value", 1000, false, 2.5, 25, detail);
+        resultStore.storeHostCheckResult(host, result);
+        Assert.assertEquals(0, renderCount.get());
+
+        final CheckResult storedResult = resultStore.getResultsForHost(host).get("some.id.value");
+        Assert.assertSame(result, storedResult);
+        Assert.assertFalse(storedResult.isSuccess());
+        Assert.assertEquals(2.5, storedResult.getLatencyMillis(), 1e-9);
+        Assert.assertEquals(25, storedResult.getLossPercent(), 1e-9);
+        Assert.assertSame(detail, storedResult.getDetail(Object.class));
+        Assert.assertNull(storedResult.getDetail(String.class));
+        Assert.assertEquals(0, renderCount.get());
+
+        Assert.assertEquals("Rendered detail",
+                resultStore.getReportsForHost(host).get("some.id.value"));
+        Assert.assertEquals("Rendered detail",
+                resultStore.getReportsForHost(host).get("some.id.value"));
+        Assert.assertEquals(1, renderCount.get());
+    }
+
+    /**
+     * Tests that the results of a host are returned as an immutable point-in-time view, not
+     * changed by the results stored later.
+     */
+    @Test
+    public void testResultsSnapshot() {
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final String host = "127.0.0.1";
+        resultStore.storeHostCheckResult(host, "check1", "First value");
+        final Map<String, CheckResult> snapshot = resultStore.getResultsForHost(host);
+        resultStore.storeHostCheckResult(host, "check1", "Second value");
+        resultStore.storeHostCheckResult(host, "check2", "Other value");
+
+        Assert.assertEquals(1, snapshot.size());
+        Assert.assertEquals("First value", snapshot.get("check1").getText());
+        Assert.assertNull(snapshot.get("check2"));
+        final Map<String, CheckResult> current = resultStore.getResultsForHost(host);
+        Assert.assertEquals(2, current.size());
+        Assert.assertEquals("Second value", current.get("check1").getText());
+        Assert.assertEquals("Other value", current.get("check2").getText());
+        Assert.assertEquals(current.keySet(), resultStore.getReportsForHost(host).keySet());
+        try {
+            current.remove("check1");
+            Assert.fail("Snapshot must not be modifiable");
+        } catch (final UnsupportedOperationException e) {
+            Assert.assertEquals(2, resultStore.getResultsForHost(host).size());
+        }
+    }
+
     /**
      * Tests putting an invalid result (host missing) to a {@link ResultStore}.
      */
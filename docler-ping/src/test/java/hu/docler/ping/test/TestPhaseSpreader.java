@@ -0,0 +1,64 @@
+package hu.docler.ping.test;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.schedule.PhaseSpreader;
+
+/**
+ * Testing check phase spreading functionality.
+ *
+ */
+public class TestPhaseSpreader {
+
+    /**
+     * Creates a new {@link PhaseSpreader} with an invalid jitter value.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPhaseSpreaderCreateWithInvalidJitter() {
+        new PhaseSpreader(true, 1.5, new Random());
+    }
+
+    /**
+     * Tests that all the checks start immediately if spreading is disabled.
+     */
+    @Test
+    public void testSpreadingDisabled() {
+        final PhaseSpreader phaseSpreader = new PhaseSpreader(false, 0.5, new Random());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(0, phaseSpreader.getInitialDelay(i, 10, 1, 3, 30000));
+        }
+    }
+
+    /**
+     * Tests that the checks are placed evenly across the period without jitter.
+     */
+    @Test
+    public void testEvenSpreading() {
+        final PhaseSpreader phaseSpreader = new PhaseSpreader(true, 0, new Random());
+        Assert.assertEquals(0, phaseSpreader.getInitialDelay(0, 10, 0, 3, 30000));
+        Assert.assertEquals(3000, phaseSpreader.getInitialDelay(1, 10, 0, 3, 30000));
+        Assert.assertEquals(27000, phaseSpreader.getInitialDelay(9, 10, 0, 3, 30000));
+        Assert.assertEquals(4000, phaseSpreader.getInitialDelay(1, 10, 1, 3, 30000));
+        Assert.assertEquals(5000, phaseSpreader.getInitialDelay(1, 10, 2, 3, 30000));
+    }
+
+    /**
+     * Tests that the jitter keeps the phases within the period and within the slot of the check.
+     */
+    @Test
+    public void testJitterBounds() {
+        final PhaseSpreader phaseSpreader = new PhaseSpreader(true, 1, new Random(42));
+        for (int host = 0; host < 99; host++) {
+            for (int type = 0; type < 3; type++) {
+                final long delay = phaseSpreader.getInitialDelay(host, 100, type, 3, 30000);
+                final long basePhase = 300L * host + 100L * type;
+                Assert.assertTrue(delay >= basePhase && delay <= basePhase + 300);
+            }
+        }
+        final long lastDelay = phaseSpreader.getInitialDelay(99, 100, 2, 3, 30000);
+        Assert.assertTrue(lastDelay >= 0 && lastDelay < 30000);
+    }
+}
@@ -0,0 +1,156 @@
+package hu.docler.ping.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.icmp.PingOutputParser;
+import hu.docler.ping.icmp.PingStatistics;
+
+/**
+ * Testing ping output parser functionality.
+ *
+ */
+public class TestPingOutputParser {
+    /** Output of a successful Windows ping. */
+    public static final String WINDOWS_OUTPUT = "\r\nPinging 127.0.0.1 with 32 bytes of data:\r\n"
+            + "Reply from 127.0.0.1: bytes=32 time<1ms TTL=128\r\n"
+            + "Reply from 127.0.0.1: bytes=32 time=2ms TTL=128\r\n"
+            + "Reply from 127.0.0.1: bytes=32 time<1ms TTL=128\r\n"
+            + "Reply from 127.0.0.1: bytes=32 time<1ms TTL=128\r\n\r\n"
+            + "Ping statistics for 127.0.0.1:\r\n"
+            + "    Packets: Sent = 4, Received = 4, Lost = 0 (0% loss),\r\n"
+            + "Approximate round trip times in milli-seconds:\r\n"
+            + "    Minimum = 0ms, Maximum = 2ms, Average = 1ms\r\n";
+    /** Output of a successful Linux (iputils) ping. */
+    public static final String LINUX_OUTPUT = "PING 127.0.0.1 (127.0.0.1) 56(84) bytes of data.\n"
+            + "64 bytes from 127.0.0.1: icmp_seq=1 ttl=64 time=0.031 ms\n"
+            + "64 bytes from 127.0.0.1: icmp_seq=2 ttl=64 time=0.049 ms\n"
+            + "64 bytes from 127.0.0.1: icmp_seq=3 ttl=64 time=0.040 ms\n\n"
+            + "--- 127.0.0.1 ping statistics ---\n"
+            + "3 packets transmitted, 3 received, 0% packet loss, time 2003ms\n"
+            + "rtt min/avg/max/mdev = 0.031/0.040/0.049/0.007 ms\n";
+    /** {@link PingOutputParser} instance. */
+    private final PingOutputParser parser = new PingOutputParser();
+    /** {@link PingStatistics} instance reused by the tests. */
+    private final PingStatistics statistics = new PingStatistics();
+
+    /**
+     * Tests parsing the output of a successful Windows ping.
+     */
+    @Test
+    public void testParseWindowsOutput() {
+        Assert.assertTrue(parser.parse(WINDOWS_OUTPUT, statistics));
+        assertCounts(4, 4, 0, 0);
+        Assert.assertEquals(0, statistics.getMinRtt(), 0);
+        Assert.assertEquals(1, statistics.getAvgRtt(), 0);
+        Assert.assertEquals(2, statistics.getMaxRtt(), 0);
+        Assert.assertEquals(PingStatistics.NOT_AVAILABLE, statistics.getMdevRtt(), 0);
+    }
+
+    /**
+     * Tests that the destination unreachable replies of a Windows ping are counted as errors,
+     * although Windows counts them as received.
+     */
+    @Test
+    public void testParseWindowsUnreachableOutput() {
+        Assert.assertTrue(parser.parse("Pinging 10.0.0.1 with 32 bytes of data:\r\n"
+                + "Reply from 10.0.0.2: Destination host unreachable.\r\n"
+                + "Request timed out.\r\n\r\n"
+                + "    Packets: Sent = 2, Received = 1, Lost = 1 (50% loss),\r\n", statistics));
+        assertCounts(2, 1, 1, 2);
+        Assert.assertEquals(PingStatistics.NOT_AVAILABLE, statistics.getAvgRtt(), 0);
+    }
+
+    /**
+     * Tests parsing the output of a successful Linux ping.
+     */
+    @Test
+    public void testParseLinuxOutput() {
+        Assert.assertTrue(parser.parse(LINUX_OUTPUT, statistics));
+        assertCounts(3, 3, 0, 0);
+        Assert.assertEquals(0.031, statistics.getMinRtt(), 1e-9);
+        Assert.assertEquals(0.040, statistics.getAvgRtt(), 1e-9);
+        Assert.assertEquals(0.049, statistics.getMaxRtt(), 1e-9);
+        Assert.assertEquals(0.007, statistics.getMdevRtt(), 1e-9);
+    }
+
+    /**
+     * Tests parsing the output of a Linux ping with errors.
+     */
+    @Test
+    public void testParseLinuxErrorOutput() {
+        Assert.assertTrue(parser.parse("PING 10.0.0.1 (10.0.0.1) 56(84) bytes of data.\n"
+                + "From 10.0.0.2 icmp_seq=1 Destination Host Unreachable\n\n"
+                + "--- 10.0.0.1 ping statistics ---\n"
+                + "3 packets transmitted, 0 received, +3 errors, 100% packet loss, time 2030ms\n",
+                statistics));
+        assertCounts(3, 0, 3, 3);
+    }
+
+    /**
+     * Tests parsing the summary of <code>fping -c N -q</code>.
+     */
+    @Test
+    public void testParseFpingOutput() {
+        Assert.assertTrue(parser.parse(
+                "127.0.0.1 : xmt/rcv/%loss = 5/4/20%, min/avg/max = 0.03/0.04/0.05\n", statistics));
+        assertCounts(5, 4, 1, 0);
+        Assert.assertEquals(0.05, statistics.getMaxRtt(), 1e-9);
+    }
+
+    /**
+     * Tests that an output without packet counts is not accepted, and the reused record is
+     * cleared.
+     */
+    @Test
+    public void testParseEmptyOutput() {
+        Assert.assertTrue(parser.parse(LINUX_OUTPUT, statistics));
+        Assert.assertFalse(parser.parse("", statistics));
+        Assert.assertFalse(parser.parse(null, statistics));
+        assertCounts(0, 0, 0, 0);
+        Assert.assertEquals(PingStatistics.NOT_AVAILABLE, statistics.getAvgRtt(), 0);
+    }
+
+    /**
+     * Tests parsing the reply lines of a continuously running ping.
+     */
+    @Test
+    public void testParseReplyLine() {
+        Assert.assertEquals(0.031,
+                parser.parseReplyLine("64 bytes from 127.0.0.1: icmp_seq=1 ttl=64 time=0.031 ms"),
+                1e-9);
+        Assert.assertEquals(1,
+                parser.parseReplyLine("Reply from 127.0.0.1: bytes=32 time<1ms TTL=128\r"), 0);
+        Assert.assertEquals(PingOutputParser.REPLY_LOST,
+                parser.parseReplyLine("Reply from 10.0.0.2: Destination host unreachable."), 0);
+        Assert.assertEquals(PingOutputParser.REPLY_LOST,
+                parser.parseReplyLine("Request timed out."), 0);
+        Assert.assertEquals(PingOutputParser.REPLY_LOST,
+                parser.parseReplyLine("no answer yet for icmp_seq=3"), 0);
+        Assert.assertEquals(PingOutputParser.NOT_A_REPLY,
+                parser.parseReplyLine("PING 127.0.0.1 (127.0.0.1) 56(84) bytes of data."), 0);
+    }
+
+    /**
+     * Asserts the packet counts of the statistics parsed.
+     *
+     * @param sent
+     *            expected number of echo requests sent
+     * @param received
+     *            expected number of echo replies received
+     * @param lost
+     *            expected number of echo requests lost
+     * @param errors
+     *            expected number of error replies
+     */
+    private void assertCounts(
+            final int sent,
+            final int received,
+            final int lost,
+            final int errors) {
+        Assert.assertEquals(sent, statistics.getSent());
+        Assert.assertEquals(received, statistics.getReceived());
+        Assert.assertEquals(lost, statistics.getLost());
+        Assert.assertEquals(errors, statistics.getErrors());
+    }
+}
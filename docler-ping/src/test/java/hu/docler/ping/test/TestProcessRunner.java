@@ -0,0 +1,194 @@
+package hu.docler.ping.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.process.ProcessOutput;
+import hu.docler.ping.process.ProcessResult;
+import hu.docler.ping.process.ProcessRunner;
+
+/**
+ * Testing external command runner functionality.
+ *
+ */
+public class TestProcessRunner {
+
+    /**
+     * Creates a new {@link ProcessRunner} without a valid {@link Properties} presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testProcessRunnerCreateWithoutProperties() {
+        new ProcessRunner(null);
+    }
+
+    /**
+     * Tests that the output and the exit code of a command are captured, the standard error
+     * merged into the standard output.
+     */
+    @Test
+    public void testOutputAndExitCode() {
+        final ProcessRunner processRunner = new ProcessRunner(new Properties());
+        final ProcessResult result = processRunner.run(
+                new String[] {"sh", "-c", "echo out; echo err >&2; exit 3"}, 5000);
+        Assert.assertTrue(result.isStarted());
+        Assert.assertFalse(result.isTimedOut());
+        Assert.assertEquals(3, result.getExitCode());
+        Assert.assertTrue(result.getOutput().contains("out"));
+        Assert.assertTrue(result.getOutput().contains("err"));
+        Assert.assertEquals(1, processRunner.getFailedCount());
+        Assert.assertEquals(0, processRunner.getRunningCount());
+    }
+
+    /**
+     * Tests that a hung command and its child processes are killed at the deadline.
+     */
+    @Test
+    public void testHungCommandKilled() {
+        final ProcessRunner processRunner = new ProcessRunner(new Properties());
+        final long startTime = System.nanoTime();
+        final ProcessResult result = processRunner.run(
+                new String[] {"sh", "-c", "echo started; sleep 30; echo finished"}, 300);
+        Assert.assertTrue(result.isTimedOut());
+        Assert.assertTrue(result.getOutput().contains("started"));
+        Assert.assertFalse(result.getOutput().contains("finished"));
+        Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(10));
+        Assert.assertEquals(1, processRunner.getTimedOutCount());
+    }
+
+    /**
+     * Tests that a descendant outliving the command and holding its output open is killed at the
+     * deadline.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testOrphanedDescendantKilled() throws Exception {
+        final ProcessRunner processRunner = new ProcessRunner(new Properties());
+        final long startTime = System.nanoTime();
+        final ProcessResult result = processRunner.run(new String[] {"sh", "-c",
+            "(sleep 30; echo finished) & echo started $!; sleep 0.3"}, 1000);
+        Assert.assertTrue(result.isTimedOut());
+        Assert.assertTrue(result.getOutput().contains("started"));
+        Assert.assertFalse(result.getOutput().contains("finished"));
+        Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(10));
+        final long orphanPid = Long.parseLong(result.getOutput().trim().split(" ")[1]);
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (isRunning(orphanPid) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(isRunning(orphanPid));
+    }
+
+    /**
+     * Tests that the captured output is capped, the rest of the output is drained without
+     * blocking the command, and the output buffer is reused by the next command.
+     */
+    @Test
+    public void testOutputCappedAndBufferReused() {
+        final Properties properties = new Properties();
+        properties.put("ping.process.output.max.bytes", "1024");
+        final ProcessRunner processRunner = new ProcessRunner(properties);
+        for (int i = 0; i < 3; i++) {
+            final ProcessResult result = processRunner.run(
+                    new String[] {"sh", "-c", "head -c 200000 /dev/zero | tr '\\0' x"}, 5000);
+            try {
+                Assert.assertEquals(0, result.getExitCode());
+                Assert.assertTrue(result.isOutputTruncated());
+                Assert.assertEquals(1024, result.getOutputLength());
+                Assert.assertEquals('x', result.getOutputChars().charAt(1023));
+            } finally {
+                result.close();
+            }
+        }
+        Assert.assertEquals(1, processRunner.getAllocatedBufferCount());
+    }
+
+    /**
+     * Tests that the output of a closed result is not available any more.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testOutputOfClosedResult() {
+        final ProcessResult result =
+                new ProcessRunner(new Properties()).run("echo closed", 5000);
+        Assert.assertEquals("closed", result.getOutputChars().toString().trim());
+        result.close();
+        result.getOutput();
+    }
+
+    /**
+     * Tests that the output copied out of a result stays available once the result is closed, and
+     * is rendered with its note.
+     */
+    @Test
+    public void testCopyOutput() {
+        final ProcessResult result =
+                new ProcessRunner(new Properties()).run("echo copied", 5000);
+        final ProcessOutput output = result.copyOutput("Note");
+        result.close();
+        Assert.assertTrue(output.isStarted());
+        Assert.assertFalse(output.isTimedOut());
+        Assert.assertEquals("copied", output.getChars().toString().trim());
+        Assert.assertTrue(output.toString().startsWith("copied"));
+        Assert.assertTrue(output.toString().trim().endsWith("Note"));
+    }
+
+    /**
+     * Tests that a command not getting a permit before its deadline is rejected.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("ping.process.max.concurrent", "1");
+        final ProcessRunner processRunner = new ProcessRunner(properties);
+        final CountDownLatch finishedLatch = new CountDownLatch(1);
+        final Thread blockingThread = new Thread(new Runnable() {
+            public void run() {
+                processRunner.run("sleep 2", 5000);
+                finishedLatch.countDown();
+            }
+        });
+        blockingThread.start();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (processRunner.getRunningCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        final ProcessResult result = processRunner.run("echo rejected", 100);
+        Assert.assertFalse(result.isStarted());
+        Assert.assertEquals(1, processRunner.getRejectedCount());
+        Assert.assertTrue(finishedLatch.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Checks whether a process is running, a process killed but not reaped yet is not.
+     *
+     * @param pid
+     *            id of the process
+     * @return <code>true</code> if the process is running
+     * @throws IOException
+     *             if reading the state of the process fails
+     */
+    private static boolean isRunning(final long pid) throws IOException {
+        final String stat;
+        try {
+            stat = new String(Files.readAllBytes(Paths.get("/proc", Long.toString(pid), "stat")),
+                    StandardCharsets.US_ASCII);
+        } catch (final NoSuchFileException e) {
+            return false;
+        }
+        final char state = stat.charAt(stat.lastIndexOf(')') + 2);
+        return state != 'Z' && state != 'X';
+    }
+}
@@ -0,0 +1,51 @@
+package hu.docler.ping.test;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.report.ReportSender;
+import hu.docler.ping.test.util.LocalHttpServer;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing error report sending functionality.
+ *
+ */
+public class TestReportSender {
+
+    /**
+     * Tests that the report holds the stored results of the checks of the host.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testReportContainsResults() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(0);
+        try {
+            final Properties properties = new Properties();
+            properties.put("ping.report.url", "http://" + server.getHost() + "/ping-report");
+            final ResultStore resultStore = new MapResultStoreImpl();
+            resultStore.storeHostCheckResult("host", "ping.icmp.command", "icmp output");
+            resultStore.storeHostCheckResult("host", "ping.tcpip.check", "tcpip output");
+            resultStore.storeHostCheckResult("host", "ping.tracert.command", "trace output");
+            resultStore.storeHostCheckResult("host", "ping.tcpconnect.check",
+                    "Host: host; Connect Time (us): 443=failed");
+            new ReportSender("host", properties, resultStore).sendReport();
+
+            final String report = server.getLastRequestBody();
+            Assert.assertTrue(report.contains("\"host\":\"host\""));
+            Assert.assertTrue(report.contains("\"icmp_ping\":\"icmp output\""));
+            Assert.assertTrue(report.contains("\"tcp_ping\":\"tcpip output\""));
+            Assert.assertTrue(report.contains("\"trace\":\"trace output\""));
+            Assert.assertFalse(report.contains("\"trace_distance\""));
+            Assert.assertTrue(report.contains(
+                    "\"tcp_connect\":\"Host: host; Connect Time (us): 443=failed\""));
+        } finally {
+            server.stop();
+        }
+    }
+}
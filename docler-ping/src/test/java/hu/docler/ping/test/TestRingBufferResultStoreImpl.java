@@ -0,0 +1,155 @@
+package hu.docler.ping.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.task.IcmpPingTask;
+import hu.docler.ping.util.CheckResult;
+import hu.docler.ping.util.RingBufferResultStoreImpl;
+import hu.docler.ping.util.SampleHistory;
+import hu.docler.ping.util.SampleWindow;
+
+/**
+ * Testing ring buffer based result store functionality.
+ *
+ */
+public class TestRingBufferResultStoreImpl {
+    /** Host used by the tests. */
+    private static final String HOST = "127.0.0.1";
+    /** Check type used by the tests. */
+    private static final String CHECK_TYPE = "ping.icmp.command";
+
+    /**
+     * Tests storing the last result and the samples of a check.
+     */
+    @Test
+    public void testStoreResultAndSamples() {
+        final RingBufferResultStoreImpl resultStore = new RingBufferResultStoreImpl(4);
+        Assert.assertNull(resultStore.getHistory(HOST, CHECK_TYPE));
+        resultStore.storeHostCheckResult(HOST,
+                new CheckResult(CHECK_TYPE, 1000, true, 1.5, 0, "First value"));
+        resultStore.storeHostCheckResult(HOST,
+                new CheckResult(CHECK_TYPE, 2000, false, Double.NaN, 100, "Result value"));
+        Assert.assertEquals("Result value", resultStore.getReportsForHost(HOST).get(CHECK_TYPE));
+        Assert.assertFalse(resultStore.getResultsForHost(HOST).get(CHECK_TYPE).isSuccess());
+        final SampleHistory history = resultStore.getHistory(HOST, CHECK_TYPE);
+        Assert.assertNotNull(history);
+        Assert.assertEquals(2, history.getSize());
+        final SampleWindow window = new SampleWindow();
+        Assert.assertEquals(2, history.readRecent(0, window));
+        Assert.assertEquals(1000, window.getTimestamp(0));
+        Assert.assertEquals(1.5, window.getLatency(0), 1e-6);
+        Assert.assertTrue(window.isSuccess(0));
+        Assert.assertEquals(0, window.getLoss(0), 1e-6);
+        Assert.assertTrue(Double.isNaN(window.getLatency(1)));
+        Assert.assertFalse(window.isSuccess(1));
+        Assert.assertEquals(100, window.getLoss(1), 1e-6);
+    }
+
+    /**
+     * Tests that a full history keeps the newest samples and reads the recent ones only.
+     */
+    @Test
+    public void testHistoryWrapsAround() {
+        final SampleHistory history = new SampleHistory(3);
+        for (int i = 1; i <= 5; i++) {
+            history.append(i * 1000, i, true, 0);
+        }
+        Assert.assertEquals(3, history.getSize());
+        Assert.assertEquals(5, history.getWriteCount());
+        final SampleWindow window = new SampleWindow();
+        Assert.assertEquals(3, history.readRecent(0, window));
+        Assert.assertEquals(3000, window.getTimestamp(0));
+        Assert.assertEquals(5000, window.getTimestamp(2));
+        Assert.assertEquals(2, history.readRecent(4000, window));
+        Assert.assertEquals(4.0, window.getLatency(0), 1e-6);
+        Assert.assertEquals(0, history.readRecent(6000, window));
+    }
+
+    /**
+     * Creates a sample with an invalid host.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStoreSampleWithInvalidHost() {
+        new RingBufferResultStoreImpl(4).storeHostCheckResult(null,
+                new CheckResult(CHECK_TYPE, 0, true, 0, 0, null));
+    }
+
+    /**
+     * Tests that reading concurrently with the writer never returns a torn or overwritten
+     * sample.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final SampleHistory history = new SampleHistory(16);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> writer = threadPool.submit(new Runnable() {
+                public void run() {
+                    for (int i = 1; running.get(); i++) {
+                        history.append(i, i % 1000, i % 2 == 0, i % 100);
+                    }
+                }
+            });
+            final SampleWindow window = new SampleWindow();
+            for (int read = 0; read < 20000; read++) {
+                history.readRecent(0, window);
+                for (int i = 0; i < window.getSize(); i++) {
+                    final long timestamp = window.getTimestamp(i);
+                    Assert.assertEquals(timestamp % 1000, window.getLatency(i), 1e-6);
+                    Assert.assertEquals(timestamp % 2 == 0, window.isSuccess(i));
+                    Assert.assertEquals(timestamp % 100, window.getLoss(i), 1e-6);
+                    if (i > 0) {
+                        Assert.assertEquals(window.getTimestamp(i - 1) + 1, timestamp);
+                    }
+                }
+            }
+            running.set(false);
+            writer.get();
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that a task records the latency, the status and the loss of its checks.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTaskRecordsSamples() throws Exception {
+        final File script = File.createTempFile("ping", ".sh");
+        script.deleteOnExit();
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "echo '4 packets transmitted, 3 received, 25% packet loss, time 3004ms'\n"
+                + "echo 'rtt min/avg/max/mdev = 1.000/2.500/4.000/1.000 ms'\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(script.setExecutable(true));
+        final Properties properties = new Properties();
+        properties.put("ping.icmp.delay", "5");
+        properties.put("ping.icmp.command", script.getAbsolutePath() + " $HOST");
+        properties.put("ping.report.url", "http://127.0.0.1/ping-report");
+        final RingBufferResultStoreImpl resultStore = new RingBufferResultStoreImpl(8);
+        new IcmpPingTask(properties, HOST, resultStore).run();
+
+        final SampleWindow window = new SampleWindow();
+        Assert.assertEquals(1, resultStore.getHistory(HOST, CHECK_TYPE).readRecent(0, window));
+        Assert.assertEquals(2.5, window.getLatency(0), 1e-6);
+        Assert.assertEquals(25, window.getLoss(0), 1e-6);
+        Assert.assertFalse(window.isSuccess(0));
+    }
+}
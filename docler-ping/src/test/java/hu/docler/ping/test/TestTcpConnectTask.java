@@ -0,0 +1,139 @@
+package hu.docler.ping.test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.task.TcpConnectTask;
+import hu.docler.ping.tcp.ConnectCallback;
+import hu.docler.ping.tcp.TcpConnectProbeEngine;
+import hu.docler.ping.test.util.TestDefaults;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing raw TCP connect task functionality.
+ *
+ */
+public class TestTcpConnectTask {
+
+    /**
+     * Creates a new {@link TcpConnectTask} task without a valid probe engine presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTcpConnectTaskCreateWithoutEngine() {
+        new TcpConnectTask(createProperties("80"), "some.dummy.host", new MapResultStoreImpl(),
+                null);
+    }
+
+    /**
+     * Creates a new {@link TcpConnectTask} task with an invalid port configured.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTcpConnectTaskCreateWithInvalidPort() throws Exception {
+        final TcpConnectProbeEngine probeEngine = new TcpConnectProbeEngine(createProperties("1"));
+        try {
+            new TcpConnectTask(createProperties("80,http"), "some.dummy.host",
+                    new MapResultStoreImpl(), probeEngine);
+        } finally {
+            probeEngine.close();
+        }
+    }
+
+    /**
+     * Tests that running the task stores the connect time of a listening port and the failure of
+     * a closed port.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTcpConnectTaskRun() throws Exception {
+        final ServerSocket listeningSocket =
+                new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final ServerSocket closedSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final int closedPort = closedSocket.getLocalPort();
+        closedSocket.close();
+        final Properties properties =
+                createProperties(listeningSocket.getLocalPort() + "," + closedPort);
+        final TcpConnectProbeEngine probeEngine = new TcpConnectProbeEngine(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new TcpConnectTask(properties, "127.0.0.1", resultStore, probeEngine).run();
+            final Map<String, String> reportsForHost =
+                    TestDefaults.awaitReportsForHost(resultStore, "127.0.0.1");
+            Assert.assertNotNull(reportsForHost);
+            final String result = reportsForHost.get("ping.tcpconnect.check");
+            Assert.assertNotNull(result);
+            Assert.assertTrue(result.matches(".* " + listeningSocket.getLocalPort() + "=\\d+.*"));
+            Assert.assertTrue(result.contains(" " + closedPort + "=failed"));
+            Assert.assertEquals(0, probeEngine.getInFlightCount());
+        } finally {
+            probeEngine.close();
+            listeningSocket.close();
+        }
+    }
+
+    /**
+     * Tests that a single engine sweeps a large number of ports.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testManyPortsSwept() throws Exception {
+        final TcpConnectProbeEngine probeEngine = new TcpConnectProbeEngine(createProperties("80"));
+        final int probes = 2000;
+        final CountDownLatch latch = new CountDownLatch(probes);
+        final AtomicInteger completedProbes = new AtomicInteger();
+        try {
+            for (int i = 0; i < probes; i++) {
+                probeEngine.probe(InetAddress.getLoopbackAddress(), 40000 + i,
+                        new ConnectCallback() {
+                            public void connected(final long connectNanos) {
+                                completedProbes.incrementAndGet();
+                                latch.countDown();
+                            }
+
+                            public void failed(final Exception cause) {
+                                completedProbes.incrementAndGet();
+                                latch.countDown();
+                            }
+                        });
+            }
+            Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+            Assert.assertEquals(probes, completedProbes.get());
+            Assert.assertEquals(probes,
+                    probeEngine.getConnectedCount() + probeEngine.getFailedCount());
+            Assert.assertEquals(0, probeEngine.getInFlightCount());
+        } finally {
+            probeEngine.close();
+        }
+    }
+
+    /**
+     * Creates test {@link Properties} for test run.
+     *
+     * @param ports
+     *            ports to be probed
+     * @return {@link Properties} for tasks
+     */
+    private Properties createProperties(final String ports) {
+        final Properties properties = new Properties();
+        properties.put("ping.tcpconnect.delay", "5");
+        properties.put("ping.tcpconnect.ports", ports);
+        properties.put("ping.tcpconnect.timeout", "5000");
+        properties.put("ping.report.url", "http://127.0.0.1/ping-report");
+        return properties;
+    }
+}
@@ -6,10 +6,13 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
+import hu.docler.ping.http.PingHttpClient;
 import hu.docler.ping.task.TcpipPingTask;
+import hu.docler.ping.test.util.LocalHttpServer;
 import hu.docler.ping.test.util.TestDefaults;
 import hu.docler.ping.util.MapResultStoreImpl;
 import hu.docler.ping.util.ResultStore;
@@ -21,13 +24,26 @@ import hu.docler.ping.util.ResultStore;
 public class TestTcpipPingTask {
     /** {@link ExecutorService} instance. */
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    /** {@link PingHttpClient} of the tests not inspecting the client. */
+    private final PingHttpClient sharedHttpClient = new PingHttpClient(createProperties());
+
+    /**
+     * Closes the {@link PingHttpClient} of the test.
+     *
+     * @throws Exception
+     *             if closing the client fails
+     */
+    @After
+    public void closeHttpClient() throws Exception {
+        sharedHttpClient.close();
+    }
 
     /**
      * Creates a new {@link TcpipPingTask} task without a valid host value presented.
      */
     @Test(expected = IllegalArgumentException.class)
     public void testTcpipPingTaskCreateWithoutHost() {
-        new TcpipPingTask(new Properties(), null, new MapResultStoreImpl());
+        new TcpipPingTask(new Properties(), null, new MapResultStoreImpl(), sharedHttpClient);
     }
 
     /**
@@ -35,7 +51,7 @@ public class TestTcpipPingTask {
      */
     @Test(expected = IllegalArgumentException.class)
     public void testTcpipPingTaskCreateWithoutProperties() {
-        new TcpipPingTask(null, "some.dummy.host", new MapResultStoreImpl());
+        new TcpipPingTask(null, "some.dummy.host", new MapResultStoreImpl(), sharedHttpClient);
     }
 
     /**
@@ -43,7 +59,15 @@ public class TestTcpipPingTask {
      */
     @Test(expected = IllegalArgumentException.class)
     public void testTcpipPingTaskCreateWithoutResultStore() {
-        new TcpipPingTask(new Properties(), "some.dummy.host", null);
+        new TcpipPingTask(new Properties(), "some.dummy.host", null, sharedHttpClient);
+    }
+
+    /**
+     * Creates a new {@link TcpipPingTask} task without a valid {@link PingHttpClient} presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTcpipPingTaskCreateWithoutHttpClient() {
+        new TcpipPingTask(new Properties(), "some.dummy.host", new MapResultStoreImpl(), null);
     }
 
     /**
@@ -55,8 +79,8 @@ public class TestTcpipPingTask {
     @Test
     public void testTcpipPingTaskRun() throws Exception {
         final ResultStore resultStore = new MapResultStoreImpl();
-        final TcpipPingTask tcpipPingTask =
-                new TcpipPingTask(createProperties(), TestDefaults.defaultTestHost, resultStore);
+        final TcpipPingTask tcpipPingTask = new TcpipPingTask(createProperties(),
+                TestDefaults.defaultTestHost, resultStore, sharedHttpClient);
         final Future<?> future = executorService.submit(tcpipPingTask);
         future.get();
         final Map<String, String> reportsForHost =
@@ -69,6 +93,141 @@ public class TestTcpipPingTask {
         Assert.assertFalse(icmpPingResult.isEmpty());
     }
 
+    /**
+     * Tests that in keep-alive mode the second check of a host reuses the pooled connection of the
+     * first check of the shared {@link PingHttpClient}, so only the first check has DNS resolution
+     * and connect phases.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTcpipPingTaskKeepAlive() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(128);
+        final Properties properties = createProperties();
+        properties.put("ping.tcpip.keepalive", "true");
+        final PingHttpClient httpClient = new PingHttpClient(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            final TcpipPingTask tcpipPingTask =
+                    new TcpipPingTask(properties, server.getHost(), resultStore, httpClient);
+            executorService.submit(tcpipPingTask).get();
+            final String firstResult =
+                    resultStore.getReportsForHost(server.getHost()).get("ping.tcpip.check");
+            Assert.assertTrue(firstResult.contains("Status Code: 200"));
+            Assert.assertTrue(firstResult.contains("Connection: cold"));
+            Assert.assertTrue(firstResult.contains(" dns="));
+            Assert.assertTrue(firstResult.contains(" connect="));
+            Assert.assertFalse(firstResult.contains(" tls="));
+            Assert.assertTrue(firstResult.contains(" ttfb="));
+            Assert.assertTrue(firstResult.contains(" body="));
+            executorService.submit(tcpipPingTask).get();
+            final String secondResult =
+                    resultStore.getReportsForHost(server.getHost()).get("ping.tcpip.check");
+            Assert.assertTrue(secondResult.contains("Connection: warm"));
+            Assert.assertFalse(secondResult.contains(" dns="));
+            Assert.assertFalse(secondResult.contains(" connect="));
+            Assert.assertTrue(secondResult.contains(" ttfb="));
+            Assert.assertEquals(1, httpClient.getPoolStats().getAvailable());
+        } finally {
+            httpClient.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that without keep-alive mode every check opens a new connection.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTcpipPingTaskWithoutKeepAlive() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(128);
+        final Properties properties = createProperties();
+        final PingHttpClient httpClient = new PingHttpClient(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            final TcpipPingTask tcpipPingTask =
+                    new TcpipPingTask(properties, server.getHost(), resultStore, httpClient);
+            executorService.submit(tcpipPingTask).get();
+            executorService.submit(tcpipPingTask).get();
+            final String result =
+                    resultStore.getReportsForHost(server.getHost()).get("ping.tcpip.check");
+            Assert.assertTrue(result.contains("Connection: cold"));
+            Assert.assertEquals(0, httpClient.getPoolStats().getAvailable());
+        } finally {
+            httpClient.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that a body longer than the byte cap is read up to the cap only, and its connection is
+     * closed instead of being returned to the pool.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTcpipPingTaskBodyCapped() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(1024 * 1024);
+        final Properties properties = createProperties();
+        properties.put("ping.tcpip.keepalive", "true");
+        properties.put("ping.tcpip.body.max.bytes", "16384");
+        final PingHttpClient httpClient = new PingHttpClient(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            executorService.submit(
+                    new TcpipPingTask(properties, server.getHost(), resultStore, httpClient)).get();
+            final String result =
+                    resultStore.getReportsForHost(server.getHost()).get("ping.tcpip.check");
+            Assert.assertTrue(result.contains("Status Code: 200"));
+            Assert.assertTrue(result.contains("Bytes Read: 16384;"));
+            Assert.assertEquals(0, httpClient.getPoolStats().getLeased());
+            Assert.assertEquals(0, httpClient.getPoolStats().getAvailable());
+        } finally {
+            httpClient.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests the HEAD and range probe methods.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTcpipPingTaskHeadAndRange() throws Exception {
+        final LocalHttpServer server = new LocalHttpServer(1024 * 1024);
+        final Properties properties = createProperties();
+        properties.put("ping.tcpip.keepalive", "true");
+        properties.put("ping.tcpip.body.max.bytes", "1000");
+        final PingHttpClient httpClient = new PingHttpClient(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            properties.put("ping.tcpip.method", "head");
+            executorService.submit(
+                    new TcpipPingTask(properties, server.getHost(), resultStore, httpClient)).get();
+            final String headResult =
+                    resultStore.getReportsForHost(server.getHost()).get("ping.tcpip.check");
+            Assert.assertTrue(headResult.contains("Status Code: 200"));
+            Assert.assertTrue(headResult.contains("Bytes Read: 0;"));
+            properties.put("ping.tcpip.method", "range");
+            executorService.submit(
+                    new TcpipPingTask(properties, server.getHost(), resultStore, httpClient)).get();
+            final String rangeResult =
+                    resultStore.getReportsForHost(server.getHost()).get("ping.tcpip.check");
+            Assert.assertTrue(rangeResult.contains("Status Code: 206"));
+            Assert.assertTrue(rangeResult.contains("Bytes Read: 1000;"));
+            Assert.assertEquals(0, httpClient.getPoolStats().getLeased());
+        } finally {
+            httpClient.close();
+            server.stop();
+        }
+    }
+
     /**
      * Creates test {@link Properties} for test run.
      *
@@ -0,0 +1,113 @@
+package hu.docler.ping.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.schedule.TimingWheelScheduler;
+
+/**
+ * Testing timing wheel scheduler functionality.
+ *
+ */
+public class TestTimingWheelScheduler {
+    /** {@link ExecutorService} used as worker pool of the scheduler. */
+    private final ExecutorService workerPool = Executors.newFixedThreadPool(2);
+
+    /**
+     * Stops the worker pool after a test.
+     */
+    @After
+    public void tearDown() {
+        workerPool.shutdownNow();
+    }
+
+    /**
+     * Creates a new {@link TimingWheelScheduler} without a valid tick duration presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSchedulerCreateWithInvalidTickDuration() {
+        new TimingWheelScheduler(0, TimeUnit.MILLISECONDS, 8);
+    }
+
+    /**
+     * Schedules a task without a valid executor presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testScheduleWithoutExecutor() {
+        final TimingWheelScheduler scheduler =
+                new TimingWheelScheduler(5, TimeUnit.MILLISECONDS, 4);
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                // nothing to do
+            }
+        }, null, 0, 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tests that a periodic task is run repeatedly, even with a period longer than a full round of
+     * the wheel.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testPeriodicTaskRun() throws Exception {
+        final TimingWheelScheduler scheduler =
+                new TimingWheelScheduler(5, TimeUnit.MILLISECONDS, 4);
+        final CountDownLatch latch = new CountDownLatch(3);
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, workerPool, 0, 30, TimeUnit.MILLISECONDS);
+        try {
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, scheduler.getScheduledCount());
+            Assert.assertTrue(scheduler.getDispatchedCount() >= 2);
+            Assert.assertTrue(scheduler.getMaxTickLagNanos() >= 0);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the run of a task is skipped if its previous run is still in progress.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testOverlappingRunSkipped() throws Exception {
+        final TimingWheelScheduler scheduler =
+                new TimingWheelScheduler(5, TimeUnit.MILLISECONDS, 16);
+        final AtomicInteger concurrentRuns = new AtomicInteger();
+        final AtomicInteger maxConcurrentRuns = new AtomicInteger();
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                final int runs = concurrentRuns.incrementAndGet();
+                maxConcurrentRuns.set(Math.max(maxConcurrentRuns.get(), runs));
+                try {
+                    Thread.sleep(50);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrentRuns.decrementAndGet();
+                }
+            }
+        }, workerPool, 0, 10, TimeUnit.MILLISECONDS);
+        try {
+            Thread.sleep(200);
+            Assert.assertEquals(1, maxConcurrentRuns.get());
+            Assert.assertTrue(scheduler.getSkippedCount() > 0);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package hu.docler.ping.test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.icmp.IcmpEchoEngine;
+import hu.docler.ping.icmp.TraceCallback;
+import hu.docler.ping.task.TracertEchoTask;
+import hu.docler.ping.test.util.TestDefaults;
+import hu.docler.ping.tracert.TracertHop;
+import hu.docler.ping.tracert.TracertPath;
+import hu.docler.ping.util.CheckResult;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing in-process trace route task functionality.
+ *
+ */
+public class TestTracertEchoTask {
+
+    /**
+     * Creates a new {@link TracertEchoTask} task without a valid echo engine presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTracertEchoTaskCreateWithoutEngine() {
+        new TracertEchoTask(createProperties(), "some.dummy.host", new MapResultStoreImpl(),
+                null, null);
+    }
+
+    /**
+     * Tests that tracing the loopback address stores a single hop path as the baseline.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTracertEchoTaskRun() throws Exception {
+        final Properties properties = createProperties();
+        final IcmpEchoEngine echoEngine = new IcmpEchoEngine(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new TracertEchoTask(properties, "127.0.0.1", resultStore, echoEngine, null).run();
+            final Map<String, String> reportsForHost =
+                    TestDefaults.awaitReportsForHost(resultStore, "127.0.0.1");
+            Assert.assertNotNull(reportsForHost);
+            Assert.assertNull(reportsForHost.get("ping.tracert.command"));
+            final String result = reportsForHost.get("ping.tracert.distance");
+            Assert.assertNotNull(result);
+            Assert.assertTrue(result.startsWith("Change: BASELINE; "));
+            Assert.assertTrue(result.contains("Hops: 1 127.0.0.1 "));
+            Assert.assertEquals(0, echoEngine.getInFlightCount());
+        } finally {
+            echoEngine.close();
+        }
+    }
+
+    /**
+     * Tests that an unreachable address takes a single probe with the maximal time to live,
+     * instead of one per hop. The address of a documentation network doesn't answer, unless the
+     * local network refuses the probes, which ends the trace early.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testUnreachableTraceTakesOneProbe() throws Exception {
+        final Properties properties = createProperties();
+        properties.put("ping.tracert.max.hops", "5");
+        properties.put("ping.icmp.timeout", "300");
+        final IcmpEchoEngine echoEngine = new IcmpEchoEngine(properties);
+        try {
+            final long startTime = System.nanoTime();
+            final TracertPath path = trace(echoEngine, InetAddress.getByName("192.0.2.1"));
+            final long elapsedMillis =
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            Assert.assertFalse(path.getHops().isEmpty());
+            Assert.assertTrue(path.getHops().size() <= 5);
+            for (final TracertHop hop : path.getHops()) {
+                if (hop.getIndex() < path.getHops().size()) {
+                    Assert.assertNull(hop.getAddress());
+                }
+            }
+            Assert.assertTrue("Trace took " + elapsedMillis + " ms", elapsedMillis < 600);
+            Assert.assertEquals(0, echoEngine.getInFlightCount());
+        } finally {
+            echoEngine.close();
+        }
+    }
+
+    /**
+     * Tests that the traces not fitting into the queue of the trace pool fail on the calling
+     * thread, while the traces accepted complete.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTraceQueueFull() throws Exception {
+        final Properties properties = createProperties();
+        properties.put("ping.tracert.engine.threads", "1");
+        properties.put("ping.tracert.queue.size", "1");
+        final IcmpEchoEngine echoEngine = new IcmpEchoEngine(properties);
+        try {
+            final InetAddress address = InetAddress.getByName("127.0.0.1");
+            final List<CompletableFuture<TracertPath>> futures =
+                    new ArrayList<CompletableFuture<TracertPath>>();
+            for (int i = 0; i < 20; i++) {
+                final CompletableFuture<TracertPath> future =
+                        new CompletableFuture<TracertPath>();
+                echoEngine.trace(address, createCallback(future));
+                futures.add(future);
+            }
+            int rejected = 0;
+            for (final CompletableFuture<TracertPath> future : futures) {
+                try {
+                    Assert.assertEquals(1, future.get(5, TimeUnit.SECONDS).getHops().size());
+                } catch (final ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+                    rejected++;
+                }
+            }
+            Assert.assertTrue(rejected > 0);
+            Assert.assertEquals(0, echoEngine.getInFlightCount());
+        } finally {
+            echoEngine.close();
+        }
+    }
+
+    /**
+     * Tests that a trace rejected by a saturated engine fails.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTraceRejected() throws Exception {
+        final Properties properties = createProperties();
+        properties.put("ping.icmp.max.inflight", "0");
+        final IcmpEchoEngine echoEngine = new IcmpEchoEngine(properties);
+        try {
+            final CompletableFuture<TracertPath> future = new CompletableFuture<TracertPath>();
+            echoEngine.trace(InetAddress.getByName("127.0.0.1"), createCallback(future));
+            Assert.assertTrue(future.isCompletedExceptionally());
+            Assert.assertEquals(0, echoEngine.getInFlightCount());
+        } finally {
+            echoEngine.close();
+        }
+    }
+
+    /**
+     * Tests that a trace rejected by a saturated engine fails the check without being compared
+     * with the baseline.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testRejectedTraceNotTracked() throws Exception {
+        final Properties properties = createProperties();
+        properties.put("ping.icmp.max.inflight", "0");
+        final IcmpEchoEngine echoEngine = new IcmpEchoEngine(properties);
+        try {
+            final ResultStore resultStore = new MapResultStoreImpl();
+            new TracertEchoTask(properties, "127.0.0.1", resultStore, echoEngine, null).run();
+            final CheckResult result =
+                    resultStore.getResultsForHost("127.0.0.1").get("ping.tracert.distance");
+            Assert.assertFalse(result.isSuccess());
+            Assert.assertTrue(result.getText().startsWith("Change: FAILED; "));
+        } finally {
+            echoEngine.close();
+        }
+    }
+
+    /**
+     * Traces an address and waits for the path.
+     *
+     * @param echoEngine
+     *            engine tracing the route
+     * @param address
+     *            address to be traced
+     * @return the path traced
+     * @throws Exception
+     *             if the trace fails
+     */
+    private TracertPath trace(final IcmpEchoEngine echoEngine, final InetAddress address)
+            throws Exception {
+        final CompletableFuture<TracertPath> future = new CompletableFuture<TracertPath>();
+        echoEngine.trace(address, createCallback(future));
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a callback completing a future.
+     *
+     * @param future
+     *            the future
+     * @return the callback
+     */
+    private TraceCallback createCallback(final CompletableFuture<TracertPath> future) {
+        return new TraceCallback() {
+            public void completed(final TracertPath path) {
+                future.complete(path);
+            }
+
+            public void failed(final Exception cause) {
+                future.completeExceptionally(cause);
+            }
+        };
+    }
+
+    /**
+     * Creates test {@link Properties} for test run.
+     *
+     * @return {@link Properties} for tasks
+     */
+    private Properties createProperties() {
+        final Properties properties = new Properties();
+        properties.put("ping.tracert.delay", "5");
+        properties.put("ping.icmp.timeout", "200");
+        properties.put("ping.report.url", "http://127.0.0.1/ping-report");
+        return properties;
+    }
+}
@@ -0,0 +1,154 @@
+package hu.docler.ping.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.tracert.TracertHop;
+import hu.docler.ping.tracert.TracertOutputParser;
+import hu.docler.ping.tracert.TracertPath;
+
+/**
+ * Testing trace route output parsing and path comparison.
+ *
+ */
+public class TestTracertOutputParser {
+    /** Output of the Windows <code>tracert</code> command. */
+    public static final String WINDOWS_OUTPUT = "\r\n"
+            + "Tracing route to example.com [93.184.216.34]\r\n"
+            + "over a maximum of 30 hops:\r\n" + "\r\n"
+            + "  1    <1 ms    <1 ms    <1 ms  192.168.1.1\r\n"
+            + "  2     *        *        *     Request timed out.\r\n"
+            + "  3    10 ms     9 ms    11 ms  host.isp.net [10.0.0.1]\r\n"
+            + "  4    20 ms     *       22 ms  93.184.216.34\r\n" + "\r\n"
+            + "Trace complete.\r\n";
+    /** Output of the Linux <code>traceroute</code> command. */
+    public static final String LINUX_OUTPUT =
+            "traceroute to example.com (93.184.216.34), 30 hops max, 60 byte packets\n"
+                    + " 1  _gateway (192.168.1.1)  0.345 ms  0.301 ms  0.290 ms\n"
+                    + " 2  * * *\n"
+                    + " 3  10.0.0.1 (10.0.0.1)  9.1 ms 10.0.0.2 (10.0.0.2)  9.5 ms  9.7 ms\n"
+                    + " 4  93.184.216.34 (93.184.216.34)  20.1 ms !H  *  21.3 ms\n";
+
+    /**
+     * Tests parsing the output of the Windows <code>tracert</code> command.
+     */
+    @Test
+    public void testParseWindowsOutput() {
+        final TracertPath path = new TracertOutputParser().parse(WINDOWS_OUTPUT);
+        Assert.assertEquals(4, path.getHops().size());
+        assertHop(path.getHops().get(0), 1, "192.168.1.1", 1.0, 1.0, 1.0);
+        assertHop(path.getHops().get(1), 2, null, Double.NaN, Double.NaN, Double.NaN);
+        assertHop(path.getHops().get(2), 3, "10.0.0.1", 10.0, 9.0, 11.0);
+        assertHop(path.getHops().get(3), 4, "93.184.216.34", 20.0, Double.NaN, 22.0);
+        Assert.assertEquals(21.0, path.getHops().get(3).getAverageRtt(), 1e-9);
+    }
+
+    /**
+     * Tests parsing the output of the Linux <code>traceroute</code> command.
+     */
+    @Test
+    public void testParseLinuxOutput() {
+        final TracertPath path = new TracertOutputParser().parse(LINUX_OUTPUT);
+        Assert.assertEquals(4, path.getHops().size());
+        assertHop(path.getHops().get(0), 1, "192.168.1.1", 0.345, 0.301, 0.290);
+        assertHop(path.getHops().get(1), 2, null, Double.NaN, Double.NaN, Double.NaN);
+        assertHop(path.getHops().get(2), 3, "10.0.0.1", 9.1, 9.5, 9.7);
+        assertHop(path.getHops().get(3), 4, "93.184.216.34", 20.1, Double.NaN, 21.3);
+    }
+
+    /**
+     * Tests that an output without hop lines gives an empty path.
+     */
+    @Test
+    public void testParseEmptyOutput() {
+        final TracertOutputParser parser = new TracertOutputParser();
+        Assert.assertTrue(parser.parse("").getHops().isEmpty());
+        Assert.assertTrue(parser.parse(null).getHops().isEmpty());
+        Assert.assertTrue(parser.parse("tracert: command not found\n").getHops().isEmpty());
+        Assert.assertEquals("Hops: none",
+                parser.parse("").toString().replaceFirst("^Fingerprint: [0-9a-f]+; ", ""));
+    }
+
+    /**
+     * Tests that the fingerprint depends on the hop addresses only.
+     */
+    @Test
+    public void testFingerprint() {
+        final TracertOutputParser parser = new TracertOutputParser();
+        final TracertPath path = parser.parse(WINDOWS_OUTPUT);
+        final TracertPath slower = parser.parse(WINDOWS_OUTPUT.replace("10 ms", "15 ms"));
+        final TracertPath rerouted = parser.parse(WINDOWS_OUTPUT.replace("10.0.0.1", "10.0.0.2"));
+        Assert.assertEquals(path.getFingerprint(), slower.getFingerprint());
+        Assert.assertTrue(path.isSameRoute(slower));
+        Assert.assertNotEquals(path.getFingerprint(), rerouted.getFingerprint());
+        Assert.assertFalse(path.isSameRoute(rerouted));
+        Assert.assertFalse(path.isSameRoute(null));
+    }
+
+    /**
+     * Tests that a hop not answered in one of the paths doesn't change the route.
+     */
+    @Test
+    public void testUnansweredHopMatchesAnyAddress() {
+        final TracertOutputParser parser = new TracertOutputParser();
+        final TracertPath path = parser.parse(WINDOWS_OUTPUT);
+        final TracertPath lostHop = parser.parse(WINDOWS_OUTPUT.replace(
+                "10 ms     9 ms    11 ms  host.isp.net [10.0.0.1]",
+                " *        *        *     Request timed out."));
+        final TracertPath answeredHop = parser.parse(WINDOWS_OUTPUT.replace(
+                " *        *        *     Request timed out.",
+                "5 ms     5 ms     5 ms  10.0.0.9"));
+        final TracertPath shorter = parser.parse(WINDOWS_OUTPUT.replace(
+                "  4    20 ms     *       22 ms  93.184.216.34\r\n", ""));
+        Assert.assertNotEquals(path.getFingerprint(), lostHop.getFingerprint());
+        Assert.assertTrue(path.isSameRoute(lostHop));
+        Assert.assertTrue(lostHop.isSameRoute(path));
+        Assert.assertTrue(path.isSameRoute(answeredHop));
+        Assert.assertFalse(lostHop.isSameRoute(
+                parser.parse(WINDOWS_OUTPUT.replace("192.168.1.1", "192.168.1.2"))));
+        Assert.assertFalse(path.isSameRoute(shorter));
+    }
+
+    /**
+     * Tests detecting the round trip time regression of a hop.
+     */
+    @Test
+    public void testRttRegression() {
+        final TracertOutputParser parser = new TracertOutputParser();
+        final TracertPath baseline = parser.parse(WINDOWS_OUTPUT);
+        final TracertPath regressed = parser.parse(WINDOWS_OUTPUT.replace(
+                "10 ms     9 ms    11 ms", "80 ms    90 ms   100 ms"));
+        final TracertPath slightlySlower = parser.parse(WINDOWS_OUTPUT.replace(
+                "10 ms     9 ms    11 ms", "25 ms    25 ms    25 ms"));
+        Assert.assertNull(baseline.findRttRegression(baseline, 2.0, 20.0));
+        final TracertHop hop = regressed.findRttRegression(baseline, 2.0, 20.0);
+        Assert.assertNotNull(hop);
+        Assert.assertEquals(3, hop.getIndex());
+        Assert.assertNull(slightlySlower.findRttRegression(baseline, 2.0, 20.0));
+    }
+
+    /**
+     * Asserts the properties of a hop.
+     *
+     * @param hop
+     *            the hop
+     * @param index
+     *            expected index
+     * @param address
+     *            expected address
+     * @param rtts
+     *            expected round trip times
+     */
+    private void assertHop(
+            final TracertHop hop,
+            final int index,
+            final String address,
+            final double... rtts) {
+        Assert.assertEquals(index, hop.getIndex());
+        Assert.assertEquals(address, hop.getAddress());
+        Assert.assertEquals(rtts.length, hop.getProbeCount());
+        for (int i = 0; i < rtts.length; i++) {
+            Assert.assertEquals(rtts[i], hop.getRtt(i), 1e-9);
+        }
+    }
+}
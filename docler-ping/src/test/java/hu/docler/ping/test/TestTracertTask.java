@@ -1,5 +1,8 @@
 package hu.docler.ping.test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
@@ -10,6 +13,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import hu.docler.ping.task.TracertTask;
+import hu.docler.ping.tracert.TracertChange;
 import hu.docler.ping.test.util.TestDefaults;
 import hu.docler.ping.util.MapResultStoreImpl;
 import hu.docler.ping.util.ResultStore;
@@ -69,6 +73,118 @@ public class TestTracertTask {
         Assert.assertFalse(icmpPingResult.isEmpty());
     }
 
+    /**
+     * Tests that only the first path, the path changes and the regressions are stored.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTracertTaskStoresChanges() throws Exception {
+        final File output = File.createTempFile("tracert", ".txt");
+        output.deleteOnExit();
+        final File script = File.createTempFile("tracert", ".sh");
+        script.deleteOnExit();
+        Files.write(script.toPath(), ("#!/bin/sh\ncat " + output.getAbsolutePath() + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(script.setExecutable(true));
+        final Properties properties = createProperties();
+        properties.put("ping.tracert.command", script.getAbsolutePath() + " $HOST");
+        properties.put("ping.tracert.report.changes", "false");
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final TracertTask tracertTask = new TracertTask(properties, "127.0.0.1", resultStore);
+
+        writeOutput(output, TestTracertOutputParser.LINUX_OUTPUT);
+        tracertTask.run();
+        Assert.assertEquals(TracertChange.BASELINE, tracertTask.getLastChange());
+        final String baseline = getStoredResult(resultStore);
+        Assert.assertTrue(baseline.contains("3 10.0.0.1 9.1/9.5/9.7"));
+
+        resultStore.storeHostCheckResult("127.0.0.1", "ping.tracert.command", "marker");
+        tracertTask.run();
+        Assert.assertEquals(TracertChange.UNCHANGED, tracertTask.getLastChange());
+        Assert.assertEquals("marker", getStoredResult(resultStore));
+
+        writeOutput(output, TestTracertOutputParser.LINUX_OUTPUT.replace(" 9.1 ms", " 90.1 ms"));
+        tracertTask.run();
+        Assert.assertEquals(TracertChange.RTT_REGRESSION, tracertTask.getLastChange());
+        Assert.assertTrue(
+                getStoredResult(resultStore).startsWith("Change: RTT_REGRESSION at hop 3"));
+
+        writeOutput(output,
+                TestTracertOutputParser.LINUX_OUTPUT.replace("(10.0.0.1)", "(10.9.9.9)"));
+        tracertTask.run();
+        Assert.assertEquals(TracertChange.PATH_CHANGED, tracertTask.getLastChange());
+        Assert.assertTrue(getStoredResult(resultStore).contains("3 10.9.9.9"));
+    }
+
+    /**
+     * Tests that a timed out command fails the check without replacing the baseline.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTimedOutTracertKeepsBaseline() throws Exception {
+        final File output = File.createTempFile("tracert", ".txt");
+        output.deleteOnExit();
+        final File delay = File.createTempFile("tracert", ".delay");
+        delay.deleteOnExit();
+        final File script = File.createTempFile("tracert", ".sh");
+        script.deleteOnExit();
+        Files.write(script.toPath(), ("#!/bin/sh\nhead -3 " + output.getAbsolutePath()
+                + "\nsleep $(cat " + delay.getAbsolutePath() + ")\ntail -n +4 "
+                + output.getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(script.setExecutable(true));
+        final Properties properties = createProperties();
+        properties.put("ping.tracert.command", script.getAbsolutePath() + " $HOST");
+        properties.put("ping.tracert.command.timeout", "500");
+        properties.put("ping.tracert.report.changes", "false");
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final TracertTask tracertTask = new TracertTask(properties, "127.0.0.1", resultStore);
+        writeOutput(output, TestTracertOutputParser.LINUX_OUTPUT);
+
+        writeOutput(delay, "0");
+        tracertTask.run();
+        Assert.assertEquals(TracertChange.BASELINE, tracertTask.getLastChange());
+
+        writeOutput(delay, "5");
+        tracertTask.run();
+        Assert.assertEquals(TracertChange.FAILED, tracertTask.getLastChange());
+        Assert.assertTrue(getStoredResult(resultStore).startsWith("Change: FAILED"));
+        Assert.assertFalse(resultStore.getResultsForHost("127.0.0.1").get("ping.tracert.command")
+                .isSuccess());
+
+        writeOutput(delay, "0");
+        tracertTask.run();
+        Assert.assertEquals(TracertChange.UNCHANGED, tracertTask.getLastChange());
+    }
+
+    /**
+     * Writes the output the stub trace route command prints.
+     *
+     * @param file
+     *            file printed by the stub command
+     * @param text
+     *            the output
+     * @throws Exception
+     *             if writing the file fails
+     */
+    private void writeOutput(final File file, final String text) throws Exception {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the trace route result stored for the local host.
+     *
+     * @param resultStore
+     *            the result store
+     * @return the result stored
+     */
+    private String getStoredResult(final ResultStore resultStore) {
+        return resultStore.getReportsForHost("127.0.0.1").get("ping.tracert.command");
+    }
+
     /**
      * Creates test {@link Properties} for test run.
      *
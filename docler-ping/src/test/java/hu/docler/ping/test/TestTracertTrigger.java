@@ -0,0 +1,138 @@
+package hu.docler.ping.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hu.docler.ping.task.IcmpPingTask;
+import hu.docler.ping.task.TracertTask;
+import hu.docler.ping.task.TracertTrigger;
+import hu.docler.ping.util.MapResultStoreImpl;
+import hu.docler.ping.util.ResultStore;
+
+/**
+ * Testing on demand trace route functionality.
+ *
+ */
+public class TestTracertTrigger {
+    /** Host checked. */
+    private static final String HOST = "127.0.0.1";
+
+    /**
+     * Creates a new {@link TracertTrigger} without a valid executor presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTracertTriggerCreateWithoutExecutor() {
+        new TracertTrigger(new Properties(), new MapResultStoreImpl(), null);
+    }
+
+    /**
+     * Tests that a failure triggers the trace route of the host once, and the triggers of the
+     * cooldown are dropped.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testTriggerWithCooldown() throws Exception {
+        final Properties properties = createProperties();
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final List<Runnable> submitted = new ArrayList<Runnable>();
+        final TracertTrigger trigger =
+                new TracertTrigger(properties, resultStore, new Executor() {
+                    public void execute(final Runnable command) {
+                        submitted.add(command);
+                    }
+                });
+        trigger.register(new TracertTask(properties, HOST, resultStore));
+
+        Assert.assertFalse(trigger.checkFailed("unknown.host", "ping.icmp.command"));
+        Assert.assertTrue(trigger.checkFailed(HOST, "ping.icmp.command"));
+        Assert.assertFalse(trigger.checkFailed(HOST, "ping.tcpip.delay"));
+        Assert.assertEquals(1, submitted.size());
+
+        submitted.get(0).run();
+        Assert.assertTrue(resultStore.getReportsForHost(HOST).get("ping.tracert.command")
+                .contains("2 10.0.0.1 9.1/9.5/9.7"));
+        Assert.assertFalse(trigger.checkFailed(HOST, "ping.icmp.command"));
+        Assert.assertEquals(1, submitted.size());
+        Assert.assertEquals(1, trigger.getTriggeredCount());
+        Assert.assertEquals(2, trigger.getSuppressedCount());
+    }
+
+    /**
+     * Tests that a failing ICMP ping check triggers the trace route of its host.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testFailedCheckTriggersTracert() throws Exception {
+        final Properties properties = createProperties();
+        properties.put("ping.icmp.delay", "1");
+        properties.put("ping.icmp.command", createScript(
+                "echo 'Packets: Sent = 4, Received = 0, Lost = 4 (100% loss),'\n")
+                        .getAbsolutePath());
+        properties.put("ping.tracert.trigger.cooldown", "0");
+        final ResultStore resultStore = new MapResultStoreImpl();
+        final TracertTrigger trigger =
+                new TracertTrigger(properties, resultStore, new Executor() {
+                    public void execute(final Runnable command) {
+                        command.run();
+                    }
+                });
+        trigger.register(new TracertTask(properties, HOST, resultStore));
+        final IcmpPingTask icmpPingTask = new IcmpPingTask(properties, HOST, resultStore);
+        icmpPingTask.setFailureListener(trigger);
+
+        icmpPingTask.run();
+        Assert.assertEquals(1, trigger.getTriggeredCount());
+        Assert.assertNotNull(resultStore.getReportsForHost(HOST).get("ping.tracert.command"));
+        icmpPingTask.run();
+        Assert.assertEquals(2, trigger.getTriggeredCount());
+    }
+
+    /**
+     * Creates test {@link Properties} for test run.
+     *
+     * @return {@link Properties} for tasks
+     * @throws IOException
+     *             if creating the stub trace route command fails
+     */
+    private Properties createProperties() throws IOException {
+        final Properties properties = new Properties();
+        properties.put("ping.tracert.mode", "ondemand");
+        properties.put("ping.tracert.baseline.delay", "900");
+        properties.put("ping.tracert.command", createScript(
+                "echo ' 1  192.168.1.1  0.345 ms  0.301 ms  0.290 ms'\n"
+                        + "echo ' 2  10.0.0.1  9.1 ms  9.5 ms  9.7 ms'\n").getAbsolutePath()
+                + " $HOST");
+        properties.put("ping.report.url", "http://127.0.0.1/ping-report");
+        return properties;
+    }
+
+    /**
+     * Creates an executable shell script.
+     *
+     * @param body
+     *            body of the script
+     * @return the script
+     * @throws IOException
+     *             if creating the script fails
+     */
+    private File createScript(final String body) throws IOException {
+        final File script = File.createTempFile("tracert-trigger", ".sh");
+        script.deleteOnExit();
+        Files.write(script.toPath(), ("#!/bin/sh\n" + body).getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(script.setExecutable(true));
+        return script;
+    }
+}
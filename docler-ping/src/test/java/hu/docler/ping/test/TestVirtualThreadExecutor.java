@@ -0,0 +1,97 @@
+package hu.docler.ping.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import hu.docler.ping.schedule.VirtualThreadExecutor;
+
+/**
+ * Testing virtual thread executor functionality.
+ *
+ */
+public class TestVirtualThreadExecutor {
+
+    /**
+     * Creates a new {@link VirtualThreadExecutor} without a valid concurrency limit presented.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testVirtualThreadExecutorCreateWithInvalidLimit() {
+        new VirtualThreadExecutor("test", 0);
+    }
+
+    /**
+     * Tests that the executor refuses to start on a runtime without virtual threads, instead of
+     * falling back to platform threads.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testVirtualThreadExecutorCreateWithoutVirtualThreads() {
+        Assume.assumeFalse(isVirtualThreadSupported());
+        new VirtualThreadExecutor("test", 1);
+    }
+
+    /**
+     * Tests that the executor runs checks concurrently up to its limit and rejects any further
+     * check until a permit is released.
+     *
+     * @throws Exception
+     *             if any execution error occurs during the test
+     */
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        Assume.assumeTrue(isVirtualThreadSupported());
+        final int limit = 50;
+        final VirtualThreadExecutor executor = new VirtualThreadExecutor("test", limit);
+        final CountDownLatch startedLatch = new CountDownLatch(limit);
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final CountDownLatch finishedLatch = new CountDownLatch(limit + 1);
+        final Runnable blockingCheck = new Runnable() {
+            public void run() {
+                startedLatch.countDown();
+                try {
+                    blockingLatch.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finishedLatch.countDown();
+            }
+        };
+        try {
+            for (int i = 0; i < limit; i++) {
+                executor.execute(blockingCheck);
+            }
+            Assert.assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(limit, executor.getActiveCount());
+            try {
+                executor.execute(blockingCheck);
+                Assert.fail("Saturated executor accepted a new check");
+            } catch (final RejectedExecutionException e) {
+                Assert.assertEquals(1, executor.getRejectedCount());
+            }
+            blockingLatch.countDown();
+            while (executor.getActiveCount() > 0) {
+                Thread.sleep(5);
+            }
+            executor.execute(blockingCheck);
+            Assert.assertTrue(finishedLatch.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the runtime supports virtual threads
+     */
+    private static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
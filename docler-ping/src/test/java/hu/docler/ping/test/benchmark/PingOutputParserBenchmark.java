@@ -0,0 +1,89 @@
+package hu.docler.ping.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import hu.docler.ping.icmp.PingOutputParser;
+import hu.docler.ping.icmp.PingStatistics;
+import hu.docler.ping.test.TestPingOutputParser;
+
+/**
+ * JMH benchmark comparing the {@link PingOutputParser} to the substring based parsing of the ping
+ * output it replaced. Run it with the <code>main</code> method from the test classpath, e.g.
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=hu.docler.ping.test.benchmark.PingOutputParserBenchmark</code>, and run it
+ * with <code>-prof gc</code> to compare the allocation rates too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PingOutputParserBenchmark {
+    /** {@link PingOutputParser} instance. */
+    private final PingOutputParser parser = new PingOutputParser();
+    /** {@link PingStatistics} record reused by the parser. */
+    private final PingStatistics statistics = new PingStatistics();
+
+    /**
+     * Parses a Windows ping output with the {@link PingOutputParser}.
+     *
+     * @return the result of the check
+     */
+    @Benchmark
+    public boolean streamingParser() {
+        parser.parse(TestPingOutputParser.WINDOWS_OUTPUT, statistics);
+        return statistics.getSent() == statistics.getReceived() && statistics.getLost() == 0;
+    }
+
+    /**
+     * Parses a Windows ping output the way the ICMP ping check did before the
+     * {@link PingOutputParser}.
+     *
+     * @return the result of the check
+     */
+    @Benchmark
+    public boolean substringParser() {
+        final String result = TestPingOutputParser.WINDOWS_OUTPUT;
+        if (result.toLowerCase().contains("unreachable") || result.toLowerCase().contains("timeout")
+                || result.toLowerCase().contains("timed out")) {
+            return false;
+        }
+        final String sentNrSubstring = result.substring(result.indexOf("Sent = ") + 7);
+        final long sentNr =
+                Long.parseLong(sentNrSubstring.substring(0, sentNrSubstring.indexOf(',')));
+        final String receivedNrSubstring = result.substring(result.indexOf("Received = ") + 11);
+        final long receivedNr =
+                Long.parseLong(receivedNrSubstring.substring(0, receivedNrSubstring.indexOf(',')));
+        final String lostNrSubstring = result.substring(result.indexOf("Lost = ") + 7);
+        final long lostNr =
+                Long.parseLong(lostNrSubstring.substring(0, lostNrSubstring.indexOf('(') - 1));
+        return sentNr == receivedNr && lostNr == 0;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            command line arguments, not used
+     * @throws RunnerException
+     *             if running the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PingOutputParserBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+package hu.docler.ping.test.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal HTTP server listening on the loopback interface, used by tests instead of remote hosts.
+ * Answers every request with status code 200 and a body of the configured size, or with status
+ * code 206 and the first bytes of the body to a request with a <code>bytes=0-N</code> range. The
+ * body of the last request received is kept, like the body of an error report.
+ *
+ */
+public final class LocalHttpServer {
+    /** The underlying {@link HttpServer}. */
+    private final HttpServer server;
+    /** Body of the last request received, <code>null</code> before the first request. */
+    private volatile String lastRequestBody;
+
+    /**
+     * Ctor. Starts the server on a free port.
+     *
+     * @param bodySize
+     *            size of the response body in bytes
+     * @throws IOException
+     *             if the server can't be started
+     */
+    public LocalHttpServer(final int bodySize) throws IOException {
+        final byte[] body = new byte[bodySize];
+        Arrays.fill(body, (byte) 'x');
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                lastRequestBody = readBody(exchange.getRequestBody());
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Content-Length", Integer.toString(bodySize));
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    final String range = exchange.getRequestHeaders().getFirst("Range");
+                    int length = body.length;
+                    if (range != null && range.startsWith("bytes=0-")) {
+                        length = Math.min(body.length,
+                                Integer.parseInt(range.substring("bytes=0-".length())) + 1);
+                        exchange.sendResponseHeaders(206, length);
+                    } else {
+                        exchange.sendResponseHeaders(200, length);
+                    }
+                    final OutputStream responseBody = exchange.getResponseBody();
+                    try {
+                        responseBody.write(body, 0, length);
+                        responseBody.close();
+                    } catch (final IOException e) {
+                        // the client may stop reading the body at its byte cap
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * @return host and port of the server, usable as a host to be checked
+     */
+    public String getHost() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return port of the server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return body of the last request received, <code>null</code> before the first request
+     */
+    public String getLastRequestBody() {
+        return lastRequestBody;
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Reads the body of a request.
+     *
+     * @param requestBody
+     *            the body
+     * @return the body decoded as UTF-8
+     * @throws IOException
+     *             if the body can't be read
+     */
+    private static String readBody(final InputStream requestBody) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read = requestBody.read(buffer);
+        while (read != -1) {
+            body.write(buffer, 0, read);
+            read = requestBody.read(buffer);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -1,7 +1,11 @@
 package hu.docler.ping.test.util;
 
+import java.util.Map;
+
+import hu.docler.ping.util.ResultStore;
+
 /**
- * Shared default values of tests.
+ * Shared default values and helpers of tests.
  *
  */
 public final class TestDefaults {
@@ -9,4 +13,39 @@ public final class TestDefaults {
      * Default valid, reachable host to be tested.
      */
     public static final String defaultTestHost = "jasmin.com";
+    /**
+     * Time a test waits for the result of an asynchronous check, in milliseconds.
+     */
+    public static final long resultTimeoutMillis = 5000;
+
+    /**
+     * Ctor, not to be instantiated.
+     */
+    private TestDefaults() {
+    }
+
+    /**
+     * Waits until the result store has the reports of a host, at most for
+     * {@link #resultTimeoutMillis}. Used by the tests of checks storing their results
+     * asynchronously.
+     *
+     * @param resultStore
+     *            the result store
+     * @param host
+     *            the host
+     * @return the reports of the host, or <code>null</code> if none was stored in time
+     * @throws InterruptedException
+     *             If the waiting is interrupted.
+     */
+    public static Map<String, String> awaitReportsForHost(
+            final ResultStore resultStore,
+            final String host) throws InterruptedException {
+        Map<String, String> reportsForHost = null;
+        final long deadline = System.currentTimeMillis() + resultTimeoutMillis;
+        while (reportsForHost == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            reportsForHost = resultStore.getReportsForHost(host);
+        }
+        return reportsForHost;
+    }
 }